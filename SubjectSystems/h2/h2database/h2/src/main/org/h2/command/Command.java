@@ -29,7 +29,7 @@ public abstract class Command implements CommandInterface {
     /**
      * The session.
      */
-    protected final Session session;
+    protected Session session;
 
     /**
      * The last start time.
@@ -50,6 +50,12 @@ public abstract class Command implements CommandInterface {
 
     private boolean canReuse;
 
+    /**
+     * The key of this command in the plan cache of the database, or
+     * {@code null} if this command is not shared between sessions.
+     */
+    private PlanCache.Key planCacheKey;
+
     Command(Session session, String sql) {
         this.session = session;
         this.sql = sql;
@@ -332,7 +338,12 @@ private long filterConcurrentUpdate(DbException e, long start) {
 
     @Override
     public void close() {
-        canReuse = true;
+        if (planCacheKey != null && !canReuse) {
+            canReuse = true;
+            session.getDatabase().getPlanCache().release(planCacheKey, this);
+        } else {
+            canReuse = true;
+        }
     }
 
     @Override
@@ -374,6 +385,35 @@ public void setCanReuse(boolean canReuse) {
         this.canReuse = canReuse;
     }
 
+    /**
+     * Check if this command can be moved to another session, so it can be
+     * kept in the plan cache of the database.
+     *
+     * @return true if it can
+     */
+    public boolean isShareable() {
+        return false;
+    }
+
+    /**
+     * Set the key of this command in the plan cache of the database. The
+     * command is returned to the plan cache when it is closed.
+     *
+     * @param planCacheKey the key
+     */
+    public void setPlanCacheKey(PlanCache.Key planCacheKey) {
+        this.planCacheKey = planCacheKey;
+    }
+
+    /**
+     * Move this command to another session.
+     *
+     * @param session the new session
+     */
+    void setSession(Session session) {
+        this.session = session;
+    }
+
     public abstract Set<DbObject> getDependencies();
 
     /**
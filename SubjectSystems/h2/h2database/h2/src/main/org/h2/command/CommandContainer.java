@@ -297,6 +297,19 @@ public boolean isCacheable() {
         return prepared.isCacheable();
     }
 
+    @Override
+    public boolean isShareable() {
+        return prepared.isShareable();
+    }
+
+    @Override
+    void setSession(Session session) {
+        if (session != this.session) {
+            super.setSession(session);
+            prepared.setSession(session);
+        }
+    }
+
     @Override
     public int getCommandType() {
         return prepared.getType();
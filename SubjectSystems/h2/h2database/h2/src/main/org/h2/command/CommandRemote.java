@@ -6,7 +6,9 @@
 package org.h2.command;
 
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 import org.h2.engine.Constants;
 import org.h2.engine.GeneratedKeysMode;
 import org.h2.engine.SessionRemote;
@@ -42,13 +44,38 @@ public class CommandRemote implements CommandInterface {
     private boolean readonly;
     private final int created;
 
+    /**
+     * Whether the prepare request was sent, but the response was not read
+     * yet.
+     */
+    private boolean preparePending;
+
+    /**
+     * The exception of a pipelined prepare request.
+     */
+    private DbException prepareError;
+
+    /**
+     * Create a new remote command.
+     *
+     * @param session the session
+     * @param transferList the transfer objects
+     * @param sql the SQL statement
+     * @param fetchSize the number of rows to fetch in one step
+     * @param pipelined whether the prepare request should be sent together
+     *            with the first execute request
+     */
     public CommandRemote(SessionRemote session,
-            ArrayList<Transfer> transferList, String sql, int fetchSize) {
+            ArrayList<Transfer> transferList, String sql, int fetchSize, boolean pipelined) {
         this.transferList = transferList;
         trace = session.getTrace();
         this.sql = sql;
         parameters = Utils.newSmallArrayList();
-        prepare(session, true);
+        if (pipelined) {
+            sendPrepare(session);
+        } else {
+            prepare(session, true);
+        }
         // set session late because prepare might fail - in this case we don't
         // need to close the object
         this.session = session;
@@ -83,33 +110,125 @@ private void prepare(SessionRemote s, boolean createParams) {
                         writeInt(id).writeString(sql);
                 }
                 s.done(transfer);
-                isQuery = transfer.readBoolean();
-                readonly = transfer.readBoolean();
+                readPrepareResult(transfer, v16, createParams);
+            } catch (IOException e) {
+                s.removeServer(e, i--, ++count);
+            }
+        }
+    }
 
-                cmdType = v16 && createParams ? transfer.readInt() : UNKNOWN;
+    private void readPrepareResult(Transfer transfer, boolean v16, boolean createParams) throws IOException {
+        isQuery = transfer.readBoolean();
+        readonly = transfer.readBoolean();
 
-                int paramCount = transfer.readInt();
-                if (createParams) {
-                    parameters.clear();
-                    for (int j = 0; j < paramCount; j++) {
-                        ParameterRemote p = new ParameterRemote(j);
-                        p.readMetaData(transfer);
-                        parameters.add(p);
+        cmdType = v16 && createParams ? transfer.readInt() : UNKNOWN;
+
+        int paramCount = transfer.readInt();
+        if (createParams) {
+            parameters.clear();
+            for (int j = 0; j < paramCount; j++) {
+                ParameterRemote p = new ParameterRemote(j);
+                p.readMetaData(transfer);
+                parameters.add(p);
+            }
+        }
+    }
+
+    /**
+     * Send the prepare request without waiting for the response. The
+     * response is read before the response of the next request.
+     *
+     * @param s the session
+     */
+    private void sendPrepare(SessionRemote s) {
+        id = s.getNextId();
+        Transfer transfer = transferList.get(0);
+        try {
+            s.traceOperation("SESSION_PREPARE_READ_PARAMS2", id);
+            transfer.writeInt(SessionRemote.SESSION_PREPARE_READ_PARAMS2).writeInt(id).writeString(sql);
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, null);
+        }
+        preparePending = true;
+        s.addPendingResponse(t -> {
+            preparePending = false;
+            try {
+                s.readStatus(t);
+            } catch (DbException e) {
+                prepareError = e;
+                return;
+            }
+            readPrepareResult(t, true, true);
+        });
+    }
+
+    /**
+     * Read the response of a pipelined prepare request, if it was not read
+     * yet.
+     */
+    private void readPendingPrepare() {
+        if (preparePending) {
+            synchronized (session) {
+                if (preparePending) {
+                    try {
+                        session.readPendingResponses(transferList.get(0));
+                    } catch (IOException e) {
+                        session.removeServer(e, 0, 1);
+                    }
+                    if (preparePending) {
+                        // the response was lost
+                        preparePending = false;
+                        prepare(session, true);
                     }
                 }
-            } catch (IOException e) {
-                s.removeServer(e, i--, ++count);
             }
         }
     }
 
+    /**
+     * Read the response of a pipelined prepare request, and throw the
+     * exception the server sent, if any.
+     */
+    private void checkPrepared() {
+        readPendingPrepare();
+        checkPrepareError();
+    }
+
+    private void checkPrepareError() {
+        if (prepareError != null) {
+            throw prepareError;
+        }
+    }
+
+    /**
+     * Called to flush the output and read the response to a request. If a
+     * pipelined prepare request failed, this exception is thrown instead of
+     * the exception of the execute request.
+     *
+     * @param transfer the transfer object
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    private void done(Transfer transfer) throws IOException {
+        try {
+            session.done(transfer);
+        } catch (DbException e) {
+            if (prepareError != null) {
+                throw prepareError;
+            }
+            throw e;
+        }
+    }
+
     @Override
     public boolean isQuery() {
+        checkPrepared();
         return isQuery;
     }
 
     @Override
     public ArrayList<ParameterInterface> getParameters() {
+        checkPrepared();
         return parameters;
     }
 
@@ -117,6 +236,8 @@ private void prepareIfRequired() {
         if (session.getLastReconnect() != created) {
             // in this case we need to prepare again in every case
             id = Integer.MIN_VALUE;
+            // the response of a pipelined prepare request was lost
+            preparePending = false;
         }
         session.checkClosed();
         if (id <= session.getCurrentId() - SysProperties.SERVER_CACHED_OBJECTS) {
@@ -128,6 +249,7 @@ private void prepareIfRequired() {
     @Override
     public ResultInterface getMetaData() {
         synchronized (session) {
+            checkPrepared();
             if (!isQuery) {
                 return null;
             }
@@ -156,8 +278,9 @@ public ResultInterface getMetaData() {
 
     @Override
     public ResultInterface executeQuery(int maxRows, boolean scrollable) {
-        checkParameters();
         synchronized (session) {
+            checkPrepareError();
+            checkParameters();
             int objectId = session.getNextId();
             ResultRemote result = null;
             for (int i = 0, count = 0; i < transferList.size(); i++) {
@@ -175,7 +298,7 @@ public ResultInterface executeQuery(int maxRows, boolean scrollable) {
                     }
                     transfer.writeInt(fetch);
                     sendParameters(transfer);
-                    session.done(transfer);
+                    done(transfer);
                     int columnCount = transfer.readInt();
                     if (result != null) {
                         result.close();
@@ -186,6 +309,7 @@ public ResultInterface executeQuery(int maxRows, boolean scrollable) {
                         break;
                     }
                 } catch (IOException e) {
+                    preparePending = false;
                     session.removeServer(e, i--, ++count);
                 }
             }
@@ -197,12 +321,13 @@ public ResultInterface executeQuery(int maxRows, boolean scrollable) {
 
     @Override
     public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
-        checkParameters();
         boolean supportsGeneratedKeys = session.isSupportsGeneratedKeys();
         int generatedKeysMode = GeneratedKeysMode.valueOf(generatedKeysRequest);
         boolean readGeneratedKeys = supportsGeneratedKeys && generatedKeysMode != GeneratedKeysMode.NONE;
         int objectId = readGeneratedKeys ? session.getNextId() : 0;
         synchronized (session) {
+            checkPrepareError();
+            checkParameters();
             int updateCount = 0;
             ResultRemote generatedKeys = null;
             boolean autoCommit = false;
@@ -234,7 +359,7 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
                         }
                         }
                     }
-                    session.done(transfer);
+                    done(transfer);
                     updateCount = transfer.readInt();
                     autoCommit = transfer.readBoolean();
                     if (readGeneratedKeys) {
@@ -246,6 +371,7 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
                         generatedKeys = new ResultRemote(session, transfer, objectId, columnCount, Integer.MAX_VALUE);
                     }
                 } catch (IOException e) {
+                    preparePending = false;
                     session.removeServer(e, i--, ++count);
                 }
             }
@@ -259,6 +385,44 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
         }
     }
 
+    /**
+     * Execute the command with each set of parameters in one round trip. The
+     * server continues with the next set of parameters if the command fails.
+     * This method may only be used if the session is pipelined.
+     *
+     * @param batchParameters the sets of parameter values
+     * @param errors receives the exception of each failed execution
+     * @return the update counts, {@link java.sql.Statement#EXECUTE_FAILED}
+     *         for the failed executions
+     */
+    public int[] executeBatchUpdate(List<Value[]> batchParameters, SQLException[] errors) {
+        synchronized (session) {
+            checkPrepared();
+            prepareIfRequired();
+            int size = batchParameters.size();
+            int[] result = new int[size];
+            Transfer transfer = transferList.get(0);
+            try {
+                session.traceOperation("COMMAND_EXECUTE_BATCH_UPDATE", id);
+                transfer.writeInt(SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE).writeInt(id).writeInt(size);
+                for (Value[] set : batchParameters) {
+                    transfer.writeInt(set.length);
+                    for (Value v : set) {
+                        transfer.writeValue(v);
+                    }
+                }
+                session.done(transfer);
+                session.readBatchUpdateResult(transfer, result, errors);
+            } catch (IOException e) {
+                // the command may have been executed partially
+                session.removeServer(e, 0, 1);
+                throw DbException.convertIOException(e, null);
+            }
+            session.readSessionState();
+            return result;
+        }
+    }
+
     private void checkParameters() {
         if (cmdType != EXPLAIN) {
             for (ParameterInterface p : parameters) {
@@ -283,6 +447,8 @@ private void sendParameters(Transfer transfer) throws IOException {
 
     @Override
     public void close() {
+        // the response of a pipelined prepare request is still read
+        preparePending = false;
         if (session == null || session.isClosed()) {
             return;
         }
@@ -320,11 +486,12 @@ public void cancel() {
 
     @Override
     public String toString() {
-        return sql + Trace.formatParams(getParameters());
+        return sql + Trace.formatParams(parameters);
     }
 
     @Override
     public int getCommandType() {
+        readPendingPrepare();
         return cmdType;
     }
 
@@ -1188,6 +1188,12 @@ private Prepared parseBackup() {
         BackupCommand command = new BackupCommand(session);
         read(TO);
         command.setFileName(readExpression());
+        if (readIf("INCREMENTAL")) {
+            command.setIncremental(true);
+            if (readIf(FROM)) {
+                command.setPreviousFileName(readExpression());
+            }
+        }
         return command;
     }
 
@@ -7132,6 +7138,15 @@ private Prepared parseCreate() {
             command.setIndexName(indexName);
             command.setComment(comment);
             command.setIndexColumns(parseIndexColumnList());
+            if (readIf("INCLUDE")) {
+                read(OPEN_PAREN);
+                String[] names = parseColumnList();
+                IndexColumn[] includeColumns = new IndexColumn[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    includeColumns[i] = new IndexColumn(names[i]);
+                }
+                command.setIncludeColumns(includeColumns);
+            }
             return command;
         }
     }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+import org.h2.engine.Constants;
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.engine.User;
+
+/**
+ * The plan cache shared by all sessions of a database. It contains the
+ * prepared commands that are not used at the moment. A session takes a command
+ * out of this cache, moves it to itself, and returns it to the cache when the
+ * command is closed, so a command is never used by two sessions at the same
+ * time.
+ */
+public final class PlanCache {
+
+    /**
+     * The key of a cached command. It contains the SQL statement and all
+     * settings of the session that affect parsing and optimization.
+     */
+    public static final class Key {
+
+        private final String sql;
+        private final String schemaName;
+        private final String[] schemaSearchPath;
+        private final User user;
+        private final int flags;
+        private final BitSet nonKeywords;
+        private final String timeZone;
+        private final int hash;
+
+        /**
+         * Creates a new key.
+         *
+         * @param sql
+         *            the SQL statement
+         * @param schemaName
+         *            the name of the current schema
+         * @param schemaSearchPath
+         *            the schema search path, or {@code null}
+         * @param user
+         *            the user
+         * @param flags
+         *            the flags of the session settings
+         * @param nonKeywords
+         *            the non-keywords, or {@code null}
+         * @param timeZone
+         *            the identifier of the time zone of the session
+         */
+        public Key(String sql, String schemaName, String[] schemaSearchPath, User user, int flags,
+                BitSet nonKeywords, String timeZone) {
+            this.sql = sql;
+            this.schemaName = schemaName;
+            this.schemaSearchPath = schemaSearchPath;
+            this.user = user;
+            this.flags = flags;
+            this.nonKeywords = nonKeywords;
+            this.timeZone = timeZone;
+            int h = sql.hashCode();
+            h = 31 * h + Objects.hashCode(schemaName);
+            h = 31 * h + user.getId();
+            h = 31 * h + flags;
+            hash = 31 * h + timeZone.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && sql.equals(other.sql) && Objects.equals(schemaName, other.schemaName)
+                    && Arrays.equals(schemaSearchPath, other.schemaSearchPath) && user == other.user
+                    && flags == other.flags && Objects.equals(nonKeywords, other.nonKeywords)
+                    && timeZone.equals(other.timeZone);
+        }
+
+        /**
+         * Get the estimated memory used by a cached command with this key. The
+         * size of the command is estimated from the length of the SQL
+         * statement.
+         *
+         * @return the estimated memory in bytes
+         */
+        int getMemory() {
+            return Constants.MEMORY_OBJECT * 16 + Constants.MEMORY_FACTOR * sql.length();
+        }
+
+    }
+
+    private final Database database;
+
+    private final long maxMemory;
+
+    /**
+     * The idle commands, in access order.
+     */
+    private final LinkedHashMap<Key, Command> map = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memory;
+
+    private long modificationMetaId;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Creates a new plan cache.
+     *
+     * @param database
+     *            the database
+     * @param maxMemoryKB
+     *            the maximum memory to use, in KB
+     */
+    public PlanCache(Database database, int maxMemoryKB) {
+        this.database = database;
+        this.maxMemory = maxMemoryKB * 1024L;
+        modificationMetaId = database.getModificationMetaId();
+    }
+
+    /**
+     * Take an idle command out of the cache and move it to the specified
+     * session.
+     *
+     * @param key
+     *            the key
+     * @param session
+     *            the session
+     * @return the command, or {@code null} if there is no cached command
+     */
+    public Command take(Key key, Session session) {
+        Command command;
+        synchronized (this) {
+            checkModificationMetaId();
+            command = map.remove(key);
+            if (command == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            memory -= key.getMemory();
+        }
+        command.setSession(session);
+        command.reuse();
+        return command;
+    }
+
+    /**
+     * Return a closed command to the cache. If the cache already has an idle
+     * command for the same key, the specified command is discarded.
+     *
+     * @param key
+     *            the key
+     * @param command
+     *            the closed command
+     */
+    synchronized void release(Key key, Command command) {
+        checkModificationMetaId();
+        if (map.putIfAbsent(key, command) != null) {
+            return;
+        }
+        memory += key.getMemory();
+        for (Iterator<Key> i = map.keySet().iterator(); memory > maxMemory && i.hasNext();) {
+            memory -= i.next().getMemory();
+            i.remove();
+        }
+    }
+
+    /**
+     * Remove all commands from the cache if the database meta data was
+     * changed.
+     */
+    private void checkModificationMetaId() {
+        long id = database.getModificationMetaId();
+        if (id != modificationMetaId) {
+            map.clear();
+            memory = 0;
+            modificationMetaId = id;
+        }
+    }
+
+    /**
+     * Remove all commands from the cache.
+     */
+    public synchronized void clear() {
+        map.clear();
+        memory = 0;
+    }
+
+    /**
+     * Get the number of lookups that returned a cached command.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not find a cached command.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of cached commands.
+     *
+     * @return the number of cached commands
+     */
+    public synchronized int getSize() {
+        return map.size();
+    }
+
+    /**
+     * Get the estimated memory used by the cached commands.
+     *
+     * @return the estimated memory in bytes
+     */
+    public synchronized long getMemory() {
+        return memory;
+    }
+
+}
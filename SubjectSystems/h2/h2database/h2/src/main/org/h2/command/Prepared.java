@@ -436,6 +436,17 @@ public boolean isCacheable() {
         return false;
     }
 
+    /**
+     * Check if this statement can be moved to another session by the plan
+     * cache of the database. Such statement must not depend on session-local
+     * objects.
+     *
+     * @return true if it can
+     */
+    public boolean isShareable() {
+        return false;
+    }
+
     /**
      * @return the temporary views created for CTE's.
      */
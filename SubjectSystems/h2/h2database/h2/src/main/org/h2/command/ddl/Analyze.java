@@ -5,19 +5,29 @@
  */
 package org.h2.command.ddl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
 import org.h2.command.CommandInterface;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
 import org.h2.index.Cursor;
+import org.h2.index.Index;
+import org.h2.index.IndexType;
 import org.h2.result.Row;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.Table;
+import org.h2.table.TableStatistics;
 import org.h2.table.TableType;
 import org.h2.util.IntIntHashMap;
 import org.h2.value.DataType;
 import org.h2.value.Value;
+import org.h2.value.ValueRow;
 
 /**
  * This class represents the statements
@@ -60,6 +70,59 @@ int getSelectivity() {
 
     }
 
+    /**
+     * The rows read to collect the statistics. The selectivity is computed
+     * from all added rows, but only a bounded number of rows is kept for the
+     * histograms and the distinct counts, selected by reservoir sampling.
+     */
+    private static final class Sample {
+
+        final SelectivityData[] selectivity;
+        final ArrayList<Row> rows = new ArrayList<>();
+        private final int limit;
+        private Random random;
+        long count;
+
+        Sample(Column[] columns, int limit) {
+            int columnCount = columns.length;
+            selectivity = new SelectivityData[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                if (!DataType.isLargeObject(columns[i].getType().getValueType())) {
+                    selectivity[i] = new SelectivityData();
+                }
+            }
+            this.limit = limit;
+        }
+
+        void add(Row row) {
+            for (int i = 0, l = selectivity.length; i < l; i++) {
+                SelectivityData s = selectivity[i];
+                if (s != null) {
+                    s.add(row.getValue(i));
+                }
+            }
+            if (rows.size() < limit) {
+                rows.add(row);
+            } else {
+                if (random == null) {
+                    random = new Random();
+                }
+                long j = (long) (random.nextDouble() * (count + 1));
+                if (j < limit) {
+                    rows.set((int) j, row);
+                }
+            }
+            count++;
+        }
+
+    }
+
+    /**
+     * The maximum number of rows that are kept for the histograms and the
+     * distinct counts if all rows are analyzed.
+     */
+    private static final int MAX_SAMPLE_ROWS = 100_000;
+
     /**
      * The sample size.
      */
@@ -120,39 +183,164 @@ public static void analyzeTable(Session session, Table table, int sample, boolea
         if (columnCount == 0) {
             return;
         }
-        Cursor cursor = table.getScanIndex(session).find(session, null, null);
-        if (cursor.next()) {
-            SelectivityData[] array = new SelectivityData[columnCount];
+        long rowCount = table.getRowCountApproximation();
+        Sample s = sampleRows(session, table, sample, rowCount);
+        ArrayList<Row> rows = s.rows;
+        int sampleSize = rows.size();
+        if (sampleSize > 0) {
+            rowCount = Math.max(rowCount, s.count);
+            ColumnStatistics[] statistics = new ColumnStatistics[columnCount];
+            Value[] values = new Value[sampleSize];
             for (int i = 0; i < columnCount; i++) {
+                SelectivityData selectivity = s.selectivity[i];
+                if (selectivity == null) {
+                    continue;
+                }
                 Column col = columns[i];
-                if (!DataType.isLargeObject(col.getType().getValueType())) {
-                    array[i] = new SelectivityData();
+                for (int j = 0; j < sampleSize; j++) {
+                    values[j] = rows.get(j).getValue(i);
                 }
+                col.setSelectivity(selectivity.getSelectivity());
+                statistics[i] = ColumnStatistics.collect(session, col.getType().getValueType(), values, sampleSize,
+                        rowCount);
             }
-            int rowNumber = 0;
-            do {
-                Row row = cursor.get();
-                for (int i = 0; i < columnCount; i++) {
-                    SelectivityData selectivity = array[i];
-                    if (selectivity != null) {
-                        selectivity.add(row.getValue(i));
-                    }
-                }
-            } while ((sample <= 0 || ++rowNumber < sample) && cursor.next());
-            for (int i = 0; i < columnCount; i++) {
-                SelectivityData selectivity = array[i];
-                if (selectivity != null) {
-                    columns[i].setSelectivity(selectivity.getSelectivity());
-                }
+            ArrayList<int[]> groups = getColumnGroups(table);
+            int groupCount = groups.size();
+            long[] groupDistinctCounts = new long[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                groupDistinctCounts[i] = getDistinctCount(rows, groups.get(i), rowCount);
             }
+            table.setStatistics(new TableStatistics(rowCount, statistics,
+                    groups.toArray(new int[0][]), groupDistinctCounts));
         } else {
             for (int i = 0; i < columnCount; i++) {
                 columns[i].setSelectivity(0);
             }
+            table.setStatistics(null);
         }
         session.getDatabase().updateMeta(session, table);
     }
 
+    /**
+     * Read a sample of the rows of a table. If the table is much larger than
+     * the sample and the scan index supports it, the rows are selected at
+     * random, otherwise the first rows are used. If all rows are read, at
+     * most {@link #MAX_SAMPLE_ROWS} of them are kept.
+     *
+     * @param session the session
+     * @param table the table
+     * @param sample the number of sample rows, or 0 for all rows
+     * @param rowCount the approximate number of rows of the table
+     * @return the sample
+     */
+    private static Sample sampleRows(Session session, Table table, int sample, long rowCount) {
+        Sample rows = new Sample(table.getColumns(), sample > 0 ? sample : MAX_SAMPLE_ROWS);
+        Index scan = table.getScanIndex(session);
+        if (sample > 0 && rowCount > 2L * sample && scan.isRowIdIndex() && scan.canGetFirstOrLast()) {
+            Cursor c = scan.findFirstOrLast(session, true);
+            Row firstRow = c.next() ? c.get() : null;
+            c = scan.findFirstOrLast(session, false);
+            Row lastRow = c.next() ? c.get() : null;
+            if (firstRow != null && lastRow != null) {
+                long first = firstRow.getKey(), last = lastRow.getKey();
+                long[] keys = new long[sample];
+                Random random = new Random();
+                for (int i = 0; i < sample; i++) {
+                    keys[i] = first + (long) (random.nextDouble() * (last - first + 1));
+                }
+                Arrays.sort(keys);
+                Row searchRow = table.getTemplateRow();
+                long next = first;
+                for (long key : keys) {
+                    // each row is used only once
+                    searchRow.setKey(Math.max(key, next));
+                    Cursor cursor = scan.find(session, searchRow, null);
+                    if (!cursor.next()) {
+                        break;
+                    }
+                    Row row = cursor.get();
+                    rows.add(row);
+                    next = row.getKey() + 1;
+                }
+                return rows;
+            }
+        }
+        Cursor cursor = scan.find(session, null, null);
+        while ((sample <= 0 || rows.count < sample) && cursor.next()) {
+            rows.add(cursor.get());
+        }
+        return rows;
+    }
+
+    /**
+     * Get the groups of columns to collect the number of distinct combinations
+     * for. These are the leading columns of the multi-column indexes.
+     *
+     * @param table the table
+     * @return the column ids of the groups
+     */
+    private static ArrayList<int[]> getColumnGroups(Table table) {
+        ArrayList<int[]> groups = new ArrayList<>();
+        for (Index index : table.getIndexes()) {
+            IndexType indexType = index.getIndexType();
+            if (indexType.isScan() || indexType.isSpatial()) {
+                continue;
+            }
+            Column[] indexColumns = index.getColumns();
+            for (int len = 2; len <= indexColumns.length; len++) {
+                int[] ids = new int[len];
+                for (int i = 0; i < len; i++) {
+                    ids[i] = indexColumns[i].getColumnId();
+                }
+                boolean found = false;
+                for (int[] g : groups) {
+                    if (Arrays.equals(g, ids)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    groups.add(ids);
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Estimate the number of distinct combinations of the values of a group
+     * of columns.
+     *
+     * @param rows the sample rows
+     * @param columnIds the column ids of the group
+     * @param rowCount the number of rows of the table
+     * @return the estimated number of distinct combinations
+     */
+    private static long getDistinctCount(ArrayList<Row> rows, int[] columnIds, long rowCount) {
+        int n = rows.size();
+        HashMap<ValueRow, Integer> counts = new HashMap<>();
+        for (Row row : rows) {
+            Value[] key = new Value[columnIds.length];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = row.getValue(columnIds[i]);
+            }
+            counts.merge(ValueRow.get(key), 1, Integer::sum);
+        }
+        int d = counts.size();
+        if (n >= rowCount) {
+            return d;
+        }
+        int singles = 0;
+        for (int c : counts.values()) {
+            if (c == 1) {
+                singles++;
+            }
+        }
+        // the Duj1 estimator of Haas and Stokes
+        double x = (double) n * d / (n - singles + (double) singles * n / rowCount);
+        return Math.min(Math.max((long) x, d), rowCount);
+    }
+
     public void setTop(int top) {
         this.sampleRows = top;
     }
@@ -5,6 +5,7 @@
  */
 package org.h2.command.ddl;
 
+import java.util.HashSet;
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
 import org.h2.engine.Constants;
@@ -14,6 +15,7 @@
 import org.h2.index.IndexType;
 import org.h2.message.DbException;
 import org.h2.schema.Schema;
+import org.h2.table.Column;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 
@@ -26,6 +28,7 @@ public class CreateIndex extends SchemaCommand {
     private String tableName;
     private String indexName;
     private IndexColumn[] indexColumns;
+    private IndexColumn[] includeColumns;
     private boolean primaryKey, unique, hash, spatial;
     private boolean ifTableExists;
     private boolean ifNotExists;
@@ -55,6 +58,10 @@ public void setIndexColumns(IndexColumn[] columns) {
         this.indexColumns = columns;
     }
 
+    public void setIncludeColumns(IndexColumn[] includeColumns) {
+        this.includeColumns = includeColumns;
+    }
+
     @Override
     public int update() {
         if (!transactional) {
@@ -102,7 +109,19 @@ public int update() {
             indexType = IndexType.createNonUnique(persistent, hash, spatial);
         }
         IndexColumn.mapColumns(indexColumns, table);
-        table.addIndex(session, indexName, id, indexColumns, indexType, create,
+        if (includeColumns != null) {
+            IndexColumn.mapColumns(includeColumns, table);
+            HashSet<Column> set = new HashSet<>();
+            for (IndexColumn c : indexColumns) {
+                set.add(c.column);
+            }
+            for (IndexColumn c : includeColumns) {
+                if (!set.add(c.column)) {
+                    throw DbException.get(ErrorCode.DUPLICATE_COLUMN_NAME_1, c.columnName);
+                }
+            }
+        }
+        table.addIndex(session, indexName, id, indexColumns, includeColumns, indexType, create,
                 comment);
         return 0;
     }
@@ -10,6 +10,7 @@
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
@@ -20,6 +21,7 @@
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
 import org.h2.message.DbException;
+import org.h2.mvstore.IncrementalBackup;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.db.MVTableEngine.Store;
 import org.h2.pagestore.PageStore;
@@ -36,6 +38,10 @@ public class BackupCommand extends Prepared {
 
     private Expression fileNameExpr;
 
+    private boolean incremental;
+
+    private Expression previousFileNameExpr;
+
     public BackupCommand(Session session) {
         super(session);
     }
@@ -44,14 +50,78 @@ public void setFileName(Expression fileName) {
         this.fileNameExpr = fileName;
     }
 
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setPreviousFileName(Expression previousFileName) {
+        this.previousFileNameExpr = previousFileName;
+    }
+
     @Override
     public int update() {
         String name = fileNameExpr.getValue(session).getString();
         session.getUser().checkAdmin();
-        backupTo(name);
+        if (incremental) {
+            String previous = previousFileNameExpr == null ? null
+                    : previousFileNameExpr.getValue(session).getString();
+            backupIncrementalTo(name, previous);
+        } else {
+            backupTo(name);
+        }
         return 0;
     }
 
+    private void backupIncrementalTo(String fileName, String previousFileName) {
+        Database db = session.getDatabase();
+        if (!db.isPersistent()) {
+            throw DbException.get(ErrorCode.DATABASE_IS_NOT_PERSISTENT);
+        }
+        Store store = db.getStore();
+        if (store == null) {
+            throw DbException.getUnsupportedException("BACKUP INCREMENTAL without MV_STORE");
+        }
+        String entryName = FileUtils.getName(db.getName()) + Constants.SUFFIX_MV_INCREMENT;
+        try {
+            IncrementalBackup previous = null;
+            if (previousFileName != null) {
+                previous = readPrevious(previousFileName, entryName);
+            }
+            store.flush();
+            MVStore s = store.getMvStore();
+            try (OutputStream zip = FileUtils.newOutputStream(fileName, false)) {
+                ZipOutputStream out = new ZipOutputStream(zip);
+                out.putNextEntry(new ZipEntry(entryName));
+                boolean before = s.getReuseSpace();
+                s.setReuseSpace(false);
+                try {
+                    IncrementalBackup.write(s, out, previous);
+                } finally {
+                    s.setReuseSpace(before);
+                }
+                out.closeEntry();
+                out.close();
+            }
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, fileName);
+        }
+    }
+
+    private static IncrementalBackup readPrevious(String fileName, String entryName) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(FileUtils.newInputStream(fileName))) {
+            while (true) {
+                ZipEntry entry = in.getNextEntry();
+                if (entry == null) {
+                    throw new IOException("No incremental backup " + entryName + " found in " + fileName);
+                }
+                if (entry.getName().equals(entryName)) {
+                    return IncrementalBackup.read(in);
+                }
+                in.closeEntry();
+            }
+        }
+    }
+
     private void backupTo(String fileName) {
         Database db = session.getDatabase();
         if (!db.isPersistent()) {
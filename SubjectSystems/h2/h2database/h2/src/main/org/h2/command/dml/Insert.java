@@ -15,6 +15,7 @@
 import org.h2.command.Command;
 import org.h2.command.CommandInterface;
 import org.h2.command.query.Query;
+import org.h2.constraint.Constraint;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -33,6 +34,8 @@
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultTarget;
 import org.h2.result.Row;
+import org.h2.schema.TriggerObject;
+import org.h2.table.BulkLoader;
 import org.h2.table.Column;
 import org.h2.table.DataChangeDeltaTable.ResultOption;
 import org.h2.table.Table;
@@ -68,6 +71,11 @@ public class Insert extends CommandWithValues implements ResultTarget, DataChang
 
     private ResultOption deltaChangeCollectionMode;
 
+    /**
+     * The bulk loader, if the rows of the query are loaded in bulk.
+     */
+    private BulkLoader bulkLoader;
+
     public Insert(Session session) {
         super(session);
     }
@@ -208,32 +216,70 @@ private int insertRows() {
             }
         } else {
             table.lock(session, true, false);
-            if (insertFromSelect) {
-                query.query(0, this);
-            } else {
-                ResultInterface rows = query.query(0);
-                while (rows.next()) {
-                    Value[] r = rows.currentRow();
-                    try {
-                        addRow(r);
-                    } catch (DbException de) {
-                        if (handleOnDuplicate(de, r)) {
-                            // MySQL returns 2 for updated row
-                            // TODO: detect no-op change
-                            rowNumber++;
-                        } else {
-                            // INSERT IGNORE case
-                            rowNumber--;
+            bulkLoader = beginBulkLoad();
+            try {
+                if (insertFromSelect) {
+                    query.query(0, this);
+                } else {
+                    ResultInterface rows = query.query(0);
+                    while (rows.next()) {
+                        Value[] r = rows.currentRow();
+                        try {
+                            addRow(r);
+                        } catch (DbException de) {
+                            if (handleOnDuplicate(de, r)) {
+                                // MySQL returns 2 for updated row
+                                // TODO: detect no-op change
+                                rowNumber++;
+                            } else {
+                                // INSERT IGNORE case
+                                rowNumber--;
+                            }
                         }
                     }
+                    rows.close();
+                }
+                if (bulkLoader != null) {
+                    bulkLoader.finish();
+                }
+            } finally {
+                if (bulkLoader != null) {
+                    bulkLoader.cancel();
+                    bulkLoader = null;
                 }
-                rows.close();
             }
         }
         table.fire(session, Trigger.INSERT, false);
         return rowNumber;
     }
 
+    /**
+     * Start loading the rows of the query in bulk, if the undo log is disabled
+     * and the table is empty.
+     *
+     * @return the bulk loader, or null
+     */
+    private BulkLoader beginBulkLoad() {
+        if (session.isUndoLogEnabled() || ignore || duplicateKeyAssignmentMap != null) {
+            return null;
+        }
+        ArrayList<TriggerObject> triggers = table.getTriggers();
+        if (triggers != null && !triggers.isEmpty()) {
+            return null;
+        }
+        ArrayList<Constraint> constraints = table.getConstraints();
+        if (constraints != null) {
+            for (Constraint constraint : constraints) {
+                if (constraint.getConstraintType() == Constraint.Type.REFERENTIAL
+                        && constraint.getRefTable() == constraint.getTable()) {
+                    // the referenced rows are not visible while loading
+                    return null;
+                }
+            }
+        }
+        return table.beginBulkLoad(session);
+    }
+
     @Override
     public void addRow(Value... values) {
         Row newRow = table.getTemplateRow();
@@ -246,7 +292,11 @@ public void addRow(Value... values) {
             deltaChangeCollector.addRow(newRow.getValueList().clone());
         }
         if (!table.fireBeforeRow(session, null, newRow)) {
-            table.addRow(session, newRow);
+            if (bulkLoader != null) {
+                bulkLoader.addRow(newRow);
+            } else {
+                table.addRow(session, newRow);
+            }
             if (deltaChangeCollectionMode == ResultOption.FINAL) {
                 deltaChangeCollector.addRow(newRow.getValueList());
             }
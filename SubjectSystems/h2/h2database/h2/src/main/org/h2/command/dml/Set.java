@@ -74,6 +74,7 @@ public boolean isTransactional() {
         case SetTypes.NON_KEYWORDS:
         case SetTypes.TIME_ZONE:
         case SetTypes.VARIABLE_BINARY:
+        case SetTypes.PARALLELISM:
             return true;
         default:
         }
@@ -633,6 +634,14 @@ public int update() {
         case SetTypes.VARIABLE_BINARY:
             session.setVariableBinary(expression.getBooleanValue(session));
             break;
+        case SetTypes.PARALLELISM: {
+            int value = getIntValue();
+            if (value < 1) {
+                throw DbException.getInvalidValueException("PARALLELISM", value);
+            }
+            session.setParallelism(value);
+            break;
+        }
         default:
             DbException.throwInternalError("type="+type);
         }
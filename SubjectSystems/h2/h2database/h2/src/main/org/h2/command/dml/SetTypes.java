@@ -262,7 +262,12 @@ public class SetTypes {
      */
     public static final int VARIABLE_BINARY = TIME_ZONE + 1;
 
-    private static final int COUNT = VARIABLE_BINARY + 1;
+    /**
+     * The type of SET PARALLELISM statement.
+     */
+    public static final int PARALLELISM = VARIABLE_BINARY + 1;
+
+    private static final int COUNT = PARALLELISM + 1;
 
     private static final ArrayList<String> TYPES;
 
@@ -322,6 +327,7 @@ private SetTypes() {
         list.add("NON_KEYWORDS");
         list.add("TIME ZONE");
         list.add("VARIABLE_BINARY");
+        list.add("PARALLELISM");
         TYPES = list;
     }
 
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.h2.engine.Session;
+import org.h2.expression.aggregate.Aggregate;
+import org.h2.index.Cursor;
+import org.h2.message.DbException;
+import org.h2.mvstore.db.MVPrimaryIndex;
+import org.h2.result.Row;
+import org.h2.util.Task;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
+
+/**
+ * Parallel execution of an aggregate query over a single table. The rows of
+ * the table are split into ranges of keys, each range is aggregated in its
+ * own thread, and then the partial results of aggregates are merged. The
+ * first range is aggregated by the current thread, so that the query uses at
+ * most as many threads as there are ranges.
+ */
+final class ParallelAggregation {
+
+    /**
+     * The minimum number of rows per task. Smaller tables are processed by
+     * the current thread.
+     */
+    static final long MIN_ROWS_PER_TASK = 10_000;
+
+    private final Session session;
+
+    private final MVPrimaryIndex index;
+
+    private final int taskCount;
+
+    /**
+     * The ids of group-by columns, or {@code null}.
+     */
+    private final int[] groupColumnIds;
+
+    private final boolean totalOrdering;
+
+    private final Aggregate[] aggregates;
+
+    /**
+     * A task that aggregates the rows of one range of keys.
+     */
+    private final class RangeTask extends Task {
+
+        private final Cursor cursor;
+
+        /**
+         * Partial results of aggregates for each group.
+         */
+        Map<ValueRow, Object[]> groups;
+
+        RangeTask(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void call() {
+            Map<ValueRow, Object[]> groups = newGroupMap();
+            Value[] keyValues = null;
+            for (int count = 0; cursor.next();) {
+                if ((++count & 4095) == 0) {
+                    session.checkCanceled();
+                }
+                Row row = cursor.get();
+                ValueRow key;
+                if (groupColumnIds == null) {
+                    key = ValueRow.EMPTY;
+                } else {
+                    int length = groupColumnIds.length;
+                    if (keyValues == null) {
+                        keyValues = new Value[length];
+                    }
+                    for (int i = 0; i < length; i++) {
+                        keyValues[i] = row.getValue(groupColumnIds[i]);
+                    }
+                    key = ValueRow.get(keyValues);
+                }
+                Object[] data = groups.get(key);
+                if (data == null) {
+                    int length = aggregates.length;
+                    data = new Object[length];
+                    for (int i = 0; i < length; i++) {
+                        data[i] = aggregates[i].createPartialData();
+                    }
+                    groups.put(key, data);
+                    // the array of values is owned by the new group
+                    keyValues = null;
+                }
+                for (int i = 0, length = aggregates.length; i < length; i++) {
+                    aggregates[i].updatePartialData(session, data[i], row);
+                }
+            }
+            this.groups = groups;
+        }
+
+    }
+
+    /**
+     * Creates a new parallel aggregation.
+     *
+     * @param session
+     *            the session
+     * @param index
+     *            the primary index of the table
+     * @param taskCount
+     *            the number of tasks
+     * @param groupColumnIds
+     *            the ids of group-by columns, or {@code null}
+     * @param totalOrdering
+     *            whether all group-by columns have data types with total
+     *            ordering
+     * @param aggregates
+     *            the aggregates, all of them must be mergeable
+     */
+    ParallelAggregation(Session session, MVPrimaryIndex index, int taskCount, int[] groupColumnIds,
+            boolean totalOrdering, Aggregate[] aggregates) {
+        this.session = session;
+        this.index = index;
+        this.taskCount = taskCount;
+        this.groupColumnIds = groupColumnIds;
+        this.totalOrdering = totalOrdering;
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Aggregates all rows of the table and adds the groups with the results
+     * of aggregates to the specified group data. The
+     * {@link SelectGroups#done()} method is invoked at the end.
+     *
+     * @param groupData
+     *            the group data
+     */
+    void gather(SelectGroups groupData) {
+        Cursor[] cursors = index.findRanges(session, taskCount);
+        ArrayList<RangeTask> tasks = new ArrayList<>(cursors.length);
+        for (Cursor cursor : cursors) {
+            tasks.add(new RangeTask(cursor));
+        }
+        for (int i = 1, size = tasks.size(); i < size; i++) {
+            tasks.get(i).execute("H2 Parallel Aggregation");
+        }
+        RuntimeException failure = null;
+        if (!tasks.isEmpty()) {
+            try {
+                tasks.get(0).call();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        for (int i = 1, size = tasks.size(); i < size; i++) {
+            Exception e = tasks.get(i).getException();
+            if (e != null && failure == null) {
+                failure = DbException.convert(e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        session.checkCanceled();
+        Map<ValueRow, Object[]> result = null;
+        for (RangeTask task : tasks) {
+            Map<ValueRow, Object[]> groups = task.groups;
+            if (result == null) {
+                result = groups;
+                continue;
+            }
+            for (Map.Entry<ValueRow, Object[]> entry : groups.entrySet()) {
+                Object[] other = entry.getValue();
+                Object[] data = result.putIfAbsent(entry.getKey(), other);
+                if (data != null) {
+                    for (int i = 0, length = aggregates.length; i < length; i++) {
+                        aggregates[i].mergePartialData(session, data[i], other[i]);
+                    }
+                }
+            }
+        }
+        if (result != null) {
+            for (Map.Entry<ValueRow, Object[]> entry : result.entrySet()) {
+                groupData.nextGroup(entry.getKey());
+                Object[] data = entry.getValue();
+                for (int i = 0, length = aggregates.length; i < length; i++) {
+                    groupData.setCurrentGroupExprData(aggregates[i], data[i]);
+                }
+            }
+        }
+        groupData.done();
+    }
+
+    /**
+     * Creates a new map for partial results of groups.
+     *
+     * @return the new map
+     */
+    private Map<ValueRow, Object[]> newGroupMap() {
+        return totalOrdering ? new HashMap<>() : new TreeMap<>(session.getDatabase().getCompareMode());
+    }
+
+}
@@ -491,6 +491,23 @@ private void closeLastResult() {
         }
     }
 
+    /**
+     * Set the session for this query. If the query was executed by another
+     * session, the result of the previous execution is forgotten, so that it
+     * is not reused by the new session. The result is not closed, because it
+     * may still be used by the previous session.
+     *
+     * @param currentSession the new session
+     */
+    @Override
+    public void setSession(Session currentSession) {
+        if (currentSession != session) {
+            lastResult = null;
+            lastParameters = null;
+        }
+        super.setSession(currentSession);
+    }
+
     /**
      * Initialize the order by list. This call may extend the expressions list.
      *
@@ -860,8 +877,8 @@ OffsetFetch getOffsetFetch(int maxRows) {
     }
 
     /**
-     * Applies limits, if any, to a result and makes it ready for value
-     * retrieval.
+     * Sets limits, if any, to a result. If limits are set before rows are
+     * added to a sorted result, the result may keep only the top rows.
      *
      * @param result
      *            the result
@@ -871,11 +888,8 @@ OffsetFetch getOffsetFetch(int maxRows) {
      *            FETCH value
      * @param fetchPercent
      *            whether FETCH value is a PERCENT value
-     * @param target
-     *            target result or null
-     * @return the result or null
      */
-    LocalResult finishResult(LocalResult result, long offset, int fetch, boolean fetchPercent, ResultTarget target) {
+    void setLimits(LocalResult result, long offset, int fetch, boolean fetchPercent) {
         if (offset != 0) {
             if (offset > Integer.MAX_VALUE) {
                 throw DbException.getInvalidValueException("OFFSET", offset);
@@ -889,6 +903,26 @@ LocalResult finishResult(LocalResult result, long offset, int fetch, boolean fet
                 result.setWithTies(sort);
             }
         }
+    }
+
+    /**
+     * Applies limits, if any, to a result and makes it ready for value
+     * retrieval.
+     *
+     * @param result
+     *            the result
+     * @param offset
+     *            OFFSET value
+     * @param fetch
+     *            FETCH value
+     * @param fetchPercent
+     *            whether FETCH value is a PERCENT value
+     * @param target
+     *            target result or null
+     * @return the result or null
+     */
+    LocalResult finishResult(LocalResult result, long offset, int fetch, boolean fetchPercent, ResultTarget target) {
+        setLimits(result, offset, fetch, fetchPercent);
         result.done();
         if (randomAccessResult && !distinct) {
             result = convertToDistinct(result);
@@ -17,6 +17,7 @@
 import org.h2.command.Parser;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
+import org.h2.engine.DbObject;
 import org.h2.engine.Mode.ExpressionNames;
 import org.h2.engine.Session;
 import org.h2.expression.Alias;
@@ -26,17 +27,20 @@
 import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.Parameter;
 import org.h2.expression.Wildcard;
+import org.h2.expression.aggregate.Aggregate;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.Window;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
 import org.h2.expression.condition.ConditionLocalAndGlobal;
 import org.h2.expression.function.Function;
+import org.h2.index.ColumnarIndex;
 import org.h2.index.Cursor;
 import org.h2.index.Index;
 import org.h2.index.IndexType;
 import org.h2.index.ViewIndex;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.MVPrimaryIndex;
 import org.h2.result.LazyResult;
 import org.h2.result.LocalResult;
 import org.h2.result.ResultInterface;
@@ -151,6 +155,12 @@ public class Select extends Query {
 
     private boolean isGroupWindowStage2;
 
+    /**
+     * Whether the condition is evaluated by the top table filter for batches
+     * of rows.
+     */
+    private boolean conditionBatched;
+
     private HashMap<String, Window> windows;
 
     public Select(Session session, Select parentSelect) {
@@ -443,7 +453,19 @@ boolean isConditionMetForUpdate() {
     }
 
     boolean isConditionMet() {
-        return condition == null || condition.getBooleanValue(session);
+        return condition == null || conditionBatched || condition.getBooleanValue(session);
+    }
+
+    /**
+     * Check if the condition can be evaluated by the top table filter for
+     * batches of rows of the primary index.
+     *
+     * @return true if it can
+     */
+    private boolean isConditionBatchable() {
+        return condition != null && !isForUpdate && topTableFilter.getJoin() == null
+                && topTableFilter.getNestedJoin() == null && topTableFilter.getIndex() instanceof MVPrimaryIndex
+                && condition.isBatchable(topTableFilter);
     }
 
     private void queryWindow(int columnCount, LocalResult result, long offset, boolean quickOffset) {
@@ -482,7 +504,12 @@ private void queryGroupWindow(int columnCount, LocalResult result, long offset,
     private void queryGroup(int columnCount, LocalResult result, long offset, boolean quickOffset) {
         initGroupData(columnCount);
         try {
-            gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP);
+            ParallelAggregation parallelAggregation = getParallelAggregation(columnCount);
+            if (parallelAggregation != null) {
+                parallelAggregation.gather(groupData);
+            } else {
+                gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP);
+            }
             processGroupResult(columnCount, result, offset, quickOffset, true);
         } finally {
             groupData.reset();
@@ -508,6 +535,68 @@ void setGroupData(final SelectGroups groupData) {
         });
     }
 
+    /**
+     * Checks whether this group query can be executed in parallel and creates
+     * the parallel aggregation if possible. Only queries over a single table
+     * without conditions, where all group-by expressions are columns and all
+     * other expressions are mergeable aggregates, are supported.
+     *
+     * @param columnCount the number of columns
+     * @return the parallel aggregation, or {@code null}
+     */
+    private ParallelAggregation getParallelAggregation(int columnCount) {
+        int parallelism = session.getParallelism();
+        if (parallelism <= 1 || isWindowQuery || isForUpdate || condition != null
+                || topTableFilter.getJoin() != null || topTableFilter.getNestedJoin() != null
+                || topTableFilter.getFilterCondition() != null) {
+            return null;
+        }
+        Index index = topTableFilter.getIndex();
+        if (!(index instanceof MVPrimaryIndex)) {
+            return null;
+        }
+        long taskCount = Math.min(parallelism,
+                index.getRowCountApproximation() / ParallelAggregation.MIN_ROWS_PER_TASK);
+        if (taskCount <= 1) {
+            return null;
+        }
+        int[] groupColumnIds = null;
+        if (groupIndex != null) {
+            int length = groupIndex.length;
+            groupColumnIds = new int[length];
+            for (int i = 0; i < length; i++) {
+                Expression expr = expressions.get(groupIndex[i]).getNonAliasExpression();
+                if (!(expr instanceof ExpressionColumn)) {
+                    return null;
+                }
+                ExpressionColumn exprColumn = (ExpressionColumn) expr;
+                Column column = exprColumn.getColumn();
+                int columnId = column.getColumnId();
+                if (exprColumn.getTableFilter() != topTableFilter || columnId < 0
+                        || column.getType().getValueType() == Value.ENUM) {
+                    return null;
+                }
+                groupColumnIds[i] = columnId;
+            }
+        }
+        ArrayList<Aggregate> aggregates = Utils.newSmallArrayList();
+        for (int i = 0; i < columnCount; i++) {
+            if (groupByExpression != null && groupByExpression[i] || groupByCopies != null && groupByCopies[i] >= 0) {
+                continue;
+            }
+            Expression expr = expressions.get(i).getNonAliasExpression();
+            if (!(expr instanceof Aggregate) || !((Aggregate) expr).isMergeable(topTableFilter)) {
+                return null;
+            }
+            if (!aggregates.contains(expr)) {
+                aggregates.add((Aggregate) expr);
+            }
+        }
+        return new ParallelAggregation(session, (MVPrimaryIndex) index, (int) taskCount, groupColumnIds,
+                SelectGroups.hasTotalOrdering(session, expressions, groupIndex),
+                aggregates.toArray(new Aggregate[0]));
+    }
+
     private void gatherGroup(int columnCount, int stage) {
         long rowNumber = 0;
         setCurrentRowNumber(0);
@@ -796,6 +885,10 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
         }
         if (!lazy && (fetch >= 0 || offset > 0)) {
             result = createLocalResult(result);
+            if (sort != null && !sortUsingIndex) {
+                // the result keeps only the top rows if possible
+                setLimits(result, offset, fetch, fetchPercent);
+            }
         }
         topTableFilter.startQuery(session);
         topTableFilter.reset();
@@ -803,6 +896,10 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
         topTableFilter.lock(session, exclusive, exclusive);
         ResultTarget to = result != null ? result : target;
         lazy &= to == null;
+        // rows are read in batches only if all of them are likely needed
+        conditionBatched = !lazy && (fetch < 0 || isGroupQuery || isWindowQuery || sort != null && !sortUsingIndex)
+                && isConditionBatchable();
+        topTableFilter.setBatchCondition(conditionBatched ? condition : null);
         LazyResult lazyResult = null;
         if (fetch != 0) {
             // Cannot apply limit now if percent is specified
@@ -831,7 +928,10 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
             }
         }
         assert lazy == (lazyResult != null) : lazy;
-        if (lazyResult != null) {
+        if (lazyResult == null) {
+            // all rows are read, but with a limit not all of the joined rows
+            topTableFilter.closeHashJoins();
+        } else {
             if (fetch > 0) {
                 lazyResult.setLimit(fetch);
             }
@@ -1276,10 +1376,55 @@ public void prepare() {
                 }
             }
         }
+        if (!isForUpdate) {
+            prepareColumnarScans();
+        }
         expressionArray = expressions.toArray(new Expression[0]);
         isPrepared = true;
     }
 
+    /**
+     * Let the table filters that use a columnar index read only the columns
+     * that are used by this query.
+     */
+    private void prepareColumnarScans() {
+        boolean found = false;
+        for (TableFilter f : filters) {
+            if (f.getIndex() instanceof ColumnarIndex) {
+                found = true;
+                break;
+            }
+        }
+        if (!found) {
+            return;
+        }
+        HashSet<Column> columns = new HashSet<>();
+        ExpressionVisitor visitor = ExpressionVisitor.getColumnsVisitor(columns, null);
+        isEverything(visitor);
+        topTableFilter.visit(f -> {
+            Expression c = f.getJoinCondition();
+            if (c != null) {
+                c.isEverything(visitor);
+            }
+            c = f.getFilterCondition();
+            if (c != null) {
+                c.isEverything(visitor);
+            }
+        });
+        for (TableFilter f : filters) {
+            if (f.getIndex() instanceof ColumnarIndex) {
+                Table table = f.getTable();
+                BitSet set = new BitSet();
+                for (Column column : columns) {
+                    if (column.getTable() == table && column.getColumnId() >= 0) {
+                        set.set(column.getColumnId());
+                    }
+                }
+                f.getIndexCursor().setColumns(set);
+            }
+        }
+    }
+
     private void optimizeExpressionsAndPreserveAliases() {
         for (int i = 0; i < expressions.size(); i++) {
             Expression e = expressions.get(i);
@@ -1733,6 +1878,27 @@ public boolean isCacheable() {
         return !isForUpdate;
     }
 
+    @Override
+    public boolean isShareable() {
+        if (isForUpdate || getCteCleanups() != null) {
+            return false;
+        }
+        HashSet<DbObject> dependencies = new HashSet<>();
+        collectDependencies(dependencies);
+        for (DbObject object : dependencies) {
+            if (object instanceof Table) {
+                Table table = (Table) object;
+                TableType tableType = table.getTableType();
+                // views and local temporary tables belong to a session
+                if (tableType != TableType.TABLE && tableType != TableType.SYSTEM_TABLE
+                        || table.isTemporary() && !table.isGlobalTemporary()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean allowGlobalConditions() {
         return offsetExpr == null && (limitExpr == null && distinctExpressions == null || sort == null);
@@ -1816,6 +1982,13 @@ public void reset() {
             setCurrentRowNumber(0);
             rowNumber = 0;
         }
+
+        @Override
+        public void close() {
+            super.close();
+            // the result might be closed before all rows are read
+            topTableFilter.closeHashJoins();
+        }
     }
 
     /**
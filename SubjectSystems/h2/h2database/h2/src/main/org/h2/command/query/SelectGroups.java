@@ -17,6 +17,8 @@
 import org.h2.expression.Expression;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.PartitionData;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
 import org.h2.value.Value;
 import org.h2.value.ValueRow;
 
@@ -48,10 +50,16 @@ private static final class Grouped extends SelectGroups {
 
         private final int[] groupIndex;
 
+        /**
+         * Whether all group-by expressions have data types with total
+         * ordering, so their values can be grouped using hash codes.
+         */
+        private final boolean totalOrdering;
+
         /**
          * Map of group-by key to group-by expression data e.g. AggregateData
          */
-        private TreeMap<ValueRow, Object[]> groupByData;
+        private Map<ValueRow, Object[]> groupByData;
 
         /**
          * Key into groupByData that produces currentGroupByExprData. Not used
@@ -59,6 +67,12 @@ private static final class Grouped extends SelectGroups {
          */
         private ValueRow currentGroupsKey;
 
+        /**
+         * Values of group-by expressions of the current row. The array is
+         * reused for all rows of existing groups.
+         */
+        private Value[] keyValues;
+
         /**
          * Cursor for {@link #next()} method.
          */
@@ -67,35 +81,56 @@ private static final class Grouped extends SelectGroups {
         Grouped(Session session, ArrayList<Expression> expressions, int[] groupIndex) {
             super(session, expressions);
             this.groupIndex = groupIndex;
+            totalOrdering = hasTotalOrdering(session, expressions, groupIndex);
         }
 
         @Override
         public void reset() {
             super.reset();
-            groupByData = new TreeMap<>(session.getDatabase().getCompareMode());
+            groupByData = totalOrdering ? new HashMap<>() : new TreeMap<>(session.getDatabase().getCompareMode());
             currentGroupsKey = null;
+            keyValues = null;
             cursor = null;
         }
 
         @Override
         public void nextSource() {
+            ValueRow key;
             if (groupIndex == null) {
-                currentGroupsKey = ValueRow.EMPTY;
+                key = ValueRow.EMPTY;
             } else {
-                Value[] keyValues = new Value[groupIndex.length];
+                int length = groupIndex.length;
+                Value[] values = keyValues;
+                if (values == null) {
+                    keyValues = values = new Value[length];
+                }
                 // update group
-                for (int i = 0; i < groupIndex.length; i++) {
+                for (int i = 0; i < length; i++) {
                     int idx = groupIndex[i];
                     Expression expr = expressions.get(idx);
-                    keyValues[i] = expr.getValue(session);
+                    values[i] = expr.getValue(session);
                 }
-                currentGroupsKey = ValueRow.get(keyValues);
+                key = ValueRow.get(values);
             }
-            Object[] values = groupByData.get(currentGroupsKey);
+            Object[] values = groupByData.get(key);
             if (values == null) {
                 values = createRow();
-                groupByData.put(currentGroupsKey, values);
+                if (key != ValueRow.EMPTY) {
+                    // the array of values is owned by the new group
+                    keyValues = null;
+                }
+                groupByData.put(key, values);
             }
+            currentGroupsKey = key;
+            currentGroupByExprData = values;
+            currentGroupRowId++;
+        }
+
+        @Override
+        public void nextGroup(ValueRow key) {
+            Object[] values = createRow();
+            groupByData.put(key, values);
+            currentGroupsKey = key;
             currentGroupByExprData = values;
             currentGroupRowId++;
         }
@@ -141,6 +176,7 @@ public void remove() {
         public void resetLazy() {
             super.resetLazy();
             currentGroupsKey = null;
+            keyValues = null;
         }
     }
 
@@ -172,6 +208,11 @@ public void nextSource() {
             currentGroupRowId++;
         }
 
+        @Override
+        public void nextGroup(ValueRow key) {
+            nextSource();
+        }
+
         @Override
         void updateCurrentGroupExprData() {
             rows.set(rows.size() - 1, currentGroupByExprData);
@@ -248,6 +289,32 @@ public static SelectGroups getInstance(Session session, ArrayList<Expression> ex
         return isGroupQuery ? new Grouped(session, expressions, groupIndex) : new Plain(session, expressions);
     }
 
+    /**
+     * Checks whether all group-by expressions have data types with total
+     * ordering, so their values can be grouped using hash codes.
+     *
+     * @param session
+     *            the session
+     * @param expressions
+     *            the expressions
+     * @param groupIndex
+     *            the indexes of group expressions, or null
+     * @return whether values of group-by expressions can be grouped using hash
+     *         codes
+     */
+    static boolean hasTotalOrdering(Session session, ArrayList<Expression> expressions, int[] groupIndex) {
+        if (groupIndex != null) {
+            boolean binaryStrings = CompareMode.OFF.equals(session.getDatabase().getCompareMode().getName());
+            for (int idx : groupIndex) {
+                int type = expressions.get(idx).getType().getValueType();
+                if (!DataType.hasTotalOrdering(type) && !(binaryStrings && type == Value.VARCHAR)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     SelectGroups(Session session, ArrayList<Expression> expressions) {
         this.session = session;
         this.expressions = expressions;
@@ -385,6 +452,17 @@ public void reset() {
      */
     public abstract void nextSource();
 
+    /**
+     * Invoked for each group computed by parallel workers instead of
+     * {@link #nextSource()} to create a new group with the specified key and
+     * make it current. Data of aggregates should be set with
+     * {@link #setCurrentGroupExprData(Expression, Object)} after this call.
+     *
+     * @param key
+     *            the key of the new group
+     */
+    public abstract void nextGroup(ValueRow key);
+
     /**
      * Invoked after all source rows are evaluated.
      */
@@ -364,6 +364,13 @@ public boolean isEverything(ExpressionVisitor visitor) {
         return left.isEverything(visitor) && right.isEverything(visitor);
     }
 
+    @Override
+    public void setSession(Session currentSession) {
+        super.setSession(currentSession);
+        left.setSession(currentSession);
+        right.setSession(currentSession);
+    }
+
     @Override
     public void updateAggregate(Session s, int stage) {
         left.updateAggregate(s, stage);
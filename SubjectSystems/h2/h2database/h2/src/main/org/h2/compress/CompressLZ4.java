@@ -0,0 +1,230 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.util.Arrays;
+
+import org.h2.api.ErrorCode;
+import org.h2.message.DbException;
+
+/**
+ * <p>
+ * This class implements the LZ4 block format, a Lempel-Ziv variant with
+ * byte-aligned output that is optimized for fast decompression. It usually
+ * compresses better than LZF, and is much faster than Deflate.
+ * </p>
+ * <p>
+ * Safety/Use Notes:
+ * </p>
+ * <ul>
+ * <li>Each instance should be used by a single thread only.</li>
+ * <li>The output buffer should be at least (inLen + inLen / 255 + 16) bytes
+ * long.</li>
+ * <li>Invalid compressed data causes a DbException.</li>
+ * </ul>
+ * <p>
+ * The compressed data is a list of sequences. Each sequence starts with a
+ * token byte; the high four bits are the number of literals, the low four
+ * bits are the length of the match minus 4. If a length is 15 or more,
+ * additional bytes follow, each adding 0 to 255 to the length, until a byte
+ * is not 255. Then follow the literals, and a two byte little endian offset
+ * of the match. The last sequence only contains literals. The last match
+ * starts at least 12 bytes before the end, and the last 5 bytes are always
+ * literals.
+ * </p>
+ */
+public final class CompressLZ4 implements Compressor {
+
+    /**
+     * The binary logarithm of the number of entries in the hash table.
+     */
+    private static final int HASH_LOG = 14;
+
+    /**
+     * The minimum length of a match.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The number of bytes at the end that are always literals.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * A match must start at least this number of bytes before the end.
+     */
+    private static final int MF_LIMIT = 12;
+
+    /**
+     * The maximum offset allowed for a match.
+     */
+    private static final int MAX_OFFSET = 0xffff;
+
+    /**
+     * Hash table for matching byte sequences (reused for performance).
+     */
+    private int[] cachedHashTable;
+
+    @Override
+    public void setOptions(String options) {
+        // nothing to do
+    }
+
+    @Override
+    public int getAlgorithm() {
+        return Compressor.LZ4;
+    }
+
+    @Override
+    public int compress(byte[] in, int inLen, byte[] out, int outPos) {
+        int[] hashTable = cachedHashTable;
+        if (hashTable == null) {
+            hashTable = cachedHashTable = new int[1 << HASH_LOG];
+        }
+        Arrays.fill(hashTable, -1);
+        int anchor = 0, pos = 0;
+        int matchLimit = inLen - LAST_LITERALS, mfLimit = inLen - MF_LIMIT;
+        while (pos <= mfLimit) {
+            int seq = readInt(in, pos);
+            int h = hash(seq);
+            int ref = hashTable[h];
+            hashTable[h] = pos;
+            if (ref < 0 || pos - ref > MAX_OFFSET || readInt(in, ref) != seq) {
+                // skip faster over data that does not compress
+                pos += 1 + ((pos - anchor) >>> 8);
+                continue;
+            }
+            while (pos > anchor && ref > 0 && in[pos - 1] == in[ref - 1]) {
+                pos--;
+                ref--;
+            }
+            int len = MIN_MATCH;
+            while (pos + len < matchLimit && in[pos + len] == in[ref + len]) {
+                len++;
+            }
+            outPos = writeSequence(in, anchor, pos - anchor, out, outPos, pos - ref, len);
+            pos += len;
+            anchor = pos;
+            if (pos <= mfLimit) {
+                int p = pos - 2;
+                hashTable[hash(readInt(in, p))] = p;
+            }
+        }
+        return writeSequence(in, anchor, inLen - anchor, out, outPos, 0, 0);
+    }
+
+    /**
+     * Write a sequence of literals, optionally followed by a match.
+     *
+     * @param in the input data
+     * @param start the position of the first literal
+     * @param literals the number of literals
+     * @param out the output area
+     * @param outPos the offset at the output array
+     * @param offset the offset of the match
+     * @param matchLen the length of the match, or 0 for the last sequence
+     * @return the end position
+     */
+    private static int writeSequence(byte[] in, int start, int literals, byte[] out, int outPos,
+            int offset, int matchLen) {
+        int tokenPos = outPos++;
+        int token;
+        if (literals >= 15) {
+            token = 15 << 4;
+            outPos = writeLength(out, outPos, literals - 15);
+        } else {
+            token = literals << 4;
+        }
+        System.arraycopy(in, start, out, outPos, literals);
+        outPos += literals;
+        if (matchLen > 0) {
+            out[outPos++] = (byte) offset;
+            out[outPos++] = (byte) (offset >>> 8);
+            int len = matchLen - MIN_MATCH;
+            if (len >= 15) {
+                token |= 15;
+                outPos = writeLength(out, outPos, len - 15);
+            } else {
+                token |= len;
+            }
+        }
+        out[tokenPos] = (byte) token;
+        return outPos;
+    }
+
+    private static int writeLength(byte[] out, int outPos, int len) {
+        while (len >= 255) {
+            out[outPos++] = (byte) 255;
+            len -= 255;
+        }
+        out[outPos++] = (byte) len;
+        return outPos;
+    }
+
+    private static int readInt(byte[] in, int pos) {
+        return (in[pos] & 0xff) | (in[pos + 1] & 0xff) << 8 | (in[pos + 2] & 0xff) << 16 | in[pos + 3] << 24;
+    }
+
+    private static int hash(int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    @Override
+    public void expand(byte[] in, int inPos, int inLen, byte[] out, int outPos, int outLen) {
+        int inEnd = inPos + inLen, outStart = outPos, outEnd = outPos + outLen;
+        try {
+            while (true) {
+                int token = in[inPos++] & 0xff;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = in[inPos++] & 0xff;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > outEnd - outPos) {
+                    throw DbException.get(ErrorCode.COMPRESSION_ERROR, "literals " + literals);
+                }
+                System.arraycopy(in, inPos, out, outPos, literals);
+                inPos += literals;
+                outPos += literals;
+                if (inPos >= inEnd) {
+                    break;
+                }
+                int offset = (in[inPos++] & 0xff) | (in[inPos++] & 0xff) << 8;
+                int len = token & 15;
+                if (len == 15) {
+                    int b;
+                    do {
+                        b = in[inPos++] & 0xff;
+                        len += b;
+                    } while (b == 255);
+                }
+                len += MIN_MATCH;
+                int ref = outPos - offset;
+                if (offset == 0 || ref < outStart || len > outEnd - outPos) {
+                    throw DbException.get(ErrorCode.COMPRESSION_ERROR, "offset " + offset + " length " + len);
+                }
+                if (offset >= len) {
+                    System.arraycopy(out, ref, out, outPos, len);
+                    outPos += len;
+                } else {
+                    // overlapping copy
+                    for (int end = outPos + len; outPos < end;) {
+                        out[outPos++] = out[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw DbException.get(ErrorCode.COMPRESSION_ERROR, e);
+        }
+        if (outPos != outEnd) {
+            throw DbException.get(ErrorCode.COMPRESSION_ERROR, outPos - outStart + " " + outLen);
+        }
+    }
+
+}
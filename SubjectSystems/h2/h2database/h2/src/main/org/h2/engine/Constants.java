@@ -87,6 +87,12 @@ public class Constants {
      */
     public static final int TCP_PROTOCOL_VERSION_20 = 20;
 
+    /**
+     * The TCP protocol version number 21.
+     * @since 1.4.201 (TODO)
+     */
+    public static final int TCP_PROTOCOL_VERSION_21 = 21;
+
     /**
      * Minimum supported version of TCP protocol.
      */
@@ -95,7 +101,7 @@ public class Constants {
     /**
      * Maximum supported version of TCP protocol.
      */
-    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_20;
+    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_21;
 
     /**
      * The major version of this database.
@@ -481,6 +487,11 @@ public class Constants {
      */
     public static final String SUFFIX_MV_FILE = ".mv.db";
 
+    /**
+     * The file name suffix of an incremental backup of a MVStore file.
+     */
+    public static final String SUFFIX_MV_INCREMENT = ".mv.inc";
+
     /**
      * The file name suffix of a new MVStore file, used when compacting a store.
      */
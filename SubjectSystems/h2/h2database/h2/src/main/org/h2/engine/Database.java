@@ -28,6 +28,7 @@
 import org.h2.api.JavaObjectSerializer;
 import org.h2.api.TableEngine;
 import org.h2.command.CommandInterface;
+import org.h2.command.PlanCache;
 import org.h2.command.Prepared;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.dml.SetTypes;
@@ -232,6 +233,7 @@ public class Database implements DataHandler, CastDataProvider {
     private boolean queryStatistics;
     private int queryStatisticsMaxEntries = Constants.QUERY_STATISTICS_MAX_ENTRIES;
     private QueryStatisticsData queryStatisticsData;
+    private final PlanCache planCache;
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean ignoreCatalogs;
 
@@ -247,6 +249,8 @@ public Database(ConnectionInfo ci, String cipher) {
         }
         String name = ci.getName();
         this.dbSettings = ci.getDbSettings();
+        int planCacheSize = dbSettings.planCacheSize;
+        this.planCache = planCacheSize > 0 ? new PlanCache(this, planCacheSize) : null;
         this.compareMode = CompareMode.getInstance(null, 0);
         this.persistent = ci.isPersistent();
         this.filePasswordHash = ci.getFilePasswordHash();
@@ -2833,6 +2837,15 @@ public DbSettings getSettings() {
         return dbSettings;
     }
 
+    /**
+     * Get the plan cache shared by all sessions.
+     *
+     * @return the plan cache, or {@code null} if it is disabled
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
     /**
      * Create a new hash map. Depending on the configuration, the key is case
      * sensitive or case insensitive.
@@ -65,6 +65,17 @@ public class DbSettings extends SettingsBase {
      */
     public final int autoCompactFillRate = get("AUTO_COMPACT_FILL_RATE", 90);
 
+    /**
+     * Database setting <code>AUTO_COMPACT_RATE</code>
+     * (default: 0).<br />
+     * The maximum rate of the incremental background compaction, in KB per
+     * second. If set, chunks with a low fill rate are re-written continuously
+     * in small batches, the lowest fill rate first, instead of in bursts. Set
+     * to 0 to use burst compaction.<br />
+     * This setting only affects MVStore engine.
+     */
+    public final int autoCompactRate = get("AUTO_COMPACT_RATE", 0);
+
     /**
      * Database setting <code>DATABASE_TO_LOWER</code> (default: false).<br />
      * When set to true unquoted identifiers and short name of database are
@@ -146,6 +157,13 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean functionsInSchema = get("FUNCTIONS_IN_SCHEMA", true);
 
+    /**
+     * Database setting <code>HASH_JOIN</code> (default: true).<br />
+     * Use a hash join for equality join conditions if the joined table has no
+     * usable index for them, or if it is cheaper than the index lookup.
+     */
+    public final boolean hashJoin = get("HASH_JOIN", true);
+
     /**
      * Database setting <code>LOB_TIMEOUT</code> (default: 300000,
      * which means 5 minutes).<br />
@@ -155,6 +173,16 @@ public class DbSettings extends SettingsBase {
      */
     public final int lobTimeout = get("LOB_TIMEOUT", 300_000);
 
+    /**
+     * Database setting <code>LOB_DEDUPLICATE</code> (default: false).<br />
+     * Store the data of LOB values with the same content only once. The SHA-256
+     * hash of the data is calculated when the LOB is stored; if a LOB with the
+     * same hash exists, the data is shared, and removed when the last LOB that
+     * uses it is removed.<br />
+     * This setting only affects MVStore engine.
+     */
+    public final boolean lobDeduplicate = get("LOB_DEDUPLICATE", false);
+
     /**
      * Database setting <code>MAX_COMPACT_COUNT</code>
      * (default: Integer.MAX_VALUE).<br />
@@ -236,6 +264,24 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean optimizeTwoEquals = get("OPTIMIZE_TWO_EQUALS", true);
 
+    /**
+     * Database setting <code>OFF_HEAP_CACHE_SIZE</code> (default: 0).<br />
+     * The size of the off-heap page cache of the MVStore, in KB. Pages that
+     * are not in the regular cache are looked up in this cache before they
+     * are read from the file. It contains serialized pages outside of the Java
+     * heap, so that it does not increase garbage collection pauses. The
+     * direct memory of the JVM must be large enough. Set to 0 to disable the
+     * off-heap cache.
+     */
+    public final int offHeapCacheSize = get("OFF_HEAP_CACHE_SIZE", 0);
+
+    /**
+     * Database setting <code>OFF_HEAP_CACHE_COMPRESS</code>
+     * (default: false).<br />
+     * Compress the pages in the off-heap page cache.
+     */
+    public final boolean offHeapCacheCompress = get("OFF_HEAP_CACHE_COMPRESS", false);
+
     /**
      * Database setting <code>PAGE_STORE_MAX_GROWTH</code>
      * (default: 128 * 1024).<br />
@@ -258,6 +304,18 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean pageStoreTrim = get("PAGE_STORE_TRIM", true);
 
+    /**
+     * Database setting <code>PLAN_CACHE_SIZE</code> (default: 1024).<br />
+     * The maximum memory used by the plan cache, in KB. The plan cache is
+     * shared by all sessions of the database and contains prepared queries
+     * that are not in use. A query is taken from the cache if the SQL
+     * statement, the current schema, the user and the settings of the
+     * session match. The cache is cleared when the database meta data is
+     * changed. Queries that use views or local temporary tables are not
+     * shared. Set to 0 to disable the plan cache.
+     */
+    public final int planCacheSize = get("PLAN_CACHE_SIZE", 1024);
+
     /**
      * Database setting <code>QUERY_CACHE_SIZE</code> (default: 8).<br />
      * The size of the query cache, in number of cached statements. Each session
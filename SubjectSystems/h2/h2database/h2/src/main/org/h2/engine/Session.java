@@ -13,6 +13,7 @@
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -25,6 +26,7 @@
 import org.h2.command.Command;
 import org.h2.command.CommandInterface;
 import org.h2.command.Parser;
+import org.h2.command.PlanCache;
 import org.h2.command.Prepared;
 import org.h2.command.ddl.Analyze;
 import org.h2.command.dml.SetTypes;
@@ -36,6 +38,7 @@
 import org.h2.message.Trace;
 import org.h2.message.TraceSystem;
 import org.h2.mvstore.MVMap;
+import org.h2.mvstore.db.MVColumnarIndex;
 import org.h2.mvstore.db.MVIndex;
 import org.h2.mvstore.db.MVTable;
 import org.h2.mvstore.db.MVTableEngine;
@@ -190,6 +193,7 @@ private static final class RowNumberAndValue {
     private HashMap<Object, ViewIndex> subQueryIndexCache;
     private boolean forceJoinOrder;
     private boolean lazyQueryExecution;
+    private int parallelism = 1;
 
     private BitSet nonKeywords;
 
@@ -217,6 +221,12 @@ private static final class RowNumberAndValue {
     private ArrayList<ValueLob> temporaryLobs;
 
     private Transaction transaction;
+
+    /**
+     * The listeners of the current transaction.
+     */
+    private ArrayList<TransactionListener> transactionListeners;
+
     private final AtomicReference<State> state = new AtomicReference<>(State.INIT);
     private long startStatement = -1;
 
@@ -269,6 +279,24 @@ public boolean isLazyQueryExecution() {
         return lazyQueryExecution;
     }
 
+    /**
+     * Set the maximum number of threads used to execute a query.
+     *
+     * @param parallelism the number of threads, 1 to disable parallel execution
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Get the maximum number of threads used to execute a query.
+     *
+     * @return the number of threads
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     public void setForceJoinOrder(boolean forceJoinOrder) {
         this.forceJoinOrder = forceJoinOrder;
     }
@@ -629,6 +657,15 @@ public Command prepareLocal(String sql) {
                 }
             }
         }
+        PlanCache planCache = database.getPlanCache();
+        PlanCache.Key planCacheKey = null;
+        if (planCache != null) {
+            planCacheKey = getPlanCacheKey(sql);
+            command = planCache.take(planCacheKey, this);
+            if (command != null) {
+                return command;
+            }
+        }
         Parser parser = new Parser(this);
         try {
             command = parser.prepareCommand(sql);
@@ -636,7 +673,10 @@ public Command prepareLocal(String sql) {
             // we can't reuse sub-query indexes, so just drop the whole cache
             subQueryIndexCache = null;
         }
-        if (queryCache != null) {
+        if (planCacheKey != null && command.isShareable()) {
+            // returned to the shared cache when closed
+            command.setPlanCacheKey(planCacheKey);
+        } else if (queryCache != null) {
             if (command.isCacheable()) {
                 queryCache.put(sql, command);
             }
@@ -644,6 +684,18 @@ public Command prepareLocal(String sql) {
         return command;
     }
 
+    private PlanCache.Key getPlanCacheKey(String sql) {
+        int flags = allowLiterals ? 1 : 0;
+        if (variableBinary) {
+            flags |= 2;
+        }
+        if (forceJoinOrder) {
+            flags |= 4;
+        }
+        return new PlanCache.Key(sql, currentSchemaName, schemaSearchPath, user, flags, nonKeywords,
+                currentTimeZone().getId());
+    }
+
     /**
      * Arranges for the specified database object id to be released
      * at the end of the current transaction.
@@ -679,6 +731,7 @@ public void setPowerOffCount(int count) {
      */
     public void commit(boolean ddl) {
         checkCommitRollback();
+        beforeCommit();
 
         currentTransactionName = null;
         transactionStart = null;
@@ -688,6 +741,7 @@ public void commit(boolean ddl) {
             try {
                 markUsedTablesAsUpdated();
                 transaction.commit();
+                afterCommit();
             } finally {
                 transaction = null;
             }
@@ -724,6 +778,21 @@ private void markUsedTablesAsUpdated() {
         }
     }
 
+    private void afterCommit() {
+        if (!locks.isEmpty()) {
+            for (Table t : locks) {
+                if (t instanceof MVTable) {
+                    ((MVTable) t).afterCommit();
+                }
+            }
+        }
+        if (transactionListeners != null) {
+            for (TransactionListener listener : transactionListeners.toArray(new TransactionListener[0])) {
+                listener.afterCommit(this);
+            }
+        }
+    }
+
     private void analyzeTables() {
         // On rare occasions it can be called concurrently (i.e. from close())
         // without proper locking, but instead of oversynchronizing
@@ -781,6 +850,7 @@ private void checkCommitRollback() {
     }
 
     private void endTransaction(boolean forRepeatableRead) {
+        transactionListeners = null;
         if (removeLobMap != null && removeLobMap.size() > 0) {
             if (database.getStore() == null) {
                 // need to flush the transaction log, because we can't unlink
@@ -802,6 +872,27 @@ private void endTransaction(boolean forRepeatableRead) {
         }
     }
 
+    private void beforeCommit() {
+        if (transactionListeners != null) {
+            for (TransactionListener listener : transactionListeners.toArray(new TransactionListener[0])) {
+                listener.beforeCommit(this);
+            }
+        }
+    }
+
+    /**
+     * Add a listener to the current transaction. The listener is removed when
+     * the transaction ends.
+     *
+     * @param listener the listener
+     */
+    public void addTransactionListener(TransactionListener listener) {
+        if (transactionListeners == null) {
+            transactionListeners = Utils.newSmallArrayList();
+        }
+        transactionListeners.add(listener);
+    }
+
     /**
      * Returns the data modification id of transaction's snapshot, or 0 if
      * isolation level doesn't use snapshots.
@@ -858,6 +949,12 @@ public void rollbackTo(Savepoint savepoint) {
                 transaction.rollbackToSavepoint(savepoint.transactionSavepoint);
             }
         }
+        if (transactionListeners != null) {
+            long savepointId = savepoint == null ? -1 : savepoint.transactionSavepoint;
+            for (TransactionListener listener : transactionListeners.toArray(new TransactionListener[0])) {
+                listener.afterRollback(this, savepointId);
+            }
+        }
         if (savepoints != null) {
             String[] names = savepoints.keySet().toArray(new String[0]);
             for (String name : names) {
@@ -1261,6 +1358,7 @@ public void rollbackToSavepoint(String name) {
      * @param transactionName the name of the transaction
      */
     public void prepareCommit(String transactionName) {
+        beforeCommit();
         if (containsUncommitted()) {
             // need to commit even if rollback is not possible (create/drop
             // table and so on)
@@ -1878,6 +1976,9 @@ private static void addTableToDependencies(MVTable table, HashSet<MVMap<Object,V
         for (Index index : table.getIndexes()) {
             if (index instanceof MVIndex) {
                 maps.add(((MVIndex) index).getMVMap());
+                if (index instanceof MVColumnarIndex) {
+                    maps.addAll((List) ((MVColumnarIndex) index).getChunkMaps());
+                }
             }
         }
     }
@@ -8,7 +8,10 @@
 import java.io.IOException;
 import java.net.Socket;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.api.JavaObjectSerializer;
@@ -69,6 +72,8 @@ public class SessionRemote extends SessionWithState implements DataHandler {
     public static final int SESSION_HAS_PENDING_TRANSACTION = 16;
     public static final int LOB_READ = 17;
     public static final int SESSION_PREPARE_READ_PARAMS2 = 18;
+    public static final int COMMAND_EXECUTE_BATCH_UPDATE = 19;
+    public static final int SESSION_EXECUTE_BATCH_UPDATE = 20;
 
     public static final int STATUS_ERROR = 0;
     public static final int STATUS_OK = 1;
@@ -80,6 +85,7 @@ public class SessionRemote extends SessionWithState implements DataHandler {
     private TraceSystem traceSystem;
     private Trace trace;
     private ArrayList<Transfer> transferList = Utils.newSmallArrayList();
+    private final ArrayDeque<PendingResponse> pendingResponses = new ArrayDeque<>();
     private int nextId;
     private boolean autoCommit = true;
     private ConnectionInfo connectionInfo;
@@ -469,6 +475,8 @@ private void switchOffCluster() {
      */
     public void removeServer(IOException e, int i, int count) {
         trace.debug(e, "removing server because of exception");
+        // the responses of pipelined requests are lost
+        pendingResponses.clear();
         transferList.remove(i);
         if (transferList.isEmpty() && autoReconnect(count)) {
             return;
@@ -480,7 +488,122 @@ public void removeServer(IOException e, int i, int count) {
     @Override
     public synchronized CommandInterface prepareCommand(String sql, int fetchSize) {
         checkClosed();
-        return new CommandRemote(this, transferList, sql, fetchSize);
+        return new CommandRemote(this, transferList, sql, fetchSize, false);
+    }
+
+    /**
+     * Prepare a command that is executed right after. If the server supports
+     * pipelining, the prepare request is sent together with the first execute
+     * request, and errors are only reported when the command is executed.
+     *
+     * @param sql the SQL statement
+     * @param fetchSize the number of rows to fetch in one step
+     * @return the command
+     */
+    public synchronized CommandInterface prepareCommandForExecution(String sql, int fetchSize) {
+        checkClosed();
+        return new CommandRemote(this, transferList, sql, fetchSize, isPipelined());
+    }
+
+    /**
+     * Execute a batch of SQL statements in one round trip. The server
+     * continues with the next statement if a statement fails.
+     *
+     * @param sqlList the SQL statements
+     * @param errors receives the exception of each failed statement
+     * @return the update counts, {@link Statement#EXECUTE_FAILED}
+     *         for the failed statements
+     */
+    public synchronized int[] executeBatchUpdate(List<String> sqlList, SQLException[] errors) {
+        checkClosed();
+        int size = sqlList.size();
+        int[] result = new int[size];
+        Transfer transfer = transferList.get(0);
+        try {
+            traceOperation("SESSION_EXECUTE_BATCH_UPDATE", size);
+            transfer.writeInt(SESSION_EXECUTE_BATCH_UPDATE).writeInt(size);
+            for (String sql : sqlList) {
+                transfer.writeString(sql);
+            }
+            done(transfer);
+            readBatchUpdateResult(transfer, result, errors);
+        } catch (IOException e) {
+            // the statements may have been executed partially
+            removeServer(e, 0, 1);
+            throw DbException.convertIOException(e, null);
+        }
+        readSessionState();
+        return result;
+    }
+
+    /**
+     * Read the result of a batch update from the server.
+     *
+     * @param transfer the transfer object
+     * @param result receives the update counts
+     * @param errors receives the exception of each failed command
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readBatchUpdateResult(Transfer transfer, int[] result, SQLException[] errors) throws IOException {
+        int count = transfer.readInt();
+        for (int i = 0; i < count; i++) {
+            if (transfer.readBoolean()) {
+                result[i] = transfer.readInt();
+            } else {
+                result[i] = Statement.EXECUTE_FAILED;
+                errors[i] = readException(transfer);
+            }
+        }
+        for (int i = count; i < result.length; i++) {
+            // not executed, because the session was closed
+            result[i] = Statement.EXECUTE_FAILED;
+            errors[i] = DbException.get(ErrorCode.CONNECTION_BROKEN_1, "session closed").getSQLException();
+        }
+        setAutoCommitFromServer(transfer.readBoolean());
+    }
+
+    /**
+     * Returns whether requests may be sent to the server without waiting for
+     * the responses of the previous requests. This requires a server that
+     * supports batch execution, and is not possible in cluster mode.
+     *
+     * @return true if it is
+     */
+    public boolean isPipelined() {
+        return clientVersion >= Constants.TCP_PROTOCOL_VERSION_21 && transferList != null
+                && transferList.size() == 1;
+    }
+
+    /**
+     * Register the response of a request that was sent without waiting for
+     * the response. The responses are read in the same order as the requests
+     * were sent, before the response of the next request that is waited for.
+     *
+     * @param response the pending response
+     */
+    public void addPendingResponse(PendingResponse response) {
+        pendingResponses.add(response);
+    }
+
+    /**
+     * Flush the output and read all pending responses.
+     *
+     * @param transfer the transfer object
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readPendingResponses(Transfer transfer) throws IOException {
+        transfer.flush();
+        PendingResponse response;
+        while ((response = pendingResponses.poll()) != null) {
+            try {
+                response.read(transfer);
+            } catch (IOException e) {
+                pendingResponses.clear();
+                throw e;
+            }
+        }
     }
 
     /**
@@ -602,16 +725,24 @@ public int getCurrentId() {
      *             and server
      */
     public void done(Transfer transfer) throws IOException {
-        transfer.flush();
+        readPendingResponses(transfer);
+        readStatus(transfer);
+    }
+
+    /**
+     * Read the status code of a response from the server and throw any
+     * exception the server sent.
+     *
+     * @param transfer the transfer object
+     * @throws DbException if the server sent an exception
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readStatus(Transfer transfer) throws IOException {
         int status = transfer.readInt();
         if (status == STATUS_ERROR) {
-            String sqlstate = transfer.readString();
-            String message = transfer.readString();
-            String sql = transfer.readString();
-            int errorCode = transfer.readInt();
-            String stackTrace = transfer.readString();
-            SQLException s = DbException.getJdbcSQLException(message, sql, sqlstate, errorCode, null, stackTrace);
-            if (errorCode == ErrorCode.CONNECTION_BROKEN_1) {
+            SQLException s = readException(transfer);
+            if (s.getErrorCode() == ErrorCode.CONNECTION_BROKEN_1) {
                 // allow re-connect
                 throw new IOException(s.toString(), s);
             }
@@ -630,6 +761,15 @@ public void done(Transfer transfer) throws IOException {
         }
     }
 
+    private static SQLException readException(Transfer transfer) throws IOException {
+        String sqlstate = transfer.readString();
+        String message = transfer.readString();
+        String sql = transfer.readString();
+        int errorCode = transfer.readInt();
+        String stackTrace = transfer.readString();
+        return DbException.getJdbcSQLException(message, sql, sqlstate, errorCode, null, stackTrace);
+    }
+
     /**
      * Returns true if the connection was opened in cluster mode.
      *
@@ -961,4 +1101,22 @@ public Mode getMode() {
         return getDynamicSettings().mode;
     }
 
+    /**
+     * The response of a request that was sent without waiting for it.
+     */
+    public interface PendingResponse {
+
+        /**
+         * Read the response. Exceptions sent by the server must be read and
+         * kept by the implementation, so that the following responses can
+         * still be read.
+         *
+         * @param transfer the transfer object
+         * @throws IOException if there is a communication problem between
+         *             client and server
+         */
+        void read(Transfer transfer) throws IOException;
+
+    }
+
 }
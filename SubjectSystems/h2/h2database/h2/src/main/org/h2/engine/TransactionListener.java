@@ -0,0 +1,42 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.engine;
+
+/**
+ * A listener that is notified when the current transaction of a session ends
+ * or is partially rolled back. Listeners are registered for the current
+ * transaction only.
+ */
+public interface TransactionListener {
+
+    /**
+     * Called before the transaction is committed. Changes made here are part
+     * of the transaction. If this method throws an exception, the transaction
+     * is not committed.
+     *
+     * @param session the session
+     */
+    void beforeCommit(Session session);
+
+    /**
+     * Called after the transaction was committed.
+     *
+     * @param session the session
+     */
+    default void afterCommit(Session session) {
+        // Do nothing by default
+    }
+
+    /**
+     * Called after the transaction was rolled back.
+     *
+     * @param session the session
+     * @param savepointId the transaction savepoint id, or -1 if the whole
+     *            transaction was rolled back
+     */
+    void afterRollback(Session session, long savepointId);
+
+}
@@ -12,6 +12,7 @@
 import org.h2.engine.Session;
 import org.h2.message.DbException;
 import org.h2.result.ResultInterface;
+import org.h2.result.RowBatch;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
@@ -270,6 +271,37 @@ public boolean getBooleanValue(Session session) {
         return getValue(session).getBoolean();
     }
 
+    /**
+     * Check if this condition can be evaluated for a batch of rows of the
+     * specified table filter without evaluation of each row separately.
+     *
+     * @param filter the table filter
+     * @return true if it can
+     */
+    @SuppressWarnings("unused")
+    public boolean isBatchable(TableFilter filter) {
+        return false;
+    }
+
+    /**
+     * Evaluate this condition for all rows of the batch. The default
+     * implementation sets each row as the current row of the table filter and
+     * evaluates the condition with {@link #getValue(Session)}.
+     *
+     * @param session the session
+     * @param filter the table filter
+     * @param batch the rows of the table filter
+     * @param result the array to store the results to, each element is set to
+     *            {@link RowBatch#TRUE}, {@link RowBatch#FALSE}, or
+     *            {@link RowBatch#UNKNOWN}
+     */
+    public void getBooleanBatch(Session session, TableFilter filter, RowBatch batch, byte[] result) {
+        for (int i = 0, size = batch.size(); i < size; i++) {
+            filter.set(batch.get(i));
+            result[i] = RowBatch.fromValue(getValue(session));
+        }
+    }
+
     /**
      * Create index conditions if possible and attach them to the table filter.
      *
@@ -6,7 +6,6 @@
 package org.h2.expression.aggregate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 
 import org.h2.command.query.Select;
@@ -19,6 +18,8 @@
 import org.h2.expression.analysis.WindowFrameBoundType;
 import org.h2.expression.analysis.WindowFrameExclusion;
 import org.h2.expression.analysis.WindowFrameUnits;
+import org.h2.expression.analysis.WindowResult;
+import org.h2.message.DbException;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
@@ -109,7 +110,7 @@ public void setEvaluatable(TableFilter tableFilter, boolean b) {
     }
 
     @Override
-    protected void getOrderedResultLoop(Session session, HashMap<Integer, Value> result, ArrayList<Value[]> ordered,
+    protected void getOrderedResultLoop(Session session, WindowResult result, ArrayList<Value[]> ordered,
             int rowIdColumn) {
         WindowFrame frame = over.getWindowFrame();
         /*
@@ -145,6 +146,10 @@ protected void getOrderedResultLoop(Session session, HashMap<Integer, Value> res
                 aggregateFastPartitionInReverse(session, result, ordered, rowIdColumn, grouped);
                 return;
             }
+            if (isInvertible()) {
+                aggregateSlidingFrame(session, result, ordered, rowIdColumn, grouped);
+                return;
+            }
         }
         // All other types of frames (slow)
         int size = ordered.size();
@@ -184,7 +189,7 @@ private static boolean checkVariableBounds(WindowFrame frame, ArrayList<Value[]>
         return false;
     }
 
-    private void aggregateFastPartition(Session session, HashMap<Integer, Value> result, ArrayList<Value[]> ordered,
+    private void aggregateFastPartition(Session session, WindowResult result, ArrayList<Value[]> ordered,
             int rowIdColumn, boolean grouped) {
         Object aggregateData = createAggregateData();
         int size = ordered.size();
@@ -206,7 +211,7 @@ private void aggregateFastPartition(Session session, HashMap<Integer, Value> res
         }
     }
 
-    private void aggregateFastPartitionInReverse(Session session, HashMap<Integer, Value> result,
+    private void aggregateFastPartitionInReverse(Session session, WindowResult result,
             ArrayList<Value[]> ordered, int rowIdColumn, boolean grouped) {
         Object aggregateData = createAggregateData();
         int firstIncludedRow = ordered.size();
@@ -231,7 +236,38 @@ private void aggregateFastPartitionInReverse(Session session, HashMap<Integer, V
         }
     }
 
-    private int processGroup(Session session, HashMap<Integer, Value> result, Value r, ArrayList<Value[]> ordered,
+    /**
+     * Aggregates a frame with constant bounds: both bounds move forward, so
+     * each row is added once when it enters the frame and removed once when it
+     * leaves it.
+     */
+    private void aggregateSlidingFrame(Session session, WindowResult result, ArrayList<Value[]> ordered,
+            int rowIdColumn, boolean grouped) {
+        WindowFrame frame = over.getWindowFrame();
+        Object aggregateData = createAggregateData();
+        int size = ordered.size();
+        // rows from firstIncludedRow to lastIncludedRow are in the aggregate
+        int firstIncludedRow = 0, lastIncludedRow = -1;
+        for (int i = 0; i < size;) {
+            int startIndex = frame.getStartIndex(session, ordered, getOverOrderBySort(), i);
+            int endIndex = WindowFrame.getEndIndex(over, session, ordered, getOverOrderBySort(), i);
+            assert startIndex >= firstIncludedRow;
+            while (firstIncludedRow < startIndex && firstIncludedRow <= lastIncludedRow) {
+                removeFromExpressions(session, aggregateData, ordered.get(firstIncludedRow++));
+            }
+            if (firstIncludedRow > lastIncludedRow) {
+                firstIncludedRow = startIndex;
+                lastIncludedRow = startIndex - 1;
+            }
+            while (lastIncludedRow < endIndex) {
+                updateFromExpressions(session, aggregateData, ordered.get(++lastIncludedRow));
+            }
+            Value r = getAggregatedValue(session, aggregateData);
+            i = processGroup(session, result, r, ordered, rowIdColumn, i, size, aggregateData, grouped);
+        }
+    }
+
+    private int processGroup(Session session, WindowResult result, Value r, ArrayList<Value[]> ordered,
             int rowIdColumn, int i, int size, Object aggregateData, boolean grouped) {
         Value[] firstRowInGroup = ordered.get(i), currentRowInGroup = firstRowInGroup;
         do {
@@ -241,7 +277,7 @@ private int processGroup(Session session, HashMap<Integer, Value> result, Value
         return i;
     }
 
-    private void aggregateWholePartition(Session session, HashMap<Integer, Value> result, ArrayList<Value[]> ordered,
+    private void aggregateWholePartition(Session session, WindowResult result, ArrayList<Value[]> ordered,
             int rowIdColumn) {
         // Aggregate values from the whole partition
         Object aggregateData = createAggregateData();
@@ -267,6 +303,34 @@ private void aggregateWholePartition(Session session, HashMap<Integer, Value> re
      */
     protected abstract void updateFromExpressions(Session session, Object aggregateData, Value[] array);
 
+    /**
+     * Returns whether the remembered expressions of a row can be removed from
+     * the aggregate data with
+     * {@link #removeFromExpressions(Session, Object, Value[])}.
+     *
+     * @return whether this aggregate is invertible
+     */
+    protected boolean isInvertible() {
+        return false;
+    }
+
+    /**
+     * Removes the remembered expressions of a row, which were added with
+     * {@link #updateFromExpressions(Session, Object, Value[])} before, from
+     * the provided aggregate data. This method may only be used if the
+     * aggregate is invertible.
+     *
+     * @param session
+     *            the session
+     * @param aggregateData
+     *            aggregate data
+     * @param array
+     *            values of expressions
+     */
+    protected void removeFromExpressions(Session session, Object aggregateData, Value[] array) {
+        throw DbException.throwInternalError();
+    }
+
     @Override
     protected void updateAggregate(Session session, SelectGroups groupData, int groupRowId) {
         if (filterCondition == null || filterCondition.getBooleanValue(session)) {
@@ -201,6 +201,97 @@ protected void updateAggregate(Session session, Object aggregateData) {
         updateData(session, data, v, null);
     }
 
+    /**
+     * Returns whether partial results of this aggregate can be computed from
+     * different rows of the specified table filter in different threads and
+     * merged later. This is possible for aggregates without window, FILTER,
+     * and ORDER BY clauses that have no arguments or have a column of the
+     * specified table filter as the only argument.
+     *
+     * @param filter
+     *            the table filter
+     * @return whether partial results of this aggregate can be merged
+     */
+    public boolean isMergeable(TableFilter filter) {
+        if (over != null || filterCondition != null || orderByList != null) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+            return true;
+        case COUNT:
+        case MIN:
+        case MAX:
+        case SUM:
+        case AVG:
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP:
+        case ANY:
+        case EVERY:
+        case BIT_AND:
+        case BIT_OR:
+        case BIT_XOR:
+        case HISTOGRAM:
+        case ARRAY_AGG:
+        case ENVELOPE:
+            break;
+        default:
+            return false;
+        }
+        if (args.length != 1 || !(args[0] instanceof ExpressionColumn)) {
+            return false;
+        }
+        ExpressionColumn arg = (ExpressionColumn) args[0];
+        Column column = arg.getColumn();
+        return arg.getTableFilter() == filter && column.getColumnId() >= 0
+                && column.getType().getValueType() != Value.ENUM;
+    }
+
+    /**
+     * Creates a new object for a partial result of this mergeable aggregate.
+     *
+     * @return the new object for a partial result
+     * @see #isMergeable(TableFilter)
+     */
+    public Object createPartialData() {
+        return createAggregateData();
+    }
+
+    /**
+     * Updates a partial result of this mergeable aggregate with the specified
+     * row. This method may be invoked by different threads for different
+     * partial results.
+     *
+     * @param session
+     *            the session
+     * @param partialData
+     *            the partial result
+     * @param row
+     *            the row of the table
+     * @see #isMergeable(TableFilter)
+     */
+    public void updatePartialData(Session session, Object partialData, SearchRow row) {
+        Value v = args.length == 0 ? null : row.getValue(((ExpressionColumn) args[0]).getColumn().getColumnId());
+        updateData(session, (AggregateData) partialData, v, null);
+    }
+
+    /**
+     * Merges two partial results of this mergeable aggregate.
+     *
+     * @param session
+     *            the session
+     * @param partialData
+     *            the partial result to update
+     * @param other
+     *            another partial result, it must not be used after this call
+     * @see #isMergeable(TableFilter)
+     */
+    public void mergePartialData(Session session, Object partialData, Object other) {
+        ((AggregateData) partialData).merge(session, (AggregateData) other);
+    }
+
     private void updateData(Session session, AggregateData data, Value v, Value[] remembered) {
         switch (aggregateType) {
         case LISTAGG:
@@ -338,6 +429,18 @@ protected void updateFromExpressions(Session session, Object aggregateData, Valu
         }
     }
 
+    @Override
+    protected boolean isInvertible() {
+        return AggregateData.isInvertible(aggregateType, distinct, type.getValueType());
+    }
+
+    @Override
+    protected void removeFromExpressions(Session session, Object aggregateData, Value[] array) {
+        if (filterCondition == null || array[getNumExpressions() - 1].getBoolean()) {
+            ((AggregateData) aggregateData).remove(session, args.length == 0 ? null : array[0]);
+        }
+    }
+
     @Override
     protected Object createAggregateData() {
         return AggregateData.create(aggregateType, distinct, type.getValueType(), orderByList != null);
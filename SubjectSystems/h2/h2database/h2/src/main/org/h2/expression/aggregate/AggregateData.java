@@ -8,6 +8,7 @@
 import org.h2.engine.Constants;
 import org.h2.engine.Session;
 import org.h2.message.DbException;
+import org.h2.value.DataType;
 import org.h2.value.Value;
 
 /**
@@ -78,6 +79,44 @@ static AggregateData create(AggregateType aggregateType, boolean distinct, int d
         return new AggregateDataCollecting(distinct, false);
     }
 
+    /**
+     * Check whether values can be removed from aggregate data of the specified
+     * type. Sums of approximate numeric values are not invertible, because
+     * rounding errors would accumulate.
+     *
+     * @param aggregateType the type of the aggregate operation
+     * @param distinct if the calculation should be distinct
+     * @param dataType the data type of the computed result
+     * @return whether {@link #remove(Session, Value)} is supported
+     */
+    static boolean isInvertible(AggregateType aggregateType, boolean distinct, int dataType) {
+        switch (aggregateType) {
+        case COUNT_ALL:
+            return true;
+        case COUNT:
+            return !distinct;
+        case AVG:
+            dataType = DataType.getAddProofType(dataType);
+            //$FALL-THROUGH$
+        case SUM:
+            if (distinct) {
+                return false;
+            }
+            switch (dataType) {
+            case Value.TINYINT:
+            case Value.SMALLINT:
+            case Value.INTEGER:
+            case Value.BIGINT:
+            case Value.NUMERIC:
+                return true;
+            default:
+                return DataType.isIntervalType(dataType);
+            }
+        default:
+            return false;
+        }
+    }
+
     /**
      * Add a value to this aggregate.
      *
@@ -86,6 +125,27 @@ static AggregateData create(AggregateType aggregateType, boolean distinct, int d
      */
     abstract void add(Session session, Value v);
 
+    /**
+     * Merge the partial result of another aggregate data into this aggregate.
+     * The other aggregate data must be created for the same aggregate and
+     * must not be used after this call.
+     *
+     * @param session the session
+     * @param other the other aggregate data
+     */
+    abstract void merge(Session session, AggregateData other);
+
+    /**
+     * Remove a value that was added to this aggregate before. This method may
+     * only be used if the aggregate is invertible.
+     *
+     * @param session the session
+     * @param v the value
+     */
+    void remove(Session session, Value v) {
+        throw DbException.throwInternalError();
+    }
+
     /**
      * Get the aggregate result.
      *
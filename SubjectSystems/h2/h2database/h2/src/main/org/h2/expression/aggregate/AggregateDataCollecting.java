@@ -73,6 +73,22 @@ void add(Session session, Value v) {
         c.add(v);
     }
 
+    @Override
+    void merge(Session session, AggregateData other) {
+        AggregateDataCollecting o = (AggregateDataCollecting) other;
+        if (o.shared != null) {
+            setSharedArgument(o.shared);
+        }
+        Collection<Value> c = o.values;
+        if (c != null) {
+            if (values == null) {
+                values = c;
+            } else {
+                values.addAll(c);
+            }
+        }
+    }
+
     @Override
     Value getValue(Session session) {
         return null;
@@ -30,6 +30,18 @@ void add(Session session, Value v) {
         }
     }
 
+    @Override
+    void merge(Session session, AggregateData other) {
+        count += ((AggregateDataCount) other).count;
+    }
+
+    @Override
+    void remove(Session session, Value v) {
+        if (all || v != ValueNull.INSTANCE) {
+            count--;
+        }
+    }
+
     @Override
     Value getValue(Session session) {
         return ValueBigint.get(count);
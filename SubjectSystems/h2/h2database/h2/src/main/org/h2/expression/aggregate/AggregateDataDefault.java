@@ -127,6 +127,87 @@ void add(Session session, Value v) {
         }
     }
 
+    @Override
+    void merge(Session session, AggregateData other) {
+        AggregateDataDefault o = (AggregateDataDefault) other;
+        long otherCount = o.count;
+        if (otherCount == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = otherCount;
+            value = o.value;
+            mean = o.mean;
+            m2 = o.m2;
+            return;
+        }
+        switch (aggregateType) {
+        case SUM:
+        case AVG:
+            value = value.add(o.value.convertTo(value.getValueType()));
+            break;
+        case MIN:
+            if (session.compare(o.value, value) < 0) {
+                value = o.value;
+            }
+            break;
+        case MAX:
+            if (session.compare(o.value, value) > 0) {
+                value = o.value;
+            }
+            break;
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP: {
+            // Parallel variant of Welford's method, see also
+            // https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance
+            long n = count + otherCount;
+            double delta = o.mean - mean;
+            mean += delta * otherCount / n;
+            m2 += o.m2 + delta * delta * count * otherCount / n;
+            break;
+        }
+        case EVERY:
+            value = ValueBoolean.get(value.getBoolean() && o.value.getBoolean());
+            break;
+        case ANY:
+            value = ValueBoolean.get(value.getBoolean() || o.value.getBoolean());
+            break;
+        case BIT_AND:
+            value = ValueBigint.get(value.getLong() & o.value.getLong()).convertTo(dataType);
+            break;
+        case BIT_OR:
+            value = ValueBigint.get(value.getLong() | o.value.getLong()).convertTo(dataType);
+            break;
+        case BIT_XOR:
+            value = ValueBigint.get(value.getLong() ^ o.value.getLong()).convertTo(dataType);
+            break;
+        default:
+            DbException.throwInternalError("type=" + aggregateType);
+        }
+        count += otherCount;
+    }
+
+    @Override
+    void remove(Session session, Value v) {
+        if (v == ValueNull.INSTANCE) {
+            return;
+        }
+        if (--count == 0) {
+            value = null;
+            return;
+        }
+        switch (aggregateType) {
+        case SUM:
+        case AVG:
+            value = value.subtract(v.convertTo(value.getValueType()));
+            break;
+        default:
+            DbException.throwInternalError("type=" + aggregateType);
+        }
+    }
+
     @Override
     Value getValue(Session session) {
         Value v = null;
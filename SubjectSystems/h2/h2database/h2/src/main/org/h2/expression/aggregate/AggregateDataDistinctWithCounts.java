@@ -5,6 +5,7 @@
  */
 package org.h2.expression.aggregate;
 
+import java.util.Map;
 import java.util.TreeMap;
 import org.h2.engine.Session;
 import org.h2.value.Value;
@@ -55,6 +56,29 @@ void add(Session session, Value v) {
         a.count++;
     }
 
+    @Override
+    void merge(Session session, AggregateData other) {
+        TreeMap<Value, LongDataCounter> otherValues = ((AggregateDataDistinctWithCounts) other).values;
+        if (otherValues == null) {
+            return;
+        }
+        if (values == null) {
+            values = otherValues;
+            return;
+        }
+        for (Map.Entry<Value, LongDataCounter> entry : otherValues.entrySet()) {
+            LongDataCounter a = values.get(entry.getKey());
+            if (a == null) {
+                if (values.size() >= maxDistinctCount) {
+                    continue;
+                }
+                values.put(entry.getKey(), entry.getValue());
+            } else {
+                a.count += entry.getValue().count;
+            }
+        }
+    }
+
     @Override
     Value getValue(Session session) {
         return null;
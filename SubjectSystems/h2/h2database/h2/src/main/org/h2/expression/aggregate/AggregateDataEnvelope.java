@@ -64,6 +64,11 @@ void add(Session session, Value v) {
         envelope = GeometryUtils.union(envelope, v.convertToGeometry(null).getEnvelopeNoCopy());
     }
 
+    @Override
+    void merge(Session session, AggregateData other) {
+        envelope = GeometryUtils.union(envelope, ((AggregateDataEnvelope) other).envelope);
+    }
+
     @Override
     Value getValue(Session session) {
         return ValueGeometry.fromEnvelope(envelope);
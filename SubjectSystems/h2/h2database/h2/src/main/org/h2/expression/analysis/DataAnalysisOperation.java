@@ -6,7 +6,6 @@
 package org.h2.expression.analysis;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import org.h2.api.ErrorCode;
 import org.h2.command.query.QueryOrderBy;
@@ -485,11 +484,11 @@ protected void updateOrderedAggregate(Session session, SelectGroups groupData, i
     }
 
     private Value getOrderedResult(Session session, SelectGroups groupData, PartitionData partition, Object data) {
-        HashMap<Integer, Value> result = partition.getOrderedResult();
+        WindowResult result = partition.getOrderedResult();
         if (result == null) {
-            result = new HashMap<>();
             @SuppressWarnings("unchecked")
             ArrayList<Value[]> orderedData = (ArrayList<Value[]>) data;
+            result = new WindowResult(orderedData.size());
             int rowIdColumn = getNumExpressions();
             ArrayList<QueryOrderBy> orderBy = over.getOrderBy();
             if (orderBy != null) {
@@ -510,13 +509,13 @@ private Value getOrderedResult(Session session, SelectGroups groupData, Partitio
      * @param session
      *            the session
      * @param result
-     *            the map to append result to
+     *            the results to append the result to
      * @param ordered
      *            ordered data
      * @param rowIdColumn
      *            the index of row id value
      */
-    protected abstract void getOrderedResultLoop(Session session, HashMap<Integer, Value> result,
+    protected abstract void getOrderedResultLoop(Session session, WindowResult result,
             ArrayList<Value[]> ordered, int rowIdColumn);
 
     /**
@@ -5,8 +5,6 @@
  */
 package org.h2.expression.analysis;
 
-import java.util.HashMap;
-
 import org.h2.value.Value;
 
 /**
@@ -27,7 +25,7 @@ public final class PartitionData {
     /**
      * Evaluated ordered result.
      */
-    private HashMap<Integer, Value> orderedResult;
+    private WindowResult orderedResult;
 
     /**
      * Creates new instance of partition data.
@@ -73,7 +71,7 @@ void setResult(Value result) {
      *
      * @return the ordered result
      */
-    HashMap<Integer, Value> getOrderedResult() {
+    WindowResult getOrderedResult() {
         return orderedResult;
     }
 
@@ -83,7 +81,7 @@ HashMap<Integer, Value> getOrderedResult() {
      * @param orderedResult
      *            the ordered result to set
      */
-    void setOrderedResult(HashMap<Integer, Value> orderedResult) {
+    void setOrderedResult(WindowResult orderedResult) {
         this.orderedResult = orderedResult;
         data = null;
     }
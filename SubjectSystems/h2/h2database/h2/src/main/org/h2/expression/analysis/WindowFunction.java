@@ -6,7 +6,6 @@
 package org.h2.expression.analysis;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 
 import org.h2.command.query.Select;
@@ -183,7 +182,7 @@ protected Object createAggregateData() {
     }
 
     @Override
-    protected void getOrderedResultLoop(Session session, HashMap<Integer, Value> result, ArrayList<Value[]> ordered,
+    protected void getOrderedResultLoop(Session session, WindowResult result, ArrayList<Value[]> ordered,
             int rowIdColumn) {
         switch (type) {
         case ROW_NUMBER:
@@ -219,7 +218,7 @@ protected void getOrderedResultLoop(Session session, HashMap<Integer, Value> res
         }
     }
 
-    private void getRank(HashMap<Integer, Value> result, ArrayList<Value[]> ordered, int rowIdColumn) {
+    private void getRank(WindowResult result, ArrayList<Value[]> ordered, int rowIdColumn) {
         int size = ordered.size();
         int number = 0;
         for (int i = 0; i < size; i++) {
@@ -244,7 +243,7 @@ private void getRank(HashMap<Integer, Value> result, ArrayList<Value[]> ordered,
         }
     }
 
-    private void getCumeDist(HashMap<Integer, Value> result, ArrayList<Value[]> orderedData, int rowIdColumn) {
+    private void getCumeDist(WindowResult result, ArrayList<Value[]> orderedData, int rowIdColumn) {
         int size = orderedData.size();
         for (int start = 0; start < size;) {
             Value[] array = orderedData.get(start);
@@ -261,7 +260,7 @@ private void getCumeDist(HashMap<Integer, Value> result, ArrayList<Value[]> orde
         }
     }
 
-    private static void getNtile(HashMap<Integer, Value> result, ArrayList<Value[]> orderedData, int rowIdColumn) {
+    private static void getNtile(WindowResult result, ArrayList<Value[]> orderedData, int rowIdColumn) {
         int size = orderedData.size();
         for (int i = 0; i < size; i++) {
             Value[] array = orderedData.get(i);
@@ -282,7 +281,7 @@ private static void getNtile(HashMap<Integer, Value> result, ArrayList<Value[]>
         }
     }
 
-    private void getLeadLag(HashMap<Integer, Value> result, ArrayList<Value[]> ordered, int rowIdColumn,
+    private void getLeadLag(WindowResult result, ArrayList<Value[]> ordered, int rowIdColumn,
             Session session) {
         int size = ordered.size();
         int numExpressions = getNumExpressions();
@@ -347,7 +346,7 @@ private void getLeadLag(HashMap<Integer, Value> result, ArrayList<Value[]> order
         }
     }
 
-    private void getNth(Session session, HashMap<Integer, Value> result, ArrayList<Value[]> ordered, int rowIdColumn) {
+    private void getNth(Session session, WindowResult result, ArrayList<Value[]> ordered, int rowIdColumn) {
         int size = ordered.size();
         for (int i = 0; i < size; i++) {
             Value[] row = ordered.get(i);
@@ -380,7 +379,7 @@ private void getNth(Session session, HashMap<Integer, Value> result, ArrayList<V
         }
     }
 
-    private static void getRatioToReport(HashMap<Integer, Value> result, ArrayList<Value[]> ordered, int rowIdColumn) {
+    private static void getRatioToReport(WindowResult result, ArrayList<Value[]> ordered, int rowIdColumn) {
         int size = ordered.size();
         Value value = null;
         for (int i = 0; i < size; i++) {
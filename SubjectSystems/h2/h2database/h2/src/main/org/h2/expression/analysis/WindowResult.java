@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.analysis;
+
+import java.util.Arrays;
+
+import org.h2.value.Value;
+
+/**
+ * Results of a window function or window aggregate for the rows of a
+ * partition. The row ids are kept in a primitive array, sorted on the first
+ * lookup.
+ */
+public final class WindowResult {
+
+    /**
+     * Row ids.
+     */
+    private int[] rowIds;
+
+    /**
+     * Results, in the same order as the row ids.
+     */
+    private Value[] values;
+
+    private int size;
+
+    /**
+     * Whether row ids are in ascending order.
+     */
+    private boolean sorted = true;
+
+    /**
+     * Creates new instance of window result.
+     *
+     * @param capacity
+     *            the expected number of rows
+     */
+    WindowResult(int capacity) {
+        rowIds = new int[capacity];
+        values = new Value[capacity];
+    }
+
+    /**
+     * Adds the result for a row.
+     *
+     * @param rowId
+     *            the row id
+     * @param value
+     *            the result
+     */
+    public void put(int rowId, Value value) {
+        if (size == rowIds.length) {
+            int newCapacity = Math.max(size * 2, 8);
+            rowIds = Arrays.copyOf(rowIds, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+        if (size > 0 && rowIds[size - 1] > rowId) {
+            sorted = false;
+        }
+        rowIds[size] = rowId;
+        values[size++] = value;
+    }
+
+    /**
+     * Returns the result for a row.
+     *
+     * @param rowId
+     *            the row id
+     * @return the result, or {@code null} if there is no result for this row
+     */
+    Value get(int rowId) {
+        if (!sorted) {
+            sort();
+        }
+        int index = Arrays.binarySearch(rowIds, 0, size, rowId);
+        return index >= 0 ? values[index] : null;
+    }
+
+    private void sort() {
+        int size = this.size;
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) rowIds[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        Value[] newValues = new Value[size];
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            rowIds[i] = (int) (key >> 32);
+            newValues[i] = values[(int) key];
+        }
+        values = newValues;
+        sorted = true;
+    }
+
+}
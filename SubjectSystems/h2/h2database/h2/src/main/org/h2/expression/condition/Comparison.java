@@ -6,6 +6,7 @@
 package org.h2.expression.condition;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import org.h2.api.ErrorCode;
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
@@ -18,6 +19,7 @@
 import org.h2.expression.aggregate.AggregateType;
 import org.h2.index.IndexCondition;
 import org.h2.message.DbException;
+import org.h2.result.RowBatch;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
@@ -254,6 +256,93 @@ public Value getValue(Session session) {
         return compare(session, l, right.getValue(session), compareType);
     }
 
+    @Override
+    public boolean isBatchable(TableFilter filter) {
+        if (whenOperand || compareType > NOT_EQUAL || getFilterColumnId(filter, left) < 0) {
+            return false;
+        }
+        int type = left.getType().getValueType();
+        if (!isIntegerType(type) && type != Value.REAL && type != Value.DOUBLE) {
+            return false;
+        }
+        return right.isEverything(ExpressionVisitor.getNotFromResolverVisitor(filter))
+                && right.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR);
+    }
+
+    @Override
+    public void getBooleanBatch(Session session, TableFilter filter, RowBatch batch, byte[] result) {
+        Value r = right.getValue(session);
+        int size = batch.size();
+        if (r == ValueNull.INSTANCE) {
+            Arrays.fill(result, 0, size, RowBatch.UNKNOWN);
+            return;
+        }
+        int columnId = getFilterColumnId(filter, left);
+        int leftType = left.getType().getValueType(), rightType = r.getValueType();
+        if (isIntegerType(leftType) && isIntegerType(rightType)) {
+            long[] values = batch.getLongs(columnId);
+            boolean[] nulls = batch.getNulls(columnId);
+            long c = r.getLong();
+            for (int i = 0; i < size; i++) {
+                result[i] = nulls[i] ? RowBatch.UNKNOWN : getBatchResult(Long.compare(values[i], c));
+            }
+        } else if (isDoubleComparable(leftType) && isDoubleComparable(rightType)) {
+            // the values are compared as DOUBLE, or as REAL with the same result
+            double[] values = batch.getDoubles(columnId);
+            boolean[] nulls = batch.getNulls(columnId);
+            double c = r.getDouble();
+            for (int i = 0; i < size; i++) {
+                result[i] = nulls[i] ? RowBatch.UNKNOWN : getBatchResult(Double.compare(values[i], c));
+            }
+        } else {
+            // the values need to be converted to NUMERIC
+            super.getBooleanBatch(session, filter, batch, result);
+        }
+    }
+
+    private static boolean isIntegerType(int type) {
+        switch (type) {
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isDoubleComparable(int type) {
+        return type == Value.REAL || type == Value.DOUBLE || type != Value.BIGINT && isIntegerType(type);
+    }
+
+    private byte getBatchResult(int cmp) {
+        boolean result;
+        switch (compareType) {
+        case EQUAL:
+            result = cmp == 0;
+            break;
+        case NOT_EQUAL:
+            result = cmp != 0;
+            break;
+        case BIGGER_EQUAL:
+            result = cmp >= 0;
+            break;
+        case BIGGER:
+            result = cmp > 0;
+            break;
+        case SMALLER_EQUAL:
+            result = cmp <= 0;
+            break;
+        case SMALLER:
+            result = cmp < 0;
+            break;
+        default:
+            throw DbException.throwInternalError("type=" + compareType);
+        }
+        return result ? RowBatch.TRUE : RowBatch.FALSE;
+    }
+
     @Override
     public boolean getWhenValue(Session session, Value left) {
         if (!whenOperand) {
@@ -5,9 +5,16 @@
  */
 package org.h2.expression.condition;
 
+import java.util.List;
+
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.function.CastSpecification;
+import org.h2.result.RowBatch;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
 
@@ -30,6 +37,104 @@ static Expression castToBoolean(Session session, Expression expression) {
         return new CastSpecification(expression, TypeInfo.TYPE_BOOLEAN);
     }
 
+    /**
+     * Get the id of the column if the specified expression is a column of the
+     * specified table filter.
+     *
+     * @param filter the table filter
+     * @param e the expression
+     * @return the column id, or -1
+     */
+    static int getFilterColumnId(TableFilter filter, Expression e) {
+        if (e instanceof ExpressionColumn) {
+            ExpressionColumn c = (ExpressionColumn) e;
+            if (c.getTableFilter() == filter) {
+                Column column = c.getColumn();
+                if (column != null) {
+                    return column.getColumnId();
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if an AND or OR condition with the specified operands can be
+     * evaluated for a batch of rows. At least one operand must support batches,
+     * other operands must be deterministic, they are evaluated for each row
+     * separately.
+     *
+     * @param filter the table filter
+     * @param operands the operands
+     * @return true if it can
+     */
+    static boolean isAndOrBatchable(TableFilter filter, List<Expression> operands) {
+        boolean batchable = false;
+        for (Expression e : operands) {
+            if (e.isBatchable(filter)) {
+                batchable = true;
+            } else if (!e.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+                return false;
+            }
+        }
+        return batchable;
+    }
+
+    /**
+     * Evaluate an AND or OR condition for a batch of rows. Operands that
+     * support batches are evaluated first, other operands are evaluated for
+     * each row separately, but only if the result for that row is not known
+     * yet.
+     *
+     * @param session the session
+     * @param filter the table filter
+     * @param batch the rows of the table filter
+     * @param result the array to store the results to
+     * @param and {@code true} for AND, {@code false} for OR
+     * @param operands the operands
+     */
+    static void getAndOrBatch(Session session, TableFilter filter, RowBatch batch, byte[] result, boolean and,
+            List<Expression> operands) {
+        int size = batch.size();
+        byte[] operand = null;
+        boolean first = true;
+        for (Expression e : operands) {
+            if (e.isBatchable(filter)) {
+                if (first) {
+                    e.getBooleanBatch(session, filter, batch, result);
+                    first = false;
+                } else {
+                    if (operand == null) {
+                        operand = new byte[size];
+                    }
+                    e.getBooleanBatch(session, filter, batch, operand);
+                    for (int i = 0; i < size; i++) {
+                        result[i] = combine(result[i], operand[i], and);
+                    }
+                }
+            }
+        }
+        byte known = and ? RowBatch.FALSE : RowBatch.TRUE;
+        for (Expression e : operands) {
+            if (!e.isBatchable(filter)) {
+                for (int i = 0; i < size; i++) {
+                    if (result[i] != known) {
+                        filter.set(batch.get(i));
+                        result[i] = combine(result[i], RowBatch.fromValue(e.getValue(session)), and);
+                    }
+                }
+            }
+        }
+    }
+
+    private static byte combine(byte a, byte b, boolean and) {
+        byte known = and ? RowBatch.FALSE : RowBatch.TRUE;
+        if (a == known || b == known) {
+            return known;
+        }
+        return a == RowBatch.UNKNOWN || b == RowBatch.UNKNOWN ? RowBatch.UNKNOWN : a;
+    }
+
     @Override
     public TypeInfo getType() {
         return TypeInfo.TYPE_BOOLEAN;
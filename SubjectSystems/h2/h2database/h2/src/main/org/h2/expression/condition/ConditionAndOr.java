@@ -5,12 +5,15 @@
  */
 package org.h2.expression.condition;
 
+import java.util.Arrays;
+
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.TypedValueExpression;
 import org.h2.expression.ValueExpression;
 import org.h2.message.DbException;
+import org.h2.result.RowBatch;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
@@ -133,6 +136,16 @@ public Value getValue(Session session) {
         }
     }
 
+    @Override
+    public boolean isBatchable(TableFilter filter) {
+        return isAndOrBatchable(filter, Arrays.asList(left, right));
+    }
+
+    @Override
+    public void getBooleanBatch(Session session, TableFilter filter, RowBatch batch, byte[] result) {
+        getAndOrBatch(session, filter, batch, result, andOrType == AND, Arrays.asList(left, right));
+    }
+
     @Override
     public Expression optimize(Session session) {
         // NULL handling: see wikipedia,
@@ -14,6 +14,7 @@
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionVisitor;
 import org.h2.message.DbException;
+import org.h2.result.RowBatch;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
@@ -147,6 +148,16 @@ public Value getValue(Session session) {
         }
     }
 
+    @Override
+    public boolean isBatchable(TableFilter filter) {
+        return isAndOrBatchable(filter, expressions);
+    }
+
+    @Override
+    public void getBooleanBatch(Session session, TableFilter filter, RowBatch batch, byte[] result) {
+        getAndOrBatch(session, filter, batch, result, andOrType == ConditionAndOr.AND, expressions);
+    }
+
     private static final Comparator<Expression> COMPARE_BY_COST = new Comparator<Expression>() {
         @Override
         public int compare(Expression lhs, Expression rhs) {
@@ -10,6 +10,7 @@
 import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.TypedValueExpression;
 import org.h2.expression.ValueExpression;
+import org.h2.result.RowBatch;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
@@ -40,6 +41,22 @@ public Value getValue(Session session) {
         return v.convertToBoolean().negate();
     }
 
+    @Override
+    public boolean isBatchable(TableFilter filter) {
+        return condition.isBatchable(filter);
+    }
+
+    @Override
+    public void getBooleanBatch(Session session, TableFilter filter, RowBatch batch, byte[] result) {
+        condition.getBooleanBatch(session, filter, batch, result);
+        for (int i = 0, size = batch.size(); i < size; i++) {
+            byte r = result[i];
+            if (r != RowBatch.UNKNOWN) {
+                result[i] = r == RowBatch.TRUE ? RowBatch.FALSE : RowBatch.TRUE;
+            }
+        }
+    }
+
     @Override
     public void mapColumns(ColumnResolver resolver, int level, int state) {
         condition.mapColumns(resolver, level, state);
@@ -13,6 +13,7 @@
 import org.h2.expression.ExpressionList;
 import org.h2.expression.ValueExpression;
 import org.h2.index.IndexCondition;
+import org.h2.result.RowBatch;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
 import org.h2.value.ValueBoolean;
@@ -83,6 +84,20 @@ public Value getValue(Session session) {
         return ValueBoolean.get(getValue(left.getValue(session)));
     }
 
+    @Override
+    public boolean isBatchable(TableFilter filter) {
+        return !whenOperand && getFilterColumnId(filter, left) >= 0
+                && left.getType().getValueType() != Value.ROW;
+    }
+
+    @Override
+    public void getBooleanBatch(Session session, TableFilter filter, RowBatch batch, byte[] result) {
+        boolean[] nulls = batch.getNulls(getFilterColumnId(filter, left));
+        for (int i = 0, size = batch.size(); i < size; i++) {
+            result[i] = nulls[i] ^ not ? RowBatch.TRUE : RowBatch.FALSE;
+        }
+    }
+
     @Override
     public boolean getWhenValue(Session session, Value left) {
         if (!whenOperand) {
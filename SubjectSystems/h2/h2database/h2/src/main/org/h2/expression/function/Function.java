@@ -1329,7 +1329,7 @@ protected Value getValueWithArgs(Session session, Expression[] args) {
             String[] columns = StringUtils.arraySplit(columnList,
                     fieldSeparator, true);
             try {
-                result = ValueResultSet.get(session, csv.read(fileName, columns, charset), Integer.MAX_VALUE);
+                result = ValueResultSet.get(csv.readResult(fileName, columns, charset, session));
             } catch (SQLException e) {
                 throw DbException.convert(e);
             }
@@ -0,0 +1,1384 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.fulltext;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.h2.api.Trigger;
+import org.h2.command.Parser;
+import org.h2.engine.Session;
+import org.h2.engine.TransactionListener;
+import org.h2.expression.ExpressionColumn;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.MVTableEngine.Store;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.tools.SimpleResultSet;
+import org.h2.util.IntArray;
+import org.h2.util.StringUtils;
+import org.h2.util.Utils;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueRow;
+import org.h2.value.ValueVarbinary;
+import org.h2.value.ValueVarchar;
+import org.h2.value.VersionedValue;
+
+/**
+ * This class implements a full text search that keeps an inverted index in
+ * maps of the MVStore of the database. It does not need any external
+ * libraries.
+ * <p>
+ * For each word, the index contains a posting list of the ids of the
+ * documents (rows) that contain the word, together with the positions of the
+ * word in the document. The posting lists are split into blocks of up to 128
+ * documents, and the document ids and positions are stored as variable size
+ * deltas. Changes are collected per transaction and written to the index just
+ * before the transaction is committed, so that a block is only rewritten once
+ * per transaction and only locked for a short time.
+ * </p>
+ * <p>
+ * The number of documents and the total length that are used for ranking are
+ * updated when the changes are written, so that searches of other sessions
+ * may see the counts of transactions that are not committed yet. If the
+ * database was not closed normally while such changes were written, the
+ * counts are recomputed when the database is opened. Re-indexing the database
+ * rebuilds them as well.
+ * </p>
+ * <p>
+ * Searches return the rows that contain all words of the query, ranked by
+ * BM25. Words in double quotes are a phrase and need to appear one after the
+ * other. Most methods can be called using SQL statements as well.
+ * </p>
+ */
+public class FullTextMVStore extends FullText {
+
+    private static final String TRIGGER_PREFIX = "FTM_";
+    private static final String SCHEMA = "FTM";
+    private static final String MAP_PREFIX = "fulltext.";
+
+    /**
+     * The characters that separate words.
+     */
+    private static final String WHITESPACE_CHARS = " \t\n\r\f+\"*%&/()=?'!,.;:-_#@|^~`{}[]<>\\";
+
+    /**
+     * The maximum number of documents in a block of a posting list.
+     */
+    private static final int BLOCK_SIZE = 128;
+
+    /**
+     * The number of changed rows after which the changes are written to the
+     * index before the commit.
+     */
+    private static final int MAX_PENDING_ROWS = 10_000;
+
+    private static final double K1 = 1.2, B = 0.75;
+
+    private static final Value DOC_COUNT = ValueVarchar.get("docCount");
+    private static final Value TOTAL_LENGTH = ValueVarchar.get("totalLength");
+    private static final Value NEXT_ID = ValueVarchar.get("nextId");
+
+    /**
+     * The number of written changes of transactions that did not end yet.
+     */
+    private static final Value PENDING = ValueVarchar.get("pending");
+
+    private static final Map<Session, Batch> BATCHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Initializes full text search functionality for this database. This adds
+     * the following Java functions to the database:
+     * <ul>
+     * <li>FTM_CREATE_INDEX(schemaNameString, tableNameString,
+     * columnListString)</li>
+     * <li>FTM_SEARCH(queryString, limitInt, offsetInt): result set</li>
+     * <li>FTM_REINDEX()</li>
+     * <li>FTM_DROP_ALL()</li>
+     * </ul>
+     * It also adds a schema FTM to the database where bookkeeping information
+     * is stored. This function may be called from a Java application, or by
+     * using the SQL statements:
+     *
+     * <pre>
+     * CREATE ALIAS IF NOT EXISTS FTM_INIT FOR
+     *      &quot;org.h2.fulltext.FullTextMVStore.init&quot;;
+     * CALL FTM_INIT();
+     * </pre>
+     *
+     * @param conn the connection
+     */
+    public static void init(Connection conn) throws SQLException {
+        getSession(conn);
+        try (Statement stat = conn.createStatement()) {
+            stat.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+            stat.execute("CREATE TABLE IF NOT EXISTS " + SCHEMA
+                    + ".INDEXES(ID INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "SCHEMA VARCHAR, `TABLE` VARCHAR, COLUMNS VARCHAR, "
+                    + "UNIQUE(SCHEMA, `TABLE`))");
+            stat.execute("CREATE ALIAS IF NOT EXISTS FTM_CREATE_INDEX FOR \"" +
+                    FullTextMVStore.class.getName() + ".createIndex\"");
+            stat.execute("CREATE ALIAS IF NOT EXISTS FTM_DROP_INDEX FOR \"" +
+                    FullTextMVStore.class.getName() + ".dropIndex\"");
+            stat.execute("CREATE ALIAS IF NOT EXISTS FTM_SEARCH FOR \"" +
+                    FullTextMVStore.class.getName() + ".search\"");
+            stat.execute("CREATE ALIAS IF NOT EXISTS FTM_SEARCH_DATA FOR \"" +
+                    FullTextMVStore.class.getName() + ".searchData\"");
+            stat.execute("CREATE ALIAS IF NOT EXISTS FTM_REINDEX FOR \"" +
+                    FullTextMVStore.class.getName() + ".reindex\"");
+            stat.execute("CREATE ALIAS IF NOT EXISTS FTM_DROP_ALL FOR \"" +
+                    FullTextMVStore.class.getName() + ".dropAll\"");
+        }
+    }
+
+    /**
+     * Create a new full text index for a table and column list. Each table may
+     * only have one index at any time.
+     *
+     * @param conn the connection
+     * @param schema the schema name of the table (case sensitive)
+     * @param table the table name (case sensitive)
+     * @param columnList the column list (null for all columns)
+     */
+    public static void createIndex(Connection conn, String schema,
+            String table, String columnList) throws SQLException {
+        init(conn);
+        PreparedStatement prep = conn.prepareStatement("INSERT INTO " + SCHEMA
+                + ".INDEXES(SCHEMA, `TABLE`, COLUMNS) VALUES(?, ?, ?)");
+        prep.setString(1, schema);
+        prep.setString(2, table);
+        prep.setString(3, columnList);
+        prep.execute();
+        createTrigger(conn, schema, table);
+        indexExistingRows(conn, schema, table);
+    }
+
+    /**
+     * Drop an existing full text index for a table. This method returns
+     * silently if no index for this table exists.
+     *
+     * @param conn the connection
+     * @param schema the schema name of the table (case sensitive)
+     * @param table the table name (case sensitive)
+     */
+    public static void dropIndex(Connection conn, String schema, String table)
+            throws SQLException {
+        init(conn);
+        PreparedStatement prep = conn.prepareStatement("SELECT ID FROM " + SCHEMA
+                + ".INDEXES WHERE SCHEMA=? AND `TABLE`=?");
+        prep.setString(1, schema);
+        prep.setString(2, table);
+        ResultSet rs = prep.executeQuery();
+        if (!rs.next()) {
+            return;
+        }
+        int indexId = rs.getInt(1);
+        prep = conn.prepareStatement("DELETE FROM " + SCHEMA
+                + ".INDEXES WHERE ID=?");
+        prep.setInt(1, indexId);
+        prep.execute();
+        createOrDropTrigger(conn, schema, table, false);
+        removeMaps(getSession(conn), indexId);
+    }
+
+    /**
+     * Re-creates the full text index for this database. Calling this method is
+     * usually not needed, as the index is kept up-to-date automatically.
+     *
+     * @param conn the connection
+     */
+    public static void reindex(Connection conn) throws SQLException {
+        init(conn);
+        removeAllTriggers(conn, TRIGGER_PREFIX);
+        Session session = getSession(conn);
+        Statement stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("SELECT * FROM " + SCHEMA + ".INDEXES");
+        while (rs.next()) {
+            String schema = rs.getString("SCHEMA");
+            String table = rs.getString("TABLE");
+            removeMaps(session, rs.getInt("ID"));
+            createTrigger(conn, schema, table);
+            indexExistingRows(conn, schema, table);
+        }
+    }
+
+    /**
+     * Drops all full text indexes from the database.
+     *
+     * @param conn the connection
+     */
+    public static void dropAll(Connection conn) throws SQLException {
+        Session session = getSession(conn);
+        Statement stat = conn.createStatement();
+        ArrayList<Integer> indexIds = new ArrayList<>();
+        ResultSet rs = conn.getMetaData().getTables(null, SCHEMA, "INDEXES", null);
+        if (rs.next()) {
+            rs = stat.executeQuery("SELECT ID FROM " + SCHEMA + ".INDEXES");
+            while (rs.next()) {
+                indexIds.add(rs.getInt(1));
+            }
+        }
+        stat.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        removeAllTriggers(conn, TRIGGER_PREFIX);
+        for (int indexId : indexIds) {
+            removeMaps(session, indexId);
+        }
+    }
+
+    /**
+     * Searches from the full text index for this database.
+     * The returned result set has the following column:
+     * <ul><li>QUERY (varchar): the query to use to get the data.
+     * The query does not include 'SELECT * FROM '. Example:
+     * PUBLIC.TEST WHERE ID = 1
+     * </li><li>SCORE (float) the BM25 relevance score.
+     * </li></ul>
+     * The rows are sorted by descending score.
+     *
+     * @param conn the connection
+     * @param text the search query
+     * @param limit the maximum number of rows or 0 for no limit
+     * @param offset the offset or 0 for no offset
+     * @return the result set
+     */
+    public static ResultSet search(Connection conn, String text, int limit,
+            int offset) throws SQLException {
+        return search(conn, text, limit, offset, false);
+    }
+
+    /**
+     * Searches from the full text index for this database. The result contains
+     * the primary key data as an array. The returned result set has the
+     * following columns:
+     * <ul>
+     * <li>SCHEMA (varchar): the schema name. Example: PUBLIC</li>
+     * <li>TABLE (varchar): the table name. Example: TEST</li>
+     * <li>COLUMNS (array of varchar): comma separated list of quoted column
+     * names. The column names are quoted if necessary. Example: (ID)</li>
+     * <li>KEYS (array of values): comma separated list of values.
+     * Example: (1)</li>
+     * <li>SCORE (float) the BM25 relevance score.</li>
+     * </ul>
+     * The rows are sorted by descending score.
+     *
+     * @param conn the connection
+     * @param text the search query
+     * @param limit the maximum number of rows or 0 for no limit
+     * @param offset the offset or 0 for no offset
+     * @return the result set
+     */
+    public static ResultSet searchData(Connection conn, String text, int limit,
+            int offset) throws SQLException {
+        return search(conn, text, limit, offset, true);
+    }
+
+    /**
+     * Get the session of an embedded connection to a MVStore database.
+     *
+     * @param conn the connection
+     * @return the session
+     */
+    private static Session getSession(Connection conn) throws SQLException {
+        Session session = (Session) ((JdbcConnection) conn).getSession();
+        if (session.getDatabase().getStore() == null) {
+            throw throwException("Fulltext search with " + FullTextMVStore.class.getSimpleName()
+                    + " requires a MVStore database");
+        }
+        return session;
+    }
+
+    private static void createTrigger(Connection conn, String schema,
+            String table) throws SQLException {
+        createOrDropTrigger(conn, schema, table, true);
+    }
+
+    private static void createOrDropTrigger(Connection conn,
+            String schema, String table, boolean create) throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            String trigger = StringUtils.quoteIdentifier(schema) + "."
+                    + StringUtils.quoteIdentifier(TRIGGER_PREFIX + table);
+            stat.execute("DROP TRIGGER IF EXISTS " + trigger);
+            if (create) {
+                // changes of the index are rolled back with the transaction
+                StringBuilder builder = new StringBuilder("CREATE TRIGGER IF NOT EXISTS ");
+                builder.append(trigger).append(" AFTER INSERT, UPDATE, DELETE ON ");
+                StringUtils.quoteIdentifier(builder, schema).append('.');
+                StringUtils.quoteIdentifier(builder, table).
+                        append(" FOR EACH ROW CALL \"").
+                        append(FullTextMVStore.FullTextTrigger.class.getName()).
+                        append('\"');
+                stat.execute(builder.toString());
+            }
+        }
+    }
+
+    private static void indexExistingRows(Connection conn, String schema,
+            String table) throws SQLException {
+        FullTextMVStore.FullTextTrigger existing = new FullTextMVStore.FullTextTrigger();
+        existing.init(conn, schema, null, table, false, Trigger.INSERT);
+        Session session = getSession(conn);
+        String sql = "SELECT * FROM " + StringUtils.quoteIdentifier(schema)
+                + "." + StringUtils.quoteIdentifier(table);
+        ResultSet rs = conn.createStatement().executeQuery(sql);
+        int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            existing.insert(session, row);
+        }
+    }
+
+    /**
+     * Remove the maps of an index, and the pending changes of the current
+     * transaction.
+     *
+     * @param session the session
+     * @param indexId the index id
+     */
+    private static void removeMaps(Session session, int indexId) {
+        Batch batch = BATCHES.get(session);
+        if (batch != null) {
+            batch.removeChanges(indexId);
+        }
+        Store store = session.getDatabase().getStore();
+        MVStore mvStore = store.getMvStore();
+        Transaction t = session.getTransaction();
+        for (String name : IndexMaps.getMapNames(indexId)) {
+            if (mvStore.hasMap(name)) {
+                t.removeMap(t.openMap(name));
+            }
+        }
+    }
+
+    /**
+     * Recompute the statistics of an index if the database was not closed
+     * normally while changes of the index were written. If a transaction was
+     * committed or prepared but did not end, its changes are not known yet,
+     * so the statistics are recomputed when the database is opened the next
+     * time.
+     *
+     * @param session the session
+     * @param indexId the index id
+     */
+    private static void repairStatistics(Session session, int indexId) {
+        Store store = session.getDatabase().getStore();
+        if (!store.getMvStore().hasMap(IndexMaps.getMapNames(indexId)[3])) {
+            return;
+        }
+        for (Transaction t : store.getTransactionStore().getOpenTransactions()) {
+            int status = t.getStatus();
+            if (status == Transaction.STATUS_COMMITTED || status == Transaction.STATUS_PREPARED) {
+                return;
+            }
+        }
+        new IndexMaps(session.getTransaction(), indexId).repairStatistics();
+    }
+
+    /**
+     * Do the search.
+     *
+     * @param conn the database connection
+     * @param text the query
+     * @param limit the limit
+     * @param offset the offset
+     * @param data whether the raw data should be returned
+     * @return the result set
+     */
+    protected static ResultSet search(Connection conn, String text,
+            int limit, int offset, boolean data) throws SQLException {
+        SimpleResultSet result = createResultSet(data);
+        if (conn.getMetaData().getURL().startsWith("jdbc:columnlist:")) {
+            // this is just to query the result set columns
+            return result;
+        }
+        if (text == null || StringUtils.isWhitespaceOrEmpty(text)) {
+            return result;
+        }
+        Session session = getSession(conn);
+        ArrayList<String> words = new ArrayList<>();
+        ArrayList<int[]> phrases = new ArrayList<>();
+        parseQuery(text, words, phrases);
+        if (words.isEmpty()) {
+            return result;
+        }
+        Batch batch = BATCHES.get(session);
+        if (batch != null && batch.transaction == session.getTransaction()) {
+            // the session sees its own changes
+            batch.flush(session);
+        }
+        ResultSet rs = conn.getMetaData().getTables(null, SCHEMA, "INDEXES", null);
+        if (!rs.next()) {
+            return result;
+        }
+        int max = limit <= 0 ? Integer.MAX_VALUE : (int) Math.min((long) limit + offset, Integer.MAX_VALUE);
+        PriorityQueue<Hit> hits = new PriorityQueue<>();
+        rs = conn.createStatement().executeQuery("SELECT ID FROM " + SCHEMA + ".INDEXES ORDER BY ID");
+        MVStore mvStore = session.getDatabase().getStore().getMvStore();
+        while (rs.next()) {
+            int indexId = rs.getInt(1);
+            if (mvStore.hasMap(IndexMaps.getMapNames(indexId)[0])) {
+                IndexMaps maps = new IndexMaps(session.getTransaction(), indexId);
+                maps.search(words, phrases, max, hits);
+            }
+        }
+        Hit[] sorted = hits.toArray(new Hit[0]);
+        Arrays.sort(sorted, Collections.reverseOrder());
+        for (int i = offset, end = limit <= 0 ? sorted.length : Math.min(sorted.length, offset + limit);
+                i < end; i++) {
+            Hit hit = sorted[i];
+            String q = hit.query;
+            if (data) {
+                int idx = q.indexOf(" WHERE ");
+                Parser p = new Parser(session);
+                String tab = q.substring(0, idx);
+                ExpressionColumn expr = (ExpressionColumn) p.parseExpression(tab);
+                String schemaName = expr.getOriginalTableAliasName();
+                String tableName = expr.getColumnName(session, -1);
+                q = q.substring(idx + " WHERE ".length());
+                String[][] columnData = parseKey(conn, q);
+                result.addRow(schemaName, tableName, columnData[0], columnData[1], (float) hit.score);
+            } else {
+                result.addRow(q, (float) hit.score);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split a query into words and phrases. Each word of a phrase is also
+     * added to the word list.
+     *
+     * @param text the query
+     * @param words the list of distinct words
+     * @param phrases the phrases, as indexes into the word list
+     */
+    private static void parseQuery(String text, ArrayList<String> words, ArrayList<int[]> phrases) {
+        String[] parts = StringUtils.arraySplit(text, '"', false);
+        for (int i = 0; i < parts.length; i++) {
+            IntArray phrase = new IntArray();
+            StringTokenizer tokenizer = new StringTokenizer(parts[i], WHITESPACE_CHARS);
+            while (tokenizer.hasMoreTokens()) {
+                String word = StringUtils.toUpperEnglish(tokenizer.nextToken());
+                int index = words.indexOf(word);
+                if (index < 0) {
+                    index = words.size();
+                    words.add(word);
+                }
+                phrase.add(index);
+            }
+            // every second part is in quotes
+            if ((i & 1) != 0 && phrase.size() > 1) {
+                phrases.add(toArray(phrase));
+            }
+        }
+    }
+
+    /**
+     * Split the text of a row into words, and get the positions of each word.
+     *
+     * @param key the condition that selects the row
+     * @param texts the text of the indexed columns
+     * @return the document
+     */
+    static Document createDocument(String key, String[] texts) {
+        HashMap<String, IntArray> map = new HashMap<>();
+        int position = 0, length = 0;
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            StringTokenizer tokenizer = new StringTokenizer(text, WHITESPACE_CHARS);
+            while (tokenizer.hasMoreTokens()) {
+                String word = StringUtils.toUpperEnglish(tokenizer.nextToken());
+                map.computeIfAbsent(word, w -> new IntArray()).add(position++);
+                length++;
+            }
+            // phrases don't span columns
+            position++;
+        }
+        String[] words = map.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        int[][] positions = new int[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            positions[i] = toArray(map.get(words[i]));
+        }
+        return new Document(key, words, positions, length);
+    }
+
+    private static int[] toArray(IntArray list) {
+        int[] array = new int[list.size()];
+        list.toArray(array);
+        return array;
+    }
+
+    /**
+     * Get the batch of changes of the current transaction of a session.
+     *
+     * @param session the session
+     * @return the batch
+     */
+    static Batch getBatch(Session session) {
+        Transaction t = session.getTransaction();
+        Batch batch = BATCHES.get(session);
+        if (batch == null || batch.transaction != t) {
+            batch = new Batch(t);
+            BATCHES.put(session, batch);
+            session.addTransactionListener(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Trigger updates the index when a inserting, updating, or deleting a row.
+     */
+    public static final class FullTextTrigger implements Trigger {
+
+        private String schema;
+        private String table;
+        private int indexId;
+        private int[] keys;
+        private int[] indexColumns;
+        private String[] columns;
+        private int[] columnTypes;
+
+        /**
+         * INTERNAL
+         */
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName,
+                String tableName, boolean before, int type) throws SQLException {
+            Session session = getSession(conn);
+            this.schema = schemaName;
+            this.table = tableName;
+            ArrayList<String> keyList = Utils.newSmallArrayList();
+            DatabaseMetaData meta = conn.getMetaData();
+            ResultSet rs = meta.getColumns(null,
+                    StringUtils.escapeMetaDataPattern(schemaName),
+                    StringUtils.escapeMetaDataPattern(tableName),
+                    null);
+            ArrayList<String> columnList = Utils.newSmallArrayList();
+            while (rs.next()) {
+                columnList.add(rs.getString("COLUMN_NAME"));
+            }
+            columnTypes = new int[columnList.size()];
+            columns = columnList.toArray(new String[0]);
+            rs = meta.getColumns(null,
+                    StringUtils.escapeMetaDataPattern(schemaName),
+                    StringUtils.escapeMetaDataPattern(tableName),
+                    null);
+            for (int i = 0; rs.next(); i++) {
+                columnTypes[i] = rs.getInt("DATA_TYPE");
+            }
+            rs = meta.getPrimaryKeys(null,
+                    StringUtils.escapeMetaDataPattern(schemaName),
+                    tableName);
+            while (rs.next()) {
+                keyList.add(rs.getString("COLUMN_NAME"));
+            }
+            if (keyList.isEmpty()) {
+                throw throwException("No primary key for table " + tableName);
+            }
+            ArrayList<String> indexList = Utils.newSmallArrayList();
+            PreparedStatement prep = conn.prepareStatement(
+                    "SELECT ID, COLUMNS FROM " + SCHEMA
+                    + ".INDEXES WHERE SCHEMA=? AND `TABLE`=?");
+            prep.setString(1, schemaName);
+            prep.setString(2, tableName);
+            rs = prep.executeQuery();
+            if (!rs.next()) {
+                throw throwException("No full text index for table " + tableName);
+            }
+            indexId = rs.getInt(1);
+            String cols = rs.getString(2);
+            if (cols != null) {
+                Collections.addAll(indexList,
+                        StringUtils.arraySplit(cols, ',', true));
+            }
+            if (indexList.isEmpty()) {
+                indexList.addAll(columnList);
+            }
+            keys = new int[keyList.size()];
+            setColumns(keys, keyList, columnList);
+            indexColumns = new int[indexList.size()];
+            setColumns(indexColumns, indexList, columnList);
+            if (session.getDatabase().isStarting()) {
+                repairStatistics(session, indexId);
+            }
+        }
+
+        /**
+         * INTERNAL
+         */
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow)
+                throws SQLException {
+            Session session = getSession(conn);
+            if (oldRow != null) {
+                if (newRow != null) {
+                    // update
+                    if (hasChanged(oldRow, newRow, indexColumns)) {
+                        delete(session, oldRow);
+                        insert(session, newRow);
+                    }
+                } else {
+                    // delete
+                    delete(session, oldRow);
+                }
+            } else if (newRow != null) {
+                // insert
+                insert(session, newRow);
+            }
+        }
+
+        /**
+         * Add a row to the index.
+         *
+         * @param session the session
+         * @param row the row
+         */
+        void insert(Session session, Object[] row) throws SQLException {
+            getBatch(session).add(session, indexId, true, getDocument(row));
+        }
+
+        /**
+         * Delete a row from the index.
+         *
+         * @param session the session
+         * @param row the row
+         */
+        void delete(Session session, Object[] row) throws SQLException {
+            getBatch(session).add(session, indexId, false, getDocument(row));
+        }
+
+        private Document getDocument(Object[] row) throws SQLException {
+            String[] texts = new String[indexColumns.length];
+            for (int i = 0; i < texts.length; i++) {
+                int index = indexColumns[i];
+                Object o = row[index];
+                if (o != null) {
+                    texts[i] = asString(o, columnTypes[index]);
+                }
+            }
+            return createDocument(getQuery(row), texts);
+        }
+
+        private String getQuery(Object[] row) throws SQLException {
+            StringBuilder builder = new StringBuilder();
+            if (schema != null) {
+                StringUtils.quoteIdentifier(builder, schema).append('.');
+            }
+            StringUtils.quoteIdentifier(builder, table).append(" WHERE ");
+            for (int i = 0, length = keys.length; i < length; i++) {
+                if (i > 0) {
+                    builder.append(" AND ");
+                }
+                int columnIndex = keys[i];
+                StringUtils.quoteIdentifier(builder, columns[columnIndex]);
+                Object o = row[columnIndex];
+                if (o == null) {
+                    builder.append(" IS NULL");
+                } else {
+                    builder.append('=').append(FullText.quoteSQL(o, columnTypes[columnIndex]));
+                }
+            }
+            return builder.toString();
+        }
+
+    }
+
+    /**
+     * The words of a row.
+     */
+    static final class Document {
+
+        /**
+         * The condition that selects the row.
+         */
+        final String key;
+
+        /**
+         * The distinct words, sorted.
+         */
+        final String[] words;
+
+        /**
+         * The positions of each word.
+         */
+        final int[][] positions;
+
+        /**
+         * The number of words.
+         */
+        final int length;
+
+        Document(String key, String[] words, int[][] positions, int length) {
+            this.key = key;
+            this.words = words;
+            this.positions = positions;
+            this.length = length;
+        }
+
+    }
+
+    /**
+     * A pending change of an index.
+     */
+    private static final class Change {
+
+        final int indexId;
+
+        final boolean insert;
+
+        final Document document;
+
+        /**
+         * The transaction savepoint after the change of the row.
+         */
+        final long savepoint;
+
+        Change(int indexId, boolean insert, Document document, long savepoint) {
+            this.indexId = indexId;
+            this.insert = insert;
+            this.document = document;
+            this.savepoint = savepoint;
+        }
+
+    }
+
+    /**
+     * The changes that were written to the index maps before the end of the
+     * transaction. If the transaction is rolled back to a savepoint before the
+     * changes were written, the changes that are older than the savepoint need
+     * to be written again. The statistics are not transactional, so they are
+     * reverted on rollback, and the changes are counted as pending until the
+     * transaction ends.
+     */
+    private static final class Flush {
+
+        /**
+         * The transaction savepoint before the changes were written.
+         */
+        final long savepoint;
+
+        final ArrayList<Change> changes;
+
+        final ArrayList<TransactionMap<Value, Value>> statistics = new ArrayList<>();
+
+        final ArrayList<long[]> deltas = new ArrayList<>();
+
+        Flush(long savepoint, ArrayList<Change> changes) {
+            this.savepoint = savepoint;
+            this.changes = changes;
+        }
+
+        /**
+         * Revert the changes of the statistics.
+         */
+        void revertStatistics() {
+            for (int i = 0; i < statistics.size(); i++) {
+                TransactionMap<Value, Value> s = statistics.get(i);
+                if (i < deltas.size()) {
+                    long[] delta = deltas.get(i);
+                    addStatistic(s, DOC_COUNT, -delta[0]);
+                    addStatistic(s, TOTAL_LENGTH, -delta[1]);
+                }
+                addStatistic(s, PENDING, -1);
+            }
+        }
+
+        /**
+         * Mark the changes of the statistics as committed.
+         */
+        void commitStatistics() {
+            for (TransactionMap<Value, Value> s : statistics) {
+                addStatistic(s, PENDING, -1);
+            }
+        }
+
+    }
+
+    /**
+     * The pending changes of the full text indexes of a transaction.
+     */
+    static final class Batch implements TransactionListener {
+
+        /**
+         * The transaction.
+         */
+        final Transaction transaction;
+
+        private ArrayList<Change> changes = new ArrayList<>();
+
+        private final ArrayList<Flush> flushes = new ArrayList<>();
+
+        Batch(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        /**
+         * Add a change.
+         *
+         * @param session the session
+         * @param indexId the index id
+         * @param insert whether the row was inserted or deleted
+         * @param document the words of the row
+         */
+        void add(Session session, int indexId, boolean insert, Document document) {
+            changes.add(new Change(indexId, insert, document, transaction.setSavepoint()));
+            if (changes.size() >= MAX_PENDING_ROWS) {
+                flush(session);
+            }
+        }
+
+        /**
+         * Remove the pending changes of an index.
+         *
+         * @param indexId the index id
+         */
+        void removeChanges(int indexId) {
+            changes.removeIf(c -> c.indexId == indexId);
+            for (Flush f : flushes) {
+                f.changes.removeIf(c -> c.indexId == indexId);
+            }
+        }
+
+        @Override
+        public void beforeCommit(Session session) {
+            if (session.getTransaction() == transaction) {
+                flush(session);
+            }
+            BATCHES.remove(session, this);
+        }
+
+        @Override
+        public void afterCommit(Session session) {
+            for (Flush f : flushes) {
+                f.commitStatistics();
+            }
+            flushes.clear();
+        }
+
+        @Override
+        public void afterRollback(Session session, long savepointId) {
+            if (savepointId < 0) {
+                for (Flush f : flushes) {
+                    f.revertStatistics();
+                }
+                flushes.clear();
+                changes.clear();
+                BATCHES.remove(session, this);
+                return;
+            }
+            ArrayList<Change> list = new ArrayList<>();
+            int i = flushes.size();
+            while (i > 0 && flushes.get(i - 1).savepoint >= savepointId) {
+                i--;
+            }
+            for (int j = i; j < flushes.size(); j++) {
+                Flush f = flushes.get(j);
+                f.revertStatistics();
+                list.addAll(f.changes);
+            }
+            flushes.subList(i, flushes.size()).clear();
+            list.addAll(changes);
+            list.removeIf(c -> c.savepoint > savepointId);
+            changes = list;
+        }
+
+        /**
+         * Write the pending changes to the index maps.
+         *
+         * @param session the session
+         */
+        void flush(Session session) {
+            if (changes.isEmpty()) {
+                return;
+            }
+            Flush f = new Flush(transaction.setSavepoint(), changes);
+            changes = new ArrayList<>();
+            try {
+                // process the indexes in a fixed order to avoid deadlocks
+                TreeMap<Integer, ArrayList<Change>> byIndex = new TreeMap<>();
+                for (Change c : f.changes) {
+                    byIndex.computeIfAbsent(c.indexId, k -> new ArrayList<>()).add(c);
+                }
+                for (Entry<Integer, ArrayList<Change>> e : byIndex.entrySet()) {
+                    IndexMaps maps = new IndexMaps(transaction, e.getKey());
+                    addStatistic(maps.statistics, PENDING, 1);
+                    f.statistics.add(maps.statistics);
+                    f.deltas.add(maps.apply(e.getValue()));
+                }
+            } catch (RuntimeException e) {
+                transaction.rollbackToSavepoint(f.savepoint);
+                f.revertStatistics();
+                f.changes.addAll(changes);
+                changes = f.changes;
+                throw e;
+            }
+            flushes.add(f);
+        }
+
+    }
+
+    /**
+     * Add a value to a statistic of an index. The statistics are updated
+     * without a lock, so that concurrent transactions don't block each other.
+     *
+     * @param statistics the statistics map
+     * @param key the name of the statistic
+     * @param delta the value to add
+     * @return the old value
+     */
+    static long addStatistic(TransactionMap<Value, Value> statistics, Value key, long delta) {
+        MVMap<Value, VersionedValue<Value>> map = statistics.map;
+        synchronized (map) {
+            long old = getStatistic(statistics, key);
+            if (delta != 0) {
+                statistics.putCommitted(key, ValueBigint.get(old + delta));
+            }
+            return old;
+        }
+    }
+
+    /**
+     * Get the value of a statistic of an index.
+     *
+     * @param statistics the statistics map
+     * @param key the name of the statistic
+     * @return the value
+     */
+    static long getStatistic(TransactionMap<Value, Value> statistics, Value key) {
+        VersionedValue<Value> v = statistics.map.get(key);
+        return v == null ? 0 : v.getCurrentValue().getLong();
+    }
+
+    /**
+     * A search hit.
+     */
+    private static final class Hit implements Comparable<Hit> {
+
+        final String query;
+
+        final double score;
+
+        Hit(String query, double score) {
+            this.query = query;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit o) {
+            int c = Double.compare(score, o.score);
+            // with the same score, the smaller key is better
+            return c != 0 ? c : o.query.compareTo(query);
+        }
+
+    }
+
+    /**
+     * A decoded posting list, or a part of it.
+     */
+    private static final class Postings {
+
+        long[] docIds = new long[BLOCK_SIZE];
+
+        int[][] positions = new int[BLOCK_SIZE][];
+
+        int size;
+
+        void add(long docId, int[] p) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            docIds[size] = docId;
+            positions[size++] = p;
+        }
+
+        /**
+         * Decode a block and add its entries.
+         *
+         * @param firstDocId the first document id of the block
+         * @param block the encoded block
+         */
+        void decode(long firstDocId, byte[] block) {
+            ByteBuffer buff = ByteBuffer.wrap(block);
+            long docId = firstDocId;
+            for (int i = 0, count = DataUtils.readVarInt(buff); i < count; i++) {
+                docId += DataUtils.readVarLong(buff);
+                int[] p = new int[DataUtils.readVarInt(buff)];
+                for (int j = 0, pos = 0; j < p.length; j++) {
+                    pos += DataUtils.readVarInt(buff);
+                    p[j] = pos;
+                }
+                add(docId, p);
+            }
+        }
+
+        /**
+         * Encode a range of the entries.
+         *
+         * @param buff the buffer
+         * @param firstDocId the first document id of the block
+         * @param from the index of the first entry
+         * @param to the index after the last entry
+         * @return the encoded block
+         */
+        byte[] encode(WriteBuffer buff, long firstDocId, int from, int to) {
+            buff.clear();
+            buff.putVarInt(to - from);
+            long last = firstDocId;
+            for (int i = from; i < to; i++) {
+                buff.putVarLong(docIds[i] - last);
+                last = docIds[i];
+                int[] p = positions[i];
+                buff.putVarInt(p.length);
+                for (int j = 0, pos = 0; j < p.length; j++) {
+                    buff.putVarInt(p[j] - pos);
+                    pos = p[j];
+                }
+            }
+            ByteBuffer b = buff.getBuffer();
+            return Arrays.copyOf(b.array(), b.position());
+        }
+
+    }
+
+    /**
+     * The maps of an index, opened for a transaction.
+     */
+    private static final class IndexMaps {
+
+        /**
+         * The documents: document id, key and length.
+         */
+        final TransactionMap<Value, Value> docs;
+
+        /**
+         * The document id of each key.
+         */
+        final TransactionMap<Value, Value> keys;
+
+        /**
+         * The blocks of the posting lists: word and first document id, block.
+         */
+        final TransactionMap<Value, Value> postings;
+
+        /**
+         * The number of documents, total length, next document id and
+         * number of pending changes.
+         */
+        final TransactionMap<Value, Value> statistics;
+
+        IndexMaps(Transaction t, int indexId) {
+            String[] names = getMapNames(indexId);
+            docs = t.openMap(names[0]);
+            keys = t.openMap(names[1]);
+            postings = t.openMap(names[2]);
+            statistics = t.openMap(names[3]);
+        }
+
+        /**
+         * Get the names of the maps of an index.
+         *
+         * @param indexId the index id
+         * @return the map names
+         */
+        static String[] getMapNames(int indexId) {
+            String prefix = MAP_PREFIX + indexId;
+            return new String[] { prefix + ".docs", prefix + ".keys", prefix + ".postings", prefix + ".stats" };
+        }
+
+        private static Value blockKey(String word, long docId) {
+            return ValueRow.get(new Value[] { ValueVarchar.get(word), ValueBigint.get(docId) });
+        }
+
+        private static long getDocId(Value blockKey, String word) {
+            if (blockKey == null) {
+                return -1;
+            }
+            Value[] list = ((ValueRow) blockKey).getList();
+            return list[0].getString().equals(word) ? list[1].getLong() : -1;
+        }
+
+        /**
+         * Recompute the number of documents and the total length from the
+         * committed documents, if changes of transactions that did not end
+         * were written to the statistics. This is only possible while the
+         * database is opened, when all pending changes belong to the leftover
+         * transactions that are rolled back afterwards.
+         */
+        void repairStatistics() {
+            synchronized (statistics.map) {
+                if (getStatistic(statistics, PENDING) == 0) {
+                    return;
+                }
+                long docCount = 0, totalLength = 0;
+                for (Value doc : docs.values()) {
+                    docCount++;
+                    totalLength += ((ValueRow) doc).getList()[1].getInt();
+                }
+                statistics.putCommitted(DOC_COUNT, ValueBigint.get(docCount));
+                statistics.putCommitted(TOTAL_LENGTH, ValueBigint.get(totalLength));
+                statistics.putCommitted(PENDING, ValueBigint.get(0));
+            }
+        }
+
+        /**
+         * Apply changes to the index.
+         *
+         * @param list the changes
+         * @return the change of the number of documents and of the total
+         *         length
+         */
+        long[] apply(ArrayList<Change> list) {
+            LinkedHashMap<String, Document> added = new LinkedHashMap<>();
+            HashMap<String, Document> removed = new HashMap<>();
+            for (Change c : list) {
+                Document d = c.document;
+                if (c.insert) {
+                    added.put(d.key, d);
+                } else if (added.remove(d.key) == null) {
+                    removed.putIfAbsent(d.key, d);
+                }
+            }
+            // word -> document id -> positions, or null to remove
+            TreeMap<String, TreeMap<Long, int[]>> changedWords = new TreeMap<>();
+            long docCount = 0, totalLength = 0;
+            for (Document d : removed.values()) {
+                Value key = ValueVarchar.get(d.key);
+                Value id = keys.remove(key);
+                if (id == null) {
+                    continue;
+                }
+                Value doc = docs.remove(id);
+                if (doc == null) {
+                    continue;
+                }
+                docCount--;
+                totalLength -= ((ValueRow) doc).getList()[1].getInt();
+                long docId = id.getLong();
+                for (String word : d.words) {
+                    changedWords.computeIfAbsent(word, w -> new TreeMap<>()).put(docId, null);
+                }
+            }
+            if (!added.isEmpty()) {
+                long docId = addStatistic(statistics, NEXT_ID, added.size());
+                for (Document d : added.values()) {
+                    Value id = ValueBigint.get(docId);
+                    Value key = ValueVarchar.get(d.key);
+                    docs.put(id, ValueRow.get(new Value[] { key, ValueInteger.get(d.length) }));
+                    keys.put(key, id);
+                    docCount++;
+                    totalLength += d.length;
+                    for (int i = 0; i < d.words.length; i++) {
+                        changedWords.computeIfAbsent(d.words[i], w -> new TreeMap<>()).put(docId, d.positions[i]);
+                    }
+                    docId++;
+                }
+            }
+            WriteBuffer buff = new WriteBuffer();
+            for (Entry<String, TreeMap<Long, int[]>> e : changedWords.entrySet()) {
+                updatePostings(buff, e.getKey(), e.getValue());
+            }
+            addStatistic(statistics, DOC_COUNT, docCount);
+            addStatistic(statistics, TOTAL_LENGTH, totalLength);
+            return new long[] { docCount, totalLength };
+        }
+
+        /**
+         * Apply the changes of the posting list of a word. The blocks are
+         * locked in ascending order.
+         *
+         * @param buff the buffer to encode the blocks
+         * @param word the word
+         * @param changed the changed documents
+         */
+        private void updatePostings(WriteBuffer buff, String word, TreeMap<Long, int[]> changed) {
+            while (!changed.isEmpty()) {
+                long docId = changed.firstKey();
+                Value search = blockKey(word, docId);
+                Value key = postings.floorKey(search);
+                long firstDocId = getDocId(key, word);
+                Postings block = new Postings();
+                if (firstDocId < 0) {
+                    key = null;
+                    firstDocId = docId;
+                } else {
+                    block.decode(firstDocId, postings.get(key).getBytesNoCopy());
+                }
+                long nextDocId = getDocId(postings.higherKey(search), word);
+                Map<Long, int[]> range = nextDocId < 0 ? changed : changed.headMap(nextDocId);
+                Postings merged = new Postings();
+                Iterator<Entry<Long, int[]>> it = range.entrySet().iterator();
+                Entry<Long, int[]> next = it.hasNext() ? it.next() : null;
+                int i = 0;
+                while (i < block.size || next != null) {
+                    if (next == null || i < block.size && block.docIds[i] < next.getKey()) {
+                        merged.add(block.docIds[i], block.positions[i]);
+                        i++;
+                    } else {
+                        long id = next.getKey();
+                        if (i < block.size && block.docIds[i] == id) {
+                            i++;
+                        }
+                        if (next.getValue() != null) {
+                            merged.add(id, next.getValue());
+                        }
+                        next = it.hasNext() ? it.next() : null;
+                    }
+                }
+                range.clear();
+                if (merged.size == 0) {
+                    if (key != null) {
+                        postings.remove(key);
+                    }
+                    continue;
+                }
+                for (int start = 0; start < merged.size; start += BLOCK_SIZE) {
+                    long blockDocId = start == 0 ? firstDocId : merged.docIds[start];
+                    int end = Math.min(start + BLOCK_SIZE, merged.size);
+                    postings.put(start == 0 && key != null ? key : blockKey(word, blockDocId),
+                            ValueVarbinary.getNoCopy(merged.encode(buff, blockDocId, start, end)));
+                }
+            }
+        }
+
+        /**
+         * Read the posting list of a word.
+         *
+         * @param word the word
+         * @return the posting list
+         */
+        private Postings read(String word) {
+            Postings list = new Postings();
+            Iterator<Entry<Value, Value>> it = postings.entryIterator(blockKey(word, Long.MIN_VALUE),
+                    blockKey(word, Long.MAX_VALUE));
+            while (it.hasNext()) {
+                Entry<Value, Value> e = it.next();
+                list.decode(((ValueRow) e.getKey()).getList()[1].getLong(), e.getValue().getBytesNoCopy());
+            }
+            return list;
+        }
+
+        /**
+         * Search the documents that contain all words and phrases, and add
+         * the best hits to the queue.
+         *
+         * @param words the words
+         * @param phrases the phrases
+         * @param max the maximum number of hits
+         * @param hits the hits, the lowest score first
+         */
+        void search(ArrayList<String> words, ArrayList<int[]> phrases, int max, PriorityQueue<Hit> hits) {
+            int count = words.size();
+            Postings[] lists = new Postings[count];
+            for (int i = 0; i < count; i++) {
+                lists[i] = read(words.get(i));
+                if (lists[i].size == 0) {
+                    return;
+                }
+            }
+            long docCount = getStatistic(statistics, DOC_COUNT);
+            double avgLength = docCount > 0 ? (double) getStatistic(statistics, TOTAL_LENGTH) / docCount : 1;
+            double[] idf = new double[count];
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                int df = lists[i].size;
+                long n = Math.max(docCount, df);
+                idf[i] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                order[i] = i;
+            }
+            // intersect, starting with the shortest list
+            Arrays.sort(order, (a, b) -> Integer.compare(lists[a].size, lists[b].size));
+            Postings first = lists[order[0]];
+            int[] pos = new int[count];
+            int[] found = new int[count];
+            candidates: for (int c = 0; c < first.size; c++) {
+                long docId = first.docIds[c];
+                found[order[0]] = c;
+                for (int j = 1; j < count; j++) {
+                    int w = order[j];
+                    Postings list = lists[w];
+                    int idx = Arrays.binarySearch(list.docIds, pos[w], list.size, docId);
+                    if (idx < 0) {
+                        pos[w] = -idx - 1;
+                        if (pos[w] >= list.size) {
+                            break candidates;
+                        }
+                        continue candidates;
+                    }
+                    pos[w] = idx + 1;
+                    found[w] = idx;
+                }
+                for (int[] phrase : phrases) {
+                    if (!containsPhrase(lists, found, phrase)) {
+                        continue candidates;
+                    }
+                }
+                Value doc = docs.get(ValueBigint.get(docId));
+                if (doc == null) {
+                    continue;
+                }
+                Value[] values = ((ValueRow) doc).getList();
+                double norm = K1 * (1 - B + B * values[1].getInt() / avgLength);
+                double score = 0;
+                for (int i = 0; i < count; i++) {
+                    int tf = lists[i].positions[found[i]].length;
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                Hit hit = new Hit(values[0].getString(), score);
+                if (hits.size() < max) {
+                    hits.offer(hit);
+                } else if (hit.compareTo(hits.peek()) > 0) {
+                    hits.poll();
+                    hits.offer(hit);
+                }
+            }
+        }
+
+        private static boolean containsPhrase(Postings[] lists, int[] found, int[] phrase) {
+            int[] start = lists[phrase[0]].positions[found[phrase[0]]];
+            outer: for (int p : start) {
+                for (int i = 1; i < phrase.length; i++) {
+                    int[] positions = lists[phrase[i]].positions[found[phrase[i]]];
+                    if (Arrays.binarySearch(positions, p + i) < 0) {
+                        continue outer;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -21,6 +21,7 @@
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
+import org.h2.table.TableStatistics;
 import org.h2.util.StringUtils;
 import org.h2.value.DataType;
 import org.h2.value.Value;
@@ -151,12 +152,13 @@ public void removeChildrenAndResources(Session session) {
     protected final long getCostRangeIndex(int[] masks, long rowCount,
             TableFilter[] filters, int filter, SortOrder sortOrder,
             boolean isScanIndex, AllColumnsForPlan allColumnsSet) {
+        long tableRowCount = rowCount;
         rowCount += Constants.COST_ROW_OFFSET;
         int totalSelectivity = 0;
         long rowsCost = rowCount;
         if (masks != null) {
             int i = 0, len = columns.length;
-            boolean tryAdditional = false;
+            boolean tryAdditional = false, uniqueLookup = false;
             while (i < len) {
                 Column column = columns[i++];
                 int index = column.getColumnId();
@@ -164,6 +166,7 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
                 if ((mask & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
                     if (i == len && getIndexType().isUnique()) {
                         rowsCost = 3;
+                        uniqueLookup = true;
                         break;
                     }
                     totalSelectivity = 100 - ((100 - totalSelectivity) *
@@ -193,6 +196,14 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
                     break;
                 }
             }
+            TableStatistics statistics = table.getStatistics();
+            if (statistics != null && !uniqueLookup && filters != null) {
+                // use the distribution of the values collected by ANALYZE
+                double fraction = statistics.getLookupFraction(columns, masks, filters[filter]);
+                if (fraction >= 0) {
+                    rowsCost = 2 + Math.max((long) (tableRowCount * fraction), 1);
+                }
+            }
             // Some additional columns can still be used
             if (tryAdditional) {
                 while (i < len && masks[columns[i].getColumnId()] != 0) {
@@ -255,6 +266,7 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
             boolean foundAllColumnsWeNeed = true;
             ArrayList<Column> foundCols = allColumnsSet.get(getTable());
             if (foundCols != null) {
+                IndexColumn[] includeColumns = getIncludeColumns();
                 for (Column c : foundCols) {
                     boolean found = false;
                     for (Column c2 : columns) {
@@ -263,6 +275,14 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
                             break;
                         }
                     }
+                    if (!found && includeColumns != null) {
+                        for (IndexColumn c2 : includeColumns) {
+                            if (c == c2.column) {
+                                found = true;
+                                break;
+                            }
+                        }
+                    }
                     if (!found) {
                         foundAllColumnsWeNeed = false;
                         break;
@@ -415,6 +435,11 @@ public String getCreateSQLForCopy(Table targetTable, String quotedName) {
             StringUtils.quoteStringSQL(buff, comment);
         }
         buff.append('(').append(getColumnListSQL(DEFAULT_SQL_FLAGS)).append(')');
+        IndexColumn[] includeColumns = getIncludeColumns();
+        if (includeColumns != null) {
+            buff.append(" INCLUDE(");
+            IndexColumn.writeColumns(buff, includeColumns, DEFAULT_SQL_FLAGS).append(')');
+        }
         return buff.toString();
     }
 
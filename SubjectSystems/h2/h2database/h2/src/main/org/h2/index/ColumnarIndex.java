@@ -0,0 +1,35 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.BitSet;
+
+import org.h2.engine.Session;
+import org.h2.result.SearchRow;
+
+/**
+ * A scan index of a table that stores the values of each column separately.
+ * Such an index can read only the columns used by a query, and can skip rows
+ * using the bounds of any column.
+ */
+public interface ColumnarIndex extends Index {
+
+    /**
+     * Find the rows and create a cursor to iterate over the result. The
+     * column values of the bounds are only used to skip groups of rows, so
+     * the cursor may return rows outside of the bounds. The row keys of the
+     * bounds limit the rows exactly.
+     *
+     * @param session the session
+     * @param first the lower bound, or null
+     * @param last the upper bound, or null
+     * @param columns the ids of the columns to read, or null for all columns;
+     *            the values of other columns of the returned rows are null
+     * @return the cursor to iterate over the results
+     */
+    Cursor find(Session session, SearchRow first, SearchRow last, BitSet columns);
+
+}
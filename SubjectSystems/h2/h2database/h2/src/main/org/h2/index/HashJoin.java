@@ -0,0 +1,302 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.h2.engine.Constants;
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ExpressionVisitor;
+import org.h2.expression.ValueExpression;
+import org.h2.expression.condition.Comparison;
+import org.h2.mvstore.db.MVKeyedTempResult;
+import org.h2.result.DefaultRow;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.Table;
+import org.h2.util.Utils;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
+
+/**
+ * The build side of a hash join. All rows of a table are read once per query
+ * and grouped by the values of the join columns, then each row of the outer
+ * side looks up the matching rows instead of scanning the table again. If the
+ * table has more rows than allowed to be kept in memory, the rows are moved to
+ * a temporary result on disk.
+ */
+public class HashJoin {
+
+    private final Index index;
+    private final Table table;
+    private final IndexCondition[] conditions;
+    private final int[] columnIds;
+    private final boolean totalOrdering;
+
+    /**
+     * The rows in memory. The values are either a row or an array list of rows
+     * with the same key.
+     */
+    private Map<Value, Object> rows;
+    private MVKeyedTempResult external;
+    private int rowCount;
+
+    /**
+     * Create a new hash join.
+     *
+     * @param index the scan index of the table
+     * @param conditions the equality conditions on the columns of the table
+     */
+    public HashJoin(Index index, ArrayList<IndexCondition> conditions) {
+        this.index = index;
+        this.table = index.getTable();
+        int len = conditions.size();
+        this.conditions = conditions.toArray(new IndexCondition[len]);
+        columnIds = new int[len];
+        boolean totalOrdering = true;
+        for (int i = 0; i < len; i++) {
+            Column column = this.conditions[i].getColumn();
+            columnIds[i] = column.getColumnId();
+            totalOrdering &= DataType.hasTotalOrdering(column.getType().getValueType());
+        }
+        this.totalOrdering = totalOrdering;
+    }
+
+    /**
+     * Check whether the specified index condition can be used as a key of a
+     * hash join. Only equality comparisons of a column with an expression of
+     * the same data type that depends on columns of other tables can be used,
+     * comparisons with constants are checked by the filter condition.
+     *
+     * @param condition the index condition
+     * @return true if it can be used
+     */
+    public static boolean isHashable(IndexCondition condition) {
+        if (condition.getCompareType() != Comparison.EQUAL) {
+            return false;
+        }
+        Column column = condition.getColumn();
+        if (column.getColumnId() < 0) {
+            return false;
+        }
+        int type = column.getType().getValueType();
+        if (type != condition.getExpression().getType().getValueType()) {
+            return false;
+        }
+        HashSet<Column> columns = new HashSet<>();
+        condition.getExpression().isEverything(ExpressionVisitor.getColumnsVisitor(columns, null));
+        if (columns.isEmpty()) {
+            return false;
+        }
+        switch (type) {
+        case Value.BLOB:
+        case Value.CLOB:
+        case Value.ARRAY:
+        case Value.ROW:
+        case Value.RESULT_SET:
+        case Value.GEOMETRY:
+        case Value.JAVA_OBJECT:
+        case Value.JSON:
+        case Value.NULL:
+        case Value.UNKNOWN:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Estimate the cost of a single lookup. The cost of each returned row is
+     * the same as in the table scan, the fixed cost of a lookup is the same as
+     * in the scan index, so a unique index is still preferred.
+     *
+     * @param rowCount the estimated number of rows in the table
+     * @param scanCost the cost of the table scan
+     * @param conditions the conditions used as a key
+     * @return the estimated cost
+     */
+    public static double getCost(long rowCount, double scanCost, ArrayList<IndexCondition> conditions) {
+        rowCount += Constants.COST_ROW_OFFSET;
+        int totalSelectivity = 0;
+        for (IndexCondition condition : conditions) {
+            totalSelectivity = 100 - ((100 - totalSelectivity) *
+                    (100 - condition.getColumn().getSelectivity()) / 100);
+        }
+        long distinctRows = rowCount * totalSelectivity / 100;
+        if (distinctRows <= 0) {
+            distinctRows = 1;
+        }
+        return scanCost * (22 + Math.max(rowCount / distinctRows, 1)) / rowCount;
+    }
+
+    /**
+     * Find the rows that match the current values of the join conditions. The
+     * hash table is built on the first call.
+     *
+     * @param session the session
+     * @return the cursor over the matching rows
+     */
+    public Cursor find(Session session) {
+        int len = conditions.length;
+        Value[] key = new Value[len];
+        for (int i = 0; i < len; i++) {
+            Value v = conditions[i].getCurrentValue(session);
+            if (v == ValueNull.INSTANCE) {
+                // NULL is never equal to anything
+                return new SingleRowCursor(null);
+            }
+            key[i] = v;
+        }
+        if (rows == null && external == null) {
+            build(session);
+        }
+        if (external != null) {
+            return findExternal(key);
+        }
+        Object found = rows.get(len == 1 ? key[0] : ValueRow.get(key));
+        if (found == null) {
+            return new SingleRowCursor(null);
+        } else if (found instanceof Row) {
+            return new SingleRowCursor((Row) found);
+        }
+        @SuppressWarnings("unchecked")
+        ArrayList<Row> list = (ArrayList<Row>) found;
+        return new MetaCursor(list);
+    }
+
+    private void build(Session session) {
+        Database database = session.getDatabase();
+        rows = totalOrdering ? new HashMap<>() : new TreeMap<>(database.getCompareMode());
+        rowCount = 0;
+        int maxMemoryRows = database.getMaxMemoryRows();
+        Cursor cursor = index.find(session, null, null);
+        while (cursor.next()) {
+            Row row = cursor.get();
+            if (external != null) {
+                addRowToDisk(row);
+                continue;
+            }
+            Value key = getKey(row);
+            if (key == null) {
+                continue;
+            }
+            Object old = rows.putIfAbsent(key, row);
+            if (old != null) {
+                ArrayList<Row> list;
+                if (old instanceof Row) {
+                    list = Utils.newSmallArrayList();
+                    list.add((Row) old);
+                    rows.put(key, list);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    ArrayList<Row> l = (ArrayList<Row>) old;
+                    list = l;
+                }
+                list.add(row);
+            }
+            if (++rowCount > maxMemoryRows) {
+                moveRowsToDisk(database);
+            }
+        }
+    }
+
+    private Value getKey(Row row) {
+        int len = columnIds.length;
+        if (len == 1) {
+            Value v = row.getValue(columnIds[0]);
+            return v == ValueNull.INSTANCE ? null : v;
+        }
+        Value[] key = new Value[len];
+        for (int i = 0; i < len; i++) {
+            Value v = row.getValue(columnIds[i]);
+            if (v == ValueNull.INSTANCE) {
+                return null;
+            }
+            key[i] = v;
+        }
+        return ValueRow.get(key);
+    }
+
+    private void moveRowsToDisk(Database database) {
+        Column[] columns = table.getColumns();
+        int columnCount = columns.length;
+        Expression[] expressions = new Expression[columnCount + 1];
+        for (int i = 0; i < columnCount; i++) {
+            expressions[i] = new ExpressionColumn(database, columns[i]);
+        }
+        expressions[columnCount] = ValueExpression.get(ValueBigint.get(0L));
+        external = new MVKeyedTempResult(database, expressions, columnCount + 1, columnIds);
+        for (Object o : rows.values()) {
+            if (o instanceof Row) {
+                addRowToDisk((Row) o);
+            } else {
+                @SuppressWarnings("unchecked")
+                ArrayList<Row> list = (ArrayList<Row>) o;
+                for (Row row : list) {
+                    addRowToDisk(row);
+                }
+            }
+        }
+        rows = null;
+    }
+
+    private void addRowToDisk(Row row) {
+        for (int columnId : columnIds) {
+            if (row.getValue(columnId) == ValueNull.INSTANCE) {
+                return;
+            }
+        }
+        Value[] data = row.getValueList();
+        int columnCount = data.length;
+        Value[] values = Arrays.copyOf(data, columnCount + 1);
+        values[columnCount] = ValueBigint.get(row.getKey());
+        external.addRow(values);
+    }
+
+    private Cursor findExternal(Value[] key) {
+        external.find(key);
+        ArrayList<Row> list = Utils.newSmallArrayList();
+        for (Value[] values; (values = external.next()) != null;) {
+            int columnCount = values.length - 1;
+            list.add(table.createRow(Arrays.copyOf(values, columnCount), DefaultRow.MEMORY_CALCULATE,
+                    values[columnCount].getLong()));
+        }
+        return new MetaCursor(list);
+    }
+
+    /**
+     * Release the hash table. It is built again on the next lookup.
+     */
+    public void close() {
+        rows = null;
+        rowCount = 0;
+        if (external != null) {
+            external.close();
+            external = null;
+        }
+    }
+
+    /**
+     * Get the conditions used as a key of this hash join.
+     *
+     * @return the conditions
+     */
+    public IndexCondition[] getConditions() {
+        return conditions;
+    }
+
+}
@@ -235,6 +235,16 @@ default Cursor findFirstOrLast(Session session, boolean first) {
      */
     Column[] getColumns();
 
+    /**
+     * Get the columns that are stored in the index in addition to the indexed
+     * columns (INCLUDE), so that they can be read without reading the row.
+     *
+     * @return the included columns, or null if there are none
+     */
+    default IndexColumn[] getIncludeColumns() {
+        return null;
+    }
+
     /**
      * Get the index type.
      *
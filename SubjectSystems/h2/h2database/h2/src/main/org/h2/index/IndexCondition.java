@@ -162,9 +162,11 @@ public Value[] getCurrentValueList(Session session) {
      * Get the current result of the expression. The rows may not be of the same
      * type, therefore the rows may not be unique.
      *
+     * @param session the session
      * @return the result
      */
-    public ResultInterface getCurrentResult() {
+    public ResultInterface getCurrentResult(Session session) {
+        expressionQuery.setSession(session);
         return expressionQuery.query(0);
     }
 
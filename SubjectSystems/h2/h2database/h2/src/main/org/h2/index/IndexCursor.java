@@ -6,6 +6,7 @@
 package org.h2.index;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import org.h2.engine.Session;
 import org.h2.expression.condition.Comparison;
@@ -43,6 +44,8 @@ public class IndexCursor implements Cursor {
     private int inListIndex;
     private Value[] inList;
     private ResultInterface inResult;
+    private HashJoin hashJoin;
+    private BitSet columns;
 
     public IndexCursor() {
     }
@@ -63,6 +66,25 @@ public void setIndex(Index index) {
         }
     }
 
+    /**
+     * Use the specified hash join to look up the rows instead of the index.
+     *
+     * @param hashJoin the hash join, or {@code null} to use the index
+     */
+    public void setHashJoin(HashJoin hashJoin) {
+        this.hashJoin = hashJoin;
+    }
+
+    /**
+     * Set the columns to read if the index is a columnar index.
+     *
+     * @param columns the ids of the used columns, or {@code null} for all
+     *            columns
+     */
+    public void setColumns(BitSet columns) {
+        this.columns = columns;
+    }
+
     /**
      * Prepare this index cursor to make a lookup in index.
      *
@@ -100,7 +122,7 @@ public void prepare(Session s, ArrayList<IndexCondition> indexConditions) {
                 if (start == null && end == null) {
                     if (canUseIndexForIn(column)) {
                         this.inColumn = column;
-                        inResult = condition.getCurrentResult();
+                        inResult = condition.getCurrentResult(s);
                     }
                 }
             } else {
@@ -155,8 +177,12 @@ public void find(Session s, ArrayList<IndexCondition> indexConditions) {
             return;
         }
         if (!alwaysFalse) {
-            if (intersects != null && index instanceof SpatialIndex) {
+            if (hashJoin != null) {
+                cursor = hashJoin.find(session);
+            } else if (intersects != null && index instanceof SpatialIndex) {
                 cursor = ((SpatialIndex) index).findByGeometry(session, start, end, intersects);
+            } else if (index instanceof ColumnarIndex) {
+                cursor = ((ColumnarIndex) index).find(session, start, end, columns);
             } else if (index != null) {
                 cursor = index.find(session, start, end);
             }
@@ -205,6 +231,10 @@ private SearchRow getSpatialSearchRow(SearchRow row, int columnId, Value v) {
     private SearchRow getSearchRow(SearchRow row, int columnId, Value v, boolean max) {
         if (row == null) {
             row = table.getTemplateRow();
+            if (index instanceof ColumnarIndex) {
+                // the row key is only limited by _ROWID_ conditions
+                row.setKey(max ? Long.MIN_VALUE : Long.MAX_VALUE);
+            }
         } else {
             v = getMax(row.getValue(columnId), v, max);
         }
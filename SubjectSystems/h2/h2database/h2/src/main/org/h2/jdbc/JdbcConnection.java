@@ -1190,6 +1190,22 @@ CommandInterface prepareCommand(String sql, int fetchSize) {
         return session.prepareCommand(sql, fetchSize);
     }
 
+    /**
+     * Prepare a command that is executed immediately. In remote connections,
+     * the command may be prepared and executed in one round trip, so that
+     * errors are only reported on execution.
+     *
+     * @param sql the SQL statement
+     * @param fetchSize the fetch size (used in remote connections)
+     * @return the command
+     */
+    CommandInterface prepareCommandForExecution(String sql, int fetchSize) {
+        if (session instanceof SessionRemote) {
+            return ((SessionRemote) session).prepareCommandForExecution(sql, fetchSize);
+        }
+        return session.prepareCommand(sql, fetchSize);
+    }
+
     private CommandInterface prepareCommand(String sql, CommandInterface old) {
         return old == null ? session.prepareCommand(sql, Integer.MAX_VALUE)
                 : old;
@@ -29,6 +29,9 @@
 
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
+import org.h2.command.CommandRemote;
+import org.h2.engine.GeneratedKeysMode;
+import org.h2.engine.SessionRemote;
 import org.h2.expression.ParameterInterface;
 import org.h2.message.DbException;
 import org.h2.message.TraceObject;
@@ -1255,32 +1258,43 @@ public int[] executeBatch() throws SQLException {
             }
             batchIdentities = new MergedResult();
             int size = batchParameters.size();
-            int[] result = new int[size];
+            int[] result;
             SQLException first = null;
             SQLException last = null;
             checkClosed();
-            for (int i = 0; i < size; i++) {
-                Value[] set = batchParameters.get(i);
-                ArrayList<? extends ParameterInterface> parameters =
-                        command.getParameters();
-                for (int j = 0; j < set.length; j++) {
-                    Value value = set[j];
-                    ParameterInterface param = parameters.get(j);
-                    param.setValue(value, false);
+            if (size > 1 && command instanceof CommandRemote
+                    && GeneratedKeysMode.valueOf(generatedKeysRequest) == GeneratedKeysMode.NONE
+                    && ((SessionRemote) session).isPipelined()) {
+                SQLException[] errors = new SQLException[size];
+                result = executeBatchRemote((CommandRemote) command, errors);
+                for (SQLException e : errors) {
+                    if (e != null) {
+                        e = logAndConvert(e);
+                        if (last == null) {
+                            first = last = e;
+                        } else {
+                            last.setNextException(e);
+                        }
+                    }
                 }
-                try {
-                    result[i] = executeUpdateInternal();
-                    // Cannot use own implementation, it returns batch identities
-                    ResultSet rs = super.getGeneratedKeys();
-                    batchIdentities.add(((JdbcResultSet) rs).result);
-                } catch (Exception re) {
-                    SQLException e = logAndConvert(re);
-                    if (last == null) {
-                        first = last = e;
-                    } else {
-                        last.setNextException(e);
+            } else {
+                result = new int[size];
+                for (int i = 0; i < size; i++) {
+                    setBatchParameters(batchParameters.get(i));
+                    try {
+                        result[i] = executeUpdateInternal();
+                        // Cannot use own implementation, it returns batch identities
+                        ResultSet rs = super.getGeneratedKeys();
+                        batchIdentities.add(((JdbcResultSet) rs).result);
+                    } catch (Exception re) {
+                        SQLException e = logAndConvert(re);
+                        if (last == null) {
+                            first = last = e;
+                        } else {
+                            last.setNextException(e);
+                        }
+                        result[i] = Statement.EXECUTE_FAILED;
                     }
-                    result[i] = Statement.EXECUTE_FAILED;
                 }
             }
             batchParameters = null;
@@ -1311,6 +1325,40 @@ public ResultSet getGeneratedKeys() throws SQLException {
         return super.getGeneratedKeys();
     }
 
+    private void setBatchParameters(Value[] set) {
+        ArrayList<? extends ParameterInterface> parameters = command.getParameters();
+        for (int j = 0; j < set.length; j++) {
+            Value value = set[j];
+            ParameterInterface param = parameters.get(j);
+            param.setValue(value, false);
+        }
+    }
+
+    /**
+     * Sends all sets of parameters to the server in one message.
+     *
+     * @param c the remote command
+     * @param errors receives the exception of each failed execution
+     * @return the update counts
+     */
+    private int[] executeBatchRemote(CommandRemote c, SQLException[] errors) throws SQLException {
+        closeOldResultSet();
+        int[] result;
+        synchronized (session) {
+            setExecutingStatement(c);
+            try {
+                result = c.executeBatchUpdate(batchParameters, errors);
+                updateCount = result[result.length - 1];
+            } finally {
+                setExecutingStatement(null);
+            }
+        }
+        // the parameters have the values of the last set, as if the sets
+        // were executed one by one
+        setBatchParameters(batchParameters.get(batchParameters.size() - 1));
+        return result;
+    }
+
     /**
      * Adds the current settings to the batch.
      */
@@ -11,9 +11,11 @@
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
 import org.h2.engine.SessionInterface;
+import org.h2.engine.SessionRemote;
 import org.h2.engine.SysProperties;
 import org.h2.message.DbException;
 import org.h2.message.TraceObject;
@@ -40,7 +42,7 @@ public class JdbcStatement extends TraceObject implements Statement, JdbcStateme
     protected final int resultSetConcurrency;
     protected final boolean closedByResultSet;
     private volatile CommandInterface executingCommand;
-    private int lastExecutedCommandType;
+    private CommandInterface lastExecutedCommand;
     private ArrayList<String> batchCommands;
     private boolean escapeProcessing = true;
     private volatile boolean cancelled;
@@ -75,7 +77,7 @@ public ResultSet executeQuery(String sql) throws SQLException {
                 checkClosed();
                 closeOldResultSet();
                 sql = JdbcConnection.translateSQL(sql, escapeProcessing);
-                CommandInterface command = conn.prepareCommand(sql, fetchSize);
+                CommandInterface command = conn.prepareCommandForExecution(sql, fetchSize);
                 ResultInterface result;
                 boolean lazy = false;
                 boolean scrollable = resultSetType != ResultSet.TYPE_FORWARD_ONLY;
@@ -161,7 +163,7 @@ private int executeUpdateInternal(String sql, Object generatedKeysRequest) throw
         checkClosed();
         closeOldResultSet();
         sql = JdbcConnection.translateSQL(sql, escapeProcessing);
-        CommandInterface command = conn.prepareCommand(sql, fetchSize);
+        CommandInterface command = conn.prepareCommandForExecution(sql, fetchSize);
         synchronized (session) {
             setExecutingStatement(command);
             try {
@@ -759,21 +761,37 @@ public int[] executeBatch() throws SQLException {
                 batchCommands = Utils.newSmallArrayList();
             }
             int size = batchCommands.size();
-            int[] result = new int[size];
+            int[] result;
             SQLException first = null;
             SQLException last = null;
-            for (int i = 0; i < size; i++) {
-                String sql = batchCommands.get(i);
-                try {
-                    result[i] = executeUpdateInternal(sql, null);
-                } catch (Exception re) {
-                    SQLException e = logAndConvert(re);
-                    if (last == null) {
-                        first = last = e;
-                    } else {
-                        last.setNextException(e);
+            if (size > 1 && session instanceof SessionRemote && ((SessionRemote) session).isPipelined()) {
+                SQLException[] errors = new SQLException[size];
+                result = executeBatchRemote((SessionRemote) session, errors);
+                for (SQLException e : errors) {
+                    if (e != null) {
+                        e = logAndConvert(e);
+                        if (last == null) {
+                            first = last = e;
+                        } else {
+                            last.setNextException(e);
+                        }
+                    }
+                }
+            } else {
+                result = new int[size];
+                for (int i = 0; i < size; i++) {
+                    String sql = batchCommands.get(i);
+                    try {
+                        result[i] = executeUpdateInternal(sql, null);
+                    } catch (Exception re) {
+                        SQLException e = logAndConvert(re);
+                        if (last == null) {
+                            first = last = e;
+                        } else {
+                            last.setNextException(e);
+                        }
+                        result[i] = Statement.EXECUTE_FAILED;
                     }
-                    result[i] = Statement.EXECUTE_FAILED;
                 }
             }
             batchCommands = null;
@@ -786,6 +804,46 @@ public int[] executeBatch() throws SQLException {
         }
     }
 
+    /**
+     * Sends all batched statements to the server in one message.
+     *
+     * @param s the remote session
+     * @param errors receives the exception of each failed statement
+     * @return the update counts
+     */
+    private int[] executeBatchRemote(SessionRemote s, SQLException[] errors) throws SQLException {
+        checkClosed();
+        closeOldResultSet();
+        int size = batchCommands.size();
+        ArrayList<String> sqlList = new ArrayList<>(size);
+        // the indexes of the statements that are sent
+        int[] index = new int[size];
+        for (int i = 0; i < size; i++) {
+            try {
+                String sql = JdbcConnection.translateSQL(batchCommands.get(i), escapeProcessing);
+                index[sqlList.size()] = i;
+                sqlList.add(sql);
+            } catch (Exception e) {
+                errors[i] = DbException.toSQLException(e);
+            }
+        }
+        int[] result = new int[size];
+        int[] updateCounts;
+        SQLException[] sentErrors = new SQLException[sqlList.size()];
+        synchronized (session) {
+            updateCounts = s.executeBatchUpdate(sqlList, sentErrors);
+        }
+        if (updateCounts.length > 0) {
+            updateCount = updateCounts[updateCounts.length - 1];
+        }
+        Arrays.fill(result, Statement.EXECUTE_FAILED);
+        for (int i = 0; i < updateCounts.length; i++) {
+            result[index[i]] = updateCounts[i];
+            errors[index[i]] = sentErrors[i];
+        }
+        return result;
+    }
+
     /**
      * Executes the batch.
      * If one of the batched statements fails, this database will continue.
@@ -1219,7 +1277,8 @@ protected void setExecutingStatement(CommandInterface c) {
             conn.setExecutingStatement(null);
         } else {
             conn.setExecutingStatement(this);
-            lastExecutedCommandType = c.getCommandType();
+            // the type of a remote command may only be known after execution
+            lastExecutedCommand = c;
         }
         executingCommand = c;
     }
@@ -1243,7 +1302,8 @@ void onLazyResultSetClose(CommandInterface command, boolean closeCommand) {
      * Get the command type of the last executed command.
      */
     public int getLastExecutedCommandType() {
-        return lastExecutedCommandType;
+        CommandInterface c = lastExecutedCommand;
+        return c != null ? c.getCommandType() : CommandInterface.UNKNOWN;
     }
 
     /**
@@ -133,6 +133,11 @@ public final class DataUtils {
      */
     public static final int PAGE_COMPRESSED_HIGH = 2 + 4;
 
+    /**
+     * The bit mask for compressed pages (LZ4 compression).
+     */
+    public static final int PAGE_COMPRESSED_LZ4 = 2 + 16;
+
     /**
      * The bit mask for pages with page sequential number.
      */
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.h2.mvstore.MVStore.TxCounter;
+import org.h2.store.fs.FileUtils;
+
+/**
+ * An online, incremental backup of a file based store.
+ * <p>
+ * Chunks are never changed once they are written, so a consistent copy of a
+ * version only needs the store header and the live chunks of this version. An
+ * incremental backup contains the list of those chunks (the manifest), and
+ * the content of the chunks that are not already part of the previous backup.
+ * Applying a chain of backups (starting with a full backup) in order to an
+ * empty file restores the store as of the version of the last backup.
+ * <p>
+ * Writing a backup does not block concurrent changes, but the chunks of the
+ * backed up version are kept until the backup is complete. Space re-use
+ * should be disabled while a backup is written, so that the chunks are not
+ * moved.
+ */
+public final class IncrementalBackup {
+
+    /**
+     * The format of the backup stream.
+     */
+    private static final int FORMAT = 1;
+
+    /**
+     * The marker for the end of the chunk records.
+     */
+    private static final long END = -1;
+
+    /**
+     * The maximum number of bytes to copy at once.
+     */
+    private static final int COPY_SIZE = 64 * MVStore.BLOCK_SIZE;
+
+    private final long version;
+
+    private final long previousVersion;
+
+    private final long fileLength;
+
+    private final ChunkReference[] chunks;
+
+    private final ByteBuffer header;
+
+    private final byte[] previousHeader;
+
+    private final TxCounter txCounter;
+
+    IncrementalBackup(long version, List<Chunk> list, ByteBuffer header, TxCounter txCounter) {
+        this.version = version;
+        this.previousVersion = END;
+        int size = list.size();
+        ChunkReference[] chunks = new ChunkReference[size];
+        long fileLength = 2 * MVStore.BLOCK_SIZE;
+        for (int i = 0; i < size; i++) {
+            Chunk c = list.get(i);
+            chunks[i] = new ChunkReference(c.id, c.block, c.len, c.version);
+            fileLength = Math.max(fileLength, (c.block + c.len) * MVStore.BLOCK_SIZE);
+        }
+        this.fileLength = fileLength;
+        this.chunks = chunks;
+        this.header = header;
+        this.previousHeader = null;
+        this.txCounter = txCounter;
+    }
+
+    private IncrementalBackup(long version, long previousVersion, long fileLength, ChunkReference[] chunks,
+            ByteBuffer header, byte[] previousHeader) {
+        this.version = version;
+        this.previousVersion = previousVersion;
+        this.fileLength = fileLength;
+        this.chunks = chunks;
+        this.header = header;
+        this.previousHeader = previousHeader;
+        this.txCounter = null;
+    }
+
+    /**
+     * Write a backup of the last stored version of the store. If a previous
+     * backup is given, only the chunks that are not part of the previous
+     * backup are written.
+     *
+     * @param store the store
+     * @param out the output stream (not closed by this method)
+     * @param previous the manifest of the previous backup, or null for a full
+     *            backup
+     * @return the manifest of this backup
+     * @throws IOException if writing failed
+     */
+    public static IncrementalBackup write(MVStore store, OutputStream out, IncrementalBackup previous)
+            throws IOException {
+        FileStore fileStore = store.getFileStore();
+        DataUtils.checkArgument(fileStore != null, "Can not back up an in-memory store");
+        IncrementalBackup backup = store.startBackup();
+        DataUtils.checkArgument(backup != null, "Can not back up a store that was never stored");
+        try {
+            HashSet<ChunkReference> existing = new HashSet<>();
+            long previousVersion = END;
+            byte[] previousHeader = null;
+            if (previous != null) {
+                DataUtils.checkArgument(previous.version <= backup.version,
+                        "The previous backup of version {0} is newer than the store version {1}",
+                        previous.version, backup.version);
+                for (ChunkReference c : previous.chunks) {
+                    existing.add(c);
+                }
+                previousVersion = previous.version;
+                previousHeader = previous.header.array();
+            }
+            DataOutputStream dataOut = new DataOutputStream(out);
+            dataOut.writeInt(FORMAT);
+            dataOut.writeLong(backup.version);
+            dataOut.writeLong(previousVersion);
+            dataOut.writeLong(backup.fileLength);
+            dataOut.writeInt(backup.chunks.length);
+            for (ChunkReference c : backup.chunks) {
+                dataOut.writeInt(c.id);
+                dataOut.writeLong(c.block);
+                dataOut.writeInt(c.len);
+                dataOut.writeLong(c.version);
+            }
+            dataOut.write(backup.header.array());
+            if (previousHeader != null) {
+                // the header of the file the backup can be applied to
+                dataOut.write(previousHeader);
+            }
+            for (ChunkReference c : backup.chunks) {
+                if (existing.contains(c)) {
+                    continue;
+                }
+                dataOut.writeLong(c.block);
+                dataOut.writeInt(c.len);
+                long pos = c.block * MVStore.BLOCK_SIZE;
+                long end = pos + (long) c.len * MVStore.BLOCK_SIZE;
+                while (pos < end) {
+                    int len = (int) Math.min(COPY_SIZE, end - pos);
+                    ByteBuffer buff = fileStore.readFully(pos, len);
+                    dataOut.write(buff.array(), 0, len);
+                    pos += len;
+                }
+            }
+            dataOut.writeLong(END);
+            dataOut.flush();
+            return new IncrementalBackup(backup.version, previousVersion, backup.fileLength, backup.chunks,
+                    backup.header, previousHeader);
+        } finally {
+            store.deregisterVersionUsage(backup.txCounter);
+        }
+    }
+
+    /**
+     * Read the manifest of a backup. The chunk data is not read.
+     *
+     * @param in the input stream (not closed by this method)
+     * @return the manifest
+     * @throws IOException if reading failed
+     */
+    public static IncrementalBackup read(InputStream in) throws IOException {
+        return readManifest(new DataInputStream(in));
+    }
+
+    private static IncrementalBackup readManifest(DataInputStream in) throws IOException {
+        int format = in.readInt();
+        if (format != FORMAT) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_UNSUPPORTED_FORMAT,
+                    "Unsupported backup format {0}", format);
+        }
+        long version = in.readLong();
+        long previousVersion = in.readLong();
+        long fileLength = in.readLong();
+        int count = in.readInt();
+        ChunkReference[] chunks = new ChunkReference[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = new ChunkReference(in.readInt(), in.readLong(), in.readInt(), in.readLong());
+        }
+        byte[] header = new byte[2 * MVStore.BLOCK_SIZE];
+        in.readFully(header);
+        byte[] previousHeader = null;
+        if (previousVersion != END) {
+            previousHeader = new byte[2 * MVStore.BLOCK_SIZE];
+            in.readFully(previousHeader);
+        }
+        return new IncrementalBackup(version, previousVersion, fileLength, chunks, ByteBuffer.wrap(header),
+                previousHeader);
+    }
+
+    /**
+     * Apply a backup to a file. A full backup replaces the content of the
+     * file; an incremental backup can only be applied to the file the
+     * previous backup was applied to, as the last step. The file must not be
+     * opened as a store in between, as this changes the file.
+     *
+     * @param in the input stream (not closed by this method)
+     * @param fileName the file name of the store
+     * @return the manifest of the applied backup
+     * @throws IOException if reading or writing failed
+     */
+    public static IncrementalBackup apply(InputStream in, String fileName) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        IncrementalBackup backup = readManifest(dataIn);
+        try (FileChannel file = FileUtils.open(fileName, "rw")) {
+            if (backup.previousVersion == END) {
+                file.truncate(0);
+            } else {
+                ByteBuffer existing = ByteBuffer.allocate(2 * MVStore.BLOCK_SIZE);
+                if (file.size() >= existing.capacity()) {
+                    DataUtils.readFully(file, 0, existing);
+                }
+                if (!Arrays.equals(existing.array(), backup.previousHeader)) {
+                    throw DataUtils.newIllegalArgumentException(
+                            "The backup of version {0} requires the backup of version {1} to be applied last, "
+                            + "but the file {2} is at version {3}",
+                            backup.version, backup.previousVersion, fileName, readVersion(existing));
+                }
+            }
+            byte[] buff = new byte[COPY_SIZE];
+            while (true) {
+                long block = dataIn.readLong();
+                if (block == END) {
+                    break;
+                }
+                long pos = block * MVStore.BLOCK_SIZE;
+                long end = pos + (long) dataIn.readInt() * MVStore.BLOCK_SIZE;
+                while (pos < end) {
+                    int len = (int) Math.min(COPY_SIZE, end - pos);
+                    dataIn.readFully(buff, 0, len);
+                    DataUtils.writeFully(file, pos, ByteBuffer.wrap(buff, 0, len));
+                    pos += len;
+                }
+            }
+            // the header is written last, so that it only points to
+            // complete chunks
+            DataUtils.writeFully(file, 0, backup.header.duplicate());
+            if (file.size() > backup.fileLength) {
+                file.truncate(backup.fileLength);
+            }
+            file.force(true);
+        }
+        return backup;
+    }
+
+    private static long readVersion(ByteBuffer header) {
+        long version = END;
+        byte[] buff = new byte[MVStore.BLOCK_SIZE];
+        for (int i = 0; i < 2; i++) {
+            header.get(buff);
+            HashMap<String, String> m = DataUtils.parseChecksummedMap(buff);
+            if (m != null) {
+                version = Math.max(version, DataUtils.readHexLong(m, MVStore.HDR_VERSION, END));
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Get the version of the store this backup was made of.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the version of the previous backup this backup is based on.
+     *
+     * @return the version, or -1 for a full backup
+     */
+    public long getPreviousVersion() {
+        return previousVersion;
+    }
+
+    /**
+     * Get the number of chunks of the backed up version.
+     *
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * A reference to a chunk at a given position in the file.
+     */
+    private static final class ChunkReference {
+
+        final int id;
+        final long block;
+        final int len;
+        final long version;
+
+        ChunkReference(int id, long block, int len, long version) {
+            this.id = id;
+            this.block = block;
+            this.len = len;
+            this.version = version;
+        }
+
+        @Override
+        public int hashCode() {
+            return id ^ Long.hashCode(block) ^ Long.hashCode(version);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ChunkReference)) {
+                return false;
+            }
+            ChunkReference other = (ChunkReference) obj;
+            return id == other.id && block == other.block && len == other.len && version == other.version;
+        }
+
+    }
+
+}
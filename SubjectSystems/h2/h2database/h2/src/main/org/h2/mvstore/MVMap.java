@@ -1270,44 +1270,10 @@ private RootReference<K,V> flushAppendBuffer(RootReference<K,V> rootReference, b
 
                 unsavedMemoryHolder.value = 0;
                 if (page != null) {
-                    assert page.map == this;
-                    assert page.getKeyCount() > 0;
-                    K key = page.getKey(0);
-                    unsavedMemoryHolder.value += page.getMemory();
-                    while (true) {
-                        if (pos == null) {
-                            if (p.getKeyCount() == 0) {
-                                p = page;
-                            } else {
-                                K[] keys = p.createKeyStorage(1);
-                                keys[0] = key;
-                                Page.PageReference<K,V>[] children = Page.createRefStorage(2);
-                                children[0] = new Page.PageReference<>(p);
-                                children[1] = new Page.PageReference<>(page);
-                                unsavedMemoryHolder.value += p.getMemory();
-                                p = Page.createNode(this, keys, children, p.getTotalCount() + page.getTotalCount(), 0);
-                            }
-                            break;
-                        }
-                        Page<K,V> c = p;
-                        p = pos.page;
-                        index = pos.index;
-                        pos = pos.parent;
-                        p = p.copy();
-                        p.setChild(index, page);
-                        p.insertNode(index, key, c);
-                        keyCount = p.getKeyCount();
-                        int at = keyCount - (p.isLeaf() ? 1 : 2);
-                        if (keyCount <= keysPerPage &&
-                                (p.getMemory() < store.getMaxPageSize() || at <= 0)) {
-                            break;
-                        }
-                        key = p.getKey(at);
-                        page = p.split(at);
-                        unsavedMemoryHolder.value += p.getMemory() + page.getMemory();
-                    }
+                    p = appendPage(pos, p, page, unsavedMemoryHolder);
+                } else {
+                    p = replacePage(pos, p, unsavedMemoryHolder);
                 }
-                p = replacePage(pos, p, unsavedMemoryHolder);
                 rootReference = rootReference.updatePageAndLockedStatus(p, preLocked || isPersistent(),
                         remainingBuffer);
                 if (rootReference != null) {
@@ -1329,6 +1295,91 @@ private RootReference<K,V> flushAppendBuffer(RootReference<K,V> rootReference, b
         return rootReference;
     }
 
+    /**
+     * Add a leaf page after the last leaf page, splitting the parent pages
+     * at their end where needed, so that the pages on the left stay full.
+     *
+     * @param pos the path to the parent of the last leaf page
+     * @param p the last leaf page
+     * @param page the new leaf page
+     * @param unsavedMemoryHolder the holder of the unsaved memory
+     * @return the new root page
+     */
+    private Page<K,V> appendPage(CursorPos<K,V> pos, Page<K,V> p, Page<K,V> page,
+            IntValueHolder unsavedMemoryHolder) {
+        assert page.map == this;
+        assert page.getKeyCount() > 0;
+        int keysPerPage = store.getKeysPerPage();
+        K key = page.getKey(0);
+        unsavedMemoryHolder.value += page.getMemory();
+        while (true) {
+            if (pos == null) {
+                if (p.getKeyCount() == 0) {
+                    p = page;
+                } else {
+                    K[] keys = p.createKeyStorage(1);
+                    keys[0] = key;
+                    Page.PageReference<K,V>[] children = Page.createRefStorage(2);
+                    children[0] = new Page.PageReference<>(p);
+                    children[1] = new Page.PageReference<>(page);
+                    unsavedMemoryHolder.value += p.getMemory();
+                    p = Page.createNode(this, keys, children, p.getTotalCount() + page.getTotalCount(), 0);
+                }
+                break;
+            }
+            Page<K,V> c = p;
+            p = pos.page;
+            int index = pos.index;
+            pos = pos.parent;
+            p = p.copy();
+            p.setChild(index, page);
+            p.insertNode(index, key, c);
+            int keyCount = p.getKeyCount();
+            int at = keyCount - (p.isLeaf() ? 1 : 2);
+            if (keyCount <= keysPerPage &&
+                    (p.getMemory() < store.getMaxPageSize() || at <= 0)) {
+                break;
+            }
+            key = p.getKey(at);
+            page = p.split(at);
+            unsavedMemoryHolder.value += p.getMemory() + page.getMemory();
+        }
+        return replacePage(pos, p, unsavedMemoryHolder);
+    }
+
+    /**
+     * Append a sorted batch of entries to this map as a new leaf page. This
+     * is used to bulk load a map bottom-up: the pages are filled completely,
+     * instead of being split in half as with put. The method is NOT thread
+     * safe and can not be used concurrently with any method that updates this
+     * map.
+     *
+     * @param keys the keys, in ascending order, and higher than any existing
+     *            key
+     * @param values the values
+     */
+    public void appendLeaf(K[] keys, V[] values) {
+        if (keys.length == 0) {
+            return;
+        }
+        beforeWrite();
+        RootReference<K,V> rootReference = lockRoot(flushAndGetRoot(), 1);
+        Page<K,V> rootPage = rootReference.root;
+        try {
+            CursorPos<K,V> pos = rootPage.getAppendCursorPos(null);
+            CursorPos<K,V> tip = pos.parent;
+            IntValueHolder unsavedMemoryHolder = new IntValueHolder();
+            rootPage = appendPage(pos.parent, pos.page, Page.createLeaf(this, keys, values, 0),
+                    unsavedMemoryHolder);
+            if (isPersistent()) {
+                store.registerUnsavedMemory(unsavedMemoryHolder.value +
+                        (tip == null ? 0 : tip.processRemovalInfo(rootReference.version)));
+            }
+        } finally {
+            unlockRoot(rootPage);
+        }
+    }
+
     private static <K,V> Page<K,V> replacePage(CursorPos<K,V> path, Page<K,V> replacement,
             IntValueHolder unsavedMemoryHolder) {
         int unsavedMemory = replacement.isSaved() ? 0 : replacement.getMemory();
@@ -42,9 +42,11 @@
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import org.h2.compress.CompressDeflate;
+import org.h2.compress.CompressLZ4;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
 import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
 import org.h2.mvstore.type.StringDataType;
 import org.h2.util.MathUtils;
 import org.h2.util.Utils;
@@ -86,7 +88,6 @@
     use a transaction log where only the deltas are stored
 - serialization for lists, sets, sets, sorted sets, maps, sorted maps
 - maybe rename 'rollback' to 'revert' to distinguish from transactions
-- support other compression algorithms (deflate, LZ4,...)
 - remove features that are not really needed; simplify the code
     possibly using a separate layer or tools
     (retainVersion?)
@@ -148,7 +149,10 @@ public class MVStore implements AutoCloseable {
     private static final String HDR_FORMAT_READ = "formatRead";
     private static final String HDR_CHUNK = "chunk";
     private static final String HDR_BLOCK = "block";
-    private static final String HDR_VERSION = "version";
+    /**
+     * The key of the version in the store header.
+     */
+    static final String HDR_VERSION = "version";
     private static final String HDR_CLEAN = "clean";
     private static final String HDR_FLETCHER = "fletcher";
 
@@ -236,6 +240,21 @@ public class MVStore implements AutoCloseable {
      */
     private final CacheLongKeyLIRS<Page<?,?>> cache;
 
+    /**
+     * The optional second level page cache. It contains serialized pages
+     * (the bytes read from the file), outside of the Java heap, and is used
+     * when a page is not in the page cache, before reading from the file.
+     * Each entry starts with the version of the chunk, so that entries of a
+     * chunk that was freed and whose id was re-used are ignored.
+     */
+    private final CacheLongKeyOffHeap offHeapCache;
+
+    /**
+     * The compressor used for entries of the off-heap cache, or null if they
+     * are not compressed. Used while synchronized on it.
+     */
+    private final Compressor offHeapCacheCompressor;
+
     /**
      * Cache for chunks "Table of Content" used to translate page's
      * sequential number within containing chunk into byte position
@@ -286,7 +305,8 @@ public class MVStore implements AutoCloseable {
 
     /**
      * The compression level for new pages (0 for disabled, 1 for fast, 2 for
-     * high). Even if disabled, the store may contain (old) compressed pages.
+     * high, 3 for LZ4). Even if disabled, the store may contain (old)
+     * compressed pages.
      */
     private final int compressionLevel;
 
@@ -294,6 +314,8 @@ public class MVStore implements AutoCloseable {
 
     private Compressor compressorHigh;
 
+    private Compressor compressorLZ4;
+
     private final boolean recoveryMode;
 
     public final UncaughtExceptionHandler backgroundExceptionHandler;
@@ -355,6 +377,30 @@ public class MVStore implements AutoCloseable {
     private final int autoCompactFillRate;
     private long autoCompactLastFileOpCount;
 
+    /**
+     * The maximum number of bytes per second re-written by the incremental
+     * compaction, or 0 to re-write chunks in bursts.
+     */
+    private volatile long autoCompactRate;
+
+    /**
+     * The number of bytes the incremental compaction may still write. It is
+     * negative if the last batch was larger than the budget.
+     */
+    private long compactBudget;
+
+    private long lastCompactTime;
+
+    /**
+     * The ids of the chunks that were re-written by the incremental
+     * compaction, but are not freed yet.
+     */
+    private final Set<Integer> compactedChunkIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong compactBytesWritten = new AtomicLong();
+
+    private final AtomicLong compactBytesFreed = new AtomicLong();
+
     private volatile MVStoreException panicException;
 
     private long lastTimeAbsolute;
@@ -405,6 +451,14 @@ public class MVStore implements AutoCloseable {
             cache = null;
         }
         chunksToC = cc2 == null ? null : new CacheLongKeyLIRS<>(cc2);
+        int offHeapMb = this.fileStore == null ? 0 : DataUtils.getConfigParam(config, "offHeapCacheSize", 0);
+        if (offHeapMb > 0) {
+            offHeapCache = new CacheLongKeyOffHeap(offHeapMb * 1024L * 1024L, cc != null ? cc.segmentCount : 16);
+            offHeapCacheCompressor = config.containsKey("offHeapCacheCompress") ? new CompressLZ4() : null;
+        } else {
+            offHeapCache = null;
+            offHeapCacheCompressor = null;
+        }
 
         pgSplitSize = DataUtils.getConfigParam(config, "pageSplitSize", pgSplitSize);
         // Make sure pages will fit into cache
@@ -423,6 +477,7 @@ public class MVStore implements AutoCloseable {
             kb = DataUtils.getConfigParam(config, "autoCommitBufferSize", kb);
             autoCommitMemory = kb * 1024;
             autoCompactFillRate = DataUtils.getConfigParam(config, "autoCompactFillRate", 90);
+            autoCompactRate = DataUtils.getConfigParam(config, "autoCompactRate", 0) * 1024L;
             char[] encryptionKey = (char[]) config.get("encryptionKey");
             // there is no need to lock store here, since it is not opened (or even created) yet,
             // just to make some assertions happy, when they ensure single-threaded access
@@ -1196,12 +1251,16 @@ private Chunk readChunkFooter(long block) {
     }
 
     private void writeStoreHeader() {
-        StringBuilder buff = new StringBuilder(112);
         if (lastChunk != null) {
             storeHeader.put(HDR_BLOCK, lastChunk.block);
             storeHeader.put(HDR_CHUNK, lastChunk.id);
             storeHeader.put(HDR_VERSION, lastChunk.version);
         }
+        write(0, createStoreHeader(storeHeader));
+    }
+
+    private static ByteBuffer createStoreHeader(HashMap<String, Object> storeHeader) {
+        StringBuilder buff = new StringBuilder(112);
         DataUtils.appendMap(buff, storeHeader);
         byte[] bytes = buff.toString().getBytes(StandardCharsets.ISO_8859_1);
         int checksum = DataUtils.getFletcher32(bytes, 0, bytes.length);
@@ -1213,7 +1272,57 @@ private void writeStoreHeader() {
         header.position(BLOCK_SIZE);
         header.put(bytes);
         header.rewind();
-        write(0, header);
+        return header;
+    }
+
+    /**
+     * Start an incremental backup of the last stored version. The chunks of
+     * this version are not dropped until the backup is released with
+     * {@link #deregisterVersionUsage(TxCounter)}, and concurrent changes are
+     * not blocked. Space re-use should be disabled until then, so that the
+     * chunks are not moved.
+     *
+     * @return the state of the backup, or null if nothing was stored yet
+     */
+    IncrementalBackup startBackup() {
+        storeLock.lock();
+        try {
+            checkOpen();
+            // wait until the chunks of the last version are written
+            submitOrRun(serializationExecutor, () -> {}, true);
+            serializationLock.lock();
+            try {
+                submitOrRun(bufferSaveExecutor, () -> {}, true);
+                saveChunkLock.lock();
+                try {
+                    Chunk last = lastChunk;
+                    if (last == null) {
+                        return null;
+                    }
+                    TxCounter txCounter = registerVersionUsage();
+                    ArrayList<Chunk> list = new ArrayList<>();
+                    for (Chunk c : chunks.values()) {
+                        if (c.isSaved() && c.isLive() && c.version <= last.version || c == last) {
+                            list.add(c);
+                        }
+                    }
+                    HashMap<String, Object> header = new HashMap<>(storeHeader);
+                    header.remove(HDR_CLEAN);
+                    header.put(HDR_BLOCK, last.block);
+                    header.put(HDR_CHUNK, last.id);
+                    header.put(HDR_VERSION, last.version);
+                    return new IncrementalBackup(last.version, list, createStoreHeader(header), txCounter);
+                } finally {
+                    saveChunkLock.unlock();
+                }
+            } finally {
+                serializationLock.unlock();
+            }
+        } catch (ExecutionException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_INTERNAL, "{0}", e.toString(), e);
+        } finally {
+            unlockAndCheckPanicCondition();
+        }
     }
 
     private void write(long pos, ByteBuffer buffer) {
@@ -1705,30 +1814,37 @@ private void serializeToBuffer(WriteBuffer buff, ArrayList<Page<?, ?>> changed,
     }
 
     private void storeBuffer(Chunk c, WriteBuffer buff, ArrayList<Page<?,?>> changed) {
-        saveChunkLock.lock();
         try {
+            // the space of the chunk was allocated during serialization,
+            // so it can be written without holding saveChunkLock; this way the
+            // next version can be serialized (and its space allocated),
+            // and unused chunks can be dropped, while the chunk is written
             buff.position(0);
             long filePos = c.block * BLOCK_SIZE;
+            int length = buff.limit();
             write(filePos, buff.getBuffer());
             releaseWriteBuffer(buff);
 
-            // end of the used space is not necessarily the end of the file
-            boolean storeAtEndOfFile = filePos + buff.limit() >= fileStore.size();
-            boolean writeStoreHeader = isWriteStoreHeader(c, storeAtEndOfFile);
-            lastChunk = c;
-            if (writeStoreHeader) {
-                writeStoreHeader();
-            }
-            if (!storeAtEndOfFile) {
-                // may only shrink after the store header was written
-                shrinkFileIfPossible(1);
+            saveChunkLock.lock();
+            try {
+                // end of the used space is not necessarily the end of the file
+                boolean storeAtEndOfFile = filePos + length >= fileStore.size();
+                boolean writeStoreHeader = isWriteStoreHeader(c, storeAtEndOfFile);
+                lastChunk = c;
+                if (writeStoreHeader) {
+                    writeStoreHeader();
+                }
+                if (!storeAtEndOfFile) {
+                    // may only shrink after the store header was written
+                    shrinkFileIfPossible(1);
+                }
+            } finally {
+                saveChunkLock.unlock();
             }
         } catch (MVStoreException e) {
             panic(e);
         } catch (Throwable e) {
             panic(DataUtils.newMVStoreException(DataUtils.ERROR_INTERNAL, "{0}", e.toString(), e));
-        } finally {
-            saveChunkLock.unlock();
         }
 
         for (Page<?, ?> p : changed) {
@@ -2518,7 +2634,11 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
                 Chunk chunk = getChunk(pos);
                 int pageOffset = DataUtils.getPageOffset(pos);
                 try {
-                    ByteBuffer buff = chunk.readBufferForPage(fileStore, pageOffset, pos);
+                    ByteBuffer buff = readPageFromOffHeapCache(chunk, pos);
+                    if (buff == null) {
+                        buff = chunk.readBufferForPage(fileStore, pageOffset, pos);
+                        cachePageBuffer(chunk, pos, buff);
+                    }
                     p = Page.read(buff, pos, map);
                     if (p.pageNo < 0) {
                         p.pageNo = calculatePageNo(pos);
@@ -2560,6 +2680,67 @@ private <K, V> Page<K, V> readPageFromCache(long pos) {
         return cache == null ? null : (Page<K,V>)cache.get(pos);
     }
 
+    private ByteBuffer readPageFromOffHeapCache(Chunk chunk, long pos) {
+        if (offHeapCache == null) {
+            return null;
+        }
+        ByteBuffer buff = offHeapCache.get(pos);
+        if (buff == null) {
+            return null;
+        }
+        if (buff.getLong() != chunk.version) {
+            offHeapCache.remove(pos);
+            return null;
+        }
+        if (buff.get() == 0) {
+            return buff;
+        }
+        int len = buff.getInt();
+        int compLen = buff.remaining();
+        ByteBuffer expanded = ByteBuffer.allocate(len);
+        getCompressorLZ4().expand(buff.array(), buff.arrayOffset() + buff.position(), compLen,
+                expanded.array(), 0, len);
+        return expanded;
+    }
+
+    /**
+     * Put the serialized page into the off-heap cache, if enabled. The buffer
+     * is not modified.
+     *
+     * @param chunk the chunk that contains the page
+     * @param pos the page position
+     * @param buff the buffer with the page, as read from the file
+     */
+    private void cachePageBuffer(Chunk chunk, long pos, ByteBuffer buff) {
+        if (offHeapCache == null) {
+            return;
+        }
+        int start = buff.position();
+        // the buffer may contain more than the page: page length, and at most
+        // 5 bytes for the page number that is not included in the length
+        int len = Math.min(buff.remaining(), buff.getInt(start) + 5);
+        byte[] page = new byte[len];
+        buff.duplicate().get(page);
+        ByteBuffer entry = null;
+        if (offHeapCacheCompressor != null) {
+            byte[] comp = new byte[len + len / 255 + 16];
+            int compLen;
+            synchronized (offHeapCacheCompressor) {
+                compLen = offHeapCacheCompressor.compress(page, len, comp, 0);
+            }
+            if (compLen + 4 < len) {
+                entry = ByteBuffer.allocate(13 + compLen);
+                entry.putLong(chunk.version).put((byte) 1).putInt(len).put(comp, 0, compLen);
+            }
+        }
+        if (entry == null) {
+            entry = ByteBuffer.allocate(9 + len);
+            entry.putLong(chunk.version).put((byte) 0).put(page);
+        }
+        entry.flip();
+        offHeapCache.put(pos, entry);
+    }
+
     /**
      * Remove a page.
      *  @param pos the position of the page
@@ -2614,6 +2795,13 @@ Compressor getCompressorHigh() {
         return compressorHigh;
     }
 
+    Compressor getCompressorLZ4() {
+        if (compressorLZ4 == null) {
+            compressorLZ4 = new CompressLZ4();
+        }
+        return compressorLZ4;
+    }
+
     int getCompressionLevel() {
         return compressionLevel;
     }
@@ -2891,6 +3079,14 @@ public void rollbackTo(long version) {
         storeLock.lock();
         try {
             checkOpen();
+            // the chunks that are still serialized or written in the
+            // background must not be removed or overwritten concurrently
+            try {
+                submitOrRun(serializationExecutor, () -> {}, true);
+                submitOrRun(bufferSaveExecutor, () -> {}, true);
+            } catch (ExecutionException e) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_INTERNAL, "{0}", e.toString(), e);
+            }
             if (version == 0) {
                 // special case: remove all data
                 layout.setInitialRoot(layout.createEmptyLeaf(), INITIAL_VERSION);
@@ -3010,6 +3206,9 @@ private void clearCaches() {
         if (cache != null) {
             cache.clear();
         }
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
         if (chunksToC != null) {
             chunksToC.clear();
         }
@@ -3181,7 +3380,10 @@ void writeInBackground() {
                 }
             }
             int fillRate = getFillRate();
-            if (fileStore.isFragmented() && fillRate < autoCompactFillRate) {
+            if (autoCompactRate > 0 && lastChunk != null) {
+                // moving and re-writing chunks share the same I/O budget
+                compactIncrementally(fillRate);
+            } else if (fileStore.isFragmented() && fillRate < autoCompactFillRate) {
                 if (storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
                     try {
                         int moveSize = autoCommitMemory;
@@ -3222,6 +3424,119 @@ void writeInBackground() {
         }
     }
 
+    /**
+     * Move chunks to fill the gaps of a fragmented file, or re-write a small
+     * batch of the chunks with the lowest fill rate, so that on average at
+     * most autoCompactRate bytes per second are written. The re-written pages
+     * are stored with the next commit, and the old chunks are freed when they
+     * are no longer used.
+     *
+     * @param fillRate the fill rate of the file
+     */
+    private void compactIncrementally(int fillRate) throws InterruptedException {
+        long time = getTimeSinceCreation();
+        long rate = autoCompactRate;
+        // do not save up more than one second of budget while idle
+        compactBudget = Math.min(compactBudget + rate * Math.max(time - lastCompactTime, 0) / 1000, rate);
+        lastCompactTime = time;
+        if (compactBudget <= 0) {
+            return;
+        }
+        if (fileStore.isFragmented() && fillRate < autoCompactFillRate
+                && storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
+            try {
+                int moveSize = isIdle() ? autoCommitMemory * 4 : autoCommitMemory;
+                moveSize = (int) Math.min(moveSize, compactBudget);
+                if (compactMoveChunks(101, moveSize)) {
+                    // at most moveSize bytes were moved
+                    compactBudget -= moveSize;
+                    return;
+                }
+            } finally {
+                unlockAndCheckPanicCondition();
+            }
+        }
+        if (getRewritableChunksFillRate() < autoCompactFillRate
+                && storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
+            try {
+                compactBudget -= rewriteChunksByFillRate(compactBudget, autoCompactFillRate);
+                dropUnusedChunks();
+            } finally {
+                storeLock.unlock();
+            }
+        }
+    }
+
+    private long rewriteChunksByFillRate(long writeLimit, int targetFillRate) {
+        serializationLock.lock();
+        try {
+            TxCounter txCounter = registerVersionUsage();
+            try {
+                acceptChunkOccupancyChanges(getTimeSinceCreation(), currentVersion);
+                ArrayList<Chunk> old = findLowestFillRateChunks(writeLimit, targetFillRate);
+                if (old.isEmpty()) {
+                    return 0;
+                }
+                long written = 0;
+                HashSet<Integer> idSet = createIdSet(old);
+                for (Chunk c : old) {
+                    written += c.maxLenLive;
+                }
+                compactedChunkIds.addAll(idSet);
+                compactRewrite(idSet);
+                compactBytesWritten.addAndGet(written);
+                return written;
+            } finally {
+                deregisterVersionUsage(txCounter);
+            }
+        } finally {
+            serializationLock.unlock();
+        }
+    }
+
+    /**
+     * Get the rewritable chunks with a fill rate below the target, the lowest
+     * fill rate first, up to the given number of live bytes. The first chunk
+     * is always included, even if it is larger.
+     *
+     * @param writeLimit the maximum number of live bytes
+     * @param targetFillRate the target fill rate
+     * @return the chunks
+     */
+    private ArrayList<Chunk> findLowestFillRateChunks(long writeLimit, int targetFillRate) {
+        ArrayList<Chunk> candidates = new ArrayList<>();
+        for (Chunk c : chunks.values()) {
+            if (isCompactCandidate(c, targetFillRate)) {
+                candidates.add(c);
+            }
+        }
+        candidates.sort((a, b) -> {
+            int comp = Integer.compare(a.getFillRate(), b.getFillRate());
+            if (comp == 0) {
+                comp = Long.compare(a.maxLenLive, b.maxLenLive);
+            }
+            return comp;
+        });
+        ArrayList<Chunk> result = new ArrayList<>();
+        long size = 0;
+        for (Chunk c : candidates) {
+            if (!result.isEmpty() && size + c.maxLenLive > writeLimit) {
+                break;
+            }
+            size += c.maxLenLive;
+            result.add(c);
+        }
+        return result;
+    }
+
+    private boolean isCompactCandidate(Chunk c, int targetFillRate) {
+        // the last chunk is not re-written, as it would just be re-written
+        // to a new last chunk
+        Chunk last = lastChunk;
+        return isRewritable(c, getTimeSinceCreation()) && c.getFillRate() < targetFillRate
+                && (last == null || c.id != last.id) && !compactedChunkIds.contains(c.id);
+    }
+
     private void doMaintenance(int targetFillRate) {
         if (autoCompactFillRate > 0 && lastChunk != null && reuseSpace) {
             try {
@@ -3413,6 +3728,66 @@ public int getAutoCommitDelay() {
         return autoCommitDelay;
     }
 
+    /**
+     * Set the maximum rate of the incremental compaction. If set, the
+     * background thread continuously re-writes the live pages of the chunks
+     * with the lowest fill rate in small batches, instead of re-writing many
+     * chunks at once, and writes at most this many bytes per second on
+     * average.
+     *
+     * @param kb the rate in KB per second, or 0 to disable the incremental
+     *            compaction
+     */
+    public void setAutoCompactRate(int kb) {
+        autoCompactRate = kb * 1024L;
+    }
+
+    /**
+     * Get the maximum rate of the incremental compaction.
+     *
+     * @return the rate in KB per second, or 0 if disabled
+     */
+    public int getAutoCompactRate() {
+        return (int) (autoCompactRate / 1024);
+    }
+
+    /**
+     * Get the number of live bytes re-written by the incremental compaction
+     * since the store was opened.
+     *
+     * @return the number of bytes
+     */
+    public long getCompactBytesWritten() {
+        return compactBytesWritten.get();
+    }
+
+    /**
+     * Get the size of the chunks that were freed after the incremental
+     * compaction re-wrote them, since the store was opened. The space that
+     * was reclaimed is this value minus the bytes written.
+     *
+     * @return the number of bytes
+     */
+    public long getCompactBytesFreed() {
+        return compactBytesFreed.get();
+    }
+
+    /**
+     * Get the number of live bytes in the chunks that the incremental
+     * compaction still needs to re-write to reach the target fill rate.
+     *
+     * @return the number of bytes
+     */
+    public long getCompactBytesRemaining() {
+        long remaining = 0;
+        for (Chunk c : chunks.values()) {
+            if (isCompactCandidate(c, autoCompactFillRate)) {
+                remaining += c.maxLenLive;
+            }
+        }
+        return remaining;
+    }
+
     /**
      * Get the maximum memory (in bytes) used for unsaved pages. If this number
      * is exceeded, unsaved changes are stored to disk.
@@ -3482,6 +3857,52 @@ public CacheLongKeyLIRS<Page<?,?>> getCache() {
         return cache;
     }
 
+    /**
+     * Set the size of the off-heap page cache in MB. This will clear the
+     * cache. It has no effect if the off-heap cache was not enabled when the
+     * store was opened.
+     *
+     * @param mb the cache size in MB, must be larger than 0
+     */
+    public void setOffHeapCacheSize(int mb) {
+        if (offHeapCache != null) {
+            offHeapCache.setMaxMemory((long) mb * 1024 * 1024);
+        }
+    }
+
+    /**
+     * Get the amount of memory used by the off-heap page cache, in MB.
+     *
+     * @return the amount of memory used
+     */
+    public int getOffHeapCacheSizeUsed() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return (int) (offHeapCache.getUsedMemory() >> 20);
+    }
+
+    /**
+     * Get the maximum size of the off-heap page cache, in MB.
+     *
+     * @return the cache size, or 0 if the off-heap cache is not enabled
+     */
+    public int getOffHeapCacheSize() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return (int) (offHeapCache.getMaxMemory() >> 20);
+    }
+
+    /**
+     * Get the off-heap page cache.
+     *
+     * @return the cache, or null if not enabled
+     */
+    public CacheLongKeyOffHeap getOffHeapCache() {
+        return offHeapCache;
+    }
+
     /**
      * Whether the store is read-only.
      *
@@ -3499,6 +3920,20 @@ public int getTocCacheHitRatio() {
         return getCacheHitRatio(chunksToC);
     }
 
+    /**
+     * Get the hit ratio of the off-heap page cache, in percent. Only the
+     * misses of the page cache are looked up in the off-heap cache.
+     *
+     * @return the hit ratio, or 0 if the off-heap cache is not enabled
+     */
+    public int getOffHeapCacheHitRatio() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        long hits = offHeapCache.getHits();
+        return (int) (100 * hits / (hits + offHeapCache.getMisses() + 1));
+    }
+
     private static int getCacheHitRatio(CacheLongKeyLIRS<?> cache) {
         if (cache == null) {
             return 0;
@@ -3614,10 +4049,15 @@ private int dropUnusedChunks() {
                     if (chunks.remove(chunk.id) != null) {
                         // purge dead pages from cache
                         long[] toc = chunksToC.remove(chunk.id);
-                        if (toc != null && cache != null) {
+                        if (toc != null) {
                             for (long tocElement : toc) {
                                 long pagePos = DataUtils.getPagePos(chunk.id, tocElement);
-                                cache.remove(pagePos);
+                                if (cache != null) {
+                                    cache.remove(pagePos);
+                                }
+                                if (offHeapCache != null) {
+                                    offHeapCache.remove(pagePos);
+                                }
                             }
                         }
 
@@ -3627,6 +4067,9 @@ private int dropUnusedChunks() {
                         if (chunk.isSaved()) {
                             freeChunkSpace(chunk);
                         }
+                        if (compactedChunkIds.remove(chunk.id)) {
+                            compactBytesFreed.addAndGet((long) chunk.len * BLOCK_SIZE);
+                        }
                         ++count;
                     }
                 }
@@ -3878,6 +4321,22 @@ public Builder autoCompactFillRate(int percent) {
             return set("autoCompactFillRate", percent);
         }
 
+        /**
+         * Compact the store incrementally, with the given maximum rate. The
+         * background thread re-writes the chunks with the lowest fill rate
+         * first, in small batches between commits, instead of re-writing
+         * many chunks at once. This avoids latency spikes of concurrent
+         * operations, but the target fill rate is reached more slowly.
+         * <p>
+         * The default value is 0 (disabled).
+         *
+         * @param kb the maximum number of KB to write per second
+         * @return this
+         */
+        public Builder autoCompactRate(int kb) {
+            return set("autoCompactRate", kb);
+        }
+
         /**
          * Use the following file name. If the file does not exist, it is
          * automatically created. The parent directory already must exist.
@@ -3950,6 +4409,32 @@ public Builder cacheConcurrency(int concurrency) {
             return set("cacheConcurrency", concurrency);
         }
 
+        /**
+         * Set the size of the off-heap page cache in MB. The default is 0,
+         * meaning there is no off-heap cache. The off-heap cache contains
+         * serialized pages in direct memory, and is used when a page is not in
+         * the (on-heap) page cache, before reading from the file. It is sized
+         * independently of the page cache. Make sure the JVM allows enough
+         * direct memory (-XX:MaxDirectMemorySize).
+         *
+         * @param mb the cache size in megabytes
+         * @return this
+         */
+        public Builder offHeapCacheSize(int mb) {
+            return set("offHeapCacheSize", mb);
+        }
+
+        /**
+         * Compress the pages in the off-heap page cache using the LZ4
+         * algorithm, so that more pages fit into the cache. Pages that are
+         * already compressed in the file are usually stored as they are.
+         *
+         * @return this
+         */
+        public Builder offHeapCacheCompress() {
+            return set("offHeapCacheCompress", 1);
+        }
+
         /**
          * Compress data before writing using the LZF algorithm. This will save
          * about 50% of the disk space, but will slow down read and write
@@ -3980,6 +4465,22 @@ public Builder compressHigh() {
             return set("compress", 2);
         }
 
+        /**
+         * Compress data before writing using the LZ4 algorithm. This usually
+         * saves more disk space than the LZF algorithm, and is much faster than
+         * the Deflate algorithm.
+         * <p>
+         * This setting only affects writes; it is not necessary to enable
+         * compression when reading, even if compression was enabled when
+         * writing. Older versions can not read pages compressed with this
+         * algorithm.
+         *
+         * @return this
+         */
+        public Builder compressLZ4() {
+            return set("compress", 3);
+        }
+
         /**
          * Set the amount of memory a page should contain at most, in bytes,
          * before it is split. The default is 16 KB for persistent stores and 4
@@ -18,6 +18,7 @@
 import java.util.TreeMap;
 
 import org.h2.compress.CompressDeflate;
+import org.h2.compress.CompressLZ4;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
 import org.h2.engine.Constants;
@@ -235,8 +236,7 @@ public static void dump(String fileName, Writer writer, boolean details) {
                     if (mapId == 0 && details) {
                         ByteBuffer data;
                         if (compressed) {
-                            boolean fast = (type & DataUtils.PAGE_COMPRESSED_HIGH) != DataUtils.PAGE_COMPRESSED_HIGH;
-                            Compressor compressor = getCompressor(fast);
+                            Compressor compressor = getCompressor(type);
                             int lenAdd = DataUtils.readVarInt(chunk);
                             int compLen = pageSize + start - chunk.position();
                             byte[] comp = Utils.newBytes(compLen);
@@ -331,8 +331,13 @@ public static void dump(String fileName, Writer writer, boolean details) {
         pw.flush();
     }
 
-    private static Compressor getCompressor(boolean fast) {
-        return fast ? new CompressLZF() : new CompressDeflate();
+    private static Compressor getCompressor(int type) {
+        if ((type & DataUtils.PAGE_COMPRESSED_LZ4) == DataUtils.PAGE_COMPRESSED_LZ4) {
+            return new CompressLZ4();
+        } else if ((type & DataUtils.PAGE_COMPRESSED_HIGH) == DataUtils.PAGE_COMPRESSED_HIGH) {
+            return new CompressDeflate();
+        }
+        return new CompressLZF();
     }
 
     /**
@@ -191,7 +191,7 @@ public static <K,V> Page<K,V> createNode(MVMap<K,V> map, K[] keys, PageReference
      * @param memory the memory used in bytes
      * @return the page
      */
-    static <K,V> Page<K,V> createLeaf(MVMap<K,V> map, K[] keys, V[] values, int memory) {
+    public static <K,V> Page<K,V> createLeaf(MVMap<K,V> map, K[] keys, V[] values, int memory) {
         assert keys != null;
         Page<K,V> page = new Leaf<>(map, keys, values);
         page.initMemoryAccount(memory);
@@ -611,7 +611,10 @@ private void read(ByteBuffer buff) {
         boolean compressed = (type & DataUtils.PAGE_COMPRESSED) != 0;
         if (compressed) {
             Compressor compressor;
-            if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
+            if ((type & DataUtils.PAGE_COMPRESSED_LZ4) ==
+                    DataUtils.PAGE_COMPRESSED_LZ4) {
+                compressor = map.getStore().getCompressorLZ4();
+            } else if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
                     DataUtils.PAGE_COMPRESSED_HIGH) {
                 compressor = map.getStore().getCompressorHigh();
             } else {
@@ -705,6 +708,9 @@ protected final int write(Chunk chunk, WriteBuffer buff, List<Long> toc) {
                 if (compressionLevel == 1) {
                     compressor = store.getCompressorFast();
                     compressType = DataUtils.PAGE_COMPRESSED;
+                } else if (compressionLevel == 3) {
+                    compressor = store.getCompressorLZ4();
+                    compressType = DataUtils.PAGE_COMPRESSED_LZ4;
                 } else {
                     compressor = store.getCompressorHigh();
                     compressType = DataUtils.PAGE_COMPRESSED_HIGH;
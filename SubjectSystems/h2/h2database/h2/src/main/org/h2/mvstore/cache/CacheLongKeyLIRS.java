@@ -12,6 +12,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.h2.mvstore.DataUtils;
 
 /**
@@ -39,6 +41,13 @@
  * of other entries have been moved to the front (8 per segment by default).
  * Write access and moving entries to the top of the stack is synchronized per
  * segment.
+ * <p>
+ * Reading an entry does not synchronize: cache hits are recorded in a buffer
+ * of the segment, and applied to the stack and queues in batches while the
+ * segment is locked (as in BP-Wrapper by Xiaoning Ding, Song Jiang and
+ * Xiaodong Zhang). The accesses are applied in the order they were recorded,
+ * before any other change of the segment, so the replacement decisions are
+ * the same as if each access was applied immediately.
  *
  * @author Thomas Mueller
  * @param <V> the value type
@@ -162,6 +171,7 @@ public V put(long key, V value, int memory) {
         // concurrent resizes (concurrent reads read
         // from the old segment)
         synchronized (s) {
+            s.drainAccessBuffer();
             s = resizeIfNeeded(s, segmentIndex);
             return s.put(key, hash, value, memory);
         }
@@ -209,6 +219,7 @@ public V remove(long key) {
         // concurrent resizes (concurrent reads read
         // from the old segment)
         synchronized (s) {
+            s.drainAccessBuffer();
             s = resizeIfNeeded(s, segmentIndex);
             return s.remove(key, hash);
         }
@@ -240,6 +251,15 @@ public V get(long key) {
         return s.get(e);
     }
 
+    /**
+     * Apply the recorded accesses of all segments.
+     */
+    private void drainAccessBuffers() {
+        for (Segment<V> s : segments) {
+            s.drainAccessBuffer();
+        }
+    }
+
     private Segment<V> getSegment(int hash) {
         return segments[getSegmentIndex(hash)];
     }
@@ -271,6 +291,7 @@ static int getHash(long key) {
      * @return the used memory
      */
     public long getUsedMemory() {
+        drainAccessBuffers();
         long x = 0;
         for (Segment<V> s : segments) {
             x += s.usedMemory;
@@ -342,6 +363,7 @@ public Set<Long> keySet() {
      * @return the number of non-resident entries
      */
     public int sizeNonResident() {
+        drainAccessBuffers();
         int x = 0;
         for (Segment<V> s : segments) {
             x += s.queue2Size;
@@ -368,6 +390,7 @@ public int sizeMapArray() {
      * @return the number of hot entries
      */
     public int sizeHot() {
+        drainAccessBuffers();
         int x = 0;
         for (Segment<V> s : segments) {
             x += s.mapSize - s.queueSize - s.queue2Size;
@@ -381,6 +404,7 @@ public int sizeHot() {
      * @return the cache hits
      */
     public long getHits() {
+        drainAccessBuffers();
         long x = 0;
         for (Segment<V> s : segments) {
             x += s.hits;
@@ -394,6 +418,7 @@ public long getHits() {
      * @return the cache misses
      */
     public long getMisses() {
+        drainAccessBuffers();
         int x = 0;
         for (Segment<V> s : segments) {
             x += s.misses;
@@ -407,6 +432,7 @@ public long getMisses() {
      * @return the number of entries
      */
     public int size() {
+        drainAccessBuffers();
         int x = 0;
         for (Segment<V> s : segments) {
             x += s.mapSize - s.queue2Size;
@@ -499,6 +525,7 @@ public void putAll(Map<Long, ? extends V> m) {
     public void trimNonResidentQueue() {
         for (Segment<V> s : segments) {
             synchronized (s) {
+                s.drainAccessBuffer();
                 s.trimNonResidentQueue();
             }
         }
@@ -511,6 +538,17 @@ public void trimNonResidentQueue() {
      */
     private static class Segment<V> {
 
+        /**
+         * The number of slots of the access buffer (a power of 2).
+         */
+        private static final int ACCESS_BUFFER_SIZE = 64;
+
+        /**
+         * The number of recorded accesses after which the reading thread
+         * applies them (a power of 2).
+         */
+        private static final int ACCESS_BUFFER_DRAIN = 32;
+
         /**
          * The number of (hot, cold, and non-resident) entries in the map.
          */
@@ -609,6 +647,24 @@ public void trimNonResidentQueue() {
          */
         private int stackMoveCounter;
 
+        /**
+         * The entries that were read, but not yet moved in the stack and
+         * queues. Slot (n % ACCESS_BUFFER_SIZE) holds the access with ticket n.
+         */
+        private final AtomicReferenceArray<Entry<V>> accessBuffer =
+                new AtomicReferenceArray<>(ACCESS_BUFFER_SIZE);
+
+        /**
+         * The ticket of the next access to record.
+         */
+        private final AtomicLong accessTail = new AtomicLong();
+
+        /**
+         * The ticket of the oldest access that was not yet applied. It is
+         * only changed while synchronized on the segment.
+         */
+        private volatile long accessHead;
+
         /**
          * Create a new cache segment.
          *  @param maxMemory the maximum memory to use
@@ -652,6 +708,7 @@ public void trimNonResidentQueue() {
         Segment(Segment<V> old, int len) {
             this(old.maxMemory, old.stackMoveDistance, len,
                     old.nonResidentQueueSize, old.nonResidentQueueSizeHigh);
+            old.drainAccessBuffer();
             hits = old.hits;
             misses = old.misses;
             Entry<V> s = old.stack.stackPrev;
@@ -717,17 +774,66 @@ private void addToMap(Entry<V> e) {
          * @param e the entry
          * @return the value, or null if there is no resident entry
          */
-        synchronized V get(Entry<V> e) {
+        V get(Entry<V> e) {
             V value = e == null ? null : e.getValue();
             if (value == null) {
                 // the entry was not found
-                // or it was a non-resident entry
-                misses++;
+                // or it was a non-resident entry;
+                // the caller will usually load and add it anyway
+                synchronized (this) {
+                    drainAccessBuffer();
+                    misses++;
+                }
             } else {
+                recordAccess(e);
+            }
+            return value;
+        }
+
+        /**
+         * Record a cache hit, to be applied later. Every
+         * ACCESS_BUFFER_DRAIN-th access applies the recorded accesses.
+         *
+         * @param e the entry
+         */
+        private void recordAccess(Entry<V> e) {
+            long ticket = accessTail.getAndIncrement();
+            while (ticket - accessHead >= ACCESS_BUFFER_SIZE) {
+                // the buffer is full
+                drainAccessBuffer();
+                if (ticket - accessHead >= ACCESS_BUFFER_SIZE) {
+                    // wait for the threads with older tickets
+                    Thread.yield();
+                }
+            }
+            accessBuffer.lazySet((int) ticket & (ACCESS_BUFFER_SIZE - 1), e);
+            if ((ticket & (ACCESS_BUFFER_DRAIN - 1)) == ACCESS_BUFFER_DRAIN - 1) {
+                drainAccessBuffer();
+            }
+        }
+
+        /**
+         * Apply the recorded accesses in the order they were recorded. This
+         * stops at the first access that was not stored yet by the reading
+         * thread; it is applied by a later call.
+         */
+        synchronized void drainAccessBuffer() {
+            long head = accessHead;
+            long tail = Math.min(accessTail.get(), head + ACCESS_BUFFER_SIZE);
+            for (; head < tail; head++) {
+                int index = (int) head & (ACCESS_BUFFER_SIZE - 1);
+                Entry<V> e = accessBuffer.get(index);
+                if (e == null) {
+                    break;
+                }
+                // the slot is reused only after accessHead was updated
+                accessBuffer.lazySet(index, null);
+                // entries that were removed in the meantime are
+                // neither in the stack nor in a queue, which is a no-op
                 access(e);
                 hits++;
             }
-            return value;
+            accessHead = head;
         }
 
         /**
@@ -1039,6 +1145,7 @@ private void removeFromQueue(Entry<V> e) {
          * @return the key list
          */
         synchronized List<Long> keys(boolean cold, boolean nonResident) {
+            drainAccessBuffer();
             ArrayList<Long> keys = new ArrayList<>();
             if (cold) {
                 Entry<V> start = nonResident ? queue2 : queue;
@@ -1061,6 +1168,7 @@ synchronized List<Long> keys(boolean cold, boolean nonResident) {
          * @return the set of keys
          */
         synchronized Set<Long> keySet() {
+            drainAccessBuffer();
             HashSet<Long> set = new HashSet<>();
             for (Entry<V> e = stack.stackNext; e != stack; e = e.stackNext) {
                 set.add(e.key);
@@ -1173,7 +1281,13 @@ boolean isHot() {
         }
 
         V getValue() {
-            return value == null ? reference.get() : value;
+            // the fields may be changed concurrently
+            V v = value;
+            if (v == null) {
+                WeakReference<V> r = reference;
+                v = r == null ? null : r.get();
+            }
+            return v;
         }
 
         int getMemory() {
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import org.h2.mvstore.DataUtils;
+
+/**
+ * A cache that uses keys of type long and keeps the values, as byte sequences,
+ * outside of the Java heap (in direct byte buffers). It is meant to be used as
+ * a second level cache for serialized data, for example the pages of a store
+ * that were evicted from the (much smaller) cache of deserialized objects, so
+ * that a large cache does not cause long garbage collection pauses.
+ * <p>
+ * This implementation is multi-threading safe. The cache is split into a
+ * number of segments, and each segment is synchronized. Each segment is a
+ * fixed size circular log: entries are appended at the end, and the oldest
+ * entries are evicted when there is not enough space (first in, first out).
+ * The memory of a segment is allocated when the first entry is added.
+ * <p>
+ * Only the (small) index entries are kept on the heap.
+ */
+public class CacheLongKeyOffHeap {
+
+    /**
+     * The maximum size of one segment. Direct buffers are indexed by int.
+     */
+    private static final long MAX_SEGMENT_SIZE = 1 << 30;
+
+    private long maxMemory;
+
+    private volatile Segment[] segments;
+
+    /**
+     * Create a new cache with the given memory size.
+     *
+     * @param maxMemory the maximum memory to use, in bytes
+     * @param segmentCount the minimum number of segments (must be a power of 2)
+     */
+    public CacheLongKeyOffHeap(long maxMemory, int segmentCount) {
+        DataUtils.checkArgument(
+                Integer.bitCount(segmentCount) == 1,
+                "The segment count must be a power of 2, is {0}", segmentCount);
+        init(maxMemory, segmentCount);
+    }
+
+    private void init(long maxMemory, int segmentCount) {
+        DataUtils.checkArgument(
+                maxMemory > 0,
+                "Max memory must be larger than 0, is {0}", maxMemory);
+        while (maxMemory / segmentCount > MAX_SEGMENT_SIZE) {
+            segmentCount <<= 1;
+        }
+        Segment[] s = new Segment[segmentCount];
+        int segmentSize = (int) Math.max(1, maxMemory / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            s[i] = new Segment(segmentSize);
+        }
+        this.maxMemory = maxMemory;
+        this.segments = s;
+    }
+
+    private Segment getSegment(long key) {
+        Segment[] s = segments;
+        return s[CacheLongKeyLIRS.getHash(key) & (s.length - 1)];
+    }
+
+    /**
+     * Add an entry to the cache. The remaining bytes of the buffer are copied,
+     * the position of the buffer is not changed. Entries that are larger than
+     * the maximum item size are not added.
+     *
+     * @param key the key
+     * @param buff the value
+     * @return whether the entry was added
+     */
+    public boolean put(long key, ByteBuffer buff) {
+        return getSegment(key).put(key, buff);
+    }
+
+    /**
+     * Get a copy of the value for the given key, if the entry is cached.
+     *
+     * @param key the key
+     * @return a heap buffer with the value, or null if there is no entry
+     */
+    public ByteBuffer get(long key) {
+        return getSegment(key).get(key);
+    }
+
+    /**
+     * Check whether there is an entry for the given key. This method does
+     * not update the statistics.
+     *
+     * @param key the key
+     * @return true if there is an entry
+     */
+    public boolean containsKey(long key) {
+        Segment s = getSegment(key);
+        synchronized (s) {
+            return s.map.containsKey(key);
+        }
+    }
+
+    /**
+     * Remove an entry. The memory of the entry is only re-used when the
+     * entries that were added before it have been evicted.
+     *
+     * @param key the key
+     */
+    public void remove(long key) {
+        Segment s = getSegment(key);
+        synchronized (s) {
+            Entry e = s.map.remove(key);
+            if (e != null) {
+                s.usedMemory -= e.length;
+            }
+        }
+    }
+
+    /**
+     * Remove all entries and release the memory.
+     */
+    public void clear() {
+        for (Segment s : segments) {
+            s.clear();
+        }
+    }
+
+    /**
+     * Set the maximum memory this cache should use. This will remove all
+     * entries.
+     *
+     * @param maxMemory the maximum size, in bytes
+     */
+    public void setMaxMemory(long maxMemory) {
+        init(maxMemory, segments.length);
+    }
+
+    /**
+     * Get the maximum memory to use.
+     *
+     * @return the maximum memory, in bytes
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Get the maximum size of an entry.
+     *
+     * @return the size, in bytes
+     */
+    public long getMaxItemSize() {
+        return segments[0].capacity;
+    }
+
+    /**
+     * Get the memory used by the entries.
+     *
+     * @return the used memory, in bytes
+     */
+    public long getUsedMemory() {
+        long x = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                x += s.usedMemory;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the cache hits
+     */
+    public long getHits() {
+        long x = 0;
+        for (Segment s : segments) {
+            x += s.hits;
+        }
+        return x;
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the cache misses
+     */
+    public long getMisses() {
+        long x = 0;
+        for (Segment s : segments) {
+            x += s.misses;
+        }
+        return x;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        int x = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                x += s.map.size();
+            }
+        }
+        return x;
+    }
+
+    /**
+     * A cache segment: a circular log in one direct buffer.
+     */
+    private static final class Segment {
+
+        /**
+         * The size of the buffer.
+         */
+        final int capacity;
+
+        /**
+         * The entries by key.
+         */
+        final HashMap<Long, Entry> map = new HashMap<>();
+
+        /**
+         * The entries in the order they were written, including removed
+         * entries whose space was not re-used yet.
+         */
+        private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+
+        /**
+         * The buffer, or null if not allocated yet.
+         */
+        private ByteBuffer buff;
+
+        /**
+         * The position where the next entry is written.
+         */
+        private int tail;
+
+        /**
+         * The total length of the entries in the map.
+         */
+        long usedMemory;
+
+        /**
+         * The number of cache hits.
+         */
+        volatile long hits;
+
+        /**
+         * The number of cache misses.
+         */
+        volatile long misses;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized boolean put(long key, ByteBuffer src) {
+            int length = src.remaining();
+            Entry old = map.remove(key);
+            if (old != null) {
+                usedMemory -= old.length;
+            }
+            if (length > capacity) {
+                return false;
+            }
+            if (buff == null) {
+                buff = ByteBuffer.allocateDirect(capacity);
+            }
+            int offset = allocate(length);
+            ByteBuffer b = buff.duplicate();
+            b.position(offset);
+            b.put(src.duplicate());
+            Entry e = new Entry(key, offset, length);
+            queue.addLast(e);
+            map.put(key, e);
+            usedMemory += length;
+            return true;
+        }
+
+        /**
+         * Find space for an entry, evicting the oldest entries as needed.
+         *
+         * @param length the length of the entry
+         * @return the offset
+         */
+        private int allocate(int length) {
+            while (true) {
+                Entry head = queue.peekFirst();
+                if (head == null) {
+                    tail = 0;
+                    break;
+                }
+                if (tail > head.offset) {
+                    // free space is [tail, capacity) and [0, head)
+                    if (capacity - tail >= length) {
+                        break;
+                    }
+                    tail = 0;
+                    continue;
+                }
+                // free space is [tail, head)
+                if (head.offset - tail >= length) {
+                    break;
+                }
+                queue.pollFirst();
+                if (map.get(head.key) == head) {
+                    map.remove(head.key);
+                    usedMemory -= head.length;
+                }
+            }
+            int offset = tail;
+            tail += length;
+            return offset;
+        }
+
+        synchronized ByteBuffer get(long key) {
+            Entry e = map.get(key);
+            if (e == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            ByteBuffer b = buff.duplicate();
+            b.limit(e.offset + e.length).position(e.offset);
+            ByteBuffer result = ByteBuffer.allocate(e.length);
+            result.put(b);
+            result.flip();
+            return result;
+        }
+
+        synchronized void clear() {
+            map.clear();
+            queue.clear();
+            buff = null;
+            tail = 0;
+            usedMemory = 0;
+        }
+
+    }
+
+    /**
+     * A cache entry.
+     */
+    private static final class Entry {
+
+        final long key;
+        final int offset;
+        final int length;
+
+        Entry(long key, int offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
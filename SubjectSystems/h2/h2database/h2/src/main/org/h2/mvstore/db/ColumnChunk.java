@@ -0,0 +1,358 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.h2.engine.Constants;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.result.SortOrder;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueSmallint;
+import org.h2.value.ValueTinyint;
+
+/**
+ * The values of one column for a range of rows of a columnar table. The
+ * values are stored in a compact encoding together with a zone map (the
+ * minimum and the maximum value, and the number of NULL values), so that
+ * chunks may be skipped without decoding them.
+ */
+public final class ColumnChunk {
+
+    /**
+     * Each value is stored separately.
+     */
+    private static final int PLAIN = 0;
+
+    /**
+     * Runs of equal values are stored as a count and the value.
+     */
+    private static final int RUN_LENGTH = 1;
+
+    /**
+     * Integer values are stored as differences to the previous value.
+     */
+    private static final int DELTA = 2;
+
+    /**
+     * Distinct values are stored once, and each row as a one byte index.
+     */
+    private static final int DICTIONARY = 3;
+
+    private static final int MAX_DICTIONARY_SIZE = 256;
+
+    private final int size;
+    private final int nullCount;
+    private final Value min, max;
+    private final int encoding;
+    private final byte[] data;
+    private volatile Value[] values;
+
+    private ColumnChunk(int size, int nullCount, Value min, Value max, int encoding, byte[] data,
+            Value[] values) {
+        this.size = size;
+        this.nullCount = nullCount;
+        this.min = min;
+        this.max = max;
+        this.encoding = encoding;
+        this.data = data;
+        this.values = values;
+    }
+
+    /**
+     * Create a chunk for the given values.
+     *
+     * @param values the values, NULL is represented by ValueNull.INSTANCE
+     * @param type the data type used to serialize and compare the values
+     * @return the chunk
+     */
+    public static ColumnChunk create(Value[] values, ValueDataType type) {
+        int size = values.length, nullCount = 0, valueType = Value.NULL;
+        Value min = null, max = null;
+        for (Value v : values) {
+            if (v == ValueNull.INSTANCE) {
+                nullCount++;
+            } else {
+                if (min == null) {
+                    min = max = v;
+                    valueType = v.getValueType();
+                } else {
+                    if (type.compareValues(v, min, SortOrder.ASCENDING) < 0) {
+                        min = v;
+                    } else if (type.compareValues(v, max, SortOrder.ASCENDING) > 0) {
+                        max = v;
+                    }
+                    if (valueType != v.getValueType()) {
+                        valueType = Value.UNKNOWN;
+                    }
+                }
+            }
+        }
+        // the serialized form is used to detect equal values, because some
+        // data types (for example VARCHAR_IGNORECASE) consider different
+        // values as equal
+        WriteBuffer plain = new WriteBuffer();
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            type.write(plain, values[i]);
+            offsets[i + 1] = plain.position();
+        }
+        byte[] bytes = new byte[plain.position()];
+        plain.getBuffer().flip();
+        plain.getBuffer().get(bytes);
+        ByteBuffer[] keys = new ByteBuffer[size];
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            keys[i] = ByteBuffer.wrap(bytes, offsets[i], offsets[i + 1] - offsets[i]).slice();
+            if (i == 0 || !keys[i].equals(keys[i - 1])) {
+                runs++;
+            }
+        }
+        WriteBuffer buff = new WriteBuffer();
+        int encoding;
+        HashMap<ByteBuffer, Integer> dictionary;
+        if (runs * 4 <= size) {
+            encoding = RUN_LENGTH;
+            buff.putVarInt(runs);
+            for (int i = 0; i < size;) {
+                int start = i;
+                while (++i < size && keys[i].equals(keys[start])) {
+                    // the same value
+                }
+                buff.putVarInt(i - start).put(bytes, offsets[start], offsets[start + 1] - offsets[start]);
+            }
+        } else if ((dictionary = getDictionary(keys)) != null) {
+            encoding = DICTIONARY;
+            ByteBuffer[] distinct = new ByteBuffer[dictionary.size()];
+            for (Map.Entry<ByteBuffer, Integer> e : dictionary.entrySet()) {
+                distinct[e.getValue()] = e.getKey();
+            }
+            buff.putVarInt(distinct.length);
+            for (ByteBuffer b : distinct) {
+                buff.put(b.duplicate());
+            }
+            for (ByteBuffer k : keys) {
+                buff.put((byte) (int) dictionary.get(k));
+            }
+        } else if (valueType >= Value.TINYINT && valueType <= Value.BIGINT) {
+            encoding = DELTA;
+            buff.put((byte) valueType);
+            if (nullCount > 0) {
+                byte[] nulls = new byte[(size + 7) / 8];
+                for (int i = 0; i < size; i++) {
+                    if (values[i] == ValueNull.INSTANCE) {
+                        nulls[i >>> 3] |= 1 << (i & 7);
+                    }
+                }
+                buff.put(nulls);
+            }
+            long last = 0;
+            for (Value v : values) {
+                if (v != ValueNull.INSTANCE) {
+                    long x = v.getLong(), d = x - last;
+                    buff.putVarLong((d << 1) ^ (d >> 63));
+                    last = x;
+                }
+            }
+        } else {
+            return new ColumnChunk(size, nullCount, min, max, PLAIN, bytes, values.clone());
+        }
+        byte[] data = new byte[buff.position()];
+        buff.getBuffer().flip();
+        buff.getBuffer().get(data);
+        return new ColumnChunk(size, nullCount, min, max, encoding, data, values.clone());
+    }
+
+    private static HashMap<ByteBuffer, Integer> getDictionary(ByteBuffer[] keys) {
+        int limit = Math.min(MAX_DICTIONARY_SIZE, keys.length / 2);
+        HashMap<ByteBuffer, Integer> dictionary = new HashMap<>();
+        for (ByteBuffer k : keys) {
+            if (!dictionary.containsKey(k)) {
+                if (dictionary.size() >= limit) {
+                    return null;
+                }
+                dictionary.put(k, dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Read a chunk.
+     *
+     * @param buff the source buffer
+     * @param type the data type used to serialize the values
+     * @return the chunk
+     */
+    static ColumnChunk read(ByteBuffer buff, ValueDataType type) {
+        int size = DataUtils.readVarInt(buff);
+        int nullCount = DataUtils.readVarInt(buff);
+        Value min = type.read(buff), max = type.read(buff);
+        if (min == ValueNull.INSTANCE) {
+            min = max = null;
+        }
+        int encoding = buff.get();
+        byte[] data = new byte[DataUtils.readVarInt(buff)];
+        buff.get(data);
+        return new ColumnChunk(size, nullCount, min, max, encoding, data, null);
+    }
+
+    /**
+     * Write this chunk.
+     *
+     * @param buff the target buffer
+     * @param type the data type used to serialize the values
+     */
+    void write(WriteBuffer buff, ValueDataType type) {
+        buff.putVarInt(size).putVarInt(nullCount);
+        type.write(buff, min == null ? ValueNull.INSTANCE : min);
+        type.write(buff, max == null ? ValueNull.INSTANCE : max);
+        buff.put((byte) encoding).putVarInt(data.length).put(data);
+    }
+
+    /**
+     * Get the decoded values of this chunk.
+     *
+     * @param type the data type used to serialize the values
+     * @return the values, must not be modified
+     */
+    public Value[] getValues(ValueDataType type) {
+        Value[] v = values;
+        if (v == null) {
+            values = v = decode(type);
+        }
+        return v;
+    }
+
+    private Value[] decode(ValueDataType type) {
+        Value[] v = new Value[size];
+        ByteBuffer buff = ByteBuffer.wrap(data);
+        switch (encoding) {
+        case PLAIN:
+            for (int i = 0; i < size; i++) {
+                v[i] = type.read(buff);
+            }
+            break;
+        case RUN_LENGTH:
+            for (int runs = DataUtils.readVarInt(buff), i = 0; runs > 0; runs--) {
+                int end = i + DataUtils.readVarInt(buff);
+                Arrays.fill(v, i, end, type.read(buff));
+                i = end;
+            }
+            break;
+        case DICTIONARY: {
+            Value[] dictionary = new Value[DataUtils.readVarInt(buff)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = type.read(buff);
+            }
+            for (int i = 0; i < size; i++) {
+                v[i] = dictionary[buff.get() & 0xff];
+            }
+            break;
+        }
+        case DELTA: {
+            int valueType = buff.get();
+            byte[] nulls = null;
+            if (nullCount > 0) {
+                nulls = new byte[(size + 7) / 8];
+                buff.get(nulls);
+            }
+            long last = 0;
+            for (int i = 0; i < size; i++) {
+                if (nulls != null && (nulls[i >>> 3] & 1 << (i & 7)) != 0) {
+                    v[i] = ValueNull.INSTANCE;
+                } else {
+                    long d = DataUtils.readVarLong(buff);
+                    last += (d >>> 1) ^ -(d & 1);
+                    v[i] = getIntegerValue(valueType, last);
+                }
+            }
+            break;
+        }
+        default:
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                    "Unknown column chunk encoding {0}", encoding);
+        }
+        return v;
+    }
+
+    private static Value getIntegerValue(int valueType, long x) {
+        switch (valueType) {
+        case Value.TINYINT:
+            return ValueTinyint.get((byte) x);
+        case Value.SMALLINT:
+            return ValueSmallint.get((short) x);
+        case Value.INTEGER:
+            return ValueInteger.get((int) x);
+        default:
+            return ValueBigint.get(x);
+        }
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether this chunk contains NULL values.
+     *
+     * @return true if there are NULL values
+     */
+    public boolean hasNulls() {
+        return nullCount > 0;
+    }
+
+    /**
+     * Get the smallest non-NULL value.
+     *
+     * @return the smallest value, or null if all values are NULL
+     */
+    public Value getMin() {
+        return min;
+    }
+
+    /**
+     * Get the largest non-NULL value.
+     *
+     * @return the largest value, or null if all values are NULL
+     */
+    public Value getMax() {
+        return max;
+    }
+
+    /**
+     * Get the estimated memory used by this chunk, including the decoded
+     * values.
+     *
+     * @return the memory in bytes
+     */
+    public int getMemory() {
+        int memory = Constants.MEMORY_OBJECT + 2 * Constants.MEMORY_ARRAY + data.length
+                + size * (Constants.MEMORY_POINTER + Constants.MEMORY_OBJECT);
+        if (min != null) {
+            memory += min.getMemory() + max.getMemory();
+        }
+        return memory;
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + size + " nulls: " + nullCount + " min: " + min + " max: " + max + " encoding: "
+                + encoding;
+    }
+
+}
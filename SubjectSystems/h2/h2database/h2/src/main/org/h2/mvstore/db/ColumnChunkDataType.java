@@ -0,0 +1,77 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.nio.ByteBuffer;
+import org.h2.engine.Database;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.MetaType;
+import org.h2.mvstore.type.StatefulDataType;
+
+/**
+ * The data type of the column chunks of a columnar table.
+ */
+public final class ColumnChunkDataType extends BasicDataType<ColumnChunk> implements StatefulDataType<Database> {
+
+    private final ValueDataType valueDataType;
+
+    public ColumnChunkDataType(Database database) {
+        valueDataType = database == null ? new ValueDataType() : new ValueDataType(database, null);
+    }
+
+    /**
+     * Get the data type of the values in the chunks.
+     *
+     * @return the value data type
+     */
+    public ValueDataType getValueDataType() {
+        return valueDataType;
+    }
+
+    @Override
+    public ColumnChunk[] createStorage(int size) {
+        return new ColumnChunk[size];
+    }
+
+    @Override
+    public int getMemory(ColumnChunk obj) {
+        return obj.getMemory();
+    }
+
+    @Override
+    public void write(WriteBuffer buff, ColumnChunk obj) {
+        obj.write(buff, valueDataType);
+    }
+
+    @Override
+    public ColumnChunk read(ByteBuffer buff) {
+        return ColumnChunk.read(buff, valueDataType);
+    }
+
+    @Override
+    public void save(WriteBuffer buff, MetaType<Database> metaType) {
+        // nothing to save
+    }
+
+    @Override
+    public Factory getFactory() {
+        return FACTORY;
+    }
+
+    private static final Factory FACTORY = new Factory();
+
+    public static final class Factory implements StatefulDataType.Factory<Database> {
+
+        @Override
+        public DataType<?> create(ByteBuffer buff, MetaType<Database> metaType, Database database) {
+            return new ColumnChunkDataType(database);
+        }
+
+    }
+
+}
@@ -9,6 +9,9 @@
 import java.io.InputStream;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map.Entry;
@@ -52,7 +55,9 @@ public class LobStorageMap implements LobStorageInterface {
      *
      * Key: lobId (long)
      * Value: { streamStoreId (byte[]), tableId (int),
-     * byteCount (long), hash (long) }.
+     * byteCount (long), hash (long) [, contentHash (byte[])] }.
+     * The content hash is only set if the lob was created with deduplication
+     * enabled.
      */
     private MVMap<Long, Object[]> lobMap;
 
@@ -66,6 +71,18 @@ public class LobStorageMap implements LobStorageInterface {
      */
     private MVMap<Object[], Boolean> refMap;
 
+    /**
+     * The content hash map. It is used to find the stream of an existing lob
+     * with the same data, so that identical data is only stored once. The
+     * entry is removed together with the stream.
+     *
+     * Key: contentHash (byte[]), the SHA-256 hash of the data.
+     * Value: streamStoreId (byte[]).
+     */
+    private MVMap<byte[], byte[]> hashMap;
+
+    private boolean deduplicate;
+
     private StreamStore streamStore;
 
     public LobStorageMap(Database database) {
@@ -88,6 +105,8 @@ public void init() {
         }
         lobMap = mvStore.openMap("lobMap");
         refMap = mvStore.openMap("lobRef");
+        hashMap = mvStore.openMap("lobHash");
+        deduplicate = database.getSettings().lobDeduplicate;
 
         /* The stream store data map.
          *
@@ -212,6 +231,11 @@ public ValueLob createClob(Reader reader, long maxLength) {
     }
 
     private ValueLobDatabase createLob(InputStream in, int type) throws IOException {
+        MessageDigest digest = null;
+        if (deduplicate) {
+            digest = createDigest();
+            in = new DigestInputStream(in, digest);
+        }
         byte[] streamStoreId;
         try {
             streamStoreId = streamStore.put(in);
@@ -221,10 +245,26 @@ private ValueLobDatabase createLob(InputStream in, int type) throws IOException
         long lobId = generateLobId();
         long length = streamStore.length(streamStoreId);
         int tableId = LobStorageFrontend.TABLE_TEMP;
-        Object[] value = { streamStoreId, tableId, length, 0 };
-        lobMap.put(lobId, value);
-        Object[] key = { streamStoreId, lobId };
-        refMap.put(key, Boolean.TRUE);
+        // data that is kept inline in the id is not shared
+        if (digest != null && streamStore.getMaxBlockKey(streamStoreId) != -1) {
+            byte[] hash = digest.digest();
+            synchronized (hashMap) {
+                byte[] existing = hashMap.get(hash);
+                if (existing == null) {
+                    hashMap.put(hash, streamStoreId);
+                } else if (streamStore.length(existing) == length) {
+                    if (TRACE) {
+                        trace("  same data as stream " + StringUtils.convertBytesToHex(existing));
+                    }
+                    // the blocks are usually not written to the file yet
+                    streamStore.remove(streamStoreId);
+                    streamStoreId = existing;
+                }
+                addLob(lobId, new Object[] { streamStoreId, tableId, length, 0, hash });
+            }
+        } else {
+            addLob(lobId, new Object[] { streamStoreId, tableId, length, 0 });
+        }
         ValueLobDatabase lob = ValueLobDatabase.create(
                 type, database, tableId, lobId, length);
         if (TRACE) {
@@ -233,6 +273,20 @@ private ValueLobDatabase createLob(InputStream in, int type) throws IOException
         return lob;
     }
 
+    private void addLob(long lobId, Object[] value) {
+        lobMap.put(lobId, value);
+        Object[] key = { value[0], lobId };
+        refMap.put(key, Boolean.TRUE);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw DbException.convert(e);
+        }
+    }
+
     private long generateLobId() {
         synchronized (nextLobIdSync) {
             if (nextLobId == 0) {
@@ -331,27 +385,49 @@ private void removeLob(int tableId, long lobId) {
             return;
         }
         byte[] streamStoreId = (byte[]) value[0];
+        if (value.length > 4) {
+            // a new lob with the same content could use the stream
+            synchronized (hashMap) {
+                if (removeReference(streamStoreId, lobId)) {
+                    byte[] hash = (byte[]) value[4];
+                    if (Arrays.equals(streamStoreId, hashMap.get(hash))) {
+                        hashMap.remove(hash);
+                    }
+                }
+            }
+        } else {
+            removeReference(streamStoreId, lobId);
+        }
+    }
+
+    /**
+     * Remove the reference of the lob to the stream, and remove the stream if
+     * there are no more references.
+     *
+     * @param streamStoreId the stream store id
+     * @param lobId the lob id
+     * @return whether the stream was removed
+     */
+    private boolean removeReference(byte[] streamStoreId, long lobId) {
         Object[] key = {streamStoreId, lobId };
         refMap.remove(key);
         // check if there are more entries for this streamStoreId
         key = new Object[] {streamStoreId, 0L };
-        value = refMap.ceilingKey(key);
-        boolean hasMoreEntries = false;
+        Object[] value = refMap.ceilingKey(key);
         if (value != null) {
             byte[] s2 = (byte[]) value[0];
             if (Arrays.equals(streamStoreId, s2)) {
                 if (TRACE) {
                     trace("  stream still needed in lob " + value[1]);
                 }
-                hasMoreEntries = true;
+                return false;
             }
         }
-        if (!hasMoreEntries) {
-            if (TRACE) {
-                trace("  remove stream " + StringUtils.convertBytesToHex(streamStoreId));
-            }
-            streamStore.remove(streamStoreId);
+        if (TRACE) {
+            trace("  remove stream " + StringUtils.convertBytesToHex(streamStoreId));
         }
+        streamStore.remove(streamStoreId);
+        return true;
     }
 
     private static void trace(String op) {
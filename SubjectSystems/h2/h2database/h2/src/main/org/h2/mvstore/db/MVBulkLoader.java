@@ -0,0 +1,353 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+import org.h2.api.ErrorCode;
+import org.h2.engine.Session;
+import org.h2.index.Index;
+import org.h2.message.DbException;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.db.MVTableEngine.Store;
+import org.h2.mvstore.type.DataType;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.table.BulkLoader;
+import org.h2.value.Value;
+import org.h2.value.VersionedValue;
+
+/**
+ * Loads rows into an empty table of a MVStore, without an undo log.
+ * <p>
+ * The entries of each index are sorted in memory. If they don't fit in
+ * memory, the sorted runs are written to temporary maps, which are merged at
+ * the end. The sorted entries are added to the maps of the indexes as
+ * committed values, and as full leaf pages, so that the b-trees are built
+ * bottom-up. The table is locked exclusively until the end of the transaction,
+ * so that other sessions only see the rows after the commit.
+ * </p>
+ */
+final class MVBulkLoader implements BulkLoader {
+
+    private final Session session;
+    private final MVTable table;
+    private final MVPrimaryIndex primaryIndex;
+    private final ArrayList<IndexLoader<?,?>> loaders = new ArrayList<>();
+    private long rowCount;
+
+    MVBulkLoader(Session session, MVTable table, MVPrimaryIndex primaryIndex) {
+        this.session = session;
+        this.table = table;
+        this.primaryIndex = primaryIndex;
+        Store store = session.getDatabase().getStore();
+        int bufferSize = Math.max(session.getDatabase().getMaxMemoryRows() / 2, 1);
+        loaders.add(new PrimaryLoader(store, primaryIndex, bufferSize));
+        for (Index index : table.getIndexes()) {
+            if (index instanceof MVSecondaryIndex) {
+                loaders.add(new SecondaryLoader(store, (MVSecondaryIndex) index, bufferSize));
+            }
+        }
+    }
+
+    @Override
+    public void addRow(Row row) {
+        primaryIndex.setRowKey(row);
+        for (IndexLoader<?,?> loader : loaders) {
+            loader.add(row);
+        }
+        rowCount++;
+    }
+
+    @Override
+    public void finish() {
+        try {
+            for (IndexLoader<?,?> loader : loaders) {
+                loader.finish();
+            }
+        } catch (Throwable e) {
+            // the table was empty before
+            for (IndexLoader<?,?> loader : loaders) {
+                loader.map.clear();
+            }
+            throw DbException.convert(e);
+        } finally {
+            cancel();
+        }
+        table.afterBulkLoad(session, rowCount);
+    }
+
+    @Override
+    public void cancel() {
+        for (IndexLoader<?,?> loader : loaders) {
+            loader.removeRuns();
+        }
+    }
+
+    /**
+     * Sorts the entries of an index, and appends them to the map of the
+     * index.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private abstract static class IndexLoader<K,V> {
+
+        /**
+         * The map of the index.
+         */
+        final MVMap<K,VersionedValue<V>> map;
+
+        private final Store store;
+        private final DataType<K> keyType;
+        private final int bufferSize;
+        private final int keysPerPage;
+        private final ArrayList<Entry<K,VersionedValue<V>>> buffer;
+        private final ArrayList<MVMap<K,VersionedValue<V>>> runs = new ArrayList<>();
+
+        private K[] keys;
+        private VersionedValue<V>[] values;
+        private int count;
+        private K lastKey;
+
+        IndexLoader(Store store, MVMap<K,VersionedValue<V>> map, int bufferSize) {
+            this.store = store;
+            this.map = map;
+            keyType = map.getKeyType();
+            this.bufferSize = bufferSize;
+            keysPerPage = store.getMvStore().getKeysPerPage();
+            buffer = new ArrayList<>(Math.min(bufferSize, 1024));
+        }
+
+        /**
+         * Get the key of the index entry of a row.
+         *
+         * @param row the row
+         * @return the key
+         */
+        abstract K getKey(Row row);
+
+        /**
+         * Get the value of the index entry of a row.
+         *
+         * @param row the row
+         * @return the value
+         */
+        abstract VersionedValue<V> getValue(Row row);
+
+        /**
+         * Check that two consecutive entries are allowed in the index.
+         *
+         * @param previous the key of the previous entry
+         * @param key the key of the entry
+         * @param value the value of the entry
+         */
+        abstract void checkDuplicate(K previous, K key, VersionedValue<V> value);
+
+        /**
+         * Add the entry of a row.
+         *
+         * @param row the row
+         */
+        void add(Row row) {
+            buffer.add(new AbstractMap.SimpleImmutableEntry<>(getKey(row), getValue(row)));
+            if (buffer.size() >= bufferSize) {
+                writeRun();
+            }
+        }
+
+        private void sortBuffer() {
+            buffer.sort((a, b) -> keyType.compare(a.getKey(), b.getKey()));
+            K previous = null;
+            for (Entry<K,VersionedValue<V>> e : buffer) {
+                K key = e.getKey();
+                if (previous != null) {
+                    checkDuplicate(previous, key, e.getValue());
+                }
+                previous = key;
+            }
+        }
+
+        private void writeRun() {
+            sortBuffer();
+            MVMap<K,VersionedValue<V>> run = store.getMvStore().openMap(store.nextTemporaryMapName(),
+                    new MVMap.Builder<K,VersionedValue<V>>().singleWriter().keyType(keyType)
+                            .valueType(map.getValueType()));
+            runs.add(run);
+            for (Entry<K,VersionedValue<V>> e : buffer) {
+                run.append(e.getKey(), e.getValue());
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Append all entries to the map of the index.
+         */
+        void finish() {
+            if (runs.isEmpty()) {
+                sortBuffer();
+                for (Entry<K,VersionedValue<V>> e : buffer) {
+                    append(e.getKey(), e.getValue());
+                }
+                buffer.clear();
+            } else {
+                if (!buffer.isEmpty()) {
+                    writeRun();
+                }
+                merge();
+            }
+            flush();
+        }
+
+        private void merge() {
+            PriorityQueue<Cursor<K,VersionedValue<V>>> queue = new PriorityQueue<>(runs.size(),
+                    (a, b) -> keyType.compare(a.getKey(), b.getKey()));
+            for (MVMap<K,VersionedValue<V>> run : runs) {
+                Cursor<K,VersionedValue<V>> cursor = run.cursor(null);
+                if (cursor.hasNext()) {
+                    cursor.next();
+                    queue.offer(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Cursor<K,VersionedValue<V>> cursor = queue.poll();
+                K key = cursor.getKey();
+                if (lastKey != null) {
+                    checkDuplicate(lastKey, key, cursor.getValue());
+                }
+                append(key, cursor.getValue());
+                if (cursor.hasNext()) {
+                    cursor.next();
+                    queue.offer(cursor);
+                }
+            }
+        }
+
+        private void append(K key, VersionedValue<V> value) {
+            if (keys == null) {
+                keys = keyType.createStorage(keysPerPage);
+                values = map.getValueType().createStorage(keysPerPage);
+            }
+            keys[count] = key;
+            values[count] = value;
+            lastKey = key;
+            if (++count == keysPerPage) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (count > 0) {
+                if (count < keysPerPage) {
+                    keys = Arrays.copyOf(keys, count);
+                    values = Arrays.copyOf(values, count);
+                }
+                map.appendLeaf(keys, values);
+                keys = null;
+                values = null;
+                count = 0;
+            }
+        }
+
+        /**
+         * Remove the temporary maps.
+         */
+        void removeRuns() {
+            MVStore mvStore = store.getMvStore();
+            for (MVMap<K,VersionedValue<V>> run : runs) {
+                mvStore.removeMap(run);
+            }
+            runs.clear();
+            buffer.clear();
+        }
+
+    }
+
+    /**
+     * Loads the rows into the map of the primary index.
+     */
+    private static final class PrimaryLoader extends IndexLoader<Long,SearchRow> {
+
+        private final MVPrimaryIndex index;
+
+        PrimaryLoader(Store store, MVPrimaryIndex index, int bufferSize) {
+            super(store, index.getMVMap(), bufferSize);
+            this.index = index;
+        }
+
+        @Override
+        Long getKey(Row row) {
+            return row.getKey();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        VersionedValue<SearchRow> getValue(Row row) {
+            // rows are committed values
+            return (VersionedValue<SearchRow>) (VersionedValue<?>) row;
+        }
+
+        @Override
+        void checkDuplicate(Long previous, Long key, VersionedValue<SearchRow> value) {
+            if (previous.longValue() == key.longValue()) {
+                throw index.getDuplicateKeyException(ErrorCode.DUPLICATE_KEY_1, value.getCurrentValue());
+            }
+        }
+
+        @Override
+        void finish() {
+            super.finish();
+            Long last = map.lastKey();
+            if (last != null) {
+                index.updateLastKey(last);
+            }
+        }
+
+    }
+
+    /**
+     * Loads the index entries of the rows into the map of a secondary index.
+     */
+    private static final class SecondaryLoader extends IndexLoader<SearchRow,Value> {
+
+        private final MVSecondaryIndex index;
+
+        private final boolean unique;
+
+        SecondaryLoader(Store store, MVSecondaryIndex index, int bufferSize) {
+            super(store, index.getMVMap(), bufferSize);
+            this.index = index;
+            unique = index.getIndexType().isUnique();
+        }
+
+        @Override
+        SearchRow getKey(Row row) {
+            SearchRow r = index.getRowFactory().createRow();
+            r.copyFrom(row);
+            return r;
+        }
+
+        @Override
+        VersionedValue<Value> getValue(Row row) {
+            return index.getIncludeValue(row);
+        }
+
+        @Override
+        void checkDuplicate(SearchRow previous, SearchRow key, VersionedValue<Value> value) {
+            if (unique && !index.mayHaveNullDuplicates(key) && index.compareRows(previous, key) == 0) {
+                throw index.getDuplicateKeyException(key.toString());
+            }
+        }
+
+    }
+
+}
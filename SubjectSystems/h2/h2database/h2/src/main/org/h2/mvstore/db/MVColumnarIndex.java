@@ -0,0 +1,670 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import org.h2.api.ErrorCode;
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.index.ColumnarIndex;
+import org.h2.index.Cursor;
+import org.h2.index.IndexType;
+import org.h2.message.DbException;
+import org.h2.message.Trace;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.IndexColumn;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueNull;
+import org.h2.value.VersionedValue;
+
+/**
+ * The scan index of a columnar table. New and changed rows are stored as a
+ * whole in the map of the primary index. Once all rows of a range of row keys
+ * are committed, they are moved to chunks that contain the values of one
+ * column each. Rows of chunks that are later changed or deleted are marked as
+ * deleted, and the new version of the row is stored in the row map again.
+ * The rows are moved by a background thread that is started after a
+ * transaction that changed the table was committed, so that committing
+ * transactions do not wait for it.
+ */
+public final class MVColumnarIndex extends MVPrimaryIndex implements ColumnarIndex {
+
+    /**
+     * The binary logarithm of the number of row keys in a chunk.
+     */
+    static final int CHUNK_SHIFT = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final ValueDataType valueType;
+
+    /**
+     * The chunks with the row keys, by chunk id (row key >> CHUNK_SHIFT).
+     */
+    private final TransactionMap<Long, ColumnChunk> keyMap;
+
+    /**
+     * The chunks with the values of each column, by chunk id.
+     */
+    private final ArrayList<TransactionMap<Long, ColumnChunk>> columnMaps;
+
+    /**
+     * The keys of the rows of chunks that were changed or deleted.
+     */
+    private final TransactionMap<Long, Value> deletedMap;
+
+    private final AtomicLong chunkRowCount = new AtomicLong();
+
+    /**
+     * The id of the first chunk that was not created yet, or
+     * Long.MIN_VALUE if no chunk was created yet.
+     */
+    private long nextChunk = Long.MIN_VALUE;
+
+    /**
+     * The number of requests to move the rows. The background thread runs
+     * again if new requests arrived while it moved the rows.
+     */
+    private final AtomicLong moveRequests = new AtomicLong();
+
+    /**
+     * The thread that moves the rows, or null if it is not running.
+     */
+    private Thread mover;
+
+    private volatile boolean closed;
+
+    public MVColumnarIndex(Database db, MVTable table, int id, IndexColumn[] columns, IndexType indexType) {
+        super(db, table, id, columns, indexType);
+        ColumnChunkDataType chunkType = new ColumnChunkDataType(db);
+        valueType = chunkType.getValueDataType();
+        LongDBDataType keyType = new LongDBDataType();
+        String prefix = "column." + getId() + '.';
+        boolean isVolatile = !table.isPersistData() || !indexType.isPersistent();
+        Transaction t = table.getTransactionBegin();
+        keyMap = t.openMap(prefix + "key", keyType, chunkType);
+        keyMap.map.setVolatile(isVolatile);
+        int columnCount = table.getColumns().length;
+        columnMaps = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            TransactionMap<Long, ColumnChunk> map = t.openMap(prefix + i, keyType, chunkType);
+            map.map.setVolatile(isVolatile);
+            columnMaps.add(map);
+        }
+        deletedMap = t.openMap(prefix + "deleted", keyType, new ValueDataType());
+        deletedMap.map.setVolatile(isVolatile);
+        t.commit();
+        long count = 0;
+        for (org.h2.mvstore.Cursor<Long, VersionedValue<ColumnChunk>> c = keyMap.map.cursor(null); c.hasNext();) {
+            long chunkId = c.next();
+            ColumnChunk keys = c.getValue().getCommittedValue();
+            if (keys != null) {
+                count += keys.size();
+                nextChunk = chunkId + 1;
+                updateLastKey(keys.getMax().getLong());
+            }
+        }
+        chunkRowCount.set(count);
+    }
+
+    @Override
+    public String getPlanSQL() {
+        return table.getSQL(new StringBuilder(), TRACE_SQL_FLAGS).append(".columnScan").toString();
+    }
+
+    @Override
+    public void add(Session session, Row row) {
+        boolean generatedKey = row.getKey() == 0;
+        super.add(session, row);
+        // generated keys are larger than the keys of all chunks
+        long key = row.getKey();
+        if (!generatedKey && keyMap.map.containsKey(key >> CHUNK_SHIFT)
+                && getChunkRow(session, key, false) != null) {
+            DbException e = DbException.get(ErrorCode.DUPLICATE_KEY_1,
+                    getDuplicatePrimaryKeyMessage(SearchRow.ROWID_INDEX).append(' ').append(row).toString());
+            e.setSource(this);
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove(Session session, Row row) {
+        if (!getMap(session).containsKey(row.getKey())) {
+            moveToRowMap(session, row.getKey());
+        }
+        super.remove(session, row);
+    }
+
+    @Override
+    public void update(Session session, Row oldRow, Row newRow) {
+        if (!getMap(session).containsKey(oldRow.getKey())) {
+            moveToRowMap(session, oldRow.getKey());
+        }
+        super.update(session, oldRow, newRow);
+    }
+
+    @Override
+    Row lockRow(Session session, Row row) {
+        long key = row.getKey();
+        if (!getMap(session).containsKey(key)) {
+            Row moved = moveToRowMap(session, key);
+            if (moved != null) {
+                return moved;
+            }
+        }
+        return super.lockRow(session, row);
+    }
+
+    /**
+     * Mark the row of a chunk as deleted and store it in the row map, so
+     * that it can be locked and changed like other rows.
+     *
+     * @param session the session
+     * @param key the row key
+     * @return the row, or null if there is no such row in the chunks
+     */
+    private Row moveToRowMap(Session session, long key) {
+        Row row = getChunkRow(session, key, false);
+        if (row == null) {
+            return null;
+        }
+        try {
+            if (getDeletedMap(session).putIfAbsent(key, ValueNull.INSTANCE) != null) {
+                // changed by another transaction in the meantime
+                return null;
+            }
+            if (getMap(session).putIfAbsent(key, row) != null) {
+                throw DbException.get(ErrorCode.CONCURRENT_UPDATE_1, getTable().getName());
+            }
+        } catch (MVStoreException e) {
+            throw getTable().convertException(e);
+        }
+        return row;
+    }
+
+    /**
+     * Get a row stored in the chunks.
+     *
+     * @param session the session
+     * @param key the row key
+     * @param snapshot whether to use the snapshot of the current statement,
+     *            or the latest committed data
+     * @return the row, or null if not found or deleted
+     */
+    private Row getChunkRow(Session session, long key, boolean snapshot) {
+        Long chunkId = key >> CHUNK_SHIFT;
+        TransactionMap<Long, ColumnChunk> map = getKeyMap(session);
+        ColumnChunk keys = snapshot ? map.getFromSnapshot(chunkId) : map.getImmediate(chunkId);
+        if (keys == null) {
+            return null;
+        }
+        int index = indexOf(keys.getValues(valueType), key);
+        if (index < 0) {
+            return null;
+        }
+        TransactionMap<Long, Value> deleted = getDeletedMap(session);
+        if ((snapshot ? deleted.getFromSnapshot(key) : deleted.getImmediate(key)) != null) {
+            return null;
+        }
+        int columnCount = columnMaps.size();
+        Value[] data = new Value[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            TransactionMap<Long, ColumnChunk> c = getColumnMap(session, i);
+            ColumnChunk chunk = snapshot ? c.getFromSnapshot(chunkId) : c.getImmediate(chunkId);
+            data[i] = chunk.getValues(valueType)[index];
+        }
+        return getTable().createRow(data, SearchRow.MEMORY_CALCULATE, key);
+    }
+
+    private static int indexOf(Value[] keys, long key) {
+        int low = 0, high = keys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long k = keys[mid].getLong();
+            if (k < key) {
+                low = mid + 1;
+            } else if (k > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Cursor find(Session session, SearchRow first, SearchRow last) {
+        return find(session, first, last, null);
+    }
+
+    @Override
+    public Cursor find(Session session, SearchRow first, SearchRow last, BitSet columns) {
+        long min = first == null ? Long.MIN_VALUE : first.getKey();
+        long max = last == null ? Long.MAX_VALUE : last.getKey();
+        return new ColumnarCursor(session, min, max, first, last, columns);
+    }
+
+    @Override
+    public Row getRow(Session session, long key) {
+        Row row = (Row) getMap(session).getFromSnapshot(key);
+        if (row == null) {
+            row = getChunkRow(session, key, true);
+            if (row == null) {
+                throw DbException.get(ErrorCode.ROW_NOT_FOUND_IN_PRIMARY_INDEX, getTraceSQL(), String.valueOf(key));
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public boolean canGetFirstOrLast() {
+        return false;
+    }
+
+    @Override
+    public Cursor findFirstOrLast(Session session, boolean first) {
+        throw DbException.getUnsupportedException("findFirstOrLast");
+    }
+
+    @Override
+    public Cursor[] findRanges(Session session, int count) {
+        return new Cursor[] { find(session, null, null, null) };
+    }
+
+    @Override
+    public long getRowCount(Session session) {
+        long count = super.getRowCount(session);
+        for (Iterator<Entry<Long, ColumnChunk>> it = getKeyMap(session).entryIterator(null, null); it.hasNext();) {
+            count += it.next().getValue().size();
+        }
+        return count - getDeletedMap(session).sizeAsLong();
+    }
+
+    @Override
+    public long getRowCountMax() {
+        return super.getRowCountMax() + chunkRowCount.get();
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        long size = super.getDiskSpaceUsed();
+        for (MVMap<Long, ?> map : getChunkMaps()) {
+            size += map.getRootPage().getDiskSpaceUsed();
+        }
+        return size;
+    }
+
+    @Override
+    public void close(Session session) {
+        stopMoving();
+        super.close(session);
+    }
+
+    @Override
+    public void remove(Session session) {
+        stopMoving();
+        super.remove(session);
+        Transaction t = session.getTransaction();
+        removeMap(t, keyMap);
+        for (TransactionMap<Long, ColumnChunk> map : columnMaps) {
+            removeMap(t, map);
+        }
+        removeMap(t, deletedMap);
+    }
+
+    private static void removeMap(Transaction t, TransactionMap<Long, ?> map) {
+        TransactionMap<Long, ?> m = map.getInstance(t);
+        if (!m.isClosed()) {
+            t.removeMap(m);
+        }
+    }
+
+    @Override
+    public void truncate(Session session) {
+        super.truncate(session);
+        getKeyMap(session).clear();
+        for (int i = 0, count = columnMaps.size(); i < count; i++) {
+            getColumnMap(session, i).clear();
+        }
+        getDeletedMap(session).clear();
+        chunkRowCount.set(0);
+    }
+
+    /**
+     * Get the maps with the chunks and the deleted row marks. Statements need
+     * to read them from the same snapshot as the row map.
+     *
+     * @return the maps
+     */
+    public List<MVMap<Long, ?>> getChunkMaps() {
+        ArrayList<MVMap<Long, ?>> list = new ArrayList<>(columnMaps.size() + 2);
+        list.add(keyMap.map);
+        for (TransactionMap<Long, ColumnChunk> map : columnMaps) {
+            list.add(map.map);
+        }
+        list.add(deletedMap.map);
+        return list;
+    }
+
+    /**
+     * Request the committed rows to be moved to chunks. The rows are moved by
+     * a background thread, this method does not wait for it.
+     */
+    void requestMoveRows() {
+        if (getTable().getContainsLargeObject() || database.isReadOnly()) {
+            return;
+        }
+        moveRequests.incrementAndGet();
+        synchronized (moveRequests) {
+            if (mover == null && !closed) {
+                Thread t = new Thread(this::runMover, "H2 Columnar " + table.getName());
+                t.setDaemon(true);
+                mover = t;
+                t.start();
+            }
+        }
+    }
+
+    private void runMover() {
+        try {
+            long requests;
+            do {
+                requests = moveRequests.get();
+                moveRows();
+                synchronized (moveRequests) {
+                    if (closed || moveRequests.get() == requests) {
+                        mover = null;
+                        return;
+                    }
+                }
+            } while (true);
+        } catch (Throwable e) {
+            synchronized (moveRequests) {
+                mover = null;
+            }
+            if (!closed && !database.isClosing()) {
+                database.getTrace(Trace.INDEX).error(e, "could not move rows of {0}", table.getName());
+            }
+        }
+    }
+
+    /**
+     * Stop the background thread and wait until it is stopped.
+     */
+    private void stopMoving() {
+        Thread t;
+        synchronized (moveRequests) {
+            closed = true;
+            t = mover;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Move the committed rows to chunks. Only ranges of row keys below the
+     * range of the largest row key are moved, and only if no row of the range
+     * is changed by an open transaction. Tables with LOB columns keep their
+     * rows in the row map.
+     */
+    synchronized void moveRows() {
+        MVTable mvTable = getTable();
+        MVMap<Long, VersionedValue<SearchRow>> rows = getMVMap();
+        Long lastKey = rows.lastKey();
+        if (lastKey == null) {
+            return;
+        }
+        if (nextChunk == Long.MIN_VALUE) {
+            nextChunk = rows.firstKey() >> CHUNK_SHIFT;
+        }
+        for (long end = lastKey >> CHUNK_SHIFT; nextChunk < end && !closed; nextChunk++) {
+            if (!moveChunk(mvTable, rows, nextChunk)) {
+                break;
+            }
+        }
+    }
+
+    private boolean moveChunk(MVTable mvTable, MVMap<Long, VersionedValue<SearchRow>> rows, long chunkId) {
+        if (keyMap.map.containsKey(chunkId)) {
+            return true;
+        }
+        long from = chunkId << CHUNK_SHIFT, to = from + CHUNK_SIZE - 1;
+        ArrayList<Long> rowKeys = new ArrayList<>();
+        for (org.h2.mvstore.Cursor<Long, VersionedValue<SearchRow>> c = rows.cursor(from, to, false);
+                c.hasNext();) {
+            rowKeys.add(c.next());
+            if (c.getValue().getOperationId() != 0) {
+                // try again after the open transaction is committed
+                return false;
+            }
+        }
+        if (rowKeys.isEmpty()) {
+            return true;
+        }
+        Transaction t = mvTable.getTransactionBegin();
+        // do not wait for other transactions, the rows are moved later
+        t.setTimeoutMillis(1);
+        int count = 0;
+        try {
+            TransactionMap<Long, SearchRow> map = getMap(null).getInstance(t);
+            int columnCount = columnMaps.size();
+            Value[] keys = new Value[rowKeys.size()];
+            Value[][] values = new Value[columnCount][rowKeys.size()];
+            for (Long key : rowKeys) {
+                // the latest committed version of the row
+                SearchRow row = map.remove(key);
+                if (row != null) {
+                    keys[count] = ValueBigint.get(key);
+                    for (int j = 0; j < columnCount; j++) {
+                        values[j][count] = row.getValue(j);
+                    }
+                    count++;
+                }
+            }
+            if (count > 0) {
+                keyMap.getInstance(t).put(chunkId, ColumnChunk.create(Arrays.copyOf(keys, count), valueType));
+                for (int j = 0; j < columnCount; j++) {
+                    columnMaps.get(j).getInstance(t).put(chunkId,
+                            ColumnChunk.create(Arrays.copyOf(values[j], count), valueType));
+                }
+            }
+            t.commit();
+        } catch (MVStoreException e) {
+            t.rollback();
+            return false;
+        }
+        chunkRowCount.addAndGet(count);
+        return true;
+    }
+
+    private TransactionMap<Long, ColumnChunk> getKeyMap(Session session) {
+        return session == null ? keyMap : keyMap.getInstance(session.getTransaction());
+    }
+
+    private TransactionMap<Long, ColumnChunk> getColumnMap(Session session, int column) {
+        TransactionMap<Long, ColumnChunk> map = columnMaps.get(column);
+        return session == null ? map : map.getInstance(session.getTransaction());
+    }
+
+    private TransactionMap<Long, Value> getDeletedMap(Session session) {
+        return session == null ? deletedMap : deletedMap.getInstance(session.getTransaction());
+    }
+
+    /**
+     * A cursor that merges the rows of the row map with the rows of the
+     * chunks in the order of the row keys.
+     */
+    private final class ColumnarCursor implements Cursor {
+
+        private final Session session;
+        private final long min, max;
+        private final SearchRow first, last;
+        private final int[] columnIds;
+        private final Iterator<Entry<Long, SearchRow>> rowIterator;
+        private final Iterator<Entry<Long, ColumnChunk>> chunkIterator;
+        private final TransactionMap<Long, Value> deleted;
+
+        private Entry<Long, SearchRow> nextRow;
+        private Value[] keys;
+        private Value[][] values;
+        private HashSet<Long> deletedKeys;
+        private int index;
+        private Row current;
+
+        ColumnarCursor(Session session, long min, long max, SearchRow first, SearchRow last, BitSet columns) {
+            this.session = session;
+            this.min = min;
+            this.max = max;
+            this.first = first;
+            this.last = last;
+            int columnCount = columnMaps.size();
+            if (columns == null) {
+                columnIds = new int[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    columnIds[i] = i;
+                }
+            } else {
+                columnIds = new int[columns.cardinality()];
+                for (int i = columns.nextSetBit(0), j = 0; i >= 0; i = columns.nextSetBit(i + 1)) {
+                    columnIds[j++] = i;
+                }
+            }
+            rowIterator = getMap(session).entryIterator(min, max);
+            chunkIterator = getKeyMap(session).entryIterator(min >> CHUNK_SHIFT, max >> CHUNK_SHIFT);
+            deleted = getDeletedMap(session);
+            nextRow = rowIterator.hasNext() ? rowIterator.next() : null;
+        }
+
+        @Override
+        public Row get() {
+            return current;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return current;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                if (keys != null && index >= keys.length) {
+                    keys = null;
+                }
+                while (keys == null && chunkIterator.hasNext()) {
+                    readChunk(chunkIterator.next());
+                }
+                long chunkKey = keys == null ? 0 : keys[index].getLong();
+                if (nextRow != null && (keys == null || nextRow.getKey() <= chunkKey)) {
+                    if (keys != null && nextRow.getKey() == chunkKey) {
+                        // the row was changed after it was moved to the chunk
+                        index++;
+                    }
+                    current = (Row) nextRow.getValue();
+                    nextRow = rowIterator.hasNext() ? rowIterator.next() : null;
+                    return true;
+                }
+                if (keys == null) {
+                    current = null;
+                    return false;
+                }
+                int i = index++;
+                if (chunkKey < min || chunkKey > max || deletedKeys != null && deletedKeys.contains(chunkKey)) {
+                    continue;
+                }
+                Value[] data = new Value[columnMaps.size()];
+                for (int j = 0; j < columnIds.length; j++) {
+                    data[columnIds[j]] = values[j][i];
+                }
+                current = getTable().createRow(data, SearchRow.MEMORY_CALCULATE, chunkKey);
+                return true;
+            }
+        }
+
+        private void readChunk(Entry<Long, ColumnChunk> entry) {
+            Long chunkId = entry.getKey();
+            ColumnChunk keyChunk = entry.getValue();
+            if (keyChunk.getMax().getLong() < min || keyChunk.getMin().getLong() > max) {
+                return;
+            }
+            ColumnChunk[] chunks = new ColumnChunk[columnIds.length];
+            for (int j = 0; j < columnIds.length; j++) {
+                int columnId = columnIds[j];
+                ColumnChunk chunk = getColumnMap(session, columnId).getFromSnapshot(chunkId);
+                if (isSkipped(chunk, columnId)) {
+                    return;
+                }
+                chunks[j] = chunk;
+            }
+            values = new Value[chunks.length][];
+            for (int j = 0; j < chunks.length; j++) {
+                values[j] = chunks[j].getValues(valueType);
+            }
+            keys = keyChunk.getValues(valueType);
+            index = 0;
+            deletedKeys = null;
+            for (Iterator<Long> it = deleted.keyIterator(keyChunk.getMin().getLong(),
+                    keyChunk.getMax().getLong()); it.hasNext();) {
+                if (deletedKeys == null) {
+                    deletedKeys = new HashSet<>();
+                }
+                deletedKeys.add(it.next());
+            }
+        }
+
+        /**
+         * Check whether the zone map of the chunk excludes all rows.
+         *
+         * @param chunk the chunk of a column
+         * @param columnId the column id
+         * @return true if no row of the chunk can be within the bounds
+         */
+        private boolean isSkipped(ColumnChunk chunk, int columnId) {
+            Value low = first == null ? null : first.getValue(columnId);
+            Value high = last == null ? null : last.getValue(columnId);
+            if (low == null && high == null) {
+                return false;
+            }
+            if (low == ValueNull.INSTANCE || high == ValueNull.INSTANCE) {
+                // IS NULL
+                return !chunk.hasNulls();
+            }
+            Value chunkMin = chunk.getMin();
+            if (chunkMin == null) {
+                // only NULL values
+                return true;
+            }
+            return low != null && valueType.compareValues(chunk.getMax(), low, SortOrder.ASCENDING) < 0
+                    || high != null && valueType.compareValues(chunkMin, high, SortOrder.ASCENDING) > 0;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+
+    }
+
+}
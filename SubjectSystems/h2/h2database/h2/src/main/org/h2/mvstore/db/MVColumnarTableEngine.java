@@ -0,0 +1,32 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import org.h2.api.TableEngine;
+import org.h2.command.ddl.CreateTableData;
+import org.h2.engine.Database;
+import org.h2.table.TableBase;
+
+/**
+ * A table engine that stores the committed rows of a table in the MVStore as
+ * chunks of column values. Queries that read only a few columns of a wide
+ * table read only the chunks of these columns, and chunks may be skipped using
+ * the minimum and maximum value of each chunk. Usage:
+ *
+ * <pre>
+ * CREATE TABLE TEST(...) ENGINE "org.h2.mvstore.db.MVColumnarTableEngine"
+ * </pre>
+ */
+public class MVColumnarTableEngine implements TableEngine {
+
+    @Override
+    public TableBase createTable(CreateTableData data) {
+        Database db = data.session.getDatabase();
+        MVTableEngine.Store store = MVTableEngine.init(db);
+        return store.createTable(data, true);
+    }
+
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.api.DatabaseEventListener;
+import org.h2.api.ErrorCode;
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.index.Cursor;
+import org.h2.message.DbException;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.DataType;
+import org.h2.result.Row;
+import org.h2.result.RowFactory;
+import org.h2.result.SearchRow;
+import org.h2.util.MathUtils;
+import org.h2.value.Value;
+import org.h2.value.VersionedValue;
+
+/**
+ * Builds a new secondary index of a table with multiple threads.
+ * <p>
+ * The key range of the primary index is split into ranges of about the same
+ * size. Each range is read by its own thread, which sorts the index entries in
+ * blocks, and writes each sorted block (a run) to a temporary map. Then the
+ * key range of the index is split using samples of the runs, and each range
+ * of the runs is merged by its own thread. The current thread appends the
+ * merged entries, in order, as committed values and full leaf pages, to the
+ * empty map of the index, so that the b-tree is built bottom-up. Progress is
+ * reported by the current thread.
+ * </p>
+ */
+final class MVIndexBuilder {
+
+    /**
+     * The minimum number of rows per thread.
+     */
+    static final long MIN_ROWS_PER_TASK = 10_000;
+
+    /**
+     * The number of keys taken from each run to find the ranges of the merge
+     * threads.
+     */
+    private static final int SAMPLES_PER_RUN = 64;
+
+    private final Session session;
+    private final Database database;
+    private final MVSecondaryIndex index;
+    private final MVPrimaryIndex primaryIndex;
+    private final MVMap<SearchRow,VersionedValue<Value>> map;
+    private final DataType<SearchRow> keyType;
+    private final boolean unique;
+    private final int threadCount;
+    private final String progressName;
+    private final int progressMax;
+
+    /**
+     * The sorted runs of all threads.
+     */
+    private final ArrayList<MVMap<SearchRow,Value>> runs = new ArrayList<>();
+
+    /**
+     * The number of rows read by all threads.
+     */
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    /**
+     * Set when the worker threads should stop.
+     */
+    volatile boolean stop;
+
+    /**
+     * The first exception of a worker thread.
+     */
+    private Throwable failure;
+
+    /**
+     * Creates a new index builder.
+     *
+     * @param session the session
+     * @param table the table
+     * @param index the new index, must be empty
+     * @param primaryIndex the primary index of the table
+     * @param threadCount the number of threads to use
+     */
+    MVIndexBuilder(Session session, MVTable table, MVSecondaryIndex index, MVPrimaryIndex primaryIndex,
+            int threadCount) {
+        this.session = session;
+        database = session.getDatabase();
+        this.index = index;
+        this.primaryIndex = primaryIndex;
+        map = index.getMVMap();
+        keyType = map.getKeyType();
+        unique = index.getIndexType().isUnique();
+        this.threadCount = threadCount;
+        progressName = table.getName() + ":" + index.getName();
+        progressMax = MathUtils.convertLongToInt(primaryIndex.getRowCountApproximation());
+    }
+
+    /**
+     * Read all rows of the table, and add them to the index.
+     */
+    void build() {
+        try {
+            sort();
+            if (!runs.isEmpty()) {
+                merge();
+            }
+        } finally {
+            MVStore mvStore = database.getStore().getMvStore();
+            for (MVMap<SearchRow,Value> run : runs) {
+                mvStore.removeMap(run);
+            }
+            runs.clear();
+        }
+    }
+
+    private void sort() {
+        Cursor[] cursors = primaryIndex.findRanges(session, threadCount);
+        if (cursors.length == 0) {
+            // no rows are visible to this session
+            return;
+        }
+        int bufferSize = Math.max(database.getMaxMemoryRows() / 2 / cursors.length, 1);
+        ArrayList<Sorter> sorters = new ArrayList<>(cursors.length);
+        for (Cursor cursor : cursors) {
+            sorters.add(new Sorter(cursor, bufferSize));
+        }
+        try {
+            for (Sorter sorter : sorters) {
+                sorter.start();
+            }
+            for (Sorter sorter : sorters) {
+                while (!sorter.join(100)) {
+                    checkFailure();
+                    setProgress(rowsRead.get());
+                }
+            }
+            checkFailure();
+        } finally {
+            stopAll(sorters);
+        }
+    }
+
+    private void merge() {
+        SearchRow[] bounds = getMergeBounds();
+        int count = bounds.length + 1;
+        int queueSize = Math.max(database.getMaxMemoryRows() / 2 / database.getStore().getMvStore()
+                .getKeysPerPage() / count, 2);
+        ArrayList<Merger> mergers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            mergers.add(new Merger(i == 0 ? null : bounds[i - 1], i == count - 1 ? null : bounds[i], queueSize));
+        }
+        try {
+            for (Merger merger : mergers) {
+                merger.start();
+            }
+            long rowsLoaded = 0;
+            SearchRow last = null;
+            for (Merger merger : mergers) {
+                while (true) {
+                    Leaf leaf = merger.take();
+                    if (leaf == null) {
+                        break;
+                    }
+                    if (last != null) {
+                        checkDuplicate(last, leaf.keys[0]);
+                    }
+                    map.appendLeaf(leaf.keys, leaf.values);
+                    last = leaf.keys[leaf.keys.length - 1];
+                    rowsLoaded += leaf.keys.length;
+                    setProgress(rowsLoaded);
+                }
+            }
+        } finally {
+            stopAll(mergers);
+        }
+    }
+
+    /**
+     * Get the keys that split the key range of the index into ranges of about
+     * the same size, one for each thread.
+     *
+     * @return the lower bound of each range except the first
+     */
+    private SearchRow[] getMergeBounds() {
+        ArrayList<SearchRow> samples = new ArrayList<>(runs.size() * SAMPLES_PER_RUN);
+        for (MVMap<SearchRow,Value> run : runs) {
+            long size = run.sizeAsLong();
+            for (int i = 0; i < SAMPLES_PER_RUN; i++) {
+                SearchRow key = run.getKey(size * i / SAMPLES_PER_RUN);
+                if (key != null) {
+                    samples.add(key);
+                }
+            }
+        }
+        samples.sort(keyType);
+        int count = Math.min(threadCount, samples.size());
+        SearchRow[] bounds = new SearchRow[Math.max(count - 1, 0)];
+        for (int i = 1; i < count; i++) {
+            bounds[i - 1] = samples.get(samples.size() * i / count);
+        }
+        return bounds;
+    }
+
+    private void setProgress(long x) {
+        session.checkCanceled();
+        database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, progressName,
+                MathUtils.convertLongToInt(x), progressMax);
+    }
+
+    /**
+     * Check that two consecutive entries are allowed in the index.
+     *
+     * @param previous the key of the previous entry
+     * @param key the key of the entry
+     */
+    void checkDuplicate(SearchRow previous, SearchRow key) {
+        if (unique && !index.mayHaveNullDuplicates(key) && index.compareRows(previous, key) == 0) {
+            throw index.getDuplicateKeyException(key.toString());
+        }
+    }
+
+    /**
+     * Stop all worker threads because of an exception.
+     *
+     * @param e the exception
+     */
+    synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+        stop = true;
+    }
+
+    private synchronized void checkFailure() {
+        if (failure != null) {
+            throw DbException.convert(failure);
+        }
+    }
+
+    private void stopAll(ArrayList<? extends Worker> workers) {
+        stop = true;
+        for (Worker worker : workers) {
+            worker.join(0);
+        }
+        stop = false;
+    }
+
+    /**
+     * A worker thread.
+     */
+    private abstract class Worker implements Runnable {
+
+        private Thread thread;
+
+        /**
+         * Start the thread.
+         */
+        void start() {
+            thread = new Thread(this, "H2 Create Index " + progressName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public final void run() {
+            try {
+                call();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * The method to be implemented.
+         */
+        abstract void call();
+
+        /**
+         * Wait until the thread is stopped.
+         *
+         * @param millis the maximum time to wait, or 0 to wait until the
+         *            thread is stopped
+         * @return whether the thread is stopped
+         */
+        boolean join(long millis) {
+            if (thread == null) {
+                return true;
+            }
+            try {
+                thread.join(millis);
+            } catch (InterruptedException e) {
+                throw DbException.convert(e);
+            }
+            return !thread.isAlive();
+        }
+
+    }
+
+    /**
+     * Reads a range of rows of the table, and writes the sorted index entries
+     * to temporary maps.
+     */
+    private final class Sorter extends Worker {
+
+        private final Cursor cursor;
+
+        private final int bufferSize;
+
+        private final ArrayList<Entry<SearchRow,Value>> buffer;
+
+        Sorter(Cursor cursor, int bufferSize) {
+            this.cursor = cursor;
+            this.bufferSize = bufferSize;
+            buffer = new ArrayList<>(Math.min(bufferSize, 1024));
+        }
+
+        @Override
+        void call() {
+            RowFactory rowFactory = index.getRowFactory();
+            int count = 0;
+            while (!stop && cursor.next()) {
+                Row row = cursor.get();
+                SearchRow key = rowFactory.createRow();
+                key.copyFrom(row);
+                buffer.add(new AbstractMap.SimpleImmutableEntry<>(key, index.getIncludeValue(row)));
+                if (buffer.size() >= bufferSize) {
+                    writeRun();
+                }
+                if (++count == 1024) {
+                    rowsRead.addAndGet(count);
+                    count = 0;
+                }
+            }
+            rowsRead.addAndGet(count);
+            if (!stop && !buffer.isEmpty()) {
+                writeRun();
+            }
+        }
+
+        private void writeRun() {
+            buffer.sort((a, b) -> keyType.compare(a.getKey(), b.getKey()));
+            SearchRow previous = null;
+            for (Entry<SearchRow,Value> e : buffer) {
+                SearchRow key = e.getKey();
+                if (previous != null) {
+                    checkDuplicate(previous, key);
+                }
+                previous = key;
+            }
+            MVMap<SearchRow,Value> run = index.openMap(database.getStore().nextTemporaryMapName());
+            synchronized (runs) {
+                runs.add(run);
+            }
+            for (Entry<SearchRow,Value> e : buffer) {
+                run.append(e.getKey(), e.getValue());
+            }
+            buffer.clear();
+        }
+
+    }
+
+    /**
+     * A leaf page of the index.
+     */
+    private static final class Leaf {
+
+        /**
+         * Marks the end of the entries of a merge thread.
+         */
+        static final Leaf END = new Leaf(null, null);
+
+        final SearchRow[] keys;
+
+        final VersionedValue<Value>[] values;
+
+        Leaf(SearchRow[] keys, VersionedValue<Value>[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+    }
+
+    /**
+     * Merges a range of keys of all runs into leaf pages.
+     */
+    private final class Merger extends Worker {
+
+        private final SearchRow from;
+
+        private final SearchRow to;
+
+        private final ArrayBlockingQueue<Leaf> queue;
+
+        private final int keysPerPage;
+
+        private SearchRow[] keys;
+
+        private VersionedValue<Value>[] values;
+
+        private int count;
+
+        /**
+         * Create a new merge thread.
+         *
+         * @param from the lower bound (inclusive), or null
+         * @param to the upper bound (exclusive), or null
+         * @param queueSize the maximum number of merged leaf pages that are
+         *            not appended yet
+         */
+        Merger(SearchRow from, SearchRow to, int queueSize) {
+            this.from = from;
+            this.to = to;
+            queue = new ArrayBlockingQueue<>(queueSize);
+            keysPerPage = database.getStore().getMvStore().getKeysPerPage();
+        }
+
+        @Override
+        void call() {
+            PriorityQueue<org.h2.mvstore.Cursor<SearchRow,Value>> cursors = new PriorityQueue<>(runs.size(),
+                    (a, b) -> keyType.compare(a.getKey(), b.getKey()));
+            for (MVMap<SearchRow,Value> run : runs) {
+                org.h2.mvstore.Cursor<SearchRow,Value> cursor = run.cursor(from);
+                if (advance(cursor)) {
+                    cursors.offer(cursor);
+                }
+            }
+            SearchRow previous = null;
+            while (!cursors.isEmpty()) {
+                org.h2.mvstore.Cursor<SearchRow,Value> cursor = cursors.poll();
+                SearchRow key = cursor.getKey();
+                if (previous != null) {
+                    checkDuplicate(previous, key);
+                }
+                previous = key;
+                add(key, cursor.getValue());
+                if (advance(cursor)) {
+                    cursors.offer(cursor);
+                }
+            }
+            if (count > 0) {
+                put(new Leaf(Arrays.copyOf(keys, count), Arrays.copyOf(values, count)));
+            }
+            put(Leaf.END);
+        }
+
+        private boolean advance(org.h2.mvstore.Cursor<SearchRow,Value> cursor) {
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            SearchRow key = cursor.next();
+            return to == null || keyType.compare(key, to) < 0;
+        }
+
+        private void add(SearchRow key, Value value) {
+            if (keys == null) {
+                keys = keyType.createStorage(keysPerPage);
+                values = map.getValueType().createStorage(keysPerPage);
+            }
+            keys[count] = key;
+            values[count] = value;
+            if (++count == keysPerPage) {
+                put(new Leaf(keys, values));
+                keys = null;
+                values = null;
+                count = 0;
+            }
+        }
+
+        private void put(Leaf leaf) {
+            try {
+                while (!queue.offer(leaf, 100, TimeUnit.MILLISECONDS)) {
+                    if (stop) {
+                        throw DbException.get(ErrorCode.STATEMENT_WAS_CANCELED);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw DbException.convert(e);
+            }
+        }
+
+        /**
+         * Get the next leaf page.
+         *
+         * @return the leaf page, or null if all entries of the range were
+         *         returned
+         */
+        Leaf take() {
+            while (true) {
+                Leaf leaf;
+                try {
+                    leaf = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw DbException.convert(e);
+                }
+                if (leaf != null) {
+                    return leaf == Leaf.END ? null : leaf;
+                }
+                checkFailure();
+                if (join(1)) {
+                    checkFailure();
+                    leaf = queue.poll();
+                    if (leaf == null) {
+                        throw DbException.throwInternalError("merge stopped");
+                    }
+                    return leaf == Leaf.END ? null : leaf;
+                }
+                session.checkCanceled();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import org.h2.engine.Database;
+import org.h2.expression.Expression;
+import org.h2.message.DbException;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVMap.Builder;
+import org.h2.result.ResultExternal;
+import org.h2.result.SortOrder;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueRow;
+
+/**
+ * Keyed temporary result.
+ *
+ * <p>
+ * This result keeps its rows ordered by the values of the specified key
+ * columns and allows to read only the rows with the specified key. It is used
+ * when the rows of a lookup structure, such as the build side of a hash join,
+ * do not fit into memory.
+ * </p>
+ */
+public class MVKeyedTempResult extends MVTempResult {
+
+    /**
+     * Indexes of key columns.
+     */
+    private final int[] keyIndexes;
+
+    /**
+     * Key data type, used to compare keys during lookups.
+     */
+    private final ValueDataType keyType;
+
+    /**
+     * Map with key values and identities of rows as keys and rows as values.
+     */
+    private final MVMap<ValueRow, ValueRow> map;
+
+    /**
+     * Counter for the identities of rows. It is needed to store different rows
+     * with the same key.
+     */
+    private long counter;
+
+    /**
+     * Cursor for the {@link #next()} method.
+     */
+    private Cursor<ValueRow, ValueRow> cursor;
+
+    /**
+     * The key to look up, or {@code null} if all rows should be returned by
+     * the {@link #next()} method.
+     */
+    private Value[] searchKey;
+
+    /**
+     * Creates a new keyed temporary result.
+     *
+     * @param database
+     *            database
+     * @param expressions
+     *            column expressions
+     * @param columnCount
+     *            the number of columns
+     * @param keyIndexes
+     *            indexes of key columns
+     */
+    public MVKeyedTempResult(Database database, Expression[] expressions, int columnCount, int[] keyIndexes) {
+        super(database, expressions, columnCount, columnCount);
+        this.keyIndexes = keyIndexes;
+        keyType = new ValueDataType(database, new int[keyIndexes.length + 1]);
+        ValueDataType valueType = new ValueDataType(database, new int[columnCount]);
+        Builder<ValueRow, ValueRow> builder = new MVMap.Builder<ValueRow, ValueRow>().keyType(keyType)
+                .valueType(valueType).singleWriter();
+        map = store.openMap("tmp", builder);
+    }
+
+    @Override
+    public int addRow(Value[] values) {
+        int keyLength = keyIndexes.length;
+        Value[] key = new Value[keyLength + 1];
+        for (int i = 0; i < keyLength; i++) {
+            key[i] = values[keyIndexes[i]];
+        }
+        key[keyLength] = ValueBigint.get(counter++);
+        map.put(ValueRow.get(key), ValueRow.get(values));
+        return ++rowCount;
+    }
+
+    /**
+     * Restricts the rows returned by the {@link #next()} method to the rows
+     * with the specified key and moves the position before the first of them.
+     *
+     * @param key
+     *            values of key columns, or {@code null} to return all rows
+     */
+    public void find(Value[] key) {
+        searchKey = key;
+        cursor = null;
+    }
+
+    @Override
+    public boolean contains(Value[] values) {
+        int keyLength = keyIndexes.length;
+        Value[] key = new Value[keyLength];
+        for (int i = 0; i < keyLength; i++) {
+            key[i] = values[keyIndexes[i]];
+        }
+        find(key);
+        boolean result = next() != null;
+        reset();
+        return result;
+    }
+
+    @Override
+    public ResultExternal createShallowCopy() {
+        return null;
+    }
+
+    @Override
+    public Value[] next() {
+        Value[] key = searchKey;
+        if (cursor == null) {
+            ValueRow from = null;
+            if (key != null) {
+                int keyLength = key.length;
+                Value[] start = new Value[keyLength + 1];
+                System.arraycopy(key, 0, start, 0, keyLength);
+                start[keyLength] = ValueBigint.get(Long.MIN_VALUE);
+                from = ValueRow.get(start);
+            }
+            cursor = map.cursor(from);
+        }
+        if (!cursor.hasNext()) {
+            return null;
+        }
+        Value[] k = cursor.next().getList();
+        if (key != null) {
+            for (int i = 0, l = key.length; i < l; i++) {
+                if (keyType.compareValues(k[i], key[i], SortOrder.ASCENDING) != 0) {
+                    return null;
+                }
+            }
+        }
+        Value[] currentRow = cursor.getValue().getList();
+        if (hasEnum) {
+            fixEnum(currentRow);
+        }
+        return currentRow;
+    }
+
+    @Override
+    public int removeRow(Value[] values) {
+        throw DbException.getUnsupportedException("removeRow()");
+    }
+
+    @Override
+    public void reset() {
+        searchKey = null;
+        cursor = null;
+    }
+
+}
@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
@@ -86,14 +87,7 @@ public void close(Session session) {
 
     @Override
     public void add(Session session, Row row) {
-        if (mainIndexColumn == SearchRow.ROWID_INDEX) {
-            if (row.getKey() == 0) {
-                row.setKey(lastKey.incrementAndGet());
-            }
-        } else {
-            long c = row.getValue(mainIndexColumn).getLong();
-            row.setKey(c);
-        }
+        setRowKey(row);
 
         if (mvTable.getContainsLargeObject()) {
             for (int i = 0, len = row.getColumnCount(); i < len; i++) {
@@ -118,16 +112,53 @@ public void add(Session session, Row row) {
                     // committed
                     errorCode = ErrorCode.DUPLICATE_KEY_1;
                 }
-                DbException e = DbException.get(errorCode,
-                        getDuplicatePrimaryKeyMessage(mainIndexColumn).append(' ').append(old).toString());
-                e.setSource(this);
-                throw e;
+                throw getDuplicateKeyException(errorCode, old);
             }
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
         // because it's possible to directly update the key using the _rowid_
         // syntax
+        updateLastKey(rowKey);
+    }
+
+    /**
+     * Set the key of a new row: the next generated key, or the value of the
+     * main index column.
+     *
+     * @param row the new row
+     */
+    void setRowKey(Row row) {
+        if (mainIndexColumn == SearchRow.ROWID_INDEX) {
+            if (row.getKey() == 0) {
+                row.setKey(lastKey.incrementAndGet());
+            }
+        } else {
+            long c = row.getValue(mainIndexColumn).getLong();
+            row.setKey(c);
+        }
+    }
+
+    /**
+     * Create the exception for a row with a key that already exists.
+     *
+     * @param errorCode the error code
+     * @param old the existing row
+     * @return the exception
+     */
+    DbException getDuplicateKeyException(int errorCode, SearchRow old) {
+        DbException e = DbException.get(errorCode,
+                getDuplicatePrimaryKeyMessage(mainIndexColumn).append(' ').append(old).toString());
+        e.setSource(this);
+        return e;
+    }
+
+    /**
+     * Ensure that generated row keys are larger than the specified key.
+     *
+     * @param rowKey the key of an existing row
+     */
+    void updateLastKey(long rowKey) {
         long last;
         while (rowKey > (last = lastKey.get())) {
             if(lastKey.compareAndSet(last, rowKey)) break;
@@ -274,7 +305,7 @@ public double getCost(Session session, int[] masks,
             TableFilter[] filters, int filter, SortOrder sortOrder,
             AllColumnsForPlan allColumnsSet) {
         try {
-            return 10 * getCostRangeIndex(masks, dataMap.sizeAsLongMax(),
+            return 10 * getCostRangeIndex(masks, getRowCountMax(),
                     filters, filter, sortOrder, true, allColumnsSet);
         } catch (MVStoreException e) {
             throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
@@ -326,6 +357,40 @@ public Cursor findFirstOrLast(Session session, boolean first) {
         return new SingleRowCursor(row);
     }
 
+    /**
+     * Split the rows into the specified number of ranges of keys with
+     * approximately the same size and get the cursors over them. The cursors
+     * may be used in different threads.
+     *
+     * @param session the session
+     * @param count the number of ranges
+     * @return the cursors, there may be less cursors than requested
+     */
+    public Cursor[] findRanges(Session session, int count) {
+        TransactionMap<Long,SearchRow> map = getMap(session);
+        Long firstKey = map.firstKey(), lastKey = map.lastKey();
+        if (firstKey == null || lastKey == null) {
+            return new Cursor[0];
+        }
+        long first = firstKey, last = lastKey;
+        long step = (last - first) / count + 1;
+        if (step <= 0) {
+            // the range of keys is too wide
+            return new Cursor[] { new MVStoreCursor(map.entryIterator(first, last)) };
+        }
+        Cursor[] cursors = new Cursor[count];
+        int i = 0;
+        for (long from = first;;) {
+            long to = i == count - 1 || last - from < step ? last : from + step - 1;
+            cursors[i++] = new MVStoreCursor(map.entryIterator(from, to));
+            if (to == last) {
+                break;
+            }
+            from = to + 1;
+        }
+        return i == count ? cursors : Arrays.copyOf(cursors, i);
+    }
+
     @Override
     public boolean needRebuild() {
         return false;
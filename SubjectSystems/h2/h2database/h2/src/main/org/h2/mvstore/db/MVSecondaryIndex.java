@@ -7,6 +7,7 @@
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -27,16 +28,24 @@
 import org.h2.mvstore.tx.TransactionMap;
 import org.h2.mvstore.type.DataType;
 import org.h2.result.Row;
+import org.h2.result.RowFactory;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.table.IndexColumn;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
 import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
 import org.h2.value.VersionedValue;
 
 /**
  * An index stored in a MVStore.
+ * <p>
+ * The keys of the map are the index columns and the row key. The values are
+ * NULL, or, if the index has included (non-key) columns, a row value with
+ * the values of these columns, so that queries that only need the index and
+ * included columns don't need to read the rows from the primary index.
+ * </p>
  */
 public final class MVSecondaryIndex extends BaseIndex implements MVIndex<SearchRow,Value> {
 
@@ -46,13 +55,50 @@ public final class MVSecondaryIndex extends BaseIndex implements MVIndex<SearchR
     private final MVTable                         mvTable;
     private final TransactionMap<SearchRow,Value> dataMap;
 
+    /**
+     * The included columns, or null.
+     */
+    private final IndexColumn[]                   includeColumns;
+    private final int[]                           includeColumnIds;
+
+    /**
+     * The factory of the rows returned by cursors if there are included
+     * columns: they contain the index columns and the included columns.
+     */
+    private final RowFactory                      coveringRowFactory;
+
     public MVSecondaryIndex(Database db, MVTable table, int id, String indexName,
                 IndexColumn[] columns, IndexType indexType) {
+        this(db, table, id, indexName, columns, null, indexType);
+    }
+
+    public MVSecondaryIndex(Database db, MVTable table, int id, String indexName,
+                IndexColumn[] columns, IndexColumn[] includeColumns, IndexType indexType) {
         super(table, id, indexName, columns, indexType);
         this.mvTable = table;
         if (!database.isStarting()) {
             checkIndexColumnTypes(columns);
         }
+        if (includeColumns != null && includeColumns.length > 0) {
+            if (!database.isStarting()) {
+                checkIndexColumnTypes(includeColumns);
+            }
+            this.includeColumns = includeColumns;
+            int len = includeColumns.length;
+            includeColumnIds = new int[len];
+            IndexColumn[] all = new IndexColumn[columns.length + len];
+            System.arraycopy(columns, 0, all, 0, columns.length);
+            for (int i = 0; i < len; i++) {
+                includeColumnIds[i] = includeColumns[i].column.getColumnId();
+                all[columns.length + i] = includeColumns[i];
+            }
+            coveringRowFactory = database.getRowFactory().createRowFactory(database, database.getCompareMode(),
+                    database.getMode(), database, table.getColumns(), all);
+        } else {
+            this.includeColumns = null;
+            includeColumnIds = null;
+            coveringRowFactory = null;
+        }
         String mapName = "index." + getId();
         assert db.isStarting() || !db.getStore().getMvStore().getMetaMap().containsKey(DataUtils.META_NAME + mapName);
         RowDataType keyType = getRowFactory().getRowDataType();
@@ -74,26 +120,58 @@ public void addRowsToBuffer(List<Row> rows, String bufferName) {
         for (Row row : rows) {
             SearchRow r = getRowFactory().createRow();
             r.copyFrom(row);
-            map.append(r, ValueNull.INSTANCE);
+            map.append(r, getIncludeValue(row));
         }
     }
 
+    /**
+     * Get the value of the index entry of a row.
+     *
+     * @param row the row
+     * @return the values of the included columns, or NULL if there are none
+     */
+    Value getIncludeValue(SearchRow row) {
+        if (includeColumnIds == null) {
+            return ValueNull.INSTANCE;
+        }
+        int len = includeColumnIds.length;
+        Value[] values = new Value[len];
+        for (int i = 0; i < len; i++) {
+            values[i] = row.getValue(includeColumnIds[i]);
+        }
+        return ValueRow.get(values);
+    }
+
+    /**
+     * Get the included (non-key) columns.
+     *
+     * @return the included columns, or null if there are none
+     */
+    @Override
+    public IndexColumn[] getIncludeColumns() {
+        return includeColumns;
+    }
+
     private static final class Source {
 
-        private final Iterator<SearchRow> iterator;
+        private final org.h2.mvstore.Cursor<SearchRow,Value> cursor;
 
         SearchRow currentRowData;
 
-        public Source(Iterator<SearchRow> iterator) {
-            assert iterator.hasNext();
-            this.iterator = iterator;
-            this.currentRowData = iterator.next();
+        Value currentValue;
+
+        public Source(org.h2.mvstore.Cursor<SearchRow,Value> cursor) {
+            assert cursor.hasNext();
+            this.cursor = cursor;
+            this.currentRowData = cursor.next();
+            this.currentValue = cursor.getValue();
         }
 
         public boolean hasNext() {
-            boolean result = iterator.hasNext();
+            boolean result = cursor.hasNext();
             if(result) {
-                currentRowData = iterator.next();
+                currentRowData = cursor.next();
+                currentValue = cursor.getValue();
             }
             return result;
         }
@@ -123,9 +201,9 @@ public void addBufferedRows(List<String> bufferNames) {
         Queue<Source> queue = new PriorityQueue<>(buffersCount,
                                 new Source.Comparator(getRowFactory().getRowDataType()));
         for (String bufferName : bufferNames) {
-            Iterator<SearchRow> iter = openMap(bufferName).keyIterator(null);
-            if (iter.hasNext()) {
-                queue.offer(new Source(iter));
+            org.h2.mvstore.Cursor<SearchRow,Value> cursor = openMap(bufferName).cursor(null);
+            if (cursor.hasNext()) {
+                queue.offer(new Source(cursor));
             }
         }
 
@@ -138,7 +216,7 @@ public void addBufferedRows(List<String> bufferNames) {
                     checkUnique(true, dataMap, row, Long.MIN_VALUE);
                 }
 
-                dataMap.putCommitted(row, ValueNull.INSTANCE);
+                dataMap.putCommitted(row, s.currentValue);
 
                 if (s.hasNext()) {
                     queue.offer(s);
@@ -152,7 +230,13 @@ public void addBufferedRows(List<String> bufferNames) {
         }
     }
 
-    private MVMap<SearchRow,Value> openMap(String mapName) {
+    /**
+     * Open a temporary map with the key type of this index.
+     *
+     * @param mapName the name of the map
+     * @return the map
+     */
+    MVMap<SearchRow,Value> openMap(String mapName) {
         RowDataType keyType = getRowFactory().getRowDataType();
         ValueDataType valueType = new ValueDataType();
         MVMap.Builder<SearchRow,Value> builder = new MVMap.Builder<SearchRow,Value>()
@@ -191,7 +275,7 @@ public void add(Session session, Row row) {
         }
 
         try {
-            map.put(key, ValueNull.INSTANCE);
+            map.put(key, getIncludeValue(row));
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
@@ -248,6 +332,15 @@ public void update(Session session, Row oldRow, Row newRow) {
         SearchRow searchRowNew = convertToKey(newRow, null);
         if (!rowsAreEqual(searchRowOld, searchRowNew)) {
             super.update(session, oldRow, newRow);
+        } else if (includeColumnIds != null) {
+            Value value = getIncludeValue(newRow);
+            if (!value.equals(getIncludeValue(oldRow))) {
+                try {
+                    getMap(session).put(searchRowNew, value);
+                } catch (MVStoreException e) {
+                    throw mvTable.convertException(e);
+                }
+            }
         }
     }
 
@@ -274,6 +367,9 @@ private Cursor find(Session session, SearchRow first, boolean bigger, SearchRow
         SearchRow min = convertToKey(first, bigger);
         TransactionMap<SearchRow,Value> map = getMap(session);
         SearchRow max = convertToKey(last, Boolean.TRUE);
+        if (coveringRowFactory != null) {
+            return new MVStoreCoveringCursor(session, map.entryIterator(min, max), this);
+        }
         return new MVStoreCursor(session, map.keyIterator(min, max), mvTable);
     }
 
@@ -336,7 +432,8 @@ public Cursor findFirstOrLast(Session session, boolean first) {
                 return new SingleRowCursor(null);
             }
             if (key.getValue(columnIds[0]) != ValueNull.INSTANCE) {
-                return new SingleRowCursor(mvTable.getRow(session, key.getKey()));
+                // the row is only read if needed
+                return new FirstOrLastCursor(session, key, mvTable);
             }
             key = first ? map.higherKey(key) : map.lowerKey(key);
         }
@@ -447,4 +544,108 @@ public boolean previous() {
         }
     }
 
+    /**
+     * A cursor with the first or last entry of the index. The row is only read
+     * from the primary index if needed.
+     */
+    private static final class FirstOrLastCursor implements Cursor {
+
+        private final Session   session;
+        private final MVTable   mvTable;
+        private       SearchRow current;
+        private       Row       row;
+        private       boolean   end;
+
+        FirstOrLastCursor(Session session, SearchRow current, MVTable mvTable) {
+            this.session = session;
+            this.current = current;
+            this.mvTable = mvTable;
+        }
+
+        @Override
+        public Row get() {
+            if (row == null && current != null) {
+                row = mvTable.getRow(session, current.getKey());
+            }
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return current;
+        }
+
+        @Override
+        public boolean next() {
+            if (current == null || end) {
+                current = null;
+                row = null;
+                return false;
+            }
+            end = true;
+            return true;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+    }
+
+    /**
+     * A cursor over an index with included columns. The search rows contain
+     * the values of the index columns and of the included columns.
+     */
+    static final class MVStoreCoveringCursor implements Cursor {
+
+        private final Session                           session;
+        private final Iterator<Map.Entry<SearchRow,Value>> it;
+        private final MVSecondaryIndex                  index;
+        private       SearchRow                         current;
+        private       Row                               row;
+
+        MVStoreCoveringCursor(Session session, Iterator<Map.Entry<SearchRow,Value>> it, MVSecondaryIndex index) {
+            this.session = session;
+            this.it = it;
+            this.index = index;
+        }
+
+        @Override
+        public Row get() {
+            if (row == null && current != null) {
+                row = index.mvTable.getRow(session, current.getKey());
+            }
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return current;
+        }
+
+        @Override
+        public boolean next() {
+            row = null;
+            if (!it.hasNext()) {
+                current = null;
+                return false;
+            }
+            Map.Entry<SearchRow,Value> e = it.next();
+            SearchRow r = index.coveringRowFactory.createRow();
+            r.copyFrom(e.getKey());
+            Value[] list = ((ValueRow) e.getValue()).getList();
+            int[] ids = index.includeColumnIds;
+            for (int i = 0; i < ids.length; i++) {
+                r.setValue(ids[i], list[i]);
+            }
+            current = r;
+            return true;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+    }
+
 }
@@ -9,8 +9,13 @@
 import static org.h2.util.geometry.GeometryUtils.MAX_Y;
 import static org.h2.util.geometry.GeometryUtils.MIN_X;
 import static org.h2.util.geometry.GeometryUtils.MIN_Y;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import org.h2.api.ErrorCode;
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.engine.Database;
@@ -22,14 +27,17 @@
 import org.h2.index.SpatialIndex;
 import org.h2.message.DbException;
 import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
 import org.h2.mvstore.Page;
 import org.h2.mvstore.rtree.MVRTreeMap;
 import org.h2.mvstore.rtree.MVRTreeMap.RTreeCursor;
+import org.h2.mvstore.rtree.SpatialDataType;
 import org.h2.mvstore.rtree.SpatialKey;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionMap;
 import org.h2.mvstore.tx.VersionedValueType;
+import org.h2.mvstore.type.LongDataType;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
@@ -112,14 +120,174 @@ public MVSpatialIndex(
         t.commit();
     }
 
+    /**
+     * Sort the keys of the rows along the Hilbert curve and write them to a
+     * temporary map, see {@link #addBufferedRows(List)}.
+     */
     @Override
     public void addRowsToBuffer(List<Row> rows, String bufferName) {
-        throw DbException.throwInternalError();
+        ArrayList<BufferedKey> keys = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            SpatialKey key = getKey(row);
+            if (!key.isNull()) {
+                keys.add(new BufferedKey(key));
+            }
+        }
+        Collections.sort(keys);
+        MVMap<Long, SpatialKey> map = openMap(bufferName);
+        long i = 0;
+        for (BufferedKey k : keys) {
+            map.append(i++, k.key);
+        }
     }
 
+    /**
+     * Add the keys of the temporary maps to the empty index, as committed
+     * entries. The sorted maps are merged, and the r-tree is built bottom-up
+     * from the merged keys, one leaf page at a time, see
+     * {@link MVRTreeMap#appendLeaf(SpatialKey[], Object[])}.
+     */
     @Override
     public void addBufferedRows(List<String> bufferNames) {
-        throw DbException.throwInternalError();
+        Queue<Source> queue = new PriorityQueue<>(Math.max(bufferNames.size(), 1));
+        for (String bufferName : bufferNames) {
+            org.h2.mvstore.Cursor<Long, SpatialKey> cursor = openMap(bufferName).cursor(null);
+            if (cursor.hasNext()) {
+                queue.offer(new Source(cursor));
+            }
+        }
+        try {
+            int pageSize = Math.max(spatialMap.getStore().getKeysPerPage(), 2);
+            SpatialKey[] keys = new SpatialKey[pageSize];
+            VersionedValue<Value>[] values = spatialMap.getValueType().createStorage(pageSize);
+            Arrays.fill(values, ValueBigint.get(0));
+            int count = 0;
+            SpatialKey last = null;
+            while (!queue.isEmpty()) {
+                Source s = queue.poll();
+                SpatialKey key = s.current.key;
+                // equal keys are next to each other
+                if (indexType.isUnique() && last != null && key.equalsIgnoringId(last)) {
+                    throw getDuplicateKeyException(key.toString());
+                }
+                last = key;
+                keys[count++] = key;
+                if (count == pageSize) {
+                    spatialMap.appendLeaf(keys, values);
+                    count = 0;
+                }
+                if (s.next()) {
+                    queue.offer(s);
+                }
+            }
+            spatialMap.appendLeaf(Arrays.copyOf(keys, count), Arrays.copyOf(values, count));
+        } finally {
+            MVStore mvStore = database.getStore().getMvStore();
+            for (String tempMapName : bufferNames) {
+                mvStore.removeMap(tempMapName);
+            }
+        }
+    }
+
+    private MVMap<Long, SpatialKey> openMap(String mapName) {
+        MVMap.Builder<Long, SpatialKey> builder = new MVMap.Builder<Long, SpatialKey>()
+                .singleWriter()
+                .keyType(LongDataType.INSTANCE)
+                .valueType(new SpatialDataType(2));
+        return database.getStore().getMvStore().openMap(mapName, builder);
+    }
+
+    /**
+     * A key with its position on the Hilbert curve. Equal keys are ordered
+     * next to each other.
+     */
+    private static final class BufferedKey implements Comparable<BufferedKey> {
+
+        final SpatialKey key;
+
+        private final long hilbert;
+
+        BufferedKey(SpatialKey key) {
+            this.key = key;
+            hilbert = getHilbertValue(getCenter(key, 0), getCenter(key, 1));
+        }
+
+        @Override
+        public int compareTo(BufferedKey o) {
+            int comp = Long.compare(hilbert, o.hilbert);
+            for (int i = 0; comp == 0 && i < 2; i++) {
+                comp = Float.compare(key.min(i), o.key.min(i));
+                if (comp == 0) {
+                    comp = Float.compare(key.max(i), o.key.max(i));
+                }
+            }
+            return comp != 0 ? comp : Long.compare(key.getId(), o.key.getId());
+        }
+
+        /**
+         * Map the center of the key in the given dimension to a non-negative
+         * int with the same order.
+         */
+        private static int getCenter(SpatialKey key, int dimension) {
+            // the sum of min and max has the same order as the center
+            int bits = Float.floatToIntBits(key.min(dimension) + key.max(dimension));
+            bits ^= (bits >> 31) & 0x7fffffff;
+            return (bits ^ Integer.MIN_VALUE) >>> 1;
+        }
+
+        /**
+         * Get the position of a point on the Hilbert curve that fills the
+         * square of 2^31 by 2^31 points.
+         */
+        private static long getHilbertValue(int x, int y) {
+            long d = 0;
+            for (int s = 1 << 30; s > 0; s >>>= 1) {
+                int rx = (x & s) != 0 ? 1 : 0;
+                int ry = (y & s) != 0 ? 1 : 0;
+                d += (long) s * s * ((3 * rx) ^ ry);
+                if (ry == 0) {
+                    if (rx == 1) {
+                        x = Integer.MAX_VALUE - x;
+                        y = Integer.MAX_VALUE - y;
+                    }
+                    int t = x;
+                    x = y;
+                    y = t;
+                }
+            }
+            return d;
+        }
+
+    }
+
+    /**
+     * The sorted keys of a temporary map.
+     */
+    private static final class Source implements Comparable<Source> {
+
+        private final org.h2.mvstore.Cursor<Long, SpatialKey> cursor;
+
+        BufferedKey current;
+
+        Source(org.h2.mvstore.Cursor<Long, SpatialKey> cursor) {
+            this.cursor = cursor;
+            next();
+        }
+
+        boolean next() {
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            cursor.next();
+            current = new BufferedKey(cursor.getValue());
+            return true;
+        }
+
+        @Override
+        public int compareTo(Source o) {
+            return current.compareTo(o.current);
+        }
+
     }
 
     @Override
@@ -264,7 +432,13 @@ public Value getEstimatedBounds(Session session) {
         return ValueNull.INSTANCE;
     }
 
-    private SpatialKey getKey(SearchRow row) {
+    /**
+     * Get the key of the index entry of a row.
+     *
+     * @param row the row
+     * @return the key, an empty key if the value is NULL or empty
+     */
+    SpatialKey getKey(SearchRow row) {
         Value v = row.getValue(columnIds[0]);
         double[] env;
         if (v == ValueNull.INSTANCE || (env = v.convertToGeometry(null).getEnvelopeNoCopy()) == null) {
@@ -30,9 +30,11 @@
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.schema.SchemaObject;
+import org.h2.table.BulkLoader;
 import org.h2.table.Column;
 import org.h2.table.IndexColumn;
 import org.h2.table.RegularTable;
+import org.h2.table.TableStatistics;
 import org.h2.util.DebuggingThreadLocal;
 import org.h2.util.MathUtils;
 import org.h2.util.Utils;
@@ -110,6 +112,10 @@ public String getEventText() {
     private final TransactionStore transactionStore;
 
     public MVTable(CreateTableData data, MVTableEngine.Store store) {
+        this(data, store, false);
+    }
+
+    MVTable(CreateTableData data, MVTableEngine.Store store, boolean columnar) {
         super(data);
         nextAnalyze = database.getSettings().analyzeAuto;
         changesUntilAnalyze = nextAnalyze <= 0 ? null : new AtomicInteger(nextAnalyze);
@@ -117,9 +123,14 @@ public MVTable(CreateTableData data, MVTableEngine.Store store) {
         this.transactionStore = store.getTransactionStore();
         traceLock = database.getTrace(Trace.LOCK);
 
-        primaryIndex = new MVPrimaryIndex(database, this, getId(),
-                IndexColumn.wrap(getColumns()), IndexType.createScan(true));
+        IndexColumn[] columns = IndexColumn.wrap(getColumns());
+        IndexType indexType = IndexType.createScan(true);
+        primaryIndex = columnar ? new MVColumnarIndex(database, this, getId(), columns, indexType)
+                : new MVPrimaryIndex(database, this, getId(), columns, indexType);
         indexes.add(primaryIndex);
+        if (isPersistData()) {
+            super.setStatistics(store.getTableStatistics(getId()));
+        }
     }
 
     public String getMapName() {
@@ -305,7 +316,9 @@ public void unlock(Session s) {
 
     @Override
     public void close(Session session) {
-        // ignore
+        if (primaryIndex instanceof MVColumnarIndex) {
+            primaryIndex.close(session);
+        }
     }
 
     @Override
@@ -317,6 +330,16 @@ public Row getRow(Session session, long key) {
     public Index addIndex(Session session, String indexName, int indexId,
             IndexColumn[] cols, IndexType indexType, boolean create,
             String indexComment) {
+        return addIndex(session, indexName, indexId, cols, null, indexType, create, indexComment);
+    }
+
+    @Override
+    public Index addIndex(Session session, String indexName, int indexId, IndexColumn[] cols,
+            IndexColumn[] includeColumns, IndexType indexType, boolean create, String indexComment) {
+        if (includeColumns != null && (indexType.isPrimaryKey() || indexType.isSpatial()
+                || primaryIndex instanceof MVColumnarIndex)) {
+            throw DbException.getUnsupportedException("INCLUDE");
+        }
         if (indexType.isPrimaryKey()) {
             for (IndexColumn c : cols) {
                 Column column = c.column;
@@ -335,7 +358,10 @@ public Index addIndex(Session session, String indexName, int indexId,
         MVIndex<?,?> index;
         int mainIndexColumn = primaryIndex.getMainIndexColumn() != SearchRow.ROWID_INDEX
                 ? SearchRow.ROWID_INDEX : getMainIndexColumn(indexType, cols);
-        if (database.isStarting()) {
+        if (primaryIndex instanceof MVColumnarIndex) {
+            // rows of columnar tables are always identified by the row key
+            mainIndexColumn = SearchRow.ROWID_INDEX;
+        } else if (database.isStarting()) {
             // if index does exists as a separate map it can't be a delegate
             if (transactionStore.hasMap("index." + indexId)) {
                 // we can not reuse primary index
@@ -345,6 +371,10 @@ public Index addIndex(Session session, String indexName, int indexId,
             mainIndexColumn = SearchRow.ROWID_INDEX;
         }
 
+        if (includeColumns != null) {
+            // the values of the included columns are stored in the index
+            mainIndexColumn = SearchRow.ROWID_INDEX;
+        }
         if (mainIndexColumn != SearchRow.ROWID_INDEX) {
             primaryIndex.setMainIndexColumn(mainIndexColumn);
             index = new MVDelegateIndex(this, indexId, indexName, primaryIndex,
@@ -354,7 +384,7 @@ public Index addIndex(Session session, String indexName, int indexId,
                     indexName, cols, indexType);
         } else {
             index = new MVSecondaryIndex(session.getDatabase(), this, indexId,
-                    indexName, cols, indexType);
+                    indexName, cols, includeColumns, indexType);
         }
         if (index.needRebuild()) {
             rebuildIndex(session, index, indexName);
@@ -375,7 +405,9 @@ public Index addIndex(Session session, String indexName, int indexId,
 
     private void rebuildIndex(Session session, MVIndex<?,?> index, String indexName) {
         try {
-            if (session.getDatabase().getStore() == null ||
+            if (index instanceof MVSpatialIndex && index.getMVMap().isEmpty()) {
+                rebuildSpatialIndex(session, (MVSpatialIndex) index);
+            } else if (session.getDatabase().getStore() == null ||
                     index instanceof MVSpatialIndex) {
                 // in-memory
                 rebuildIndexBuffered(session, index);
@@ -399,8 +431,18 @@ private void rebuildIndex(Session session, MVIndex<?,?> index, String indexName)
 
     private void rebuildIndexBlockMerge(Session session, MVIndex<?,?> index) {
         if (index instanceof MVSpatialIndex) {
-            // the spatial index doesn't support multi-way merge sort
+            // only an empty spatial index is built from sorted blocks
             rebuildIndexBuffered(session, index);
+            return;
+        }
+        if (index instanceof MVSecondaryIndex && index.getMVMap().isEmpty()) {
+            long threadCount = Math.min(session.getParallelism(),
+                    primaryIndex.getRowCountApproximation() / MVIndexBuilder.MIN_ROWS_PER_TASK);
+            if (threadCount > 1) {
+                new MVIndexBuilder(session, this, (MVSecondaryIndex) index, primaryIndex, (int) threadCount)
+                        .build();
+                return;
+            }
         }
         // Read entries in memory, sort them, write to a new map (in sorted
         // order); repeat (using a new map for every block of 1 MB) until all
@@ -451,6 +493,48 @@ private void rebuildIndexBlockMerge(Session session, MVIndex<?,?> index) {
         }
     }
 
+    private void rebuildSpatialIndex(Session session, MVSpatialIndex index) {
+        // The keys of blocks of rows are sorted along the Hilbert curve and
+        // written to temporary maps. The maps are then merged, and the r-tree
+        // is packed bottom-up from the merged keys, one leaf page at a time.
+        // This is much faster than adding the rows one by one, and the pages
+        // overlap less.
+        Index scan = getScanIndex(session);
+        long remaining = scan.getRowCount(session);
+        long total = remaining;
+        Cursor cursor = scan.find(session, null, null);
+        long i = 0;
+        Store store = session.getDatabase().getStore();
+        int bufferSize = Math.max(database.getMaxMemoryRows() / 2, 1);
+        ArrayList<Row> buffer = new ArrayList<>((int) Math.min(total, bufferSize));
+        String n = getName() + ":" + index.getName();
+        int t = MathUtils.convertLongToInt(total);
+        ArrayList<String> bufferNames = Utils.newSmallArrayList();
+        while (cursor.next()) {
+            buffer.add(cursor.get());
+            database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n,
+                    MathUtils.convertLongToInt(i++), t);
+            if (buffer.size() >= bufferSize) {
+                String mapName = store.nextTemporaryMapName();
+                index.addRowsToBuffer(buffer, mapName);
+                bufferNames.add(mapName);
+                buffer.clear();
+            }
+            remaining--;
+        }
+        if (!buffer.isEmpty()) {
+            String mapName = store.nextTemporaryMapName();
+            index.addRowsToBuffer(buffer, mapName);
+            bufferNames.add(mapName);
+            buffer.clear();
+        }
+        index.addBufferedRows(bufferNames);
+        if (remaining != 0) {
+            throw DbException.throwInternalError("rowcount remaining=" + remaining +
+                    " " + getName());
+        }
+    }
+
     private void rebuildIndexBuffered(Session session, Index index) {
         Index scan = getScanIndex(session);
         long remaining = scan.getRowCount(session);
@@ -531,6 +615,42 @@ public void addRow(Session session, Row row) {
         analyzeIfRequired(session);
     }
 
+    @Override
+    public BulkLoader beginBulkLoad(Session session) {
+        if (containsLargeObject || primaryIndex instanceof MVColumnarIndex) {
+            return null;
+        }
+        for (Index index : indexes) {
+            if (!(index instanceof MVPrimaryIndex || index instanceof MVSecondaryIndex
+                    || index instanceof MVDelegateIndex)) {
+                return null;
+            }
+        }
+        if (primaryIndex.getRowCountMax() != 0) {
+            return null;
+        }
+        // other sessions may only see the rows after the commit
+        lock(session, true, true);
+        if (primaryIndex.getRowCountMax() != 0) {
+            return null;
+        }
+        return new MVBulkLoader(session, this, primaryIndex);
+    }
+
+    /**
+     * Called after rows were loaded in bulk.
+     *
+     * @param session the session
+     * @param rowCount the number of rows
+     */
+    void afterBulkLoad(Session session, long rowCount) {
+        syncLastModificationIdWithDatabase();
+        if (changesUntilAnalyze != null && rowCount > 0) {
+            changesUntilAnalyze.set(nextAnalyze);
+            session.markTableForAnalyze(this);
+        }
+    }
+
     @Override
     public void updateRow(Session session, Row oldRow, Row newRow) {
         newRow.setKey(oldRow.getKey());
@@ -593,6 +713,14 @@ public long getMaxDataModificationId() {
         return lastModificationId.get();
     }
 
+    @Override
+    public void setStatistics(TableStatistics statistics) {
+        super.setStatistics(statistics);
+        if (isPersistData()) {
+            store.setTableStatistics(getId(), statistics);
+        }
+    }
+
     @Override
     public void removeChildrenAndResources(Session session) {
         if (containsLargeObject) {
@@ -669,6 +797,17 @@ public void commit() {
         }
     }
 
+    /**
+     * Called after the transaction that modified this table was committed.
+     * Columnar tables request the committed rows to be moved to the column
+     * storage in the background here.
+     */
+    public void afterCommit() {
+        if (primaryIndex instanceof MVColumnarIndex) {
+            ((MVColumnarIndex) primaryIndex).requestMoveRows();
+        }
+    }
+
     // Field lastModificationId can not be just a volatile, because window of opportunity
     // between reading database's modification id and storing this value in the field
     // could be exploited by another thread.
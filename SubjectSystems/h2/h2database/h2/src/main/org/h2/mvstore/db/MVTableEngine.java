@@ -6,6 +6,7 @@
 package org.h2.mvstore.db;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -22,9 +23,11 @@
 import org.h2.message.DbException;
 import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
 import org.h2.mvstore.MVStoreTool;
+import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionStore;
 import org.h2.mvstore.type.MetaType;
@@ -32,6 +35,7 @@
 import org.h2.store.fs.FileChannelInputStream;
 import org.h2.store.fs.FileUtils;
 import org.h2.table.TableBase;
+import org.h2.table.TableStatistics;
 import org.h2.util.StringUtils;
 import org.h2.util.Utils;
 
@@ -76,6 +80,10 @@ public static Store init(final Database db) {
                 if (autoCompactFillRate <= 100) {
                     builder.autoCompactFillRate(autoCompactFillRate);
                 }
+                int autoCompactRate = db.getSettings().autoCompactRate;
+                if (autoCompactRate > 0) {
+                    builder.autoCompactRate(autoCompactRate);
+                }
             }
             if (key != null) {
                 encrypted = true;
@@ -86,6 +94,13 @@ public static Store init(final Database db) {
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            int offHeapCacheSize = db.getSettings().offHeapCacheSize;
+            if (offHeapCacheSize > 0) {
+                builder.offHeapCacheSize(Math.max(1, offHeapCacheSize / 1024));
+                if (db.getSettings().offHeapCacheCompress) {
+                    builder.offHeapCacheCompress();
+                }
+            }
             builder.backgroundExceptionHandler((t, e) -> db.setBackgroundException(DbException.convert(e)));
             // always start without background thread first, and if necessary,
             // it will be set up later, after db has been fully started,
@@ -142,6 +157,16 @@ public static class Store {
          */
         private TransactionStore transactionStore;
 
+        /**
+         * The name of the map with the statistics of the tables.
+         */
+        private static final String TABLE_STATISTICS_MAP = "tableStatistics";
+
+        /**
+         * The data type used to serialize the values of the table statistics.
+         */
+        private ValueDataType statisticsValueType;
+
         private long statisticsStart;
 
         private int temporaryMapId;
@@ -172,6 +197,7 @@ void open(Database db, MVStore.Builder builder, boolean encrypted) {
                 this.transactionStore = new TransactionStore(mvStore,
                         new MetaType<>(db, mvStore.backgroundExceptionHandler),
                         new ValueDataType(db, null), db.getLockTimeout());
+                statisticsValueType = new ValueDataType(db, null);
             } catch (MVStoreException e) {
                 throw convertMVStoreException(e);
             }
@@ -240,8 +266,20 @@ public MVTable getTable(String tableName) {
          * @return table created
          */
         public MVTable createTable(CreateTableData data) {
+            return createTable(data, false);
+        }
+
+        /**
+         * Create a table.
+         *
+         * @param data CreateTableData
+         * @param columnar whether the values of each column should be stored
+         *            separately
+         * @return table created
+         */
+        public MVTable createTable(CreateTableData data, boolean columnar) {
             try {
-                MVTable table = new MVTable(data, this);
+                MVTable table = new MVTable(data, this, columnar);
                 tableMap.put(table.getMapName(), table);
                 return table;
             } catch (MVStoreException e) {
@@ -257,6 +295,56 @@ public MVTable createTable(CreateTableData data) {
         public void removeTable(MVTable table) {
             try {
                 tableMap.remove(table.getMapName());
+                if (mvStore.hasMap(TABLE_STATISTICS_MAP)) {
+                    mvStore.<Integer, byte[]>openMap(TABLE_STATISTICS_MAP).remove(table.getId());
+                }
+            } catch (MVStoreException e) {
+                throw convertMVStoreException(e);
+            }
+        }
+
+        /**
+         * Get the stored statistics of a table.
+         *
+         * @param tableId the table id
+         * @return the statistics, or null if there are none
+         */
+        public TableStatistics getTableStatistics(int tableId) {
+            try {
+                if (!mvStore.hasMap(TABLE_STATISTICS_MAP)) {
+                    return null;
+                }
+                byte[] data = mvStore.<Integer, byte[]>openMap(TABLE_STATISTICS_MAP).get(tableId);
+                return data == null ? null : TableStatistics.read(ByteBuffer.wrap(data), statisticsValueType);
+            } catch (MVStoreException e) {
+                throw convertMVStoreException(e);
+            } catch (RuntimeException e) {
+                // the statistics are not usable, they are collected again by
+                // the next ANALYZE
+                return null;
+            }
+        }
+
+        /**
+         * Store the statistics of a table.
+         *
+         * @param tableId the table id
+         * @param statistics the statistics, or null to remove them
+         */
+        public void setTableStatistics(int tableId, TableStatistics statistics) {
+            try {
+                MVMap<Integer, byte[]> map = mvStore.openMap(TABLE_STATISTICS_MAP);
+                if (statistics == null) {
+                    map.remove(tableId);
+                } else {
+                    WriteBuffer buff = new WriteBuffer();
+                    statistics.write(buff, statisticsValueType);
+                    ByteBuffer b = buff.getBuffer();
+                    b.flip();
+                    byte[] data = new byte[b.remaining()];
+                    b.get(data);
+                    map.put(tableId, data);
+                }
             } catch (MVStoreException e) {
                 throw convertMVStoreException(e);
             }
@@ -299,6 +387,12 @@ public void removeTemporaryMaps(BitSet objectIds) {
                     if (!objectIds.get(id)) {
                         mvStore.removeMap(mapName);
                     }
+                } else if (mapName.startsWith("column.")) {
+                    int start = mapName.indexOf('.') + 1;
+                    int id = StringUtils.parseUInt31(mapName, start, mapName.indexOf('.', start));
+                    if (!objectIds.get(id)) {
+                        mvStore.removeMap(mapName);
+                    }
                 }
             }
         }
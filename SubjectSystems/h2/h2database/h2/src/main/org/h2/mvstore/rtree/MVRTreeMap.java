@@ -6,11 +6,13 @@
 package org.h2.mvstore.rtree;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
 import org.h2.mvstore.CursorPos;
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.Page;
 import org.h2.mvstore.RootReference;
@@ -298,6 +300,268 @@ public void add(SpatialKey key, V value) {
         operate(key, value, DecisionMaker.PUT);
     }
 
+    /**
+     * Add the given key-value pairs to the empty map. Unlike adding the
+     * entries one at a time, the entries are packed into full leaf pages with
+     * the Sort-Tile-Recursive algorithm: the entries are sorted by the center
+     * of the first dimension and split into slabs, each slab is sorted by the
+     * next dimension and split again, and so on. The pages of the next level
+     * are built in the same way from the bounding boxes of the pages, until
+     * there is only one page left. This is much faster, and the pages overlap
+     * less, so that searching needs to read fewer pages.
+     *
+     * @param keys the keys (there may not be duplicate keys)
+     * @param values the values
+     * @throws IllegalArgumentException if the map is not empty
+     */
+    public void bulkLoad(SpatialKey[] keys, V[] values) {
+        int count = keys.length;
+        DataUtils.checkArgument(values.length == count,
+                "The number of values must be {0}, is {1}", count, values.length);
+        if (count == 0) {
+            return;
+        }
+        int pageSize = Math.max(store.getKeysPerPage(), 2);
+        int dimensions = keyType.getDimensions();
+        Object[] entries = new Object[count];
+        System.arraycopy(values, 0, entries, 0, count);
+        SpatialKey[] bounds = keys.clone();
+        boolean leaf = true;
+        int unsavedMemory = 0;
+        while (true) {
+            sortTileRecursive(bounds, entries, 0, count, 0, dimensions, pageSize);
+            int pageCount = (count + pageSize - 1) / pageSize;
+            SpatialKey[] pageBounds = new SpatialKey[pageCount];
+            Object[] pages = new Object[pageCount];
+            for (int i = 0, from = 0; i < pageCount; i++, from += pageSize) {
+                Page<SpatialKey,V> p = createPage(bounds, entries, from, Math.min(from + pageSize, count), leaf);
+                unsavedMemory += p.getMemory();
+                pageBounds[i] = getBounds(p);
+                pages[i] = p;
+            }
+            if (pageCount == 1) {
+                @SuppressWarnings("unchecked")
+                Page<SpatialKey,V> root = (Page<SpatialKey,V>) pages[0];
+                setRootAfterBulkLoad(root, unsavedMemory);
+                return;
+            }
+            bounds = pageBounds;
+            entries = pages;
+            count = pageCount;
+            leaf = false;
+        }
+    }
+
+    /**
+     * Sort the entries, so that each group of pageSize consecutive entries
+     * forms a page of the Sort-Tile-Recursive packing.
+     *
+     * @param keys the keys or bounding boxes
+     * @param entries the values or pages, in the same order as the keys
+     * @param from the index of the first entry
+     * @param to the index after the last entry
+     * @param dimension the dimension to sort by
+     * @param dimensions the number of dimensions
+     * @param pageSize the number of entries per page
+     */
+    private static void sortTileRecursive(SpatialKey[] keys, Object[] entries, int from, int to,
+            int dimension, int dimensions, int pageSize) {
+        sortByCenter(keys, entries, from, to, dimension);
+        if (dimension == dimensions - 1) {
+            return;
+        }
+        int count = to - from;
+        int pageCount = (count + pageSize - 1) / pageSize;
+        int slabCount = (int) Math.ceil(Math.pow(pageCount, 1d / (dimensions - dimension)));
+        int slabSize = pageSize * ((pageCount + slabCount - 1) / slabCount);
+        for (int i = from; i < to; i += slabSize) {
+            sortTileRecursive(keys, entries, i, Math.min(i + slabSize, to), dimension + 1, dimensions, pageSize);
+        }
+    }
+
+    private static void sortByCenter(SpatialKey[] keys, Object[] entries, int from, int to, int dimension) {
+        int count = to - from;
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            SpatialKey k = keys[from + i];
+            // the sum of min and max has the same order as the center;
+            // map the float bits to an int with the same order
+            float center = k.min(dimension) + k.max(dimension);
+            int bits = Float.floatToIntBits(center);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            order[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(order);
+        SpatialKey[] sortedKeys = new SpatialKey[count];
+        Object[] sortedEntries = new Object[count];
+        for (int i = 0; i < count; i++) {
+            int index = from + (int) order[i];
+            sortedKeys[i] = keys[index];
+            sortedEntries[i] = entries[index];
+        }
+        System.arraycopy(sortedKeys, 0, keys, from, count);
+        System.arraycopy(sortedEntries, 0, entries, from, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<SpatialKey,V> createPage(SpatialKey[] keys, Object[] entries, int from, int to, boolean leaf) {
+        int count = to - from;
+        SpatialKey[] pageKeys = keyType.createStorage(count);
+        System.arraycopy(keys, from, pageKeys, 0, count);
+        if (leaf) {
+            V[] values = getValueType().createStorage(count);
+            for (int i = 0; i < count; i++) {
+                values[i] = (V) entries[from + i];
+            }
+            return Page.createLeaf(this, pageKeys, values, 0);
+        }
+        Page.PageReference<SpatialKey,V>[] children = Page.createRefStorage(count + 1);
+        long totalCount = 0;
+        for (int i = 0; i < count; i++) {
+            Page<SpatialKey,V> child = (Page<SpatialKey,V>) entries[from + i];
+            children[i] = new Page.PageReference<>(child);
+            totalCount += child.getTotalCount();
+        }
+        children[count] = Page.PageReference.empty();
+        return Page.createNode(this, pageKeys, children, totalCount, 0);
+    }
+
+    private void setRootAfterBulkLoad(Page<SpatialKey,V> newRoot, int unsavedMemory) {
+        beforeWrite();
+        RootReference<SpatialKey,V> rootReference = flushAndGetRoot();
+        RootReference<SpatialKey,V> lockedRootReference;
+        for (int attempt = 1; (lockedRootReference = tryLock(rootReference, attempt)) == null; attempt++) {
+            rootReference = flushAndGetRoot();
+        }
+        Page<SpatialKey,V> rootPage = lockedRootReference.root;
+        try {
+            DataUtils.checkArgument(rootPage.getTotalCount() == 0, "The map is not empty");
+            if (isPersistent()) {
+                if (!rootPage.isRemoved()) {
+                    unsavedMemory += rootPage.removePage(lockedRootReference.version);
+                }
+                store.registerUnsavedMemory(unsavedMemory);
+            }
+            rootPage = newRoot;
+        } finally {
+            unlockRoot(rootPage);
+        }
+    }
+
+    /**
+     * Add a leaf page with the given entries after the last leaf page of the
+     * map. This is used to bulk load a map from entries that are sorted along
+     * a space-filling curve, such as the Hilbert curve, so that consecutive
+     * entries are close to each other. Each internal node is filled
+     * completely before the next one is started, so that the upper levels are
+     * built bottom-up. Unlike {@link #bulkLoad(SpatialKey[], Object[])}, the
+     * entries do not need to be in memory at the same time, and pages that
+     * were already saved can be evicted. The method is NOT thread safe and
+     * can not be used concurrently with any method that updates this map.
+     *
+     * @param keys the keys (there may not be duplicate keys)
+     * @param values the values
+     */
+    public void appendLeaf(SpatialKey[] keys, V[] values) {
+        int count = keys.length;
+        DataUtils.checkArgument(values.length == count,
+                "The number of values must be {0}, is {1}", count, values.length);
+        if (count == 0) {
+            return;
+        }
+        SpatialKey[] pageKeys = keyType.createStorage(count);
+        System.arraycopy(keys, 0, pageKeys, 0, count);
+        V[] pageValues = getValueType().createStorage(count);
+        System.arraycopy(values, 0, pageValues, 0, count);
+        Page<SpatialKey,V> leaf = Page.createLeaf(this, pageKeys, pageValues, 0);
+        beforeWrite();
+        RootReference<SpatialKey,V> rootReference = flushAndGetRoot();
+        RootReference<SpatialKey,V> lockedRootReference;
+        for (int attempt = 1; (lockedRootReference = tryLock(rootReference, attempt)) == null; attempt++) {
+            rootReference = flushAndGetRoot();
+        }
+        Page<SpatialKey,V> rootPage = lockedRootReference.root;
+        try {
+            Collection<Page<SpatialKey,V>> removedPages = isPersistent() ? new ArrayList<>() : null;
+            Page<SpatialKey,V> sibling = null;
+            if (rootPage.getTotalCount() == 0) {
+                if (removedPages != null) {
+                    removedPages.add(rootPage);
+                }
+                rootPage = leaf;
+            } else if (rootPage.isLeaf()) {
+                sibling = leaf;
+            } else {
+                if (removedPages != null) {
+                    removedPages.add(rootPage);
+                }
+                rootPage = rootPage.copy();
+                sibling = appendPage(rootPage, leaf, removedPages);
+            }
+            if (sibling != null) {
+                rootPage = createNode(rootPage, sibling);
+            }
+            if (removedPages != null) {
+                long version = lockedRootReference.version;
+                int unsavedMemory = leaf.getMemory();
+                for (Page<SpatialKey,V> page : removedPages) {
+                    if (!page.isRemoved()) {
+                        unsavedMemory += page.removePage(version);
+                    }
+                }
+                store.registerUnsavedMemory(unsavedMemory);
+            }
+        } finally {
+            unlockRoot(rootPage);
+        }
+    }
+
+    /**
+     * Add a leaf page after the last leaf page below the given node.
+     *
+     * @param p the copy of the node, which is changed
+     * @param page the leaf page
+     * @param removedPages the replaced pages, or null if not persistent
+     * @return the new node that follows the given node if it is full, or null
+     */
+    private Page<SpatialKey,V> appendPage(Page<SpatialKey,V> p, Page<SpatialKey,V> page,
+            Collection<Page<SpatialKey,V>> removedPages) {
+        int last = p.getKeyCount() - 1;
+        Page<SpatialKey,V> c = p.getChildPage(last);
+        if (!c.isLeaf()) {
+            if (removedPages != null) {
+                removedPages.add(c);
+            }
+            c = c.copy();
+            page = appendPage(c, page, removedPages);
+            p.setKey(last, getBounds(c));
+            p.setChild(last, c);
+            if (page == null) {
+                return null;
+            }
+        }
+        if (p.getKeyCount() < Math.max(store.getKeysPerPage(), 2)) {
+            p.insertNode(last + 1, getBounds(page), page);
+            return null;
+        }
+        return createNode(page);
+    }
+
+    @SafeVarargs
+    private final Page<SpatialKey,V> createNode(Page<SpatialKey,V>... pages) {
+        int count = pages.length;
+        SpatialKey[] keys = keyType.createStorage(count);
+        Page.PageReference<SpatialKey,V>[] children = Page.createRefStorage(count + 1);
+        long totalCount = 0;
+        for (int i = 0; i < count; i++) {
+            keys[i] = getBounds(pages[i]);
+            children[i] = new Page.PageReference<>(pages[i]);
+            totalCount += pages[i].getTotalCount();
+        }
+        children[count] = Page.PageReference.empty();
+        return Page.createNode(this, keys, children, totalCount, 0);
+    }
+
     private Page<SpatialKey,V> split(Page<SpatialKey,V> p) {
         return quadraticSplit ?
                 splitQuadratic(p) :
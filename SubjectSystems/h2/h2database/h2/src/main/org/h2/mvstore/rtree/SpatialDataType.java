@@ -31,6 +31,15 @@ public SpatialDataType(int dimensions) {
         this.dimensions = dimensions;
     }
 
+    /**
+     * Get the number of dimensions.
+     *
+     * @return the number of dimensions
+     */
+    public int getDimensions() {
+        return dimensions;
+    }
+
     @Override
     public SpatialKey[] createStorage(int size) {
         return new SpatialKey[size];
@@ -47,6 +47,15 @@ public class LocalResult implements ResultInterface, ResultTarget {
     private boolean fetchPercent;
     private SortOrder withTiesSortOrder;
     private boolean limitsWereApplied;
+    /**
+     * The number of top rows to keep in a bounded heap, or -1 if all rows
+     * are kept.
+     */
+    private int topCount = -1;
+    /**
+     * Rows equal to the last row of the heap, they are kept only with ties.
+     */
+    private ArrayList<Value[]> ties;
     private ResultExternal external;
     private boolean distinct;
     private int[] distinctIndexes;
@@ -107,6 +116,7 @@ public boolean isLazy() {
      */
     public void setMaxMemoryRows(int maxValue) {
         this.maxMemoryRows = maxValue;
+        updateTopCount();
     }
 
     /**
@@ -160,6 +170,7 @@ public LocalResult createShallowCopy(SessionInterface targetSession) {
      */
     public void setSortOrder(SortOrder sort) {
         this.sort = sort;
+        updateTopCount();
     }
 
     /**
@@ -169,6 +180,7 @@ public void setDistinct() {
         assert distinctIndexes == null;
         distinct = true;
         distinctRows = new TreeMap<>(session.getDatabase().getCompareMode());
+        updateTopCount();
     }
 
     /**
@@ -180,6 +192,7 @@ public void setDistinct(int[] distinctIndexes) {
         assert !distinct;
         this.distinctIndexes = distinctIndexes;
         distinctRows = new TreeMap<>(session.getDatabase().getCompareMode());
+        updateTopCount();
     }
 
     /**
@@ -354,6 +367,8 @@ public void addRow(Value... values) {
             } else {
                 rowCount = external.addRow(values);
             }
+        } else if (topCount > 0) {
+            addRowTopN(values);
         } else {
             rows.add(values);
             rowCount++;
@@ -363,6 +378,107 @@ public void addRow(Value... values) {
         }
     }
 
+    /**
+     * Add a row to the bounded heap of top rows. The head of the heap is the
+     * last row in the sort order, it is replaced by better rows.
+     *
+     * @param values the row to add
+     */
+    private void addRowTopN(Value[] values) {
+        int size = rows.size();
+        if (size < topCount) {
+            rows.add(values);
+            siftUp(size);
+            rowCount++;
+            return;
+        }
+        Value[] last = rows.get(0);
+        int cmp = sort.compare(values, last);
+        if (cmp > 0) {
+            return;
+        }
+        if (cmp == 0) {
+            if (withTiesSortOrder != null) {
+                addTie(values);
+            }
+            return;
+        }
+        rows.set(0, values);
+        siftDown(0);
+        if (withTiesSortOrder != null) {
+            if (sort.compare(last, rows.get(0)) == 0) {
+                addTie(last);
+            } else if (ties != null) {
+                // the previous ties are after the last row now
+                rowCount -= ties.size();
+                ties.clear();
+            }
+        }
+    }
+
+    private void addTie(Value[] values) {
+        if (ties == null) {
+            ties = Utils.newSmallArrayList();
+        }
+        ties.add(values);
+        rowCount++;
+        if (rowCount > maxMemoryRows) {
+            // too many ties, keep all remaining rows instead
+            rows.addAll(ties);
+            ties = null;
+            topCount = -1;
+            addRowsToDisk();
+        }
+    }
+
+    private void siftUp(int i) {
+        Value[] row = rows.get(i);
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Value[] p = rows.get(parent);
+            if (sort.compare(p, row) >= 0) {
+                break;
+            }
+            rows.set(i, p);
+            i = parent;
+        }
+        rows.set(i, row);
+    }
+
+    private void siftDown(int i) {
+        int size = rows.size();
+        Value[] row = rows.get(i);
+        for (int child; (child = 2 * i + 1) < size; i = child) {
+            Value[] c = rows.get(child);
+            if (child + 1 < size) {
+                Value[] c2 = rows.get(child + 1);
+                if (sort.compare(c2, c) > 0) {
+                    child++;
+                    c = c2;
+                }
+            }
+            if (sort.compare(row, c) >= 0) {
+                break;
+            }
+            rows.set(i, c);
+        }
+        rows.set(i, row);
+    }
+
+    /**
+     * Decide whether only the top rows need to be kept. This is possible if
+     * the sort order, offset, and limit are known before the first row is
+     * added and the number of top rows fits into memory.
+     */
+    private void updateTopCount() {
+        if (rowCount != 0) {
+            return;
+        }
+        long count = (long) Math.max(offset, 0) + limit;
+        topCount = sort != null && !isAnyDistinct() && limit > 0 && !fetchPercent && count <= maxMemoryRows
+                ? (int) count : -1;
+    }
+
     private void addRowsToDisk() {
         if (external == null) {
             createExternalResult();
@@ -385,6 +501,9 @@ public void done() {
         } else {
             if (isAnyDistinct()) {
                 rows = new ArrayList<>(distinctRows.values());
+            } else if (ties != null) {
+                rows.addAll(ties);
+                ties = null;
             }
             if (sort != null && limit != 0 && !limitsWereApplied) {
                 boolean withLimit = limit > 0 && withTiesSortOrder == null;
@@ -507,6 +626,7 @@ public boolean hasNext() {
      */
     public void setLimit(int limit) {
         this.limit = limit;
+        updateTopCount();
     }
 
     /**
@@ -514,6 +634,7 @@ public void setLimit(int limit) {
      */
     public void setFetchPercent(boolean fetchPercent) {
         this.fetchPercent = fetchPercent;
+        updateTopCount();
     }
 
     /**
@@ -585,6 +706,7 @@ public boolean isAutoIncrement(int i) {
      */
     public void setOffset(int offset) {
         this.offset = offset;
+        updateTopCount();
     }
 
     @Override
@@ -35,6 +35,21 @@ public class ResultRemote implements ResultInterface {
     private ArrayList<Value[]> result;
     private final Trace trace;
 
+    /**
+     * Whether the next block of rows was requested, but not read yet.
+     */
+    private boolean prefetchPending;
+
+    /**
+     * The next block of rows, if it was already read.
+     */
+    private ArrayList<Value[]> prefetched;
+
+    /**
+     * The exception the server sent for the request of the next block.
+     */
+    private DbException prefetchError;
+
     public ResultRemote(SessionRemote session, Transfer transfer, int id,
             int columnCount, int fetchSize) throws IOException {
         this.session = session;
@@ -102,6 +117,11 @@ public void reset() {
         synchronized (session) {
             session.checkClosed();
             try {
+                if (prefetchPending) {
+                    session.readPendingResponses(transfer);
+                }
+                prefetched = null;
+                prefetchError = null;
                 session.traceOperation("RESULT_RESET", id);
                 transfer.writeInt(SessionRemote.RESULT_RESET).writeInt(id).flush();
             } catch (IOException e) {
@@ -208,27 +228,31 @@ private void fetchRows(boolean sendFetch) {
                 rowOffset += result.size();
                 result.clear();
                 int fetch = Math.min(fetchSize, rowCount - rowOffset);
-                if (sendFetch) {
-                    session.traceOperation("RESULT_FETCH_ROWS", id);
-                    transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).
-                            writeInt(id).writeInt(fetch);
-                    session.done(transfer);
+                if (prefetchPending) {
+                    session.readPendingResponses(transfer);
                 }
-                for (int r = 0; r < fetch; r++) {
-                    boolean row = transfer.readBoolean();
-                    if (!row) {
-                        break;
-                    }
-                    int len = columns.length;
-                    Value[] values = new Value[len];
-                    for (int i = 0; i < len; i++) {
-                        Value v = transfer.readValue();
-                        values[i] = v;
+                if (prefetchError != null) {
+                    DbException e = prefetchError;
+                    prefetchError = null;
+                    throw e;
+                }
+                if (prefetched != null) {
+                    result = prefetched;
+                    prefetched = null;
+                } else {
+                    if (sendFetch) {
+                        session.traceOperation("RESULT_FETCH_ROWS", id);
+                        transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).
+                                writeInt(id).writeInt(fetch);
+                        session.done(transfer);
                     }
-                    result.add(values);
+                    readRows(transfer, fetch, result);
                 }
-                if (rowOffset + result.size() >= rowCount) {
+                int remaining = rowCount - rowOffset - result.size();
+                if (remaining <= 0) {
                     sendClose();
+                } else if (session.isPipelined()) {
+                    prefetchRows(Math.min(fetchSize, remaining));
                 }
             } catch (IOException e) {
                 throw DbException.convertIOException(e, null);
@@ -236,6 +260,50 @@ private void fetchRows(boolean sendFetch) {
         }
     }
 
+    /**
+     * Request the next block of rows without waiting for it, so that the
+     * server produces the rows while the current block is processed.
+     *
+     * @param fetch the number of rows to request
+     */
+    private void prefetchRows(int fetch) throws IOException {
+        SessionRemote s = session;
+        session.traceOperation("RESULT_FETCH_ROWS", id);
+        transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).
+                writeInt(id).writeInt(fetch).flush();
+        prefetchPending = true;
+        s.addPendingResponse(t -> {
+            prefetchPending = false;
+            try {
+                s.readStatus(t);
+            } catch (DbException e) {
+                prefetchError = e;
+                return;
+            }
+            ArrayList<Value[]> rows = new ArrayList<>(fetch);
+            readRows(t, fetch, rows);
+            if (result != null) {
+                prefetched = rows;
+            }
+        });
+    }
+
+    private void readRows(Transfer t, int fetch, ArrayList<Value[]> rows) throws IOException {
+        for (int r = 0; r < fetch; r++) {
+            boolean row = t.readBoolean();
+            if (!row) {
+                break;
+            }
+            int len = columns.length;
+            Value[] values = new Value[len];
+            for (int i = 0; i < len; i++) {
+                Value v = t.readValue();
+                values[i] = v;
+            }
+            rows.add(values);
+        }
+    }
+
     @Override
     public String toString() {
         return "columns: " + columns.length + " rows: " + rowCount + " pos: " + rowId;
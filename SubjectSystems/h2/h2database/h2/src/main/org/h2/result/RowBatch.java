@@ -0,0 +1,202 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.result;
+
+import java.util.Arrays;
+
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * A batch of rows of one table. The values of a column can be extracted into
+ * arrays of primitive values, each column is extracted only once per batch.
+ */
+public final class RowBatch {
+
+    /**
+     * The default number of rows in a batch.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The result of a condition for a row is FALSE.
+     */
+    public static final byte FALSE = 0;
+
+    /**
+     * The result of a condition for a row is TRUE.
+     */
+    public static final byte TRUE = 1;
+
+    /**
+     * The result of a condition for a row is UNKNOWN (NULL).
+     */
+    public static final byte UNKNOWN = 2;
+
+    private static final byte EXTRACTED_NULLS = 1, EXTRACTED_LONGS = 2, EXTRACTED_DOUBLES = 4;
+
+    private final Row[] rows;
+
+    private int size;
+
+    private final boolean[][] nulls;
+
+    private final long[][] longs;
+
+    private final double[][] doubles;
+
+    /**
+     * The kinds of extracted values of each column, the values are valid
+     * until the next clear().
+     */
+    private final byte[] extracted;
+
+    /**
+     * Creates a new batch.
+     *
+     * @param capacity
+     *            the maximum number of rows
+     * @param columnCount
+     *            the number of columns in the table
+     */
+    public RowBatch(int capacity, int columnCount) {
+        rows = new Row[capacity];
+        nulls = new boolean[columnCount][];
+        longs = new long[columnCount][];
+        doubles = new double[columnCount][];
+        extracted = new byte[columnCount];
+    }
+
+    /**
+     * Get the result of a condition for a row.
+     *
+     * @param v
+     *            the boolean value of a condition, or NULL
+     * @return {@link #TRUE}, {@link #FALSE}, or {@link #UNKNOWN}
+     */
+    public static byte fromValue(Value v) {
+        return v == ValueNull.INSTANCE ? UNKNOWN : v.getBoolean() ? TRUE : FALSE;
+    }
+
+    /**
+     * Remove all rows from this batch.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            rows[i] = null;
+        }
+        size = 0;
+        Arrays.fill(extracted, (byte) 0);
+    }
+
+    /**
+     * Add a row to this batch.
+     *
+     * @param row
+     *            the row
+     * @return whether this batch is full now
+     */
+    public boolean add(Row row) {
+        rows[size++] = row;
+        return size == rows.length;
+    }
+
+    /**
+     * Get the number of rows in this batch.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a row.
+     *
+     * @param index
+     *            the index of the row in this batch
+     * @return the row
+     */
+    public Row get(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Get the NULL flags of the values of a column.
+     *
+     * @param columnId
+     *            the column id
+     * @return the NULL flags, the length of the array may be larger than the
+     *         number of rows
+     */
+    public boolean[] getNulls(int columnId) {
+        extract(columnId, EXTRACTED_NULLS);
+        return nulls[columnId];
+    }
+
+    /**
+     * Get the values of a column with a data type from the integer family.
+     * The values of NULLs are undefined.
+     *
+     * @param columnId
+     *            the column id
+     * @return the values, the length of the array may be larger than the
+     *         number of rows
+     */
+    public long[] getLongs(int columnId) {
+        extract(columnId, EXTRACTED_LONGS);
+        return longs[columnId];
+    }
+
+    /**
+     * Get the values of a column as double values. The values of NULLs are
+     * undefined.
+     *
+     * @param columnId
+     *            the column id
+     * @return the values, the length of the array may be larger than the
+     *         number of rows
+     */
+    public double[] getDoubles(int columnId) {
+        extract(columnId, EXTRACTED_DOUBLES);
+        return doubles[columnId];
+    }
+
+    private void extract(int columnId, byte kind) {
+        int e = extracted[columnId];
+        if ((e & kind) != 0) {
+            return;
+        }
+        int capacity = rows.length;
+        boolean[] n = nulls[columnId];
+        if (n == null) {
+            nulls[columnId] = n = new boolean[capacity];
+        }
+        long[] l = null;
+        if (kind == EXTRACTED_LONGS && (l = longs[columnId]) == null) {
+            longs[columnId] = l = new long[capacity];
+        }
+        double[] d = null;
+        if (kind == EXTRACTED_DOUBLES && (d = doubles[columnId]) == null) {
+            doubles[columnId] = d = new double[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            Value v = rows[i].getValue(columnId);
+            if (v == ValueNull.INSTANCE) {
+                n[i] = true;
+            } else {
+                n[i] = false;
+                if (l != null) {
+                    l[i] = v.getLong();
+                } else if (d != null) {
+                    d[i] = v.getDouble();
+                }
+            }
+        }
+        extracted[columnId] = (byte) (e | EXTRACTED_NULLS | kind);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Starts the threads that serve the client connections of a server, and
+ * limits the number of connections that execute a command at the same time.
+ * <p>
+ * If virtual threads are enabled and supported by the Java runtime (Java 21
+ * or later), each connection is served by a virtual thread, so that idle
+ * connections only use a small amount of memory. Otherwise, a platform thread
+ * is started for each connection.
+ * </p>
+ * <p>
+ * Connections only hold a worker while a command is executed, not while they
+ * wait for the next request of the client. If a command waits for a lock that
+ * is held by another connection which needs a worker to continue, it waits
+ * until the lock timeout is reached, so the number of workers should be larger
+ * than the number of connections that are expected to wait for locks.
+ * </p>
+ */
+public final class ConnectionExecutor {
+
+    /**
+     * The method Thread.ofVirtual(), or null if virtual threads are not
+     * supported.
+     */
+    private static final Method OF_VIRTUAL;
+
+    /**
+     * The method Thread.Builder.name(String).
+     */
+    private static final Method NAME;
+
+    /**
+     * The method Thread.Builder.unstarted(Runnable).
+     */
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null, name = null, unstarted = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = ofVirtual.getReturnType();
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            // fails if virtual threads are a preview feature that is disabled
+            ofVirtual.invoke(null);
+        } catch (Exception e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private final String threadName;
+    private final boolean daemon;
+    private final boolean virtual;
+    private final Semaphore workers;
+
+    /**
+     * Create a new connection executor.
+     *
+     * @param threadName the prefix of the thread names
+     * @param daemon whether platform threads are daemon threads
+     * @param virtual whether to use virtual threads if supported
+     * @param maxWorkers the maximum number of commands that are executed at
+     *            the same time, or 0 for no limit
+     */
+    public ConnectionExecutor(String threadName, boolean daemon, boolean virtual, int maxWorkers) {
+        this.threadName = threadName;
+        this.daemon = daemon;
+        this.virtual = virtual && OF_VIRTUAL != null;
+        workers = maxWorkers > 0 ? new Semaphore(maxWorkers, true) : null;
+    }
+
+    /**
+     * Check whether virtual threads are supported by the Java runtime.
+     *
+     * @return true if they are supported
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Check whether the connections are served by virtual threads.
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Create a thread for a connection. The thread is not started.
+     *
+     * @param task the task that serves the connection
+     * @param id the connection id
+     * @return the thread
+     */
+    public Thread newThread(Runnable task, int id) {
+        String name = threadName + " thread-" + id;
+        if (virtual) {
+            try {
+                return (Thread) UNSTARTED.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name), task);
+            } catch (Exception e) {
+                // fall back to a platform thread
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(daemon);
+        return thread;
+    }
+
+    /**
+     * Wait until a worker is available. This method is called after the
+     * request was read, before the command is executed.
+     */
+    public void beginCommand() {
+        if (workers != null) {
+            workers.acquireUninterruptibly();
+        }
+    }
+
+    /**
+     * Release the worker after the command was executed and the response was
+     * sent.
+     */
+    public void endCommand() {
+        if (workers != null) {
+            workers.release();
+        }
+    }
+
+}
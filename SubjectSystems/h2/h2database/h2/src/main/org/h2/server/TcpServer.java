@@ -65,6 +65,9 @@ public class TcpServer implements Service {
     private String baseDir;
     private boolean allowOthers;
     private boolean isDaemon;
+    private boolean virtualThreads;
+    private int maxWorkers;
+    private ConnectionExecutor executor;
     private boolean ifExists = true;
     private Connection managementDb;
     private PreparedStatement managementDbAdd;
@@ -190,6 +193,10 @@ public void init(String... args) {
                 allowOthers = true;
             } else if (Tool.isOption(a, "-tcpDaemon")) {
                 isDaemon = true;
+            } else if (Tool.isOption(a, "-tcpVirtualThreads")) {
+                virtualThreads = true;
+            } else if (Tool.isOption(a, "-tcpMaxWorkers")) {
+                maxWorkers = Integer.decode(args[++i]);
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -257,7 +264,7 @@ public synchronized void start() throws SQLException {
     @Override
     public void listen() {
         listenerThread = Thread.currentThread();
-        String threadName = listenerThread.getName();
+        executor = new ConnectionExecutor(listenerThread.getName(), isDaemon, virtualThreads, maxWorkers);
         try {
             while (!stop) {
                 Socket s = serverSocket.accept();
@@ -265,8 +272,7 @@ public void listen() {
                 int id = nextThreadId++;
                 TcpServerThread c = new TcpServerThread(s, this, id);
                 running.add(c);
-                Thread thread = new Thread(c, threadName + " thread-" + id);
-                thread.setDaemon(isDaemon);
+                Thread thread = executor.newThread(c, id);
                 c.setThread(thread);
                 thread.start();
             }
@@ -279,6 +285,16 @@ public void listen() {
         stopManagementDb();
     }
 
+    /**
+     * Get the executor that starts the connection threads and limits the
+     * number of commands that are executed at the same time.
+     *
+     * @return the executor
+     */
+    ConnectionExecutor getConnectionExecutor() {
+        return executor;
+    }
+
     @Override
     public synchronized boolean isRunning(boolean traceError) {
         if (serverSocket == null) {
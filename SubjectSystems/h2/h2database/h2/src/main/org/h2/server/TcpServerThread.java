@@ -63,6 +63,7 @@ public class TcpServerThread implements Runnable {
     private int clientVersion;
     private String sessionId;
     private long lastRemoteSettingsId;
+    private boolean working;
 
     TcpServerThread(Socket socket, TcpServer server, int id) {
         this.server = server;
@@ -229,23 +230,9 @@ void close() {
 
     private void sendError(Throwable t) {
         try {
-            SQLException e = DbException.convert(t).getSQLException();
-            StringWriter writer = new StringWriter();
-            e.printStackTrace(new PrintWriter(writer));
-            String trace = writer.toString();
-            String message;
-            String sql;
-            if (e instanceof JdbcException) {
-                JdbcException j = (JdbcException) e;
-                message = j.getOriginalMessage();
-                sql = j.getSQL();
-            } else {
-                message = e.getMessage();
-                sql = null;
-            }
-            transfer.writeInt(SessionRemote.STATUS_ERROR).
-                    writeString(e.getSQLState()).writeString(message).
-                    writeString(sql).writeInt(e.getErrorCode()).writeString(trace).flush();
+            transfer.writeInt(SessionRemote.STATUS_ERROR);
+            writeError(t);
+            transfer.flush();
         } catch (Exception e2) {
             if (!transfer.isClosed()) {
                 server.traceError(e2);
@@ -255,23 +242,102 @@ private void sendError(Throwable t) {
         }
     }
 
-    private void setParameters(Command command) throws IOException {
+    private void writeError(Throwable t) throws IOException {
+        SQLException e = DbException.convert(t).getSQLException();
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String trace = writer.toString();
+        String message;
+        String sql;
+        if (e instanceof JdbcException) {
+            JdbcException j = (JdbcException) e;
+            message = j.getOriginalMessage();
+            sql = j.getSQL();
+        } else {
+            message = e.getMessage();
+            sql = null;
+        }
+        transfer.writeString(e.getSQLState()).writeString(message).
+                writeString(sql).writeInt(e.getErrorCode()).writeString(trace);
+    }
+
+    /**
+     * Write the response to a batch update.
+     *
+     * @param oldModificationId the modification id before the batch
+     * @param updateCounts the update counts
+     * @param errors the exceptions of the failed commands
+     * @param executed the number of executed commands
+     */
+    private void writeBatchUpdateResult(int oldModificationId, int[] updateCounts, Throwable[] errors,
+            int executed) throws IOException {
+        int status;
+        if (session.isClosed()) {
+            status = SessionRemote.STATUS_CLOSED;
+            stop = true;
+        } else {
+            status = getState(oldModificationId);
+        }
+        transfer.writeInt(status).writeInt(executed);
+        for (int i = 0; i < executed; i++) {
+            Throwable e = errors[i];
+            if (e == null) {
+                transfer.writeBoolean(true).writeInt(updateCounts[i]);
+            } else {
+                transfer.writeBoolean(false);
+                writeError(e);
+            }
+        }
+        transfer.writeBoolean(session.getAutoCommit()).flush();
+    }
+
+    private Value[] readParameters() throws IOException {
         int len = transfer.readInt();
-        ArrayList<? extends ParameterInterface> params = command.getParameters();
+        Value[] values = new Value[len];
         for (int i = 0; i < len; i++) {
+            values[i] = transfer.readValue();
+        }
+        return values;
+    }
+
+    private static void setParameters(Command command, Value[] values) {
+        ArrayList<? extends ParameterInterface> params = command.getParameters();
+        for (int i = 0; i < values.length; i++) {
             Parameter p = (Parameter) params.get(i);
-            p.setValue(transfer.readValue());
+            p.setValue(values[i]);
         }
     }
 
     private void process() throws IOException {
         int operation = transfer.readInt();
+        try {
+            process(operation);
+        } finally {
+            if (working) {
+                working = false;
+                server.getConnectionExecutor().endCommand();
+            }
+        }
+    }
+
+    /**
+     * Wait until a worker is available. This method is called after the
+     * complete request was read, so that a slow client does not hold a worker
+     * while the request is received.
+     */
+    private void beginCommand() {
+        server.getConnectionExecutor().beginCommand();
+        working = true;
+    }
+
+    private void process(int operation) throws IOException {
         switch (operation) {
         case SessionRemote.SESSION_PREPARE_READ_PARAMS:
         case SessionRemote.SESSION_PREPARE_READ_PARAMS2:
         case SessionRemote.SESSION_PREPARE: {
             int id = transfer.readInt();
             String sql = transfer.readString();
+            beginCommand();
             int old = session.getModificationId();
             Command command = session.prepareLocal(sql);
             boolean readonly = command.isReadOnly();
@@ -298,6 +364,7 @@ private void process() throws IOException {
             break;
         }
         case SessionRemote.SESSION_CLOSE: {
+            beginCommand();
             stop = true;
             closeSession();
             transfer.writeInt(SessionRemote.STATUS_OK).flush();
@@ -305,6 +372,7 @@ private void process() throws IOException {
             break;
         }
         case SessionRemote.COMMAND_COMMIT: {
+            beginCommand();
             if (commit == null) {
                 commit = session.prepareLocal("COMMIT");
             }
@@ -316,6 +384,7 @@ private void process() throws IOException {
         case SessionRemote.COMMAND_GET_META_DATA: {
             int id = transfer.readInt();
             int objectId = transfer.readInt();
+            beginCommand();
             Command command = (Command) cache.getObject(id, false);
             ResultInterface result = command.getMetaData();
             cache.addObject(objectId, result);
@@ -333,8 +402,12 @@ private void process() throws IOException {
             int objectId = transfer.readInt();
             int maxRows = transfer.readInt();
             int fetchSize = transfer.readInt();
+            // read the complete request first, so that the following
+            // pipelined requests can be processed if the command fails
+            Value[] parameters = readParameters();
+            beginCommand();
             Command command = (Command) cache.getObject(id, false);
-            setParameters(command);
+            setParameters(command, parameters);
             int old = session.getModificationId();
             ResultInterface result;
             synchronized (session) {
@@ -358,8 +431,7 @@ private void process() throws IOException {
         }
         case SessionRemote.COMMAND_EXECUTE_UPDATE: {
             int id = transfer.readInt();
-            Command command = (Command) cache.getObject(id, false);
-            setParameters(command);
+            Value[] parameters = readParameters();
             boolean supportsGeneratedKeys = clientVersion >= Constants.TCP_PROTOCOL_VERSION_17;
             boolean writeGeneratedKeys = supportsGeneratedKeys;
             Object generatedKeysRequest;
@@ -398,6 +470,9 @@ private void process() throws IOException {
             } else {
                 generatedKeysRequest = false;
             }
+            beginCommand();
+            Command command = (Command) cache.getObject(id, false);
+            setParameters(command, parameters);
             int old = session.getModificationId();
             ResultWithGeneratedKeys result;
             synchronized (session) {
@@ -429,8 +504,65 @@ private void process() throws IOException {
             transfer.flush();
             break;
         }
+        case SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE: {
+            int id = transfer.readInt();
+            int size = transfer.readInt();
+            Value[][] batchParameters = new Value[size][];
+            for (int i = 0; i < size; i++) {
+                batchParameters[i] = readParameters();
+            }
+            beginCommand();
+            Command command = (Command) cache.getObject(id, false);
+            int old = session.getModificationId();
+            int[] updateCounts = new int[size];
+            Throwable[] errors = new Throwable[size];
+            int executed = 0;
+            while (executed < size && !session.isClosed()) {
+                try {
+                    setParameters(command, batchParameters[executed]);
+                    synchronized (session) {
+                        updateCounts[executed] = command.executeUpdate(false).getUpdateCount();
+                    }
+                } catch (Throwable e) {
+                    errors[executed] = e;
+                }
+                executed++;
+            }
+            writeBatchUpdateResult(old, updateCounts, errors, executed);
+            break;
+        }
+        case SessionRemote.SESSION_EXECUTE_BATCH_UPDATE: {
+            int size = transfer.readInt();
+            String[] sqlList = new String[size];
+            for (int i = 0; i < size; i++) {
+                sqlList[i] = transfer.readString();
+            }
+            beginCommand();
+            int old = session.getModificationId();
+            int[] updateCounts = new int[size];
+            Throwable[] errors = new Throwable[size];
+            int executed = 0;
+            while (executed < size && !session.isClosed()) {
+                try {
+                    Command command = session.prepareLocal(sqlList[executed]);
+                    try {
+                        synchronized (session) {
+                            updateCounts[executed] = command.executeUpdate(false).getUpdateCount();
+                        }
+                    } finally {
+                        command.close();
+                    }
+                } catch (Throwable e) {
+                    errors[executed] = e;
+                }
+                executed++;
+            }
+            writeBatchUpdateResult(old, updateCounts, errors, executed);
+            break;
+        }
         case SessionRemote.COMMAND_CLOSE: {
             int id = transfer.readInt();
+            beginCommand();
             Command command = (Command) cache.getObject(id, true);
             if (command != null) {
                 command.close();
@@ -441,6 +573,7 @@ private void process() throws IOException {
         case SessionRemote.RESULT_FETCH_ROWS: {
             int id = transfer.readInt();
             int count = transfer.readInt();
+            beginCommand();
             ResultInterface result = (ResultInterface) cache.getObject(id, false);
             transfer.writeInt(SessionRemote.STATUS_OK);
             for (int i = 0; i < count; i++) {
@@ -451,12 +584,14 @@ private void process() throws IOException {
         }
         case SessionRemote.RESULT_RESET: {
             int id = transfer.readInt();
+            beginCommand();
             ResultInterface result = (ResultInterface) cache.getObject(id, false);
             result.reset();
             break;
         }
         case SessionRemote.RESULT_CLOSE: {
             int id = transfer.readInt();
+            beginCommand();
             ResultInterface result = (ResultInterface) cache.getObject(id, true);
             if (result != null) {
                 result.close();
@@ -483,11 +618,13 @@ private void process() throws IOException {
         }
         case SessionRemote.SESSION_SET_AUTOCOMMIT: {
             boolean autoCommit = transfer.readBoolean();
+            beginCommand();
             session.setAutoCommit(autoCommit);
             transfer.writeInt(SessionRemote.STATUS_OK).flush();
             break;
         }
         case SessionRemote.SESSION_HAS_PENDING_TRANSACTION: {
+            beginCommand();
             transfer.writeInt(SessionRemote.STATUS_OK).
                 writeInt(session.hasPendingTransaction() ? 1 : 0).flush();
             break;
@@ -498,6 +635,7 @@ private void process() throws IOException {
             long offset = transfer.readLong();
             int length = transfer.readInt();
             transfer.verifyLobMac(hmac, lobId);
+            beginCommand();
             CachedInputStream in = lobs.get(lobId);
             if (in == null || in.getPos() != offset) {
                 LobStorageInterface lobStorage = session.getDataHandler().getLobStorage();
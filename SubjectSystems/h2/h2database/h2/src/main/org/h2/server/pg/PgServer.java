@@ -17,6 +17,7 @@
 import java.util.concurrent.atomic.AtomicInteger;
 import org.h2.api.ErrorCode;
 import org.h2.message.DbException;
+import org.h2.server.ConnectionExecutor;
 import org.h2.server.Service;
 import org.h2.util.NetUtils;
 import org.h2.util.NetUtils2;
@@ -77,6 +78,9 @@ public class PgServer implements Service {
     private String baseDir;
     private boolean allowOthers;
     private boolean isDaemon;
+    private boolean virtualThreads;
+    private int maxWorkers;
+    private ConnectionExecutor executor;
     private boolean ifExists = true;
     private String key, keyDatabase;
 
@@ -96,6 +100,10 @@ public void init(String... args) {
                 allowOthers = true;
             } else if (Tool.isOption(a, "-pgDaemon")) {
                 isDaemon = true;
+            } else if (Tool.isOption(a, "-pgVirtualThreads")) {
+                virtualThreads = true;
+            } else if (Tool.isOption(a, "-pgMaxWorkers")) {
+                maxWorkers = Integer.decode(args[++i]);
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -184,7 +192,7 @@ public void start() {
 
     @Override
     public void listen() {
-        String threadName = Thread.currentThread().getName();
+        executor = new ConnectionExecutor(Thread.currentThread().getName(), isDaemon, virtualThreads, maxWorkers);
         try {
             while (!stop) {
                 Socket s = serverSocket.accept();
@@ -197,8 +205,7 @@ public void listen() {
                     running.add(c);
                     int id = pid.incrementAndGet();
                     c.setProcessId(id);
-                    Thread thread = new Thread(c, threadName + " thread-" + id);
-                    thread.setDaemon(isDaemon);
+                    Thread thread = executor.newThread(c, id);
                     c.setThread(thread);
                     thread.start();
                 }
@@ -210,6 +217,16 @@ public void listen() {
         }
     }
 
+    /**
+     * Get the executor that starts the connection threads and limits the
+     * number of commands that are executed at the same time.
+     *
+     * @return the executor
+     */
+    ConnectionExecutor getConnectionExecutor() {
+        return executor;
+    }
+
     @Override
     public void stop() {
         // TODO server: combine with tcp server
@@ -37,6 +37,7 @@
 import org.h2.jdbc.JdbcResultSet;
 import org.h2.jdbc.JdbcStatement;
 import org.h2.message.DbException;
+import org.h2.server.ConnectionExecutor;
 import org.h2.util.DateTimeUtils;
 import org.h2.util.JdbcUtils;
 import org.h2.util.MathUtils;
@@ -155,6 +156,21 @@ private void process() throws IOException {
         byte[] data = Utils.newBytes(len);
         dataInRaw.readFully(data, 0, len);
         dataIn = new DataInputStream(new ByteArrayInputStream(data, 0, len));
+        if (!initDone) {
+            // startup and cancel requests do not need a worker
+            process(x);
+            return;
+        }
+        ConnectionExecutor executor = server.getConnectionExecutor();
+        executor.beginCommand();
+        try {
+            process(x);
+        } finally {
+            executor.endCommand();
+        }
+    }
+
+    private void process(int x) throws IOException {
         switch (x) {
         case 0:
             server.trace("Init");
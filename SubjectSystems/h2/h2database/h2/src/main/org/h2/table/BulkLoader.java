@@ -0,0 +1,33 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import org.h2.result.Row;
+
+/**
+ * Loads rows into an empty table in bulk, without an undo log. The rows are
+ * only added to the table when the load is finished.
+ */
+public interface BulkLoader {
+
+    /**
+     * Add a row. The row must be validated and converted already.
+     *
+     * @param row the row
+     */
+    void addRow(Row row);
+
+    /**
+     * Add all rows to the table. If this fails, the table is empty again.
+     */
+    void finish();
+
+    /**
+     * Discard the rows, and release the resources. The table stays empty.
+     */
+    void cancel();
+
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.h2.engine.Session;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.ValueDataType;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * The statistics of the values of a column: the fraction of NULL values, the
+ * estimated number of distinct values, the most common values with their
+ * frequencies, and an equi-depth histogram of the remaining values.
+ */
+public final class ColumnStatistics {
+
+    /**
+     * The maximum number of most common values, and the maximum number of
+     * buckets of the histogram.
+     */
+    public static final int STATISTICS_TARGET = 100;
+
+    private final int valueType;
+
+    private final double nullFraction;
+
+    private final long distinctCount;
+
+    /**
+     * The most common values, the most frequent first.
+     */
+    private final Value[] commonValues;
+
+    /**
+     * The fraction of rows for each of the most common values.
+     */
+    private final double[] commonFrequencies;
+
+    /**
+     * The sorted bounds of the histogram buckets. Each bucket contains about
+     * the same number of rows. The most common values are not included.
+     */
+    private final Value[] histogram;
+
+    private final double histogramFraction;
+
+    private ColumnStatistics(int valueType, double nullFraction, long distinctCount, Value[] commonValues,
+            double[] commonFrequencies, Value[] histogram) {
+        this.valueType = valueType;
+        this.nullFraction = nullFraction;
+        this.distinctCount = distinctCount;
+        this.commonValues = commonValues;
+        this.commonFrequencies = commonFrequencies;
+        this.histogram = histogram;
+        double f = 1 - nullFraction;
+        for (double x : commonFrequencies) {
+            f -= x;
+        }
+        histogramFraction = Math.max(f, 0);
+    }
+
+    /**
+     * Collect the statistics from a sample of the rows.
+     *
+     * @param session the session
+     * @param valueType the data type of the column
+     * @param sample the values of the sampled rows, NULL values included;
+     *            the array is sorted by this method
+     * @param sampleSize the number of sampled rows
+     * @param rowCount the number of rows of the table
+     * @return the statistics
+     */
+    public static ColumnStatistics collect(Session session, int valueType, Value[] sample, int sampleSize,
+            long rowCount) {
+        int n = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            Value v = sample[i];
+            if (v != ValueNull.INSTANCE) {
+                sample[n++] = v;
+            }
+        }
+        double nullFraction = sampleSize == 0 ? 0 : (double) (sampleSize - n) / sampleSize;
+        Arrays.sort(sample, 0, n, session::compareTypeSafe);
+        // the runs of equal values: the start offsets and the lengths
+        ArrayList<int[]> runs = new ArrayList<>();
+        int singles = 0;
+        for (int i = 0; i < n;) {
+            int j = i + 1;
+            while (j < n && session.compareTypeSafe(sample[i], sample[j]) == 0) {
+                j++;
+            }
+            if (j - i == 1) {
+                singles++;
+            }
+            runs.add(new int[] { i, j - i });
+            i = j;
+        }
+        int d = runs.size();
+        long nonNullRows = Math.max((long) (rowCount * (1 - nullFraction)), n);
+        long distinctCount;
+        if (sampleSize >= rowCount || n == 0) {
+            distinctCount = d;
+        } else {
+            // the Duj1 estimator of Haas and Stokes
+            double x = (double) n * d / (n - singles + (double) singles * n / nonNullRows);
+            distinctCount = Math.min(Math.max((long) x, d), nonNullRows);
+        }
+        // the most common values
+        ArrayList<int[]> common = new ArrayList<>();
+        if (d <= STATISTICS_TARGET && (sampleSize >= rowCount || singles == 0)) {
+            // the sample probably contains all values
+            common.addAll(runs);
+        } else if (d > 0) {
+            double min = 1.25 * n / d;
+            for (int[] run : runs) {
+                if (run[1] > 1 && run[1] > min) {
+                    common.add(run);
+                }
+            }
+        }
+        common.sort((a, b) -> Integer.compare(b[1], a[1]));
+        if (common.size() > STATISTICS_TARGET) {
+            common.subList(STATISTICS_TARGET, common.size()).clear();
+        }
+        int commonCount = common.size();
+        Value[] commonValues = new Value[commonCount];
+        double[] commonFrequencies = new double[commonCount];
+        boolean[] isCommon = new boolean[n];
+        for (int i = 0; i < commonCount; i++) {
+            int[] run = common.get(i);
+            commonValues[i] = sample[run[0]];
+            commonFrequencies[i] = (double) run[1] / sampleSize;
+            Arrays.fill(isCommon, run[0], run[0] + run[1], true);
+        }
+        // the equi-depth histogram of the remaining values
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            if (!isCommon[i]) {
+                sample[r++] = sample[i];
+            }
+        }
+        Value[] histogram;
+        if (r == 0) {
+            histogram = new Value[0];
+        } else if (r == 1) {
+            histogram = new Value[] { sample[0] };
+        } else {
+            int buckets = Math.min(STATISTICS_TARGET, r - 1);
+            histogram = new Value[buckets + 1];
+            for (int i = 0; i <= buckets; i++) {
+                histogram[i] = sample[(int) ((long) i * (r - 1) / buckets)];
+            }
+        }
+        return new ColumnStatistics(valueType, nullFraction, distinctCount, commonValues, commonFrequencies,
+                histogram);
+    }
+
+    /**
+     * Get the data type of the column at the time the statistics were
+     * collected.
+     *
+     * @return the value type
+     */
+    public int getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Get the fraction of rows where the value is NULL.
+     *
+     * @return the fraction, from 0 to 1
+     */
+    public double getNullFraction() {
+        return nullFraction;
+    }
+
+    /**
+     * Get the estimated number of distinct non-NULL values.
+     *
+     * @return the number of distinct values
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Get the most common values, the most frequent value first.
+     *
+     * @return the most common values
+     */
+    public Value[] getCommonValues() {
+        return commonValues;
+    }
+
+    /**
+     * Get the fraction of rows for each of the most common values.
+     *
+     * @return the fractions, from 0 to 1
+     */
+    public double[] getCommonFrequencies() {
+        return commonFrequencies;
+    }
+
+    /**
+     * Get the bounds of the histogram buckets.
+     *
+     * @return the sorted bounds
+     */
+    public Value[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Estimate the fraction of rows where the column is equal to a value.
+     *
+     * @param session the session
+     * @param v the value, or null if the value is not known
+     * @return the fraction, from 0 to 1
+     */
+    public double getEqualityFraction(Session session, Value v) {
+        long rest = distinctCount - commonValues.length;
+        if (v == null) {
+            return distinctCount <= 0 ? 0 : (1 - nullFraction) / distinctCount;
+        } else if (v == ValueNull.INSTANCE) {
+            return nullFraction;
+        }
+        for (int i = 0; i < commonValues.length; i++) {
+            if (session.compareTypeSafe(v, commonValues[i]) == 0) {
+                return commonFrequencies[i];
+            }
+        }
+        if (rest <= 0 || histogram.length == 0) {
+            // the value was not found in the sample
+            return 0;
+        }
+        return histogramFraction / rest;
+    }
+
+    /**
+     * Estimate the fraction of rows where the column is within a range.
+     *
+     * @param session the session
+     * @param low the lower bound, or null
+     * @param high the upper bound, or null
+     * @return the fraction, from 0 to 1
+     */
+    public double getRangeFraction(Session session, Value low, Value high) {
+        double f = 0;
+        for (int i = 0; i < commonValues.length; i++) {
+            Value v = commonValues[i];
+            if ((low == null || session.compareTypeSafe(v, low) >= 0)
+                    && (high == null || session.compareTypeSafe(v, high) <= 0)) {
+                f += commonFrequencies[i];
+            }
+        }
+        double from = low == null ? 0 : getHistogramPosition(session, low);
+        double to = high == null ? 1 : getHistogramPosition(session, high);
+        if (to > from) {
+            f += histogramFraction * (to - from);
+        }
+        return Math.min(f, 1);
+    }
+
+    /**
+     * Get the fraction of the values of the histogram that are smaller than
+     * the given value.
+     *
+     * @param session the session
+     * @param v the value
+     * @return the fraction, from 0 to 1
+     */
+    private double getHistogramPosition(Session session, Value v) {
+        int len = histogram.length;
+        if (len == 0) {
+            return 0.5;
+        } else if (session.compareTypeSafe(v, histogram[0]) <= 0) {
+            return 0;
+        } else if (session.compareTypeSafe(v, histogram[len - 1]) >= 0) {
+            return 1;
+        }
+        int low = 0, high = len - 1;
+        // histogram[low] < v < histogram[high]
+        while (high - low > 1) {
+            int m = (low + high) >>> 1;
+            if (session.compareTypeSafe(histogram[m], v) < 0) {
+                low = m;
+            } else {
+                high = m;
+            }
+        }
+        double within = 0.5;
+        if (DataType.isNumericType(valueType)) {
+            double a = histogram[low].getDouble(), b = histogram[high].getDouble();
+            if (b > a) {
+                within = (v.getDouble() - a) / (b - a);
+            }
+        }
+        return (low + within) / (len - 1);
+    }
+
+    /**
+     * Read the statistics.
+     *
+     * @param buff the source buffer
+     * @param type the data type used to serialize the values
+     * @return the statistics
+     */
+    static ColumnStatistics read(ByteBuffer buff, ValueDataType type) {
+        int valueType = DataUtils.readVarInt(buff);
+        double nullFraction = buff.getDouble();
+        long distinctCount = DataUtils.readVarLong(buff);
+        int commonCount = DataUtils.readVarInt(buff);
+        Value[] commonValues = new Value[commonCount];
+        double[] commonFrequencies = new double[commonCount];
+        for (int i = 0; i < commonCount; i++) {
+            commonValues[i] = type.read(buff);
+            commonFrequencies[i] = buff.getDouble();
+        }
+        Value[] histogram = new Value[DataUtils.readVarInt(buff)];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = type.read(buff);
+        }
+        return new ColumnStatistics(valueType, nullFraction, distinctCount, commonValues, commonFrequencies,
+                histogram);
+    }
+
+    /**
+     * Write the statistics.
+     *
+     * @param buff the target buffer
+     * @param type the data type used to serialize the values
+     */
+    void write(WriteBuffer buff, ValueDataType type) {
+        buff.putVarInt(valueType).putDouble(nullFraction).putVarLong(distinctCount).putVarInt(commonValues.length);
+        for (int i = 0; i < commonValues.length; i++) {
+            type.write(buff, commonValues[i]);
+            buff.putDouble(commonFrequencies[i]);
+        }
+        buff.putVarInt(histogram.length);
+        for (Value v : histogram) {
+            type.write(buff, v);
+        }
+    }
+
+}
@@ -21,6 +21,7 @@
 
 import org.h2.command.Command;
 import org.h2.command.Parser;
+import org.h2.command.PlanCache;
 import org.h2.constraint.Constraint;
 import org.h2.constraint.Constraint.Type;
 import org.h2.constraint.ConstraintActionType;
@@ -1072,6 +1073,13 @@ public ArrayList<Row> generateRows(Session session, SearchRow first, SearchRow l
             for (Map.Entry<String, String> entry : database.getSettings().getSortedSettings()) {
                 add(session, rows, entry.getKey(), entry.getValue());
             }
+            PlanCache planCache = database.getPlanCache();
+            if (planCache != null) {
+                add(session, rows, "info.PLAN_CACHE_HITS", Long.toString(planCache.getHits()));
+                add(session, rows, "info.PLAN_CACHE_MISSES", Long.toString(planCache.getMisses()));
+                add(session, rows, "info.PLAN_CACHE_ENTRIES", Integer.toString(planCache.getSize()));
+                add(session, rows, "info.PLAN_CACHE_MEMORY", Long.toString(planCache.getMemory()));
+            }
             if (database.isPersistent()) {
                 PageStore pageStore = database.getPageStore();
                 if (pageStore != null) {
@@ -1132,6 +1140,22 @@ public ArrayList<Row> generateRows(Session session, SearchRow first, SearchRow l
                                 "info.CACHE_HIT_RATIO", Integer.toString(mvStore.getCacheHitRatio()));
                         add(session, rows, "info.TOC_CACHE_HIT_RATIO",
                                 Integer.toString(mvStore.getTocCacheHitRatio()));
+                        if (mvStore.getOffHeapCache() != null) {
+                            add(session, rows, "info.OFF_HEAP_CACHE_MAX_SIZE",
+                                    Integer.toString(mvStore.getOffHeapCacheSize()));
+                            add(session, rows, "info.OFF_HEAP_CACHE_SIZE",
+                                    Integer.toString(mvStore.getOffHeapCacheSizeUsed()));
+                            add(session, rows, "info.OFF_HEAP_CACHE_HIT_RATIO",
+                                    Integer.toString(mvStore.getOffHeapCacheHitRatio()));
+                        }
+                        if (mvStore.getAutoCompactRate() > 0) {
+                            add(session, rows, "info.COMPACT_BYTES_WRITTEN",
+                                    Long.toString(mvStore.getCompactBytesWritten()));
+                            add(session, rows, "info.COMPACT_BYTES_FREED",
+                                    Long.toString(mvStore.getCompactBytesFreed()));
+                            add(session, rows, "info.COMPACT_BYTES_REMAINING",
+                                    Long.toString(mvStore.getCompactBytesRemaining()));
+                        }
                         add(session, rows,
                                 "info.LEAF_RATIO", Integer.toString(mvStore.getLeafRatio()));
                     }
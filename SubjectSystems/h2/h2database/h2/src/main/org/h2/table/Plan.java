@@ -118,7 +118,7 @@ public double calculateCost(Session session, AllColumnsForPlan allColumnsSet) {
                 t.debug("Plan       :   best plan item cost {0} index {1}",
                         item.cost, item.getIndex().getPlanSQL());
             }
-            cost += cost * item.cost;
+            cost += cost * item.cost + item.hashJoinBuildCost;
             setEvaluatable(tableFilter, true);
             Expression on = tableFilter.getJoinCondition();
             if (on != null) {
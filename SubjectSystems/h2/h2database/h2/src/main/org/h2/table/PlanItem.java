@@ -5,7 +5,10 @@
  */
 package org.h2.table;
 
+import java.util.ArrayList;
+
 import org.h2.index.Index;
+import org.h2.index.IndexCondition;
 
 /**
  * The plan item describes the index to be used, and the estimated cost when
@@ -18,10 +21,17 @@ public class PlanItem {
      */
     double cost;
 
+    /**
+     * The one-time cost to build the hash table of a hash join, or 0 if no
+     * hash join is used.
+     */
+    double hashJoinBuildCost;
+
     private int[] masks;
     private Index index;
     private PlanItem joinPlan;
     private PlanItem nestedJoinPlan;
+    private ArrayList<IndexCondition> hashJoinConditions;
 
     void setMasks(int[] masks) {
         this.masks = masks;
@@ -55,4 +65,12 @@ void setNestedJoinPlan(PlanItem nestedJoinPlan) {
         this.nestedJoinPlan = nestedJoinPlan;
     }
 
+    ArrayList<IndexCondition> getHashJoinConditions() {
+        return hashJoinConditions;
+    }
+
+    void setHashJoinConditions(ArrayList<IndexCondition> hashJoinConditions) {
+        this.hashJoinConditions = hashJoinConditions;
+    }
+
 }
@@ -92,6 +92,7 @@ public abstract class Table extends SchemaObjectBase {
     private volatile Row nullRow;
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean tableExpression;
+    private volatile TableStatistics statistics;
 
     protected Table(Schema schema, int id, String name, boolean persistIndexes, boolean persistData) {
         super(schema, id, name, Trace.TABLE);
@@ -157,6 +158,29 @@ public abstract Index addIndex(Session session, String indexName,
             int indexId, IndexColumn[] cols, IndexType indexType,
             boolean create, String indexComment);
 
+    /**
+     * Create an index for this table that also stores the values of the
+     * specified non-key columns. Only some table types support included
+     * columns.
+     *
+     * @param session the session
+     * @param indexName the name of the index
+     * @param indexId the id
+     * @param cols the index columns
+     * @param includeColumns the included columns, or null
+     * @param indexType the index type
+     * @param create whether this is a new index
+     * @param indexComment the comment
+     * @return the index
+     */
+    public Index addIndex(Session session, String indexName, int indexId, IndexColumn[] cols,
+            IndexColumn[] includeColumns, IndexType indexType, boolean create, String indexComment) {
+        if (includeColumns != null) {
+            throw DbException.getUnsupportedException("INCLUDE");
+        }
+        return addIndex(session, indexName, indexId, cols, indexType, create, indexComment);
+    }
+
     /**
      * Get the given row.
      *
@@ -613,6 +637,15 @@ public void dropMultipleColumnsConstraintsAndIndexes(Session session,
                         continue;
                     }
                     if (index.getColumnIndex(col) < 0) {
+                        IndexColumn[] includeColumns = index.getIncludeColumns();
+                        if (includeColumns != null) {
+                            for (IndexColumn c : includeColumns) {
+                                if (c.column == col) {
+                                    throw DbException.get(ErrorCode.COLUMN_IS_REFERENCED_1,
+                                            index.getTraceSQL());
+                                }
+                            }
+                        }
                         continue;
                     }
                     if (index.getColumns().length == 1) {
@@ -1099,6 +1132,18 @@ public boolean isGlobalTemporary() {
         return false;
     }
 
+    /**
+     * Start loading rows into this table in bulk. This is only possible if
+     * the table is empty. The rows are not added to the undo log, so the
+     * table stays locked exclusively until the end of the transaction.
+     *
+     * @param session the session
+     * @return the bulk loader, or null if bulk loading is not supported
+     */
+    public BulkLoader beginBulkLoad(Session session) {
+        return null;
+    }
+
     /**
      * Check if this table can be truncated.
      *
@@ -1289,6 +1334,24 @@ public void setHidden(boolean hidden) {
         this.isHidden = hidden;
     }
 
+    /**
+     * Get the statistics collected by ANALYZE.
+     *
+     * @return the statistics, or null if there are none
+     */
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics collected by ANALYZE.
+     *
+     * @param statistics the statistics, or null to remove them
+     */
+    public void setStatistics(TableStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     public boolean isMVStore() {
         return false;
     }
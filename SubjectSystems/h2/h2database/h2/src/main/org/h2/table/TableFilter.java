@@ -21,11 +21,14 @@
 import org.h2.expression.Expression;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
+import org.h2.index.ColumnarIndex;
+import org.h2.index.HashJoin;
 import org.h2.index.Index;
 import org.h2.index.IndexCondition;
 import org.h2.index.IndexCursor;
 import org.h2.message.DbException;
 import org.h2.result.Row;
+import org.h2.result.RowBatch;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.util.HasSQL;
@@ -86,6 +89,12 @@ public class TableFilter implements ColumnResolver {
      */
     private final ArrayList<IndexCondition> indexConditions = Utils.newSmallArrayList();
 
+    /**
+     * The hash join used to look up the rows instead of the index, or
+     * {@code null}.
+     */
+    private HashJoin hashJoin;
+
     /**
      * Whether new window conditions should not be accepted.
      */
@@ -106,6 +115,15 @@ public class TableFilter implements ColumnResolver {
     private Row current;
     private int state;
 
+    /**
+     * The condition evaluated for batches of rows, or {@code null}.
+     */
+    private Expression batchCondition;
+    private RowBatch batch;
+    private byte[] batchResult;
+    private int batchIndex;
+    private boolean batchLast;
+
     /**
      * The joined table (if there is one).
      */
@@ -252,6 +270,19 @@ public PlanItem getBestPlanItem(Session s, TableFilter[] filters, int filter,
             item = item1;
         }
 
+        PlanItem hashItem = getHashJoinPlanItem(s, filters, filter, allColumnsSet);
+        if (hashItem != null) {
+            // if there is a usable index, building of the hash table
+            // must be cheaper than its lookups
+            double cost = hashItem.cost;
+            if (!item.getIndex().getIndexType().isScan()) {
+                cost += hashItem.hashJoinBuildCost;
+            }
+            if (cost < item.cost) {
+                item = hashItem;
+            }
+        }
+
         if (nestedJoin != null) {
             setEvaluatable(true);
             item.setNestedJoinPlan(nestedJoin.getBestPlanItem(s, filters, filter, allColumnsSet));
@@ -272,6 +303,59 @@ public PlanItem getBestPlanItem(Session s, TableFilter[] filters, int filter,
         return item;
     }
 
+    /**
+     * Get the plan item for a hash join with the previous table filters, if
+     * this table filter has equality conditions that can be used as a key.
+     *
+     * @param s the session
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param allColumnsSet the set of all columns
+     * @return the plan item, or null if a hash join can't be used
+     */
+    private PlanItem getHashJoinPlanItem(Session s, TableFilter[] filters, int filter,
+            AllColumnsForPlan allColumnsSet) {
+        // data change statements may modify the table during the lookups
+        if (filter == 0 || select == null || nestedJoin != null || table.getTableType() != TableType.TABLE
+                || !s.getDatabase().getSettings().hashJoin) {
+            return null;
+        }
+        ArrayList<IndexCondition> conditions = null;
+        for (IndexCondition condition : indexConditions) {
+            if (condition.isAlwaysFalse()) {
+                return null;
+            }
+            if (condition.isEvaluatable() && HashJoin.isHashable(condition)) {
+                if (conditions == null) {
+                    conditions = Utils.newSmallArrayList();
+                } else {
+                    boolean duplicate = false;
+                    for (IndexCondition c : conditions) {
+                        if (c.getColumn() == condition.getColumn()) {
+                            duplicate = true;
+                            break;
+                        }
+                    }
+                    if (duplicate) {
+                        continue;
+                    }
+                }
+                conditions.add(condition);
+            }
+        }
+        if (conditions == null) {
+            return null;
+        }
+        Index scanIndex = table.getScanIndex(s);
+        double scanCost = scanIndex.getCost(s, null, filters, filter, null, allColumnsSet);
+        PlanItem item = new PlanItem();
+        item.setIndex(scanIndex);
+        item.setHashJoinConditions(conditions);
+        item.cost = HashJoin.getCost(scanIndex.getRowCountApproximation(), scanCost, conditions);
+        item.hashJoinBuildCost = scanCost;
+        return item;
+    }
+
     /**
      * Set what plan item (index, cost, masks) to use.
      *
@@ -285,6 +369,9 @@ public void setPlanItem(PlanItem item) {
         }
         setIndex(item.getIndex());
         masks = item.getMasks();
+        ArrayList<IndexCondition> hashJoinConditions = item.getHashJoinConditions();
+        hashJoin = hashJoinConditions != null ? new HashJoin(index, hashJoinConditions) : null;
+        cursor.setHashJoin(hashJoin);
         if (nestedJoin != null) {
             if (item.getNestedJoinPlan() != null) {
                 nestedJoin.setPlanItem(item.getNestedJoinPlan());
@@ -328,7 +415,8 @@ public void prepare() {
             if (!condition.isAlwaysFalse()) {
                 Column col = condition.getColumn();
                 if (col.getColumnId() >= 0) {
-                    if (index.getColumnIndex(col) < 0) {
+                    if (index.getColumnIndex(col) < 0 && !(index instanceof ColumnarIndex
+                            && (condition.isStart() || condition.isEnd()))) {
                         indexConditions.remove(i);
                         i--;
                     }
@@ -363,6 +451,10 @@ public void prepare() {
     public void startQuery(Session s) {
         this.session = s;
         scanCount = 0;
+        if (hashJoin != null) {
+            // the rows might have been changed since the previous execution
+            hashJoin.close();
+        }
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -395,6 +487,11 @@ public boolean next() {
             return false;
         } else if (state == BEFORE_FIRST) {
             cursor.find(session, indexConditions);
+            if (batchCondition != null) {
+                batch.clear();
+                batchIndex = 0;
+                batchLast = false;
+            }
             if (!cursor.isAlwaysFalse()) {
                 if (nestedJoin != null) {
                     nestedJoin.reset();
@@ -421,6 +518,14 @@ public boolean next() {
                 if (state == BEFORE_FIRST) {
                     state = FOUND;
                 }
+            } else if (batchCondition != null) {
+                Row row = nextBatchRow();
+                if (row != null) {
+                    currentSearchRow = current = row;
+                    state = FOUND;
+                } else {
+                    state = AFTER_LAST;
+                }
             } else {
                 if ((++scanCount & 4095) == 0) {
                     checkTimeout();
@@ -474,9 +579,76 @@ public boolean next() {
             }
         }
         state = AFTER_LAST;
+        if (join != null && select != null && select.getTopTableFilter() == this) {
+            // the query is done, release the hash tables of joined tables
+            closeHashJoins();
+        }
         return false;
     }
 
+    /**
+     * Get the next row of the current batch that satisfies the batch
+     * condition, reading and evaluating the next batch when necessary.
+     *
+     * @return the row, or {@code null} if there are no more rows
+     */
+    private Row nextBatchRow() {
+        while (true) {
+            for (int size = batch.size(); batchIndex < size;) {
+                int i = batchIndex++;
+                if (batchResult[i] == RowBatch.TRUE) {
+                    return batch.get(i);
+                }
+            }
+            batch.clear();
+            batchIndex = 0;
+            if (batchLast) {
+                return null;
+            }
+            boolean full = false;
+            while (!full && cursor.next()) {
+                full = batch.add(cursor.get());
+            }
+            batchLast = !full;
+            int size = batch.size();
+            if (size > 0) {
+                scanCount += size;
+                checkTimeout();
+                batchCondition.getBooleanBatch(session, this, batch, batchResult);
+            }
+        }
+    }
+
+    /**
+     * Set the condition to evaluate for batches of rows. Only rows that
+     * satisfy the condition are returned by {@link #next()}. The condition
+     * may be set only for a table filter without joins.
+     *
+     * @param condition the batchable condition, or {@code null} to read rows
+     *            one by one
+     */
+    public void setBatchCondition(Expression condition) {
+        batchCondition = condition;
+        if (condition != null && batch == null) {
+            batch = new RowBatch(RowBatch.DEFAULT_CAPACITY, table.getColumns().length);
+            batchResult = new byte[RowBatch.DEFAULT_CAPACITY];
+        }
+    }
+
+    /**
+     * Release the hash tables of this and all joined tables. They are built
+     * again when they are used the next time.
+     */
+    public void closeHashJoins() {
+        visit(TableFilter::closeHashJoin);
+    }
+
+    private void closeHashJoin() {
+        if (hashJoin != null) {
+            hashJoin.close();
+        }
+    }
+
     public boolean isNullRow() {
         return state == NULL_ROW;
     }
@@ -769,13 +941,21 @@ public StringBuilder getPlanSQL(StringBuilder builder, boolean isJoin, int sqlFl
         if (index != null && (sqlFlags & HasSQL.ADD_PLAN_INFORMATION) != 0) {
             builder.append('\n');
             StringBuilder planBuilder = new StringBuilder().append("/* ").append(index.getPlanSQL());
-            if (!indexConditions.isEmpty()) {
+            ArrayList<IndexCondition> conditions = indexConditions;
+            if (hashJoin != null) {
+                planBuilder.append(" hash join");
+                conditions = new ArrayList<>(conditions);
+                for (IndexCondition condition : hashJoin.getConditions()) {
+                    conditions.add(condition);
+                }
+            }
+            if (!conditions.isEmpty()) {
                 planBuilder.append(": ");
-                for (int i = 0, size = indexConditions.size(); i < size; i++) {
+                for (int i = 0, size = conditions.size(); i < size; i++) {
                     if (i > 0) {
                         planBuilder.append("\n    AND ");
                     }
-                    planBuilder.append(indexConditions.get(i).getSQL(
+                    planBuilder.append(conditions.get(i).getSQL(
                             HasSQL.TRACE_SQL_FLAGS | HasSQL.ADD_PLAN_INFORMATION));
                 }
             }
@@ -803,12 +983,34 @@ public StringBuilder getPlanSQL(StringBuilder builder, boolean isJoin, int sqlFl
                 StringUtils.indent(builder, condition, 4, false);
             }
             if (scanCount > 0) {
-                builder.append("\n    /* scanCount: ").append(scanCount).append(" */");
+                builder.append("\n    /* scanCount: ").append(scanCount);
+                long estimatedRows = getEstimatedRowCount();
+                if (estimatedRows >= 0) {
+                    builder.append(", estimatedRows: ").append(estimatedRows);
+                }
+                builder.append(" */");
             }
         }
         return builder;
     }
 
+    /**
+     * Estimate the number of rows that are read by one lookup in the index,
+     * using the statistics collected by ANALYZE.
+     *
+     * @return the estimated number of rows, or -1 if there are no statistics
+     */
+    private long getEstimatedRowCount() {
+        TableStatistics statistics = table.getStatistics();
+        if (statistics == null || index == null || hashJoin != null) {
+            return -1;
+        }
+        long rowCount = table.getRowCountApproximation();
+        double fraction = index.getIndexType().isScan() ? -1
+                : statistics.getLookupFraction(index.getColumns(), masks, this);
+        return fraction < 0 ? rowCount : Math.round(rowCount * fraction);
+    }
+
     /**
      * Remove all index conditions that are not used by the current index.
      */
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.h2.engine.Session;
+import org.h2.expression.Expression;
+import org.h2.expression.condition.Comparison;
+import org.h2.index.IndexCondition;
+import org.h2.message.DbException;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.ValueDataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * The statistics of a table that are collected by ANALYZE: the statistics of
+ * each column, and the number of distinct combinations of the values of groups
+ * of columns.
+ */
+public final class TableStatistics {
+
+    private final long rowCount;
+
+    private final ColumnStatistics[] columns;
+
+    private final int[][] groups;
+
+    private final long[] groupDistinctCounts;
+
+    /**
+     * Create the statistics of a table.
+     *
+     * @param rowCount the number of rows when the statistics were collected
+     * @param columns the statistics of the columns, the entries of columns
+     *            without statistics are null
+     * @param groups the column ids of the groups of columns
+     * @param groupDistinctCounts the estimated number of distinct combinations
+     *            of the values of each group
+     */
+    public TableStatistics(long rowCount, ColumnStatistics[] columns, int[][] groups, long[] groupDistinctCounts) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.groups = groups;
+        this.groupDistinctCounts = groupDistinctCounts;
+    }
+
+    /**
+     * Get the number of rows of the table when the statistics were collected.
+     *
+     * @return the number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the statistics of a column.
+     *
+     * @param column the column
+     * @return the statistics, or null if there are none
+     */
+    public ColumnStatistics getColumnStatistics(Column column) {
+        int id = column.getColumnId();
+        if (id < 0 || id >= columns.length) {
+            return null;
+        }
+        ColumnStatistics s = columns[id];
+        return s != null && s.getValueType() == column.getType().getValueType() ? s : null;
+    }
+
+    /**
+     * Get the estimated number of distinct combinations of the values of a
+     * group of columns.
+     *
+     * @param columnIds the column ids of the group
+     * @return the number of distinct combinations, or -1 if unknown
+     */
+    public long getGroupDistinctCount(int[] columnIds) {
+        for (int i = 0; i < groups.length; i++) {
+            if (Arrays.equals(groups[i], columnIds)) {
+                return groupDistinctCounts[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Estimate the fraction of the rows of the table that are read by a
+     * lookup in an index with the index conditions of a table filter.
+     *
+     * @param columns the columns of the index
+     * @param masks the search masks, one for each column of the table
+     * @param filter the table filter with the index conditions
+     * @return the fraction, from 0 to 1, or -1 if it can not be estimated
+     */
+    public double getLookupFraction(Column[] columns, int[] masks, TableFilter filter) {
+        if (masks == null || filter == null) {
+            return -1;
+        }
+        Session session = filter.getSession();
+        ArrayList<IndexCondition> conditions = filter.getIndexConditions();
+        double fraction = 1, distinctProduct = 1;
+        int i = 0;
+        for (int len = columns.length; i < len; i++) {
+            Column column = columns[i];
+            ColumnStatistics statistics = getColumnStatistics(column);
+            int mask = masks[column.getColumnId()];
+            if (statistics == null || mask == 0) {
+                break;
+            }
+            if ((mask & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
+                fraction *= getEqualityFraction(session, column, statistics, conditions);
+                distinctProduct *= Math.max(statistics.getDistinctCount(), 1);
+                if (i > 0) {
+                    int[] ids = new int[i + 1];
+                    for (int j = 0; j <= i; j++) {
+                        ids[j] = columns[j].getColumnId();
+                    }
+                    long groupDistinct = getGroupDistinctCount(ids);
+                    if (groupDistinct > 0 && distinctProduct > groupDistinct) {
+                        // the values of the columns are correlated
+                        fraction = Math.min(fraction * distinctProduct / groupDistinct, 1);
+                        distinctProduct = groupDistinct;
+                    }
+                }
+            } else {
+                double f = getRangeFraction(session, column, statistics, conditions);
+                if (f < 0) {
+                    return -1;
+                }
+                fraction *= f;
+                i++;
+                break;
+            }
+        }
+        return i == 0 ? -1 : fraction;
+    }
+
+    private static double getEqualityFraction(Session session, Column column, ColumnStatistics statistics,
+            ArrayList<IndexCondition> conditions) {
+        double fraction = -1;
+        for (IndexCondition condition : conditions) {
+            if (condition.getColumn() != column || !condition.isEvaluatable()) {
+                continue;
+            }
+            double f;
+            switch (condition.getCompareType()) {
+            case Comparison.EQUAL:
+            case Comparison.EQUAL_NULL_SAFE: {
+                Value v = getConstant(session, column, condition.getExpression());
+                if (v == ValueNull.INSTANCE && condition.getCompareType() == Comparison.EQUAL) {
+                    f = 0;
+                } else {
+                    f = statistics.getEqualityFraction(session, v);
+                }
+                break;
+            }
+            case Comparison.IN_LIST:
+                f = 0;
+                for (Expression e : condition.getExpressionList()) {
+                    Value v = getConstant(session, column, e);
+                    if (v != ValueNull.INSTANCE) {
+                        f += statistics.getEqualityFraction(session, v);
+                    }
+                }
+                break;
+            case Comparison.IN_QUERY:
+                f = statistics.getEqualityFraction(session, null);
+                break;
+            default:
+                continue;
+            }
+            fraction = fraction < 0 ? f : Math.min(fraction, f);
+        }
+        return fraction < 0 ? statistics.getEqualityFraction(session, null) : Math.min(fraction, 1);
+    }
+
+    private static double getRangeFraction(Session session, Column column, ColumnStatistics statistics,
+            ArrayList<IndexCondition> conditions) {
+        Value low = null, high = null;
+        for (IndexCondition condition : conditions) {
+            if (condition.getColumn() != column || !condition.isEvaluatable()) {
+                continue;
+            }
+            boolean start = condition.isStart(), end = condition.isEnd();
+            if (!start && !end || start && end) {
+                continue;
+            }
+            Value v = getConstant(session, column, condition.getExpression());
+            if (v == null) {
+                return -1;
+            } else if (v == ValueNull.INSTANCE) {
+                return 0;
+            }
+            if (start) {
+                if (low == null || session.compareTypeSafe(v, low) > 0) {
+                    low = v;
+                }
+            } else if (high == null || session.compareTypeSafe(v, high) < 0) {
+                high = v;
+            }
+        }
+        return low == null && high == null ? -1 : statistics.getRangeFraction(session, low, high);
+    }
+
+    /**
+     * Get the value of a constant expression converted to the data type of a
+     * column.
+     *
+     * @param session the session
+     * @param column the column
+     * @param e the expression
+     * @return the value, or null if the expression is not constant or the
+     *         value can not be converted
+     */
+    private static Value getConstant(Session session, Column column, Expression e) {
+        if (e == null || !e.isConstant()) {
+            return null;
+        }
+        try {
+            return column.convert(session, e.getValue(session));
+        } catch (DbException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the column ids of the groups of columns.
+     *
+     * @return the groups
+     */
+    public int[][] getGroups() {
+        return groups;
+    }
+
+    /**
+     * Read the statistics.
+     *
+     * @param buff the source buffer
+     * @param type the data type used to serialize the values
+     * @return the statistics
+     */
+    public static TableStatistics read(ByteBuffer buff, ValueDataType type) {
+        long rowCount = DataUtils.readVarLong(buff);
+        ColumnStatistics[] columns = new ColumnStatistics[DataUtils.readVarInt(buff)];
+        for (int i = 0; i < columns.length; i++) {
+            if (buff.get() != 0) {
+                columns[i] = ColumnStatistics.read(buff, type);
+            }
+        }
+        int groupCount = DataUtils.readVarInt(buff);
+        int[][] groups = new int[groupCount][];
+        long[] groupDistinctCounts = new long[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            int[] ids = new int[DataUtils.readVarInt(buff)];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = DataUtils.readVarInt(buff);
+            }
+            groups[i] = ids;
+            groupDistinctCounts[i] = DataUtils.readVarLong(buff);
+        }
+        return new TableStatistics(rowCount, columns, groups, groupDistinctCounts);
+    }
+
+    /**
+     * Write the statistics.
+     *
+     * @param buff the target buffer
+     * @param type the data type used to serialize the values
+     */
+    public void write(WriteBuffer buff, ValueDataType type) {
+        buff.putVarLong(rowCount).putVarInt(columns.length);
+        for (ColumnStatistics s : columns) {
+            if (s == null) {
+                buff.put((byte) 0);
+            } else {
+                buff.put((byte) 1);
+                s.write(buff, type);
+            }
+        }
+        buff.putVarInt(groups.length);
+        for (int i = 0; i < groups.length; i++) {
+            int[] ids = groups[i];
+            buff.putVarInt(ids.length);
+            for (int id : ids) {
+                buff.putVarInt(id);
+            }
+            buff.putVarLong(groupDistinctCounts[i]);
+        }
+    }
+
+}
@@ -138,6 +138,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
+                } else if ("-tcpMaxWorkers".equals(arg)) {
+                    i++;
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -161,6 +165,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-pgDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-pgVirtualThreads".equals(arg)) {
+                    // no parameters
+                } else if ("-pgMaxWorkers".equals(arg)) {
+                    i++;
                 } else if ("-pgPort".equals(arg)) {
                     i++;
                 } else {
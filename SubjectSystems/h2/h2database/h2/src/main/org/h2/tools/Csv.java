@@ -5,17 +5,19 @@
  */
 package org.h2.tools;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -23,15 +25,25 @@
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.h2.api.ErrorCode;
+import org.h2.engine.CastDataProvider;
 import org.h2.engine.Constants;
 import org.h2.engine.SysProperties;
 import org.h2.message.DbException;
+import org.h2.result.SimpleResult;
 import org.h2.store.fs.FileUtils;
 import org.h2.util.IOUtils;
 import org.h2.util.JdbcUtils;
 import org.h2.util.StringUtils;
 import org.h2.util.Utils;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueVarchar;
 
 /**
  * A facility to read from and write to CSV (comma separated values) files. When
@@ -42,6 +54,17 @@
  */
 public class Csv implements SimpleRowSource {
 
+    /**
+     * The number of characters that are read or written at once.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The minimum and maximum number of bytes of the ranges of a file that
+     * are read in parallel.
+     */
+    private static final long MIN_RANGE_SIZE = 1 << 20, MAX_RANGE_SIZE = 16 << 20;
+
     private String[] columnNames;
 
     private String characterSet;
@@ -55,6 +78,7 @@ public class Csv implements SimpleRowSource {
     private char lineComment;
     private String lineSeparator = SysProperties.LINE_SEPARATOR;
     private String nullString = "";
+    private int threads = 1;
 
     private String fileName;
     private Reader input;
@@ -63,11 +87,15 @@ public class Csv implements SimpleRowSource {
     private int inputBufferStart = -1;
     private int inputBufferEnd;
     private Writer output;
+    private char[] outputBuffer;
+    private int outputBufferPos;
     private boolean endOfLine, endOfFile;
 
     private int writeResultSet(ResultSet rs) throws SQLException {
         try {
             int rows = 0;
+            outputBuffer = new char[BUFFER_SIZE];
+            outputBufferPos = 0;
             ResultSetMetaData meta = rs.getMetaData();
             int columnCount = meta.getColumnCount();
             String[] row = new String[columnCount];
@@ -86,6 +114,7 @@ private int writeResultSet(ResultSet rs) throws SQLException {
                 writeRow(row);
                 rows++;
             }
+            flushOutput();
             output.close();
             return rows;
         } catch (IOException e) {
@@ -197,6 +226,213 @@ public ResultSet read(Reader reader, String[] colNames) throws IOException {
         return readResultSet(colNames);
     }
 
+    /**
+     * INTERNAL.
+     * Reads the CSV file into a result. The values are read as VARCHAR. If
+     * more than one thread is set, the data of large files is split at line
+     * breaks into ranges that are parsed in parallel.
+     *
+     * @param inputFileName the file name
+     * @param colNames or null if the column names should be read from the CSV
+     *          file
+     * @param charset the charset or null to use the system default charset
+     * @param provider the cast information provider
+     * @return the result
+     */
+    public SimpleResult readResult(String inputFileName, String[] colNames, String charset,
+            CastDataProvider provider) throws SQLException {
+        init(inputFileName, charset);
+        this.columnNames = colNames;
+        try {
+            SimpleResult result;
+            if (threads > 1) {
+                result = readParallel(provider);
+                if (result != null) {
+                    return result;
+                }
+            }
+            initRead();
+            result = createResult();
+            while (true) {
+                Object[] row = readRow();
+                if (row == null) {
+                    break;
+                }
+                result.addRow(toValues(row, provider));
+            }
+            return result;
+        } catch (IOException e) {
+            throw convertException("IOException reading " + inputFileName, e);
+        } finally {
+            close();
+        }
+    }
+
+    private SimpleResult createResult() {
+        makeColumnNamesUnique();
+        SimpleResult result = new SimpleResult();
+        TypeInfo type = TypeInfo.getTypeInfo(Value.VARCHAR, Integer.MAX_VALUE, 0, null);
+        for (String columnName : columnNames) {
+            result.addColumn(columnName, columnName, type);
+        }
+        return result;
+    }
+
+    private static Value[] toValues(Object[] row, CastDataProvider provider) {
+        Value[] values = new Value[row.length];
+        for (int i = 0; i < row.length; i++) {
+            String s = (String) row[i];
+            values[i] = s == null ? ValueNull.INSTANCE : ValueVarchar.getUncached(s, provider);
+        }
+        return values;
+    }
+
+    /**
+     * Read the file with multiple threads. This is only possible if the
+     * character set encodes the line breaks as single bytes that don't occur
+     * in other characters, and if the file is large enough.
+     *
+     * @param provider the cast information provider
+     * @return the result, or null if the file needs to be read by one thread
+     */
+    private SimpleResult readParallel(CastDataProvider provider) throws IOException {
+        Charset cs = characterSet != null ? Charset.forName(characterSet) : Charset.defaultCharset();
+        if (!cs.equals(StandardCharsets.UTF_8) && !cs.equals(StandardCharsets.ISO_8859_1)
+                && !cs.equals(StandardCharsets.US_ASCII)) {
+            return null;
+        }
+        FileChannel file;
+        try {
+            file = FileUtils.open(fileName, "r");
+        } catch (IOException | DbException e) {
+            // for example a URL
+            return null;
+        }
+        try (FileChannel channel = file) {
+            long size = channel.size();
+            if (size < 2 * MIN_RANGE_SIZE) {
+                return null;
+            }
+            // the byte order mark and the column header
+            ByteBuffer head = ByteBuffer.allocate(BUFFER_SIZE);
+            readFully(channel, 0, head);
+            CharBuffer chars = cs.decode(head);
+            input = new StringReader("");
+            inputBuffer = chars.array();
+            inputBufferEnd = chars.limit();
+            if (readChar() != 0xfeff) {
+                pushBack();
+            }
+            if (columnNames == null) {
+                readHeader();
+                if (endOfFile) {
+                    // the header is longer than the buffer
+                    close();
+                    columnNames = null;
+                    endOfFile = false;
+                    inputBufferPos = inputBufferEnd = 0;
+                    inputBufferStart = -1;
+                    return null;
+                }
+            }
+            long start = new String(inputBuffer, 0, inputBufferPos).getBytes(cs).length;
+            close();
+            SimpleResult result = createResult();
+            int columnCount = columnNames.length;
+            long rangeSize = Math.min(Math.max((size - start) / (threads * 4L), MIN_RANGE_SIZE), MAX_RANGE_SIZE);
+            ArrayList<Future<ArrayList<Value[]>>> futures = new ArrayList<>();
+            ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "H2 CSV reader");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                while (start < size) {
+                    long end = start + rangeSize >= size ? size : getLineStart(channel, start + rangeSize, size);
+                    long rangeStart = start;
+                    futures.add(executor.submit(() -> readRange(channel, rangeStart, end, cs, columnCount, provider)));
+                    start = end;
+                }
+                for (Future<ArrayList<Value[]>> future : futures) {
+                    for (Value[] row : future.get()) {
+                        result.addRow(row);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw DbException.convert(cause);
+            } finally {
+                for (Future<ArrayList<Value[]>> future : futures) {
+                    future.cancel(true);
+                }
+                executor.shutdown();
+            }
+            return result;
+        }
+    }
+
+    private static long getLineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buff = ByteBuffer.allocate(Constants.IO_BUFFER_SIZE);
+        while (pos < size) {
+            buff.clear();
+            if (buff.remaining() > size - pos) {
+                buff.limit((int) (size - pos));
+            }
+            readFully(channel, pos, buff);
+            for (int i = 0, len = buff.limit(); i < len; i++) {
+                if (buff.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += buff.limit();
+        }
+        return size;
+    }
+
+    private ArrayList<Value[]> readRange(FileChannel channel, long start, long end, Charset cs, int columnCount,
+            CastDataProvider provider) throws IOException, SQLException {
+        ByteBuffer buff = ByteBuffer.allocate((int) (end - start));
+        readFully(channel, start, buff);
+        CharBuffer chars = cs.decode(buff);
+        Csv csv = new Csv();
+        csv.fileName = fileName;
+        csv.escapeCharacter = escapeCharacter;
+        csv.fieldDelimiter = fieldDelimiter;
+        csv.fieldSeparatorRead = fieldSeparatorRead;
+        csv.preserveWhitespace = preserveWhitespace;
+        csv.lineComment = lineComment;
+        csv.nullString = nullString;
+        csv.columnNames = new String[columnCount];
+        csv.input = new StringReader("");
+        csv.inputBuffer = chars.array();
+        csv.inputBufferEnd = chars.limit();
+        ArrayList<Value[]> rows = new ArrayList<>();
+        while (true) {
+            Object[] row = csv.readRow();
+            if (row == null) {
+                break;
+            }
+            rows.add(toValues(row, provider));
+        }
+        return rows;
+    }
+
+    private static void readFully(FileChannel channel, long pos, ByteBuffer buff) throws IOException {
+        while (buff.hasRemaining()) {
+            int len = channel.read(buff, pos);
+            if (len < 0) {
+                break;
+            }
+            pos += len;
+        }
+        buff.flip();
+    }
+
     private ResultSet readResultSet(String[] colNames) throws IOException {
         this.columnNames = colNames;
         initRead();
@@ -237,9 +473,8 @@ private void initWrite() throws IOException {
         if (output == null) {
             try {
                 OutputStream out = FileUtils.newOutputStream(fileName, false);
-                out = new BufferedOutputStream(out, Constants.IO_BUFFER_SIZE);
-                output = new BufferedWriter(characterSet != null ?
-                        new OutputStreamWriter(out, characterSet) : new OutputStreamWriter(out));
+                output = characterSet != null ?
+                        new OutputStreamWriter(out, characterSet) : new OutputStreamWriter(out);
             } catch (Exception e) {
                 close();
                 throw DbException.convertToIOException(e);
@@ -251,69 +486,82 @@ private void writeRow(String[] values) throws IOException {
         for (int i = 0; i < values.length; i++) {
             if (i > 0) {
                 if (fieldSeparatorWrite != null) {
-                    output.write(fieldSeparatorWrite);
+                    write(fieldSeparatorWrite, 0, fieldSeparatorWrite.length());
                 }
             }
             String s = values[i];
             if (s != null) {
                 if (escapeCharacter != 0) {
                     if (fieldDelimiter != 0) {
-                        output.write(fieldDelimiter);
+                        write(fieldDelimiter);
                     }
-                    output.write(escape(s));
+                    writeEscaped(s);
                     if (fieldDelimiter != 0) {
-                        output.write(fieldDelimiter);
+                        write(fieldDelimiter);
                     }
                 } else {
-                    output.write(s);
+                    write(s, 0, s.length());
                 }
             } else if (nullString != null && nullString.length() > 0) {
-                output.write(nullString);
+                write(nullString, 0, nullString.length());
             }
         }
-        output.write(lineSeparator);
+        write(lineSeparator, 0, lineSeparator.length());
     }
 
-    private String escape(String data) {
-        if (data.indexOf(fieldDelimiter) < 0) {
-            if (escapeCharacter == fieldDelimiter || data.indexOf(escapeCharacter) < 0) {
-                return data;
-            }
-        }
-        int length = data.length();
-        StringBuilder buff = new StringBuilder(length);
+    private void writeEscaped(String data) throws IOException {
+        int start = 0, length = data.length();
         for (int i = 0; i < length; i++) {
             char ch = data.charAt(i);
             if (ch == fieldDelimiter || ch == escapeCharacter) {
-                buff.append(escapeCharacter);
+                write(data, start, i);
+                write(escapeCharacter);
+                start = i;
             }
-            buff.append(ch);
         }
-        return buff.toString();
+        write(data, start, length);
+    }
+
+    private void write(char ch) throws IOException {
+        if (outputBufferPos == outputBuffer.length) {
+            flushOutput();
+        }
+        outputBuffer[outputBufferPos++] = ch;
+    }
+
+    private void write(String s, int start, int end) throws IOException {
+        while (start < end) {
+            if (outputBufferPos == outputBuffer.length) {
+                flushOutput();
+            }
+            int len = Math.min(end - start, outputBuffer.length - outputBufferPos);
+            s.getChars(start, start + len, outputBuffer, outputBufferPos);
+            outputBufferPos += len;
+            start += len;
+        }
+    }
+
+    private void flushOutput() throws IOException {
+        output.write(outputBuffer, 0, outputBufferPos);
+        outputBufferPos = 0;
     }
 
     private void initRead() throws IOException {
         if (input == null) {
             try {
                 InputStream in = FileUtils.newInputStream(fileName);
-                in = new BufferedInputStream(in, Constants.IO_BUFFER_SIZE);
                 input = characterSet != null ? new InputStreamReader(in, characterSet) : new InputStreamReader(in);
             } catch (IOException e) {
                 close();
                 throw e;
             }
         }
-        if (!input.markSupported()) {
-            input = new BufferedReader(input);
-        }
-        input.mark(1);
-        int bom = input.read();
-        if (bom != 0xfeff) {
+        inputBuffer = new char[BUFFER_SIZE * 2];
+        if (readChar() != 0xfeff) {
             // Microsoft Excel compatibility
             // ignore pseudo-BOM
-            input.reset();
+            pushBack();
         }
-        inputBuffer = new char[Constants.IO_BUFFER_SIZE * 2];
         if (columnNames == null) {
             readHeader();
         }
@@ -383,7 +631,7 @@ private int readBuffer() throws IOException {
             keep = inputBufferPos - inputBufferStart;
             if (keep > 0) {
                 char[] src = inputBuffer;
-                if (keep + Constants.IO_BUFFER_SIZE > src.length) {
+                if (keep + BUFFER_SIZE > src.length) {
                     inputBuffer = new char[src.length * 2];
                 }
                 System.arraycopy(src, inputBufferStart, inputBuffer, 0, keep);
@@ -393,7 +641,7 @@ private int readBuffer() throws IOException {
             keep = 0;
         }
         inputBufferPos = keep;
-        int len = input.read(inputBuffer, keep, Constants.IO_BUFFER_SIZE);
+        int len = input.read(inputBuffer, keep, BUFFER_SIZE);
         if (len == -1) {
             // ensure bufferPos > bufferEnd
             // even after pushBack
@@ -419,6 +667,7 @@ private String readValue() throws IOException {
                 inputBufferStart = inputBufferPos;
                 int sep;
                 while (true) {
+                    skipUnescaped();
                     ch = readChar();
                     if (ch == fieldDelimiter) {
                         ch = readChar();
@@ -479,7 +728,7 @@ private String readValue() throws IOException {
             } else {
                 // un-delimited value
                 while (true) {
-                    ch = readChar();
+                    ch = skipUndelimited();
                     if (ch == fieldSeparatorRead) {
                         break;
                     } else if (ch == '\n' || ch < 0 || ch == '\r') {
@@ -487,20 +736,82 @@ private String readValue() throws IOException {
                         break;
                     }
                 }
-                String s = new String(inputBuffer,
-                        inputBufferStart, inputBufferPos - inputBufferStart - 1);
-                if (!preserveWhitespace) {
-                    s = s.trim();
-                }
+                String s = readUndelimited(inputBufferStart, inputBufferPos - 1);
                 inputBufferStart = -1;
-                // check un-delimited value for nullString
-                return readNull(s);
+                return s;
             }
         }
     }
 
-    private String readNull(String s) {
-        return s.equals(nullString) ? null : s;
+    /**
+     * Skip the characters of a delimited value that are neither the field
+     * delimiter nor the escape character, without leaving the buffer.
+     */
+    private void skipUnescaped() {
+        char[] buff = inputBuffer;
+        char delimiter = fieldDelimiter, escape = escapeCharacter;
+        int pos = inputBufferPos;
+        for (int end = inputBufferEnd; pos < end; pos++) {
+            char ch = buff[pos];
+            if (ch == delimiter || ch == escape) {
+                break;
+            }
+        }
+        inputBufferPos = pos;
+    }
+
+    /**
+     * Read the characters of an un-delimited value up to and including the
+     * next field separator or line break.
+     *
+     * @return the separator or line break, or -1 at the end of the file
+     */
+    private int skipUndelimited() throws IOException {
+        char[] buff = inputBuffer;
+        char separator = fieldSeparatorRead;
+        int pos = inputBufferPos;
+        for (int end = inputBufferEnd; pos < end; pos++) {
+            char ch = buff[pos];
+            if (ch == separator || ch == '\n' || ch == '\r') {
+                inputBufferPos = pos + 1;
+                return ch;
+            }
+        }
+        inputBufferPos = pos;
+        return readChar();
+    }
+
+    /**
+     * Get an un-delimited value from the input buffer. The whitespace is
+     * trimmed and the null string is detected before the string is created.
+     *
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the value, or null if it is the null string
+     */
+    private String readUndelimited(int start, int end) {
+        char[] buff = inputBuffer;
+        if (!preserveWhitespace) {
+            while (start < end && buff[start] <= ' ') {
+                start++;
+            }
+            while (start < end && buff[end - 1] <= ' ') {
+                end--;
+            }
+        }
+        // check un-delimited value for nullString
+        String n = nullString;
+        int length = end - start;
+        if (n != null && n.length() == length) {
+            int i = 0;
+            while (i < length && buff[start + i] == n.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return null;
+            }
+        }
+        return new String(buff, start, length);
     }
 
     private String unEscape(String s) {
@@ -799,6 +1110,27 @@ public boolean getWriteColumnHeader() {
         return writeColumnHeader;
     }
 
+    /**
+     * Set the number of threads that are used to read large files with
+     * CSVREAD. The default is 1. If more than one thread is used, the values
+     * must not contain line breaks.
+     *
+     * @param threads the number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Get the number of threads that are used to read large files with
+     * CSVREAD.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
     /**
      * INTERNAL.
      * Parse and set the CSV options.
@@ -838,6 +1170,12 @@ public String setOptions(String options) {
                 setWriteColumnHeader(Utils.parseBoolean(value, true, false));
             } else if (isParam(key, "caseSensitiveColumnNames")) {
                 setCaseSensitiveColumnNames(Utils.parseBoolean(value, false, false));
+            } else if (isParam(key, "threads")) {
+                try {
+                    setThreads(Math.max(Integer.parseInt(value), 1));
+                } catch (NumberFormatException e) {
+                    throw DbException.getInvalidValueException(key, value);
+                }
             } else {
                 throw DbException.getUnsupportedException(key);
             }
@@ -28,6 +28,11 @@
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 
 import org.h2.api.ErrorCode;
@@ -98,6 +103,7 @@ public class Recover extends Tool implements DataHandler {
     private HashMap<Integer, String> tableMap;
     private HashMap<String, String> columnTypeMap;
     private boolean remove;
+    private boolean parallel;
 
     private int pageSize;
     private FileStore store;
@@ -137,6 +143,48 @@ static class Stats {
         int free;
     }
 
+    /**
+     * The result of dumping one table.
+     */
+    static final class TableSummary {
+
+        /**
+         * The table id.
+         */
+        final int tableId;
+
+        /**
+         * The number of rows written.
+         */
+        long rows;
+
+        /**
+         * The number of errors.
+         */
+        int errors;
+
+        /**
+         * The first error, or null.
+         */
+        String firstError;
+
+        TableSummary(int tableId) {
+            this.tableId = tableId;
+        }
+
+        /**
+         * Count an error.
+         *
+         * @param e the exception
+         */
+        void addError(Throwable e) {
+            if (errors++ == 0) {
+                firstError = e.toString();
+            }
+        }
+
+    }
+
     /**
      * Options are case sensitive. Supported options are:
      * <table>
@@ -150,6 +198,9 @@ static class Stats {
      * <td>Print additional trace information</td></tr>
      * <tr><td>[-transactionLog]</td>
      * <td>Print the transaction log</td></tr>
+     * <tr><td>[-parallel]</td>
+     * <td>Dump the tables of MVStore databases concurrently,
+     * to one script per table</td></tr>
      * </table>
      * Encrypted databases need to be decrypted first.
      * @h2.resource
@@ -187,6 +238,8 @@ public void runTool(String... args) throws SQLException {
                 trace = true;
             } else if ("-transactionLog".equals(arg)) {
                 transactionLog = true;
+            } else if ("-parallel".equals(arg)) {
+                parallel = true;
             } else if (arg.equals("-help") || arg.equals("-?")) {
                 showUsage();
                 return;
@@ -616,17 +669,139 @@ private void dumpMVStoreFile(PrintWriter writer, String fileName) {
                 if (!mapName.startsWith("table.")) {
                     continue;
                 }
-                String tableId = mapName.substring("table.".length());
-                if (Integer.parseInt(tableId) == 0) {
+                int tableId = Integer.parseInt(mapName.substring("table.".length()));
+                if (tableId == 0) {
                     continue;
                 }
-                TransactionMap<?,?> dataMap = store.begin().openMap(mapName);
-                Iterator<?> dataIt = dataMap.keyIterator(null);
-                boolean init = false;
-                while (dataIt.hasNext()) {
-                    Object rowId = dataIt.next();
+                if (!parallel) {
+                    dumpMVTable(writer, store, mapName, tableId);
+                }
+            }
+            if (parallel) {
+                dumpMVTablesParallel(writer, mv, store);
+                // this script needs to run after the table scripts
+                try (PrintWriter schemaWriter = getWriter(databaseName + ".h2.db", ".schema.sql")) {
+                    writeMVStoreSchema(schemaWriter);
+                }
+            } else {
+                writeMVStoreSchema(writer);
+            }
+        } catch (Throwable e) {
+            writeError(writer, e);
+        }
+    }
+
+    private void writeMVStoreSchema(PrintWriter writer) {
+        writeSchema(writer);
+        writer.println("DROP ALIAS READ_BLOB_MAP;");
+        writer.println("DROP ALIAS READ_CLOB_MAP;");
+        writer.println("DROP TABLE IF EXISTS INFORMATION_SCHEMA.LOB_BLOCKS;");
+    }
+
+    /**
+     * Dump each table to a separate script, using one thread per processor.
+     * The maps are read concurrently, so that the chunks of different tables
+     * are read and decoded in parallel. The table scripts can be run in any
+     * order (also concurrently), after the main script and before the schema
+     * script.
+     *
+     * @param writer the writer of the main script
+     * @param mv the store
+     * @param store the transaction store
+     */
+    private void dumpMVTablesParallel(PrintWriter writer, MVStore mv, TransactionStore store)
+            throws InterruptedException, ExecutionException {
+        ArrayList<Integer> tableIds = new ArrayList<>();
+        for (String mapName : mv.getMapNames()) {
+            if (mapName.startsWith("table.")) {
+                int tableId = Integer.parseInt(mapName.substring("table.".length()));
+                if (tableId != 0) {
+                    tableIds.add(tableId);
+                }
+            }
+        }
+        int tableCount = tableIds.size();
+        AtomicInteger done = new AtomicInteger();
+        ArrayList<Recover> workers = new ArrayList<>(tableCount);
+        ArrayList<Future<TableSummary>> futures = new ArrayList<>(tableCount);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(tableCount, Runtime.getRuntime().availableProcessors())), r -> {
+                    Thread t = new Thread(r, "H2 Recover");
+                    t.setDaemon(true);
+                    return t;
+                });
+        try {
+            for (int tableId : tableIds) {
+                Recover worker = new Recover();
+                worker.out = out;
+                worker.trace = trace;
+                worker.lobMaps = lobMaps;
+                worker.databaseName = databaseName;
+                worker.resetSchema();
+                workers.add(worker);
+                futures.add(executor.submit(() -> {
+                    TableSummary summary;
+                    try (PrintWriter w = worker.getWriter(databaseName + ".h2.db", "." + tableId + ".sql")) {
+                        summary = worker.dumpMVTable(w, store, "table." + tableId, tableId);
+                    }
+                    out.println("Table " + getTableName(tableId) + ": " + summary.rows + " rows, "
+                            + summary.errors + " errors (" + done.incrementAndGet() + "/" + tableCount + ")");
+                    return summary;
+                }));
+            }
+            long rows = 0;
+            int errors = 0;
+            writer.println("---- Table Scripts ----");
+            for (int i = 0; i < tableCount; i++) {
+                TableSummary summary = futures.get(i).get();
+                objectIdSet.addAll(workers.get(i).objectIdSet);
+                rows += summary.rows;
+                errors += summary.errors;
+                StringBuilder builder = new StringBuilder("-- ");
+                builder.append(databaseName).append(".h2.").append(summary.tableId).append(".sql ")
+                        .append(getTableName(summary.tableId)).append(": ").append(summary.rows).append(" rows");
+                if (summary.errors > 0) {
+                    builder.append(", ").append(summary.errors).append(" errors, first: ")
+                            .append(summary.firstError);
+                    out.println("Table " + getTableName(summary.tableId) + ": " + summary.firstError);
+                }
+                writer.println(builder.toString());
+            }
+            out.println("Recovered " + tableCount + " tables, " + rows + " rows, " + errors + " errors");
+        } finally {
+            for (Future<TableSummary> future : futures) {
+                future.cancel(true);
+            }
+            executor.shutdown();
+        }
+    }
+
+    private String getTableName(int tableId) {
+        String name = tableMap.get(tableId);
+        return name == null ? "O_" + tableId : name;
+    }
+
+    /**
+     * Dump the rows of a table map as inserts into a temporary table. Rows
+     * that can not be read are skipped.
+     *
+     * @param writer the writer
+     * @param store the transaction store
+     * @param mapName the name of the map
+     * @param tableId the id of the table
+     * @return the summary
+     */
+    private TableSummary dumpMVTable(PrintWriter writer, TransactionStore store, String mapName, int tableId) {
+        TableSummary summary = new TableSummary(tableId);
+        try {
+            TransactionMap<?,?> dataMap = store.begin().openMap(mapName);
+            Iterator<?> dataIt = dataMap.keyIterator(null);
+            boolean init = false;
+            while (dataIt.hasNext()) {
+                Object rowId = dataIt.next();
+                Value[] values;
+                try {
                     Object value = dataMap.get(rowId);
-                    Value[] values;
                     if (value instanceof Row) {
                         values = ((Row) value).getValueList();
                         recordLength = values.length;
@@ -634,39 +809,43 @@ private void dumpMVStoreFile(PrintWriter writer, String fileName) {
                         values = ((ValueCollectionBase) value).getList();
                         recordLength = values.length - 1;
                     }
-                    if (!init) {
-                        setStorage(Integer.parseInt(tableId));
-                        // init the column types
-                        StringBuilder builder = new StringBuilder();
-                        for (valueId = 0; valueId < recordLength; valueId++) {
-                            String columnName = storageName + "." + valueId;
-                            builder.setLength(0);
-                            getSQL(builder, columnName, values[valueId]);
-                        }
-                        createTemporaryTable(writer);
-                        init = true;
-                    }
-                    StringBuilder buff = new StringBuilder();
-                    buff.append("INSERT INTO O_").append(tableId)
-                            .append(" VALUES(");
+                } catch (Throwable e) {
+                    summary.addError(e);
+                    writeError(writer, e);
+                    continue;
+                }
+                if (!init) {
+                    setStorage(tableId);
+                    // init the column types
+                    StringBuilder builder = new StringBuilder();
                     for (valueId = 0; valueId < recordLength; valueId++) {
-                        if (valueId > 0) {
-                            buff.append(", ");
-                        }
                         String columnName = storageName + "." + valueId;
-                        getSQL(buff, columnName, values[valueId]);
+                        builder.setLength(0);
+                        getSQL(builder, columnName, values[valueId]);
                     }
-                    buff.append(");");
-                    writer.println(buff.toString());
+                    createTemporaryTable(writer);
+                    init = true;
                 }
+                StringBuilder buff = new StringBuilder();
+                buff.append("INSERT INTO ").append(storageName)
+                        .append(" VALUES(");
+                for (valueId = 0; valueId < recordLength; valueId++) {
+                    if (valueId > 0) {
+                        buff.append(", ");
+                    }
+                    String columnName = storageName + "." + valueId;
+                    getSQL(buff, columnName, values[valueId]);
+                }
+                buff.append(");");
+                writer.println(buff.toString());
+                summary.rows++;
             }
-            writeSchema(writer);
-            writer.println("DROP ALIAS READ_BLOB_MAP;");
-            writer.println("DROP ALIAS READ_CLOB_MAP;");
-            writer.println("DROP TABLE IF EXISTS INFORMATION_SCHEMA.LOB_BLOCKS;");
         } catch (Throwable e) {
+            // the rest of the map can not be read
+            summary.addError(e);
             writeError(writer, e);
         }
+        return summary;
     }
 
     private static void dumpLayout(PrintWriter writer, MVStore mv) {
@@ -14,12 +14,16 @@
 import org.h2.engine.Constants;
 import org.h2.engine.SysProperties;
 import org.h2.message.DbException;
+import org.h2.mvstore.IncrementalBackup;
 import org.h2.store.fs.FileUtils;
 import org.h2.util.IOUtils;
 import org.h2.util.Tool;
 
 /**
  * Restores a H2 database by extracting the database files from a .zip file.
+ * Incremental backups are applied to the database file in the target
+ * directory, so a full backup and the incremental backups based on it need
+ * to be restored in the order they were made.
  * @h2.resource
  */
 public class Restore extends Tool {
@@ -111,7 +115,8 @@ private static String getOriginalDbName(String fileName, String db)
 
     /**
      * Extract the name of the database from a given file name.
-     * Only files ending with .h2.db are considered, all others return null.
+     * Only files ending with .h2.db, .mv.db, or .mv.inc are considered, all
+     * others return null.
      *
      * @param fileName the file name (without directory)
      * @return the database name or null
@@ -125,6 +130,10 @@ private static String getDatabaseNameFromFileName(String fileName) {
             return fileName.substring(0,
                     fileName.length() - Constants.SUFFIX_MV_FILE.length());
         }
+        if (fileName.endsWith(Constants.SUFFIX_MV_INCREMENT)) {
+            return fileName.substring(0,
+                    fileName.length() - Constants.SUFFIX_MV_INCREMENT.length());
+        }
         return null;
     }
 
@@ -175,7 +184,13 @@ public static void execute(String zipFileName, String directory, String db) {
                         fileName = db + fileName.substring(originalDbLen);
                         copy = true;
                     }
-                    if (copy) {
+                    if (copy && fileName.endsWith(Constants.SUFFIX_MV_INCREMENT)) {
+                        fileName = fileName.substring(0,
+                                fileName.length() - Constants.SUFFIX_MV_INCREMENT.length())
+                                + Constants.SUFFIX_MV_FILE;
+                        IncrementalBackup.apply(zipIn,
+                                directory + SysProperties.FILE_SEPARATOR + fileName);
+                    } else if (copy) {
                         OutputStream o = null;
                         try {
                             o = FileUtils.newOutputStream(
@@ -80,6 +80,10 @@ public Server(Service service, String... args) throws SQLException {
      * <td>Allow other computers to connect - see below</td></tr>
      * <tr><td>[-tcpDaemon]</td>
      * <td>Use a daemon thread</td></tr>
+     * <tr><td>[-tcpVirtualThreads]</td>
+     * <td>Use virtual threads for connections if supported</td></tr>
+     * <tr><td>[-tcpMaxWorkers &lt;n&gt;]</td>
+     * <td>Maximum number of concurrent commands (default: no limit)</td></tr>
      * <tr><td>[-tcpPort &lt;port&gt;]</td>
      * <td>The port (default: 9092)</td></tr>
      * <tr><td>[-tcpSSL]</td>
@@ -96,6 +100,10 @@ public Server(Service service, String... args) throws SQLException {
      * <td>Allow other computers to connect - see below</td></tr>
      * <tr><td>[-pgDaemon]</td>
      * <td>Use a daemon thread</td></tr>
+     * <tr><td>[-pgVirtualThreads]</td>
+     * <td>Use virtual threads for connections if supported</td></tr>
+     * <tr><td>[-pgMaxWorkers &lt;n&gt;]</td>
+     * <td>Maximum number of concurrent commands (default: no limit)</td></tr>
      * <tr><td>[-pgPort &lt;port&gt;]</td>
      * <td>The port (default: 5435)</td></tr>
      * <tr><td>[-properties "&lt;dir&gt;"]</td>
@@ -153,6 +161,10 @@ private void verifyArgs(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
+                } else if ("-tcpMaxWorkers".equals(arg)) {
+                    i++;
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -173,6 +185,10 @@ private void verifyArgs(String... args) throws SQLException {
                     // no parameters
                 } else if ("-pgDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-pgVirtualThreads".equals(arg)) {
+                    // no parameters
+                } else if ("-pgMaxWorkers".equals(arg)) {
+                    i++;
                 } else if ("-pgPort".equals(arg)) {
                     i++;
                 } else {
@@ -256,6 +272,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
+                } else if ("-tcpMaxWorkers".equals(arg)) {
+                    i++;
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -279,6 +299,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-pgDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-pgVirtualThreads".equals(arg)) {
+                    // no parameters
+                } else if ("-pgMaxWorkers".equals(arg)) {
+                    i++;
                 } else if ("-pgPort".equals(arg)) {
                     i++;
                 } else {
@@ -458,6 +482,7 @@ static Server createWebServer(String[] args, String key, boolean allowSecureCrea
      * </pre>
      * Supported options are:
      * -tcpPort, -tcpSSL, -tcpPassword, -tcpAllowOthers, -tcpDaemon,
+     * -tcpVirtualThreads, -tcpMaxWorkers,
      * -trace, -ifExists, -ifNotExists, -baseDir, -key.
      * See the main method for details.
      * <p>
@@ -484,7 +509,7 @@ public static Server createTcpServer(String... args) throws SQLException {
      *     Server.createPgServer("-pgAllowOthers").start();
      * </pre>
      * Supported options are:
-     * -pgPort, -pgAllowOthers, -pgDaemon,
+     * -pgPort, -pgAllowOthers, -pgDaemon, -pgVirtualThreads, -pgMaxWorkers,
      * -trace, -ifExists, -ifNotExists, -baseDir, -key.
      * See the main method for details.
      * <p>
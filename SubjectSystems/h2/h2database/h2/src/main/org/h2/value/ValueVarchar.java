@@ -64,4 +64,20 @@ public static Value get(String s, CastDataProvider provider) {
         // return new ValueString(s.intern());
     }
 
+    /**
+     * Create a VARCHAR value for the given string without using the cache.
+     * This is faster if many distinct values are created at once, for
+     * example when a file is read.
+     *
+     * @param s the string
+     * @param provider the cast information provider, or {@code null}
+     * @return the value
+     */
+    public static Value getUncached(String s, CastDataProvider provider) {
+        if (s.isEmpty()) {
+            return provider != null && provider.getMode().treatEmptyStringsAsNull ? ValueNull.INSTANCE : EMPTY;
+        }
+        return new ValueVarchar(s);
+    }
+
 }
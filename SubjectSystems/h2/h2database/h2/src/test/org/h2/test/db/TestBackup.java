@@ -48,6 +48,7 @@ public void test() throws SQLException {
         testBackupRestoreLobStatement();
         testBackupRestoreLob();
         testBackup();
+        testIncrementalBackup();
         deleteDb("backup");
         FileUtils.delete(getBaseDir() + "/backup.zip");
     }
@@ -212,4 +213,58 @@ private void testBackup() throws SQLException {
         deleteDb("restored");
     }
 
+    private void testIncrementalBackup() throws SQLException {
+        if (!config.mvStore) {
+            return;
+        }
+        deleteDb("backup");
+        deleteDb("restored");
+        String base = getBaseDir() + "/backup-base.zip";
+        String inc1 = getBaseDir() + "/backup-1.zip";
+        String inc2 = getBaseDir() + "/backup-2.zip";
+        Connection conn1 = getConnection("backup");
+        Statement stat1 = conn1.createStatement();
+        stat1.execute("create table test(id int primary key, name varchar)");
+        stat1.execute("insert into test select x, space(100) from system_range(1, 10000)");
+        stat1.execute("backup to '" + base + "' incremental");
+        stat1.execute("update test set name = 'changed' where id < 10");
+        stat1.execute("create table test2(id int primary key) as select x from system_range(1, 10)");
+        Connection conn2 = getConnection("backup");
+        Statement stat2 = conn2.createStatement();
+        conn2.setAutoCommit(false);
+        stat2.execute("insert into test values(-1, 'uncommitted')");
+        stat1.execute("backup to '" + inc1 + "' incremental from '" + base + "'");
+        assertTrue(FileUtils.size(inc1) < FileUtils.size(base) / 2);
+        conn2.rollback();
+        stat1.execute("delete from test where id > 5000");
+        stat1.execute("backup to '" + inc2 + "' incremental from '" + inc1 + "'");
+
+        Restore.execute(base, getBaseDir(), "restored");
+        Connection conn3 = getConnection("restored");
+        assertSingleValue(conn3.createStatement(), "select count(*) from test", 10000);
+        conn3.close();
+        // the increments are applied to the restored full backup, in order
+        Restore.execute(base, getBaseDir(), "restored");
+        try {
+            Restore.execute(inc2, getBaseDir(), "restored");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Restore.execute(inc1, getBaseDir(), "restored");
+        Restore.execute(inc2, getBaseDir(), "restored");
+        conn3 = getConnection("restored");
+        Statement stat3 = conn3.createStatement();
+        assertEqualDatabases(stat1, stat3);
+        assertSingleValue(stat3, "select count(*) from test", 5000);
+        assertSingleValue(stat3, "select count(*) from test where name = 'changed'", 9);
+        conn3.close();
+        conn1.close();
+        conn2.close();
+        deleteDb("restored");
+        FileUtils.delete(base);
+        FileUtils.delete(inc1);
+        FileUtils.delete(inc2);
+    }
+
 }
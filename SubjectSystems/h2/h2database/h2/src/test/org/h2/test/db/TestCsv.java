@@ -21,6 +21,7 @@
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
@@ -66,6 +67,7 @@ public void test() throws Exception {
         testSpaceSeparated();
         testNull();
         testRandomData();
+        testParallelRead();
         testEmptyFieldDelimiter();
         testFieldDelimiter();
         testAsTable();
@@ -190,6 +192,7 @@ private void testOptions() {
         assertEquals(",", csv.getFieldSeparatorWrite());
         assertEquals(0, csv.getLineCommentCharacter());
         assertEquals(false, csv.getPreserveWhitespace());
+        assertEquals(1, csv.getThreads());
 
         String charset;
 
@@ -207,7 +210,7 @@ private void testOptions() {
         charset = csv.setOptions("escape=1x fieldDelimiter=2x " +
                 "fieldSeparator=3x " + "lineComment=4x lineSeparator=5x " +
                 "null=6x charset=7x " +
-                "preserveWhitespace=true caseSensitiveColumnNames=true");
+                "preserveWhitespace=true caseSensitiveColumnNames=true threads=4");
         assertEquals('1', csv.getEscapeCharacter());
         assertEquals('2', csv.getFieldDelimiter());
         assertEquals('3', csv.getFieldSeparatorRead());
@@ -218,6 +221,7 @@ private void testOptions() {
         assertEquals("7x", charset);
         assertTrue(csv.getPreserveWhitespace());
         assertTrue(csv.getCaseSensitiveColumnNames());
+        assertEquals(4, csv.getThreads());
 
         charset = csv.setOptions("escape= fieldDelimiter= " +
                 "fieldSeparator= " + "lineComment= lineSeparator=\r\n " +
@@ -377,6 +381,79 @@ private void testRandomData() throws SQLException {
         FileUtils.delete(getBaseDir() + "/test.csv");
     }
 
+    private void testParallelRead() throws Exception {
+        deleteDb("csv");
+        String fileName = getBaseDir() + "/test.csv";
+        int len = getSize(100_000, 200_000);
+        Random random = new Random(1);
+        try (OutputStream out = FileUtils.newOutputStream(fileName, false)) {
+            out.write(StringUtils.convertHexToBytes("efbbbf"));
+            StringBuilder buff = new StringBuilder("id, \"Name\" ,\"c\"\"3\",d\r\n");
+            for (int i = 0; i < len; i++) {
+                buff.append(i).append(',');
+                switch (random.nextInt(6)) {
+                case 0:
+                    buff.append(" \"a, \"\"b\"\" \u00e4\u20ac\" ");
+                    break;
+                case 1:
+                    buff.append("  padded ");
+                    break;
+                case 2:
+                    break;
+                case 3:
+                    char[] chars = new char[random.nextInt(100) == 0 ? 100_000 : 10];
+                    Arrays.fill(chars, 'x');
+                    buff.append(chars);
+                    break;
+                default:
+                    buff.append(random.nextInt());
+                }
+                buff.append(',').append(random.nextBoolean() ? "\"\"" : "");
+                if (random.nextInt(10) == 0) {
+                    buff.append(",\u00f6");
+                }
+                buff.append(random.nextInt(20) == 0 ? "\r\n\n" : "\n");
+                if (buff.length() > 1 << 16) {
+                    out.write(buff.toString().getBytes(StandardCharsets.UTF_8));
+                    buff.setLength(0);
+                }
+            }
+            buff.append("last,x");
+            out.write(buff.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(FileUtils.size(fileName) > 2 << 20);
+        Connection conn = getConnection("csv");
+        Statement stat = conn.createStatement();
+        for (String columns : new String[] { "null", "'A,B,C,D'" }) {
+            ResultSet rs1 = stat.executeQuery("select * from csvread('" + fileName + "', " + columns
+                    + ", 'charset=UTF-8')");
+            Statement stat2 = conn.createStatement();
+            ResultSet rs2 = stat2.executeQuery("select * from csvread('" + fileName + "', " + columns
+                    + ", 'charset=UTF-8 threads=3')");
+            ResultSetMetaData meta = rs1.getMetaData();
+            assertEquals(4, meta.getColumnCount());
+            assertEquals(4, rs2.getMetaData().getColumnCount());
+            for (int i = 1; i <= 4; i++) {
+                assertEquals(meta.getColumnLabel(i), rs2.getMetaData().getColumnLabel(i));
+            }
+            int rows = 0;
+            while (rs1.next()) {
+                assertTrue(rs2.next());
+                for (int i = 1; i <= 4; i++) {
+                    assertEquals(rs1.getString(i), rs2.getString(i));
+                }
+                rows++;
+            }
+            assertFalse(rs2.next());
+            assertEquals(columns.equals("null") ? len + 1 : len + 2, rows);
+        }
+        ResultSet rs = stat.executeQuery("select name, \"c\"\"3\" from csvread('" + fileName
+                + "', null, 'charset=UTF-8 threads=2') where id = '0'");
+        assertTrue(rs.next());
+        conn.close();
+        FileUtils.delete(fileName);
+    }
+
     private static String randomData(Random random) {
         if (random.nextInt(10) == 1) {
             return null;
@@ -62,6 +62,11 @@ public void test() throws Exception {
         testPerformance(false);
         testReopen(false);
         testDropIndex(false);
+        if (config.mvStore) {
+            testMVStoreSearch();
+            testMVStoreTransaction();
+            testMVStoreReopen();
+        }
         if (!config.reopen) {
             try {
                 Class.forName(LUCENE_FULLTEXT_CLASS_NAME);
@@ -437,6 +442,169 @@ private void testReopen(boolean lucene) throws SQLException {
         FileUtils.deleteRecursive(getBaseDir() + "/fullTextReopen", false);
     }
 
+    private void testMVStoreSearch() throws SQLException {
+        deleteDb("fullText");
+        Connection conn = getConnection("fullText");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_INIT FOR \"org.h2.fulltext.FullTextMVStore.init\"");
+        stat.execute("CALL FTM_INIT()");
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR, DESCRIPTION VARCHAR)");
+        stat.execute("INSERT INTO TEST VALUES(1, 'Hello World', 'a planet')");
+        stat.execute("CALL FTM_CREATE_INDEX('PUBLIC', 'TEST', NULL)");
+        stat.execute("INSERT INTO TEST VALUES(2, 'World hello', 'hello hello')");
+        stat.execute("INSERT INTO TEST VALUES(3, 'Goodbye', 'world peace and a long description "
+                + "of a world without water')");
+        ResultSet rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('hello', 0, 0)");
+        // more occurrences rank higher
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=2", rs.getString(1));
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=1", rs.getString(1));
+        assertFalse(rs.next());
+        // all words are required
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('world water', 0, 0)");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        // phrases
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('\"hello world\"', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=1", rs.getString(1));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('\"world planet\"', 0, 0)");
+        assertFalse(rs.next());
+        // limit and offset
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('world', 1, 1)");
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH_DATA('goodbye', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("PUBLIC", rs.getString(1));
+        assertEquals("TEST", rs.getString(2));
+        assertEquals("3", ((Object[]) rs.getArray(4).getArray())[0].toString());
+        stat.execute("UPDATE TEST SET NAME='Hi' WHERE ID=2");
+        stat.execute("DELETE FROM TEST WHERE ID=1");
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('world', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=3", rs.getString(1));
+        assertFalse(rs.next());
+        // many rows, with posting lists of more than one block
+        stat.execute("INSERT INTO TEST SELECT X, 'row ' || X, CASE WHEN MOD(X, 7) = 0 THEN 'seven' END "
+                + "FROM SYSTEM_RANGE(10, 2000)");
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('row', 0, 0)");
+        rs.next();
+        assertEquals(1991, rs.getInt(1));
+        stat.execute("DELETE FROM TEST WHERE MOD(ID, 2) = 0 AND ID >= 10");
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('row seven', 0, 0)");
+        rs.next();
+        assertEquals(142, rs.getInt(1));
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('\"row 1001\"', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=1001", rs.getString(1));
+        assertFalse(rs.next());
+        stat.execute("CALL FTM_REINDEX()");
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('row', 0, 0)");
+        rs.next();
+        assertEquals(995, rs.getInt(1));
+        stat.execute("CALL FTM_DROP_INDEX('PUBLIC', 'TEST')");
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('row', 0, 0)");
+        assertFalse(rs.next());
+        stat.execute("CALL FTM_DROP_ALL()");
+        conn.close();
+        deleteDb("fullText");
+    }
+
+    private void testMVStoreTransaction() throws SQLException {
+        deleteDb("fullText");
+        Connection conn = getConnection("fullText");
+        Connection conn2 = getConnection("fullText");
+        Statement stat = conn.createStatement();
+        Statement stat2 = conn2.createStatement();
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_INIT FOR \"org.h2.fulltext.FullTextMVStore.init\"");
+        stat.execute("CALL FTM_INIT()");
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+        stat.execute("CALL FTM_CREATE_INDEX('PUBLIC', 'TEST', NULL)");
+        conn.setAutoCommit(false);
+        stat.execute("INSERT INTO TEST VALUES(1, 'Hello World')");
+        // uncommitted changes are only visible to the own session
+        ResultSet rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Hello', 0, 0)");
+        assertTrue(rs.next());
+        rs = stat2.executeQuery("SELECT * FROM FTM_SEARCH('Hello', 0, 0)");
+        assertFalse(rs.next());
+        conn.commit();
+        rs = stat2.executeQuery("SELECT * FROM FTM_SEARCH('Hello', 0, 0)");
+        assertTrue(rs.next());
+        stat.execute("INSERT INTO TEST VALUES(2, 'Hello Moon')");
+        stat.execute("SAVEPOINT S");
+        stat.execute("INSERT INTO TEST VALUES(3, 'Hello Sun')");
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Sun', 0, 0)");
+        assertTrue(rs.next());
+        stat.execute("ROLLBACK TO SAVEPOINT S");
+        stat.execute("UPDATE TEST SET NAME='Hello Mars' WHERE ID=1");
+        conn.commit();
+        rs = stat2.executeQuery("SELECT * FROM FTM_SEARCH('Sun', 0, 0)");
+        assertFalse(rs.next());
+        rs = stat2.executeQuery("SELECT * FROM FTM_SEARCH('Moon', 0, 0)");
+        assertTrue(rs.next());
+        rs = stat2.executeQuery("SELECT * FROM FTM_SEARCH('Mars', 0, 0)");
+        assertTrue(rs.next());
+        stat.execute("DELETE FROM TEST");
+        stat.execute("INSERT INTO TEST VALUES(4, 'Hello Venus')");
+        conn.rollback();
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('Hello', 0, 0)");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Venus', 0, 0)");
+        assertFalse(rs.next());
+        conn.setAutoCommit(true);
+        stat.execute("CALL FTM_DROP_ALL()");
+        conn2.close();
+        conn.close();
+        deleteDb("fullText");
+    }
+
+    private void testMVStoreReopen() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        deleteDb("fullTextReopen");
+        Connection conn = getConnection("fullTextReopen");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_INIT FOR \"org.h2.fulltext.FullTextMVStore.init\"");
+        stat.execute("CALL FTM_INIT()");
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+        stat.execute("INSERT INTO TEST VALUES(1, 'Hello World')");
+        stat.execute("CALL FTM_CREATE_INDEX('PUBLIC', 'TEST', NULL)");
+        conn.close();
+
+        conn = getConnection("fullTextReopen");
+        stat = conn.createStatement();
+        stat.execute("INSERT INTO TEST VALUES(2, 'Hello Moon')");
+        ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('Hello', 0, 0)");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs = stat.executeQuery("SELECT SCORE FROM FTM_SEARCH('Moon', 0, 0)");
+        rs.next();
+        float score = rs.getFloat(1);
+
+        // the statistics of a transaction that was written to the index,
+        // but did not end, are recomputed when the database is opened
+        conn.setAutoCommit(false);
+        stat.execute("INSERT INTO TEST SELECT X, 'Hello Sun' FROM SYSTEM_RANGE(3, 10002)");
+        stat.execute("CHECKPOINT");
+        crash(conn);
+
+        conn = getConnection("fullTextReopen");
+        stat = conn.createStatement();
+        rs = stat.executeQuery("SELECT SCORE FROM FTM_SEARCH('Moon', 0, 0)");
+        rs.next();
+        assertEquals(score, rs.getFloat(1));
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Sun', 0, 0)");
+        assertFalse(rs.next());
+        stat.execute("CALL FTM_DROP_ALL()");
+        conn.close();
+        deleteDb("fullTextReopen");
+    }
+
     private void testPerformance(boolean lucene) throws SQLException {
         deleteDb("fullText");
         FileUtils.deleteRecursive(getBaseDir() + "/fullText", false);
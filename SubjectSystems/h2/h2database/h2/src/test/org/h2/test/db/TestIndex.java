@@ -18,6 +18,7 @@
 import java.util.concurrent.atomic.AtomicInteger;
 import org.h2.api.ErrorCode;
 import org.h2.command.query.Select;
+import org.h2.engine.SysProperties;
 import org.h2.result.SortOrder;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
@@ -92,6 +93,7 @@ public void test() throws SQLException {
         reconnect();
         testConstraint();
         testLargeIndex();
+        testParallelIndexBuild();
         testMultiColumnIndex();
         // long time;
         // time = System.nanoTime();
@@ -571,6 +573,40 @@ private void testLargeIndex() throws SQLException {
         stat.execute("DROP TABLE IF EXISTS TEST");
     }
 
+    private void testParallelIndexBuild() throws SQLException {
+        stat.execute("DROP TABLE IF EXISTS TEST");
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B VARCHAR)");
+        int count = 50_000;
+        stat.execute("INSERT INTO TEST SELECT X, MOD(X * 7919, " + count + "), 'b' || MOD(X, 100) "
+                + "FROM SYSTEM_RANGE(1, " + count + ")");
+        stat.execute("SET MAX_MEMORY_ROWS 2000");
+        stat.execute("SET PARALLELISM 4");
+        try {
+            stat.execute("CREATE UNIQUE INDEX TEST_A_IDX ON TEST(A)");
+            stat.execute("CREATE INDEX TEST_B_IDX ON TEST(B) INCLUDE (A)");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE A >= 0", count);
+            ResultSet rs = stat.executeQuery("SELECT A FROM TEST ORDER BY A");
+            for (int i = 0; i < count; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+            }
+            assertFalse(rs.next());
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE B = 'b7'", count / 100);
+            int sum = 0;
+            for (int i = 100; i <= count; i += 100) {
+                sum += i * 7919 % count;
+            }
+            assertSingleValue(stat, "SELECT SUM(A) FROM TEST WHERE B = 'b0'", sum);
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("CREATE UNIQUE INDEX TEST_B_UNIQUE_IDX ON TEST(B)");
+            stat.execute("CREATE UNIQUE INDEX TEST_B_A_IDX ON TEST(B, A)");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE B = 'b1' AND A >= 0", count / 100);
+        } finally {
+            stat.execute("SET PARALLELISM 1");
+            stat.execute("SET MAX_MEMORY_ROWS " + SysProperties.MAX_MEMORY_ROWS);
+        }
+        stat.execute("DROP TABLE TEST");
+    }
+
     private void testHashIndex(boolean primaryKey, boolean hash)
             throws SQLException {
         if (config.memory) {
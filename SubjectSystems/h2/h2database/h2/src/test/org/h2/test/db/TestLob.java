@@ -24,12 +24,16 @@
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.h2.api.ErrorCode;
+import org.h2.engine.Constants;
 import org.h2.engine.SysProperties;
 import org.h2.jdbc.JdbcConnection;
 import org.h2.message.DbException;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
@@ -98,6 +102,7 @@ public void test() throws Exception {
         testLobUpdateMany();
         testLobVariable();
         testLobDrop();
+        testLobDeduplicate();
         testLobNoClose();
         testLobTransactions(10);
         testLobTransactions(10000);
@@ -824,6 +829,60 @@ private void testLobDrop() throws SQLException {
         conn.close();
     }
 
+    private void testLobDeduplicate() throws Exception {
+        if (!config.mvStore || config.cipher != null) {
+            return;
+        }
+        deleteDb("lob");
+        Connection conn = getConnection("lob;LOB_DEDUPLICATE=TRUE");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, B BLOB, C CLOB)");
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES(?, ?, SPACE(100000))");
+        for (int i = 0; i < 20; i++) {
+            prep.setInt(1, i);
+            byte[] d = data;
+            if (i == 10) {
+                d = data.clone();
+                d[50_000]++;
+            }
+            prep.setBinaryStream(2, new ByteArrayInputStream(d), -1);
+            prep.execute();
+        }
+        conn.close();
+        String fileName = getBaseDir() + "/lob" + Constants.SUFFIX_MV_FILE;
+        try (MVStore s = MVStore.open(fileName)) {
+            MVMap<Long, byte[]> lobData = s.openMap("lobData");
+            long size = 0;
+            for (byte[] b : lobData.values()) {
+                size += b.length;
+            }
+            // three different values
+            assertTrue("size: " + size, size <= 300_000);
+            assertEquals(3, s.openMap("lobHash").size());
+        }
+        conn = getConnection("lob;LOB_DEDUPLICATE=TRUE");
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("SELECT ID, B, C FROM TEST ORDER BY ID");
+        while (rs.next()) {
+            byte[] d = rs.getBytes(2);
+            assertEquals(data.length, d.length);
+            assertEquals(rs.getInt(1) != 10, Arrays.equals(data, d));
+            assertEquals(100_000, rs.getString(3).length());
+        }
+        stat.execute("DELETE FROM TEST WHERE ID < 19");
+        rs = stat.executeQuery("SELECT B FROM TEST");
+        assertTrue(rs.next());
+        assertEquals(data, rs.getBytes(1));
+        stat.execute("DELETE FROM TEST");
+        conn.close();
+        try (MVStore s = MVStore.open(fileName)) {
+            assertEquals(0, s.openMap("lobData").size());
+            assertEquals(0, s.openMap("lobHash").size());
+        }
+    }
+
     private void testLobNoClose() throws Exception {
         if (config.networked) {
             return;
@@ -5,6 +5,7 @@
  */
 package org.h2.test.db;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -54,6 +55,7 @@ public void test() throws Exception {
         testRowId();
         testSortIndex();
         testAutoAnalyze();
+        testColumnStatistics();
         testInAndBetween();
         testNestedIn();
         testConstantIn1();
@@ -64,6 +66,10 @@ public void test() throws Exception {
         testInSelectJoin();
         testMinMaxNullOptimization();
         testUseCoveringIndex();
+        testHashJoin();
+        testParallelAggregation();
+        testBatchCondition();
+        testTopN();
         // testUseIndexWhenAllColumnsNotInOrderBy();
         if (config.networked) {
             return;
@@ -273,6 +279,41 @@ private void testQueryCacheResetParams() throws SQLException {
         conn.close();
     }
 
+    private void testColumnStatistics() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        // A is 0 in 99% of the rows, B has 50 distinct values
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT) AS SELECT X, "
+                + "CASE WHEN MOD(X, 100) = 0 THEN X ELSE 0 END, MOD(X, 50) FROM SYSTEM_RANGE(1, 50000)");
+        stat.execute("CREATE INDEX TEST_A ON TEST(A)");
+        stat.execute("CREATE INDEX TEST_B ON TEST(B)");
+        stat.execute("ANALYZE TABLE TEST SAMPLE_SIZE 5000");
+        ResultSet rs = stat.executeQuery("EXPLAIN SELECT * FROM TEST WHERE A = 0 AND B = 5");
+        rs.next();
+        assertContains(rs.getString(1), "/* PUBLIC.TEST_B: B = 5 */");
+        rs = stat.executeQuery("EXPLAIN SELECT * FROM TEST WHERE A = 700 AND B = 0");
+        rs.next();
+        assertContains(rs.getString(1), "/* PUBLIC.TEST_A: A = 700 */");
+        rs = stat.executeQuery("EXPLAIN ANALYZE SELECT * FROM TEST WHERE B = 5");
+        rs.next();
+        String plan = rs.getString(1);
+        assertContains(plan, "scanCount: 1001, estimatedRows: ");
+        long estimated = Long.parseLong(plan.substring(plan.indexOf("estimatedRows: ") + 15, plan.indexOf(" */",
+                plan.indexOf("estimatedRows: "))));
+        assertTrue(plan, estimated > 500 && estimated < 2000);
+        if (!config.memory) {
+            conn.close();
+            conn = getConnection("optimizations");
+            stat = conn.createStatement();
+            rs = stat.executeQuery("EXPLAIN SELECT * FROM TEST WHERE A = 0 AND B = 5");
+            rs.next();
+            assertContains(rs.getString(1), "/* PUBLIC.TEST_B: B = 5 */");
+        }
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
     private void testRowId() throws SQLException {
         if (config.memory) {
             return;
@@ -1167,6 +1208,198 @@ private void testUseCoveringIndex() throws SQLException {
         conn.close();
     }
 
+    private void testHashJoin() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE A(ID INT, NAME VARCHAR) AS SELECT X, 'A' || X FROM SYSTEM_RANGE(1, 100)");
+        stat.execute("CREATE TABLE B(ID INT, A_ID INT, A_NAME VARCHAR) "
+                + "AS SELECT X, MOD(X, 200), 'A' || MOD(X, 200) FROM SYSTEM_RANGE(1, 1000)");
+        ResultSet rs = stat.executeQuery("EXPLAIN SELECT * FROM A JOIN B ON A.ID = B.A_ID");
+        rs.next();
+        assertContains(rs.getString(1), "/* PUBLIC.B.tableScan hash join: A_ID = A.ID */");
+        testHashJoinResults(stat);
+        // the build side does not fit into memory
+        stat.execute("SET MAX_MEMORY_ROWS 100");
+        testHashJoinResults(stat);
+        // a lazy result that is closed early releases the hash table
+        stat.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        PreparedStatement prep = conn.prepareStatement("SELECT B.ID FROM A JOIN B ON A.ID = B.A_ID");
+        for (int i = 0; i < 3; i++) {
+            rs = prep.executeQuery();
+            assertTrue(rs.next());
+            rs.close();
+        }
+        rs = prep.executeQuery();
+        int count = 0;
+        while (rs.next()) {
+            count++;
+        }
+        assertEquals(500, count);
+        stat.execute("SET LAZY_QUERY_EXECUTION FALSE");
+        stat.execute("DROP TABLE A, B");
+        conn.close();
+    }
+
+    private void testHashJoinResults(Statement stat) throws SQLException {
+        ResultSet rs = stat.executeQuery("SELECT COUNT(*), SUM(B.ID) FROM A JOIN B ON A.ID = B.A_ID");
+        rs.next();
+        assertEquals(500, rs.getInt(1));
+        assertEquals(5 * 5050 + 2000 * 100, rs.getLong(2));
+        // VARCHAR keys use the compare mode of the database
+        rs = stat.executeQuery("SELECT COUNT(*) FROM A JOIN B ON A.NAME = B.A_NAME AND A.ID = B.A_ID");
+        rs.next();
+        assertEquals(500, rs.getInt(1));
+        rs = stat.executeQuery("SELECT COUNT(*), COUNT(B.ID) FROM A LEFT JOIN B ON A.ID = B.A_ID AND B.A_ID < 51");
+        rs.next();
+        assertEquals(50 * 5 + 50, rs.getInt(1));
+        assertEquals(50 * 5, rs.getInt(2));
+        // new rows are visible to the next execution, NULL keys never match
+        stat.execute("INSERT INTO B VALUES (1001, 1, 'A1'), (1002, NULL, NULL)");
+        rs = stat.executeQuery("SELECT COUNT(*) FROM A JOIN B ON A.ID = B.A_ID");
+        rs.next();
+        assertEquals(501, rs.getInt(1));
+        stat.execute("DELETE FROM B WHERE ID > 1000");
+    }
+
+    private void testParallelAggregation() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, G INT, S VARCHAR, V INT, D DOUBLE) AS "
+                + "SELECT X, MOD(X, 7), 'S' || MOD(X, 3), CASEWHEN(MOD(X, 11) = 0, NULL, X), X / 3e0 "
+                + "FROM SYSTEM_RANGE(1, 100000)");
+        String[] queries = {
+                "SELECT COUNT(*), COUNT(V), SUM(V), MIN(V), MAX(V), AVG(V), COUNT(DISTINCT G), BIT_OR(G) FROM TEST",
+                "SELECT G, COUNT(*), SUM(V), BIT_XOR(V), MAX(S) FROM TEST GROUP BY G ORDER BY G",
+                "SELECT S, G AS X, COUNT(V) FROM TEST GROUP BY S, G ORDER BY SUM(V), X",
+                // not supported, executed by a single thread
+                "SELECT G, COUNT(*) FROM TEST WHERE V > 10 GROUP BY G ORDER BY G",
+                "SELECT G, COUNT(*) + 1 FROM TEST GROUP BY G ORDER BY G",
+        };
+        String[] expected = new String[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            expected[i] = getResult(stat.executeQuery(queries[i]));
+        }
+        ResultSet rs = stat.executeQuery("SELECT VAR_POP(D) FROM TEST");
+        rs.next();
+        double variance = rs.getDouble(1);
+        stat.execute("SET PARALLELISM 4");
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(queries[i], expected[i], getResult(stat.executeQuery(queries[i])));
+        }
+        rs = stat.executeQuery("SELECT VAR_POP(D) FROM TEST");
+        rs.next();
+        assertTrue(Math.abs(variance - rs.getDouble(1)) <= variance * 1e-12);
+        stat.execute("SET PARALLELISM 1");
+        assertThrows(ErrorCode.INVALID_VALUE_2, stat).execute("SET PARALLELISM 0");
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
+    private void testBatchCondition() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, I INT, B BIGINT, R REAL, D DOUBLE, S VARCHAR) AS "
+                + "SELECT X, CASEWHEN(MOD(X, 13) = 0, NULL, MOD(X, 100)), X * 1000000000, "
+                + "CASEWHEN(MOD(X, 7) = 0, NULL, CAST(X AS REAL) / 4), CASEWHEN(MOD(X, 17) = 0, CAST('NaN' AS DOUBLE), CAST(X AS DOUBLE) / 3), "
+                + "'S' || MOD(X, 10) FROM SYSTEM_RANGE(1, 5000)");
+        String[] conditions = {
+                "I > 10", "I <= 0", "I <> 50", "B >= 2500000000000", "B < 3e12", "R = 2.5e0", "R < 100",
+                "D >= CAST(1000 AS DOUBLE)", "D = 'NaN'", "I > 10.5", "I < 50e0", "B > 1.5e3", "NOT (I < 50)", "I IS NULL",
+                "R IS NOT NULL AND D < 100", "I > 90 OR S = 'S3'", "I < 20 AND MOD(I, 3) = 0",
+                "(I > 5 AND B < 100000000000) OR R IS NULL", "I <> 0 AND 100 / I > 3", "I = ID - ID + 5",
+                "I IN (1, 2) OR NOT (R > 10 AND D < 200)", "I BETWEEN 3 AND 5 AND R > 0",
+        };
+        String[] expected = new String[conditions.length];
+        // batches are not used in lazy mode
+        stat.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        for (int i = 0; i < conditions.length; i++) {
+            expected[i] = getResult(stat.executeQuery("SELECT ID FROM TEST WHERE " + conditions[i] + " ORDER BY ID"));
+        }
+        stat.execute("SET LAZY_QUERY_EXECUTION FALSE");
+        for (int i = 0; i < conditions.length; i++) {
+            String query = "SELECT ID FROM TEST WHERE " + conditions[i] + " ORDER BY ID";
+            assertEquals(query, expected[i], getResult(stat.executeQuery(query)));
+        }
+        PreparedStatement prep = conn.prepareStatement("SELECT COUNT(*), SUM(I) FROM TEST WHERE I > ? AND R < ?");
+        prep.setInt(1, 80);
+        prep.setBigDecimal(2, new BigDecimal("1000.5"));
+        assertEquals("601 54066 \n", getResult(prep.executeQuery()));
+        prep.setNull(1, Types.INTEGER);
+        assertEquals("0 null \n", getResult(prep.executeQuery()));
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
+    private void testTopN() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT) AS "
+                + "SELECT X, CASEWHEN(MOD(X, 11) = 0, NULL, MOD(X * 7919, 50)) FROM SYSTEM_RANGE(1, 2000)");
+        String[] orders = { "V, ID", "V DESC NULLS FIRST, ID", "V NULLS LAST, ID DESC" };
+        for (String order : orders) {
+            ArrayList<String> all = new ArrayList<>();
+            ArrayList<String> keys = new ArrayList<>();
+            ResultSet rs = stat.executeQuery("SELECT V, ID FROM TEST ORDER BY " + order);
+            while (rs.next()) {
+                keys.add(rs.getString(1));
+                all.add(rs.getString(1) + ' ' + rs.getString(2) + " \n");
+            }
+            for (int offset : new int[] { 0, 1, 37, 1999, 2500 }) {
+                for (int limit : new int[] { 1, 5, 100, 3000 }) {
+                    StringBuilder builder = new StringBuilder();
+                    for (int i = offset, to = Math.min(offset + limit, all.size()); i < to; i++) {
+                        builder.append(all.get(i));
+                    }
+                    assertEquals(builder.toString(), getResult(stat.executeQuery("SELECT V, ID FROM TEST ORDER BY "
+                            + order + " OFFSET " + offset + " ROWS FETCH FIRST " + limit + " ROWS ONLY")));
+                }
+            }
+            // only the V column, so all rows with the same V are ties
+            String query = "SELECT V, ID FROM TEST ORDER BY " + order.substring(0, order.indexOf(','))
+                    + " OFFSET 3 ROWS FETCH FIRST 5 ROWS WITH TIES";
+            int to = 8;
+            while (to < keys.size() && String.valueOf(keys.get(to)).equals(String.valueOf(keys.get(7)))) {
+                to++;
+            }
+            rs = stat.executeQuery(query);
+            int count = 0;
+            while (rs.next()) {
+                assertEquals(keys.get(3 + count++), rs.getString(1));
+            }
+            assertEquals(to - 3, count);
+            stat.execute("SET MAX_MEMORY_ROWS 10");
+            rs = stat.executeQuery(query);
+            count = 0;
+            while (rs.next()) {
+                assertEquals(keys.get(3 + count++), rs.getString(1));
+            }
+            assertEquals(to - 3, count);
+            stat.execute("SET MAX_MEMORY_ROWS 40000");
+        }
+        assertEquals("200 \n", getResult(stat.executeQuery(
+                "SELECT COUNT(*) FROM (SELECT ID FROM TEST ORDER BY V, ID FETCH FIRST 10 PERCENT ROWS ONLY)")));
+        assertEquals("0 3 \n1 3 \n", getResult(stat.executeQuery(
+                "SELECT MOD(ID, 5) M, 3 FROM TEST GROUP BY M ORDER BY M LIMIT 2")));
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
+    private static String getResult(ResultSet rs) throws SQLException {
+        StringBuilder builder = new StringBuilder();
+        int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                builder.append(rs.getString(i)).append(' ');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
     private void testConditionAndOrDistributiveLaw() throws SQLException {
         deleteDb("optimizations");
         Connection conn = getConnection("optimizations");
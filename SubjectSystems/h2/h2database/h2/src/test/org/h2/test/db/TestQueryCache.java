@@ -33,6 +33,7 @@ public void test() throws Exception {
         deleteDb("queryCache");
         test1();
         testClearingCacheWithTableStructureChanges();
+        testPlanCache();
         deleteDb("queryCache");
     }
 
@@ -107,4 +108,100 @@ private void testClearingCacheWithTableStructureChanges() throws Exception {
                     prepareStatement("SELECT * FROM TEST");
         }
     }
+
+    private void testPlanCache() throws Exception {
+        deleteDb("queryCache");
+        try (Connection conn1 = getConnection("queryCache");
+                Connection conn2 = getConnection("queryCache")) {
+            Statement stat1 = conn1.createStatement();
+            Statement stat2 = conn2.createStatement();
+            stat1.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            stat1.execute("CREATE SCHEMA S");
+            stat1.execute("CREATE TABLE S.TEST(ID INT PRIMARY KEY, V INT)");
+            stat1.execute("INSERT INTO S.TEST VALUES (1, 10), (2, 20)");
+            String query = "SELECT COUNT(*) FROM TEST WHERE V > ?";
+            long hits = getPlanCacheInfo(stat1, "HITS");
+            PreparedStatement prep = conn1.prepareStatement(query);
+            prep.setInt(1, 0);
+            assertEquals(0, getCount(prep));
+            prep.close();
+            // the closed command is moved to the second session
+            prep = conn2.prepareStatement(query);
+            prep.setInt(1, 0);
+            assertEquals(0, getCount(prep));
+            prep.close();
+            // the query of the plan cache info was taken from the cache too
+            assertEquals(hits + 2, getPlanCacheInfo(stat1, "HITS"));
+            // uncommitted rows of another session must not be visible
+            conn1.setAutoCommit(false);
+            stat1.execute("INSERT INTO TEST VALUES (1, 1)");
+            prep = conn1.prepareStatement(query);
+            prep.setInt(1, 0);
+            assertEquals(1, getCount(prep));
+            prep.close();
+            prep = conn2.prepareStatement(query);
+            prep.setInt(1, 0);
+            assertEquals(0, getCount(prep));
+            prep.close();
+            // nor the cached results of nested queries
+            for (String nested : new String[] { "SELECT (SELECT SUM(V) FROM TEST)",
+                    "SELECT COUNT(*) FROM S.TEST WHERE V IN (SELECT V + 9 FROM TEST)",
+                    "SELECT COUNT(*) FROM S.TEST WHERE EXISTS (SELECT * FROM TEST)",
+                    "SELECT COUNT(*) FROM S.TEST WHERE ID IN (SELECT V FROM TEST UNION SELECT V FROM TEST)" }) {
+                prep = conn1.prepareStatement(nested);
+                assertTrue(getCount(prep) > 0);
+                prep.close();
+                prep = conn2.prepareStatement(nested);
+                assertEquals(0, getCount(prep));
+                prep.close();
+            }
+            conn1.commit();
+            conn1.setAutoCommit(true);
+            // commands are not shared between different schemas
+            stat2.execute("SET SCHEMA S");
+            prep = conn2.prepareStatement(query);
+            prep.setInt(1, 0);
+            assertEquals(2, getCount(prep));
+            prep.close();
+            stat2.execute("SET SCHEMA PUBLIC");
+            // the cache is cleared when the meta data is changed
+            hits = getPlanCacheInfo(stat1, "HITS");
+            stat1.execute("CREATE INDEX IDX_V ON TEST(V)");
+            prep = conn2.prepareStatement(query);
+            prep.setInt(1, 0);
+            assertEquals(1, getCount(prep));
+            prep.close();
+            assertEquals(hits, getPlanCacheInfo(stat1, "HITS"));
+            assertTrue(getPlanCacheInfo(stat1, "ENTRIES") > 0);
+            // local temporary tables are never shared
+            stat1.execute("CREATE LOCAL TEMPORARY TABLE T(A INT)");
+            stat1.execute("INSERT INTO T VALUES 1");
+            stat1.executeQuery("SELECT * FROM T").close();
+            stat2.execute("CREATE LOCAL TEMPORARY TABLE T(A INT)");
+            ResultSet rs = stat2.executeQuery("SELECT * FROM T");
+            assertFalse(rs.next());
+            stat1.execute("DROP TABLE S.TEST, TEST");
+            stat1.execute("DROP SCHEMA S");
+        }
+        try (Connection conn = getConnection("queryCache;PLAN_CACHE_SIZE=0")) {
+            ResultSet rs = conn.createStatement().executeQuery(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SETTINGS WHERE NAME LIKE 'info.PLAN_CACHE_%'");
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    private static int getCount(PreparedStatement prep) throws Exception {
+        ResultSet rs = prep.executeQuery();
+        rs.next();
+        return rs.getInt(1);
+    }
+
+    private static long getPlanCacheInfo(Statement stat, String name) throws Exception {
+        ResultSet rs = stat.executeQuery("SELECT `VALUE` FROM INFORMATION_SCHEMA.SETTINGS WHERE NAME = 'info.PLAN_CACHE_"
+                + name + '\'');
+        rs.next();
+        return rs.getLong(1);
+    }
+
 }
@@ -13,6 +13,7 @@
 import java.sql.Types;
 import java.util.Random;
 import org.h2.api.Aggregate;
+import org.h2.api.ErrorCode;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 import org.h2.tools.SimpleResultSet;
@@ -103,6 +104,7 @@ private void testSpatial() throws SQLException {
         testIndexUpdateNullGeometry();
         testInsertNull();
         testSpatialIndexWithOrder();
+        testCreateIndexOnExistingRows();
     }
 
     private void testBug1() throws SQLException {
@@ -1203,4 +1205,39 @@ private void testSpatialIndexWithOrder() throws SQLException {
         }
         deleteDb("spatial");
     }
+
+    private void testCreateIndexOnExistingRows() throws SQLException {
+        deleteDb("spatial");
+        try (Connection conn = getConnection(URL)) {
+            Statement stat = conn.createStatement();
+            // the keys are sorted in blocks of 500 rows
+            stat.execute("SET MAX_MEMORY_ROWS 1000");
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, G GEOMETRY)");
+            stat.execute("INSERT INTO TEST SELECT X, CAST('POINT (' || MOD(X, 100) || ' ' || (X / 100) || ')' " +
+                    "AS GEOMETRY) FROM SYSTEM_RANGE(0, 9999)");
+            stat.execute("INSERT INTO TEST VALUES (10000, 'POINT (99 0)'), (10001, NULL)");
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).
+                    execute("CREATE UNIQUE SPATIAL INDEX TEST_G_UNIQUE_IDX ON TEST(G)");
+            stat.execute("CREATE SPATIAL INDEX TEST_G_IDX ON TEST(G)");
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST " +
+                    "WHERE G && 'POLYGON ((9.5 9.5, 9.5 20.5, 20.5 20.5, 20.5 9.5, 9.5 9.5))'::GEOMETRY")) {
+                assertTrue(rs.next());
+                assertEquals(121, rs.getInt(1));
+            }
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST " +
+                    "WHERE G && 'POLYGON ((-1 -1, -1 100, 100 100, 100 -1, -1 -1))'::GEOMETRY")) {
+                assertTrue(rs.next());
+                assertEquals(10001, rs.getInt(1));
+            }
+            try (ResultSet rs = stat.executeQuery("SELECT ID FROM TEST WHERE G && 'POINT (99 0)'::GEOMETRY " +
+                    "ORDER BY ID")) {
+                assertTrue(rs.next());
+                assertEquals(99, rs.getInt(1));
+                assertTrue(rs.next());
+                assertEquals(10000, rs.getInt(1));
+                assertFalse(rs.next());
+            }
+        }
+        deleteDb("spatial");
+    }
 }
@@ -19,6 +19,7 @@
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.h2.api.ErrorCode;
 import org.h2.api.TableEngine;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.query.AllColumnsForPlan;
@@ -29,6 +30,7 @@
 import org.h2.index.IndexType;
 import org.h2.index.SingleRowCursor;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.MVColumnarTableEngine;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
@@ -67,6 +69,7 @@ public void test() throws Exception {
         testSchemaEngineParams();
         testSimpleQuery();
         testMultiColumnTreeSetIndex();
+        testColumnarTableEngine();
     }
 
     private void testEngineParams() throws SQLException {
@@ -126,6 +129,69 @@ private void testSchemaEngineParams() throws SQLException {
         deleteDb("tableEngine");
     }
 
+    private void testColumnarTableEngine() throws SQLException {
+        deleteDb("tableEngine");
+        Connection conn = getConnection("tableEngine");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE T(ID INT PRIMARY KEY, A INT, B VARCHAR, C DOUBLE) ENGINE \"" +
+                MVColumnarTableEngine.class.getName() + '\"');
+        stat.execute("INSERT INTO T SELECT X, MOD(X, 10), 'v' || MOD(X, 7), X / 3.0 FROM SYSTEM_RANGE(1, 5000)");
+        assertEquals(5000, getInt(stat, "SELECT COUNT(*) FROM T"));
+        assertEquals(500, getInt(stat, "SELECT COUNT(*) FROM T WHERE A = 3"));
+        assertEquals(2000, getInt(stat, "SELECT COUNT(B) FROM T WHERE C > 1000"));
+        ResultSet rs = stat.executeQuery("EXPLAIN SELECT B FROM T WHERE C > 1000");
+        rs.next();
+        assertContains(rs.getString(1), ".columnScan: C > ");
+        assertEquals("v3", getString(stat, "SELECT B FROM T WHERE ID = 10"));
+
+        stat.execute("UPDATE T SET B = 'x' WHERE ID = 10");
+        assertEquals("x", getString(stat, "SELECT B FROM T WHERE ID = 10"));
+        stat.execute("DELETE FROM T WHERE ID <= 100 AND ID <> 10");
+        assertEquals(4901, getInt(stat, "SELECT COUNT(*) FROM T"));
+        assertEquals(1, getInt(stat, "SELECT COUNT(*) FROM T WHERE B = 'x'"));
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("INSERT INTO T VALUES (200, 0, 'y', 0)");
+
+        conn.setAutoCommit(false);
+        stat.execute("DELETE FROM T WHERE A = 5");
+        assertEquals(4411, getInt(stat, "SELECT COUNT(*) FROM T"));
+        conn.rollback();
+        conn.setAutoCommit(true);
+        assertEquals(4901, getInt(stat, "SELECT COUNT(*) FROM T"));
+        stat.execute("INSERT INTO T VALUES (6000, NULL, NULL, NULL)");
+        assertEquals(1, getInt(stat, "SELECT COUNT(*) FROM T WHERE A IS NULL"));
+        assertEquals(4902, getInt(stat, "SELECT COUNT(*) FROM T WHERE ID > 0"));
+        long sum = getLong(stat, "SELECT SUM(A) FROM T");
+        conn.close();
+        if (!config.memory) {
+            conn = getConnection("tableEngine");
+            stat = conn.createStatement();
+            assertEquals(4902, getInt(stat, "SELECT COUNT(*) FROM T"));
+            assertEquals(sum, getLong(stat, "SELECT SUM(A) FROM T"));
+            assertEquals("x", getString(stat, "SELECT B FROM T WHERE ID = 10"));
+            assertEquals(2000, getInt(stat, "SELECT COUNT(B) FROM T WHERE C > 1000"));
+            conn.close();
+        }
+        deleteDb("tableEngine");
+    }
+
+    private static int getInt(Statement stat, String sql) throws SQLException {
+        ResultSet rs = stat.executeQuery(sql);
+        rs.next();
+        return rs.getInt(1);
+    }
+
+    private static long getLong(Statement stat, String sql) throws SQLException {
+        ResultSet rs = stat.executeQuery(sql);
+        rs.next();
+        return rs.getLong(1);
+    }
+
+    private static String getString(Statement stat, String sql) throws SQLException {
+        ResultSet rs = stat.executeQuery(sql);
+        rs.next();
+        return rs.getString(1);
+    }
+
     private void testSimpleQuery() throws SQLException {
 
         deleteDb("tableEngine");
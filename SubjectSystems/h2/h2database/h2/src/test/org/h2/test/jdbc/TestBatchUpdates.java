@@ -65,6 +65,7 @@ public void test() throws SQLException {
         testRootCause();
         testExecuteCall();
         testException();
+        testPartialFailure();
         testCoffee();
         deleteDb("batchUpdates");
     }
@@ -163,6 +164,48 @@ private void testException() throws SQLException {
         conn.close();
     }
 
+    private void testPartialFailure() throws SQLException {
+        deleteDb("batchUpdates");
+        conn = getConnection("batchUpdates");
+        stat = conn.createStatement();
+        stat.execute("create table test(id int primary key)");
+        stat.addBatch("insert into test values(1)");
+        stat.addBatch("insert into test values(1)");
+        stat.addBatch("insert into test values(2), (3)");
+        try {
+            stat.executeBatch();
+            fail();
+        } catch (BatchUpdateException e) {
+            assertEquals(ErrorCode.DUPLICATE_KEY_1, e.getErrorCode());
+            int[] counts = e.getUpdateCounts();
+            assertEquals(3, counts.length);
+            assertEquals(1, counts[0]);
+            assertEquals(Statement.EXECUTE_FAILED, counts[1]);
+            assertEquals(2, counts[2]);
+        }
+        prep = conn.prepareStatement("insert into test values(?)");
+        for (int i = 2; i <= 5; i++) {
+            prep.setInt(1, i);
+            prep.addBatch();
+        }
+        try {
+            prep.executeBatch();
+            fail();
+        } catch (BatchUpdateException e) {
+            int[] counts = e.getUpdateCounts();
+            assertEquals(4, counts.length);
+            assertEquals(Statement.EXECUTE_FAILED, counts[0]);
+            assertEquals(Statement.EXECUTE_FAILED, counts[1]);
+            assertEquals(1, counts[2]);
+            assertEquals(1, counts[3]);
+            assertNotNull(e.getNextException());
+        }
+        // the parameters keep the values of the last set
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, prep).executeUpdate();
+        assertSingleValue(stat, "select count(*) from test", 5);
+        conn.close();
+    }
+
     private void testCoffee() throws SQLException {
         deleteDb("batchUpdates");
         conn = getConnection("batchUpdates");
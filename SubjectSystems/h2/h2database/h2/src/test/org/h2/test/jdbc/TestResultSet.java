@@ -92,6 +92,7 @@ public void test() throws Exception {
         testColumnLabelColumnName();
         testAbsolute();
         testFetchSize();
+        testFetchInterleaved();
         testOwnUpdates();
         testUpdatePrimaryKey();
         testFindColumn();
@@ -433,6 +434,36 @@ private void testFetchSize() throws SQLException {
         assertEquals(a + 1, b);
     }
 
+    private void testFetchInterleaved() throws SQLException {
+        Statement stat1 = conn.createStatement();
+        Statement stat2 = conn.createStatement();
+        stat1.setFetchSize(7);
+        stat2.setFetchSize(3);
+        ResultSet rs1 = stat1.executeQuery("SELECT X FROM SYSTEM_RANGE(1, 100)");
+        ResultSet rs2 = stat2.executeQuery("SELECT X * 2 FROM SYSTEM_RANGE(1, 50)");
+        for (int i = 1; i <= 100; i++) {
+            assertTrue(rs1.next());
+            assertEquals(i, rs1.getInt(1));
+            if (i <= 50) {
+                assertTrue(rs2.next());
+                assertEquals(i * 2, rs2.getInt(1));
+            }
+            if (i % 10 == 0) {
+                // other commands between the blocks of rows
+                assertSingleValue(stat, "SELECT " + i, i);
+                assertThrows(ErrorCode.TABLE_OR_VIEW_NOT_FOUND_1, stat).executeQuery("SELECT * FROM TEST_X");
+            }
+        }
+        assertFalse(rs1.next());
+        assertFalse(rs2.next());
+        rs1 = stat1.executeQuery("SELECT X FROM SYSTEM_RANGE(1, 100)");
+        assertTrue(rs1.next());
+        rs1.close();
+        assertSingleValue(stat, "SELECT 1", 1);
+        stat1.close();
+        stat2.close();
+    }
+
     private void testOwnUpdates() throws SQLException {
         DatabaseMetaData meta = conn.getMetaData();
         for (int i = 0; i < 3; i++) {
@@ -254,3 +254,40 @@ SELECT CAST('{"type":"Unknown","coordinates":[1,2]}' FORMAT JSON AS GEOMETRY);
 
 EXPLAIN VALUES CAST('POINT EMPTY' AS GEOMETRY);
 >> VALUES (CAST(X'00000000017ff80000000000007ff8000000000000' AS GEOMETRY))
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, G GEOMETRY);
+> ok
+
+INSERT INTO TEST SELECT X, CAST('POINT (' || MOD(X, 100) || ' ' || (X / 100) || ')' AS GEOMETRY)
+    FROM SYSTEM_RANGE(0, 9999);
+> update count: 10000
+
+INSERT INTO TEST VALUES (10000, NULL), (10001, 'POINT EMPTY'), (10002, 'POINT (10 10)');
+> update count: 3
+
+CREATE UNIQUE SPATIAL INDEX TEST_G_UNIQUE_IDX ON TEST(G);
+> exception DUPLICATE_KEY_1
+
+CREATE SPATIAL INDEX TEST_G_IDX ON TEST(G);
+> ok
+
+SELECT COUNT(*) FROM TEST WHERE G && 'POLYGON ((9.5 9.5, 9.5 20.5, 20.5 20.5, 20.5 9.5, 9.5 9.5))'::GEOMETRY;
+>> 122
+
+EXPLAIN SELECT ID FROM TEST WHERE G && 'POINT (50 50)'::GEOMETRY;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_G_IDX: G && CAST(X'000000000140490000000000004049000000000000' AS GEOMETRY) */ WHERE "G" && CAST(X'000000000140490000000000004049000000000000' AS GEOMETRY)
+
+SELECT ID FROM TEST WHERE G && 'POINT (50 50)'::GEOMETRY;
+>> 5050
+
+DELETE FROM TEST WHERE ID = 5050;
+> update count: 1
+
+INSERT INTO TEST VALUES (10003, 'POINT (50 50)');
+> update count: 1
+
+SELECT ID FROM TEST WHERE G && 'POINT (50 50)'::GEOMETRY;
+>> 10003
+
+DROP TABLE TEST;
+> ok
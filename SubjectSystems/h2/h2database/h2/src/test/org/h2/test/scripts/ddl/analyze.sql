@@ -65,3 +65,40 @@ SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'TEST' AND
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT, C INT, D INT);
+> ok
+
+INSERT INTO TEST SELECT X, CASE WHEN MOD(X, 100) = 0 THEN X ELSE 0 END, MOD(X, 50), MOD(X, 10), MOD(X, 10)
+    FROM SYSTEM_RANGE(1, 5000);
+> update count: 5000
+
+CREATE INDEX TEST_A ON TEST(A);
+> ok
+
+CREATE INDEX TEST_B ON TEST(B);
+> ok
+
+CREATE INDEX TEST_C_D ON TEST(C, D);
+> ok
+
+ANALYZE TABLE TEST;
+> ok
+
+EXPLAIN SELECT ID FROM TEST WHERE A = 0 AND B = 5;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B: B = 5 */ WHERE ("A" = 0) AND ("B" = 5)
+
+EXPLAIN SELECT ID FROM TEST WHERE A = 100 AND B = 0;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A: A = 100 */ WHERE ("A" = 100) AND ("B" = 0)
+
+EXPLAIN ANALYZE SELECT ID FROM TEST WHERE B = 5;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B: B = 5 */ /* scanCount: 101, estimatedRows: 100 */ WHERE "B" = 5
+
+EXPLAIN ANALYZE SELECT ID FROM TEST WHERE B BETWEEN 10 AND 19;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B: B >= 10 AND B <= 19 */ /* scanCount: 1001, estimatedRows: 1000 */ WHERE "B" BETWEEN 10 AND 19
+
+EXPLAIN ANALYZE SELECT ID FROM TEST WHERE C = 1 AND D = 1;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_C_D: C = 1 AND D = 1 */ /* scanCount: 501, estimatedRows: 500 */ WHERE ("C" = 1) AND ("D" = 1)
+
+DROP TABLE TEST;
+> ok
@@ -28,3 +28,17 @@ select avg(v), avg(v) filter (where v >= 40) from test where v <= 100;
 
 drop table test;
 > ok
+
+SELECT I, V, AVG(V) OVER (ORDER BY I ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING) A,
+    AVG(CAST(V AS DOUBLE)) OVER (ORDER BY I ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING) D FROM
+    VALUES (1, 1), (2, 5), (3, NULL), (4, NULL), (5, NULL), (6, 3), (7, 6) T(I, V);
+> I V    A    D
+> - ---- ---- ----
+> 1 1    3    3.0
+> 2 5    3    3.0
+> 3 null 5    5.0
+> 4 null null null
+> 5 null 3    3.0
+> 6 3    4    4.5
+> 7 6    4    4.5
+> rows: 7
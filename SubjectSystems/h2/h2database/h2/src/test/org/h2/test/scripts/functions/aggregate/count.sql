@@ -209,3 +209,15 @@ EXPLAIN SELECT COUNT(DISTINCT NULL) FROM TEST;
 
 DROP TABLE TEST;
 > ok
+
+SELECT I, V, COUNT(V) OVER W C, COUNT(*) OVER W A FROM
+    VALUES (1, 1), (2, NULL), (3, 3), (4, NULL), (5, 5) T(I, V)
+    WINDOW W AS (ORDER BY I ROWS BETWEEN 2 PRECEDING AND 1 PRECEDING);
+> I V    C A
+> - ---- - -
+> 1 1    0 0
+> 2 null 1 1
+> 3 3    1 2
+> 4 null 1 2
+> 5 5    1 2
+> rows: 5
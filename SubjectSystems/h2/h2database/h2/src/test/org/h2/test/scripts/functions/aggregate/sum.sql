@@ -131,3 +131,36 @@ SELECT V,
 > 2 4 4
 > 2 4 4
 > rows: 3
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, K INT, V INT) AS
+    SELECT X, X / 3, CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE MOD(X * 37, 101) - 50 END FROM SYSTEM_RANGE(1, 200);
+> ok
+
+SELECT COUNT(*) FROM (SELECT ID, K,
+    SUM(V) OVER (ORDER BY ID ROWS BETWEEN 3 PRECEDING AND 1 FOLLOWING) R1,
+    SUM(V) OVER (ORDER BY ID ROWS BETWEEN 3 PRECEDING AND 2 PRECEDING) R2,
+    SUM(V) OVER (ORDER BY ID ROWS BETWEEN 1 FOLLOWING AND 3 FOLLOWING) R3,
+    SUM(V) OVER (ORDER BY K RANGE BETWEEN 2 PRECEDING AND 1 FOLLOWING) G1,
+    SUM(V) OVER (ORDER BY K GROUPS BETWEEN 1 PRECEDING AND 1 FOLLOWING) G2,
+    SUM(V) FILTER (WHERE V > 0) OVER (ORDER BY ID ROWS 10 PRECEDING) F
+    FROM TEST) W WHERE
+    R1 IS DISTINCT FROM (SELECT SUM(V) FROM TEST T WHERE T.ID BETWEEN W.ID - 3 AND W.ID + 1)
+    OR R2 IS DISTINCT FROM (SELECT SUM(V) FROM TEST T WHERE T.ID BETWEEN W.ID - 3 AND W.ID - 2)
+    OR R3 IS DISTINCT FROM (SELECT SUM(V) FROM TEST T WHERE T.ID BETWEEN W.ID + 1 AND W.ID + 3)
+    OR G1 IS DISTINCT FROM (SELECT SUM(V) FROM TEST T WHERE T.K BETWEEN W.K - 2 AND W.K + 1)
+    OR G2 IS DISTINCT FROM (SELECT SUM(V) FROM TEST T WHERE T.K BETWEEN W.K - 1 AND W.K + 1)
+    OR F IS DISTINCT FROM (SELECT SUM(V) FROM TEST T WHERE T.ID BETWEEN W.ID - 10 AND W.ID AND V > 0);
+>> 0
+
+SELECT ID, V, SUM(V) OVER (ORDER BY ID ROWS BETWEEN 1 PRECEDING AND CURRENT ROW) S FROM TEST WHERE ID BETWEEN 5 AND 9;
+> ID V    S
+> -- ---- ---
+> 5  34   34
+> 6  -30  4
+> 7  null -30
+> 8  44   44
+> 9  -20  24
+> rows: 5
+
+DROP TABLE TEST;
+> ok
@@ -333,10 +333,10 @@ EXPLAIN SELECT * FROM TEST WHERE A = 0;
 >> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A1: A = 0 */ WHERE "A" = 0
 
 EXPLAIN SELECT * FROM TEST WHERE A = 0 AND B >= 0;
->> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A = 0 AND B >= 0 */ WHERE ("A" = 0) AND ("B" >= 0)
+>> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A1: A = 0 */ WHERE ("A" = 0) AND ("B" >= 0)
 
 EXPLAIN SELECT * FROM TEST WHERE A > 0 AND B >= 0;
->> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A > 0 AND B >= 0 */ WHERE ("A" > 0) AND ("B" >= 0)
+>> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("A" > 0) AND ("B" >= 0)
 
 -- Test that creation order of indexes has no effect
 CREATE INDEX T_A2 ON TEST(A);
@@ -410,3 +410,85 @@ SELECT * FROM TEST WHERE _ROWID_ >= 2 AND _ROWID_ <= 3;
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B VARCHAR, C INT);
+> ok
+
+INSERT INTO TEST VALUES (1, 10, 'a', 100), (2, 20, 'b', 200), (3, 10, 'c', 300);
+> update count: 3
+
+CREATE INDEX TEST_A_IDX ON TEST(A) INCLUDE (B);
+> ok
+
+CREATE INDEX TEST_C_IDX ON TEST(C) INCLUDE (C);
+> exception DUPLICATE_COLUMN_NAME_1
+
+CREATE TABLE TEST2(A INT NOT NULL, B INT);
+> ok
+
+CREATE PRIMARY KEY ON TEST2(A) INCLUDE (B);
+> exception FEATURE_NOT_SUPPORTED_1
+
+DROP TABLE TEST2;
+> ok
+
+EXPLAIN SELECT A, B FROM TEST WHERE A = 10;
+>> SELECT "A", "B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX: A = 10 */ WHERE "A" = 10
+
+SELECT A, B FROM TEST WHERE A = 10 ORDER BY B;
+> A  B
+> -- -
+> 10 a
+> 10 c
+> rows (ordered): 2
+
+SELECT A, B, C FROM TEST WHERE A = 10 ORDER BY B;
+> A  B C
+> -- - ---
+> 10 a 100
+> 10 c 300
+> rows (ordered): 2
+
+UPDATE TEST SET B = 'd' WHERE ID = 3;
+> update count: 1
+
+SELECT A, B FROM TEST WHERE A = 10 ORDER BY B;
+> A  B
+> -- -
+> 10 a
+> 10 d
+> rows (ordered): 2
+
+UPDATE TEST SET A = 20 WHERE ID = 1;
+> update count: 1
+
+SELECT A, B FROM TEST WHERE A = 20 ORDER BY B;
+> A  B
+> -- -
+> 20 a
+> 20 b
+> rows (ordered): 2
+
+SELECT MIN(A), MAX(A) FROM TEST;
+> MIN(A) MAX(A)
+> ------ ------
+> 10     20
+> rows: 1
+
+SELECT SQL FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'TEST_A_IDX';
+>> CREATE INDEX "PUBLIC"."TEST_A_IDX" ON "PUBLIC"."TEST"("A") INCLUDE("B")
+
+ALTER TABLE TEST DROP COLUMN B;
+> exception COLUMN_IS_REFERENCED_1
+
+ALTER TABLE TEST ADD COLUMN D INT;
+> ok
+
+SELECT A, B FROM TEST WHERE A = 10;
+> A  B
+> -- -
+> 10 d
+> rows: 1
+
+DROP TABLE TEST;
+> ok
@@ -1109,3 +1109,38 @@ EXPLAIN SELECT (VALUES 1, RAND());
 
 EXPLAIN SELECT X FROM SYSTEM_RANGE(1, 10) ORDER BY X, (1+1), -X;
 >> SELECT "X" FROM SYSTEM_RANGE(1, 10) /* range index */ ORDER BY 1, - "X"
+
+CREATE TABLE TEST(A INT, B VARCHAR, C DECIMAL(10, 2), D VARCHAR_IGNORECASE);
+> ok
+
+INSERT INTO TEST VALUES (1, 'a', 1, 'a'), (1, 'a', 1.0, 'A'), (2, 'b', 1.00, 'b'), (NULL, NULL, NULL, NULL),
+    (NULL, 'b', 2, 'B'), (NULL, NULL, NULL, NULL);
+> update count: 6
+
+SELECT A, B, COUNT(*) FROM TEST GROUP BY A, B ORDER BY A, B;
+> A    B    COUNT(*)
+> ---- ---- --------
+> null null 2
+> null b    1
+> 1    a    2
+> 2    b    1
+> rows (ordered): 4
+
+SELECT C, COUNT(*) FROM TEST GROUP BY C;
+> C    COUNT(*)
+> ---- --------
+> 1.00 3
+> 2.00 1
+> null 2
+> rows: 3
+
+SELECT D, COUNT(*) FROM TEST GROUP BY D;
+> D    COUNT(*)
+> ---- --------
+> a    2
+> b    2
+> null 2
+> rows: 3
+
+DROP TABLE TEST;
+> ok
@@ -29,6 +29,7 @@ public static void main(String... a) throws Exception {
     @Override
     public void test() throws Exception {
         testConcurrent();
+        testConcurrentGet();
     }
 
     private void testConcurrent() {
@@ -91,4 +92,55 @@ public void call() throws Exception {
         trace("requests: " + totalCount);
     }
 
+    private void testConcurrentGet() throws Exception {
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 1000;
+        final CacheLongKeyLIRS<Integer> test = new CacheLongKeyLIRS<>(cc);
+        for (int i = 0; i < 2000; i++) {
+            test.put(i, i);
+        }
+        for (int threadCount = 1; threadCount <= 8; threadCount *= 2) {
+            final AtomicBoolean stopped = new AtomicBoolean();
+            final long[] getCounts = new long[threadCount];
+            long hits = test.getHits(), misses = test.getMisses();
+            Task[] tasks = new Task[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                final int x = i;
+                tasks[i] = new Task() {
+                    @Override
+                    public void call() throws Exception {
+                        Random random = new Random(x);
+                        long count = 0;
+                        while (!stopped.get()) {
+                            for (int j = 0; j < 1000; j++) {
+                                int key = (int) Math.abs(random.nextGaussian() * 300);
+                                Integer value = test.get(key);
+                                if (value == null) {
+                                    test.put(key, key);
+                                } else if (value != key) {
+                                    throw new AssertionError(key + " " + value);
+                                }
+                            }
+                            count += 1000;
+                        }
+                        getCounts[x] = count;
+                    }
+                };
+                tasks[i].execute("t" + i);
+            }
+            Thread.sleep(500);
+            stopped.set(true);
+            long totalCount = 0;
+            for (int i = 0; i < threadCount; i++) {
+                tasks[i].get();
+                totalCount += getCounts[i];
+            }
+            // most keys fit into the cache
+            hits = test.getHits() - hits;
+            misses = test.getMisses() - misses;
+            assertTrue(hits + " " + misses, hits > misses * 10);
+            trace("threads: " + threadCount + " gets: " + totalCount * 2 + " per second");
+        }
+    }
+
 }
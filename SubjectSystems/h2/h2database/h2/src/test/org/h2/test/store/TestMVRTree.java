@@ -13,10 +13,12 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriter;
@@ -53,6 +55,9 @@ public void test() {
         testSimple();
         testRandom();
         testRandomFind();
+        testBulkLoad();
+        testBulkLoadPerformance();
+        testAppendLeaf();
     }
 
     private void testRemoveAll() {
@@ -375,6 +380,172 @@ private void testRandomFind() {
         }
     }
 
+    private void testBulkLoad() {
+        MVStore s = openStore(null);
+        MVRTreeMap<Integer> m = s.openMap("data", new MVRTreeMap.Builder<Integer>());
+        int len = 10000;
+        SpatialKey[] keys = new SpatialKey[len];
+        Integer[] values = new Integer[len];
+        Random rand = new Random(1);
+        for (int i = 0; i < len; i++) {
+            float x = rand.nextFloat() * 2 - 1, y = rand.nextFloat() * 2 - 1;
+            float p = rand.nextFloat() * 0.01f;
+            keys[i] = new SpatialKey(i, x - p, x + p, y - p, y + p);
+            values[i] = i;
+        }
+        m.bulkLoad(keys.clone(), values.clone());
+        assertEquals(len, m.size());
+        for (int i = 0; i < len; i++) {
+            assertEquals(i, m.get(keys[i]).intValue());
+        }
+        for (int i = 0; i < 100; i++) {
+            float x = rand.nextFloat() * 2 - 1, y = rand.nextFloat() * 2 - 1;
+            float p = rand.nextFloat() * 0.2f;
+            SpatialKey k = new SpatialKey(0, x - p, x + p, y - p, y + p);
+            int expected = 0;
+            for (SpatialKey key : keys) {
+                if (key.min(0) <= k.max(0) && key.max(0) >= k.min(0)
+                        && key.min(1) <= k.max(1) && key.max(1) >= k.min(1)) {
+                    expected++;
+                }
+            }
+            int count = 0;
+            for (Iterator<SpatialKey> it = m.findIntersectingKeys(k); it.hasNext(); it.next()) {
+                count++;
+            }
+            assertEquals(expected, count);
+        }
+        // the map can be changed as usual after bulk loading
+        for (int i = 0; i < len; i += 2) {
+            assertEquals(i, m.remove(keys[i]).intValue());
+        }
+        m.add(new SpatialKey(len, 0, 0, 0, 0), len);
+        assertEquals(len / 2 + 1, m.size());
+        assertEquals(len, m.get(new SpatialKey(len, 0, 0, 0, 0)).intValue());
+        try {
+            m.bulkLoad(keys, values);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        m.clear();
+        m.bulkLoad(new SpatialKey[0], new Integer[0]);
+        assertEquals(0, m.size());
+        m.bulkLoad(new SpatialKey[] { new SpatialKey(1, 1, 1, 1, 1) }, new Integer[] { 1 });
+        assertEquals(1, m.get(new SpatialKey(1, 1, 1, 1, 1)).intValue());
+        s.close();
+    }
+
+    private void testAppendLeaf() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        MVStore s = openStore(fileName);
+        MVRTreeMap<Integer> m = s.openMap("data", new MVRTreeMap.Builder<Integer>());
+        // the points of a grid, row by row in alternating directions
+        int len = 10000;
+        SpatialKey[] keys = new SpatialKey[len];
+        Integer[] values = new Integer[len];
+        for (int i = 0; i < len; i++) {
+            int x = i % 100, y = i / 100;
+            if ((y & 1) != 0) {
+                x = 99 - x;
+            }
+            keys[i] = new SpatialKey(i, x, x, y, y);
+            values[i] = i;
+        }
+        for (int i = 0; i < len; i += 7) {
+            int to = Math.min(i + 7, len);
+            m.appendLeaf(Arrays.copyOfRange(keys, i, to), Arrays.copyOfRange(values, i, to));
+            if (i % 700 == 0) {
+                s.commit();
+            }
+        }
+        m.appendLeaf(new SpatialKey[0], new Integer[0]);
+        s.close();
+        s = openStore(fileName);
+        m = s.openMap("data", new MVRTreeMap.Builder<Integer>());
+        assertEquals(len, m.size());
+        for (int i = 0; i < len; i++) {
+            assertEquals(i, m.get(keys[i]).intValue());
+        }
+        int count = 0;
+        for (Iterator<SpatialKey> it = m.findIntersectingKeys(new SpatialKey(0, 9.5f, 20.5f, 9.5f, 20.5f));
+                it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(121, count);
+        // the map can be changed as usual after appending
+        for (int i = 0; i < len; i += 2) {
+            assertEquals(i, m.remove(keys[i]).intValue());
+        }
+        m.add(new SpatialKey(len, 0.5f, 0.5f, 0.5f, 0.5f), len);
+        assertEquals(len / 2 + 1, m.size());
+        assertEquals(len, m.get(new SpatialKey(len, 0.5f, 0.5f, 0.5f, 0.5f)).intValue());
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
+    /**
+     * Compares the time to build an r-tree and the number of pages read by
+     * queries for bulk loading and adding the keys one at a time.
+     */
+    private void testBulkLoadPerformance() {
+        if (!config.big) {
+            return;
+        }
+        int len = 1_000_000;
+        SpatialKey[] keys = new SpatialKey[len];
+        String[] values = new String[len];
+        Random rand = new Random(1);
+        for (int i = 0; i < len; i++) {
+            float x = rand.nextFloat(), y = rand.nextFloat();
+            float p = rand.nextFloat() * 0.0001f;
+            keys[i] = new SpatialKey(i, x - p, x + p, y - p, y + p);
+            values[i] = "" + i;
+        }
+        long[] incremental = buildAndQuery(keys, values, false);
+        long[] bulk = buildAndQuery(keys, values, true);
+        trace("incremental: " + incremental[0] + " ms, " + incremental[1] + " pages read");
+        trace("bulk load: " + bulk[0] + " ms, " + bulk[1] + " pages read");
+        assertTrue(bulk[0] < incremental[0]);
+        assertTrue(bulk[1] < incremental[1]);
+    }
+
+    private long[] buildAndQuery(SpatialKey[] keys, String[] values, boolean bulkLoad) {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        MVStore s = openStore(fileName);
+        MVRTreeMap<String> m = s.openMap("data",
+                new MVRTreeMap.Builder<String>().valueType(StringDataType.INSTANCE));
+        long time = System.nanoTime();
+        if (bulkLoad) {
+            m.bulkLoad(keys.clone(), values.clone());
+        } else {
+            for (int i = 0; i < keys.length; i++) {
+                m.add(keys[i], values[i]);
+            }
+        }
+        s.commit();
+        time = System.nanoTime() - time;
+        s.close();
+        s = new MVStore.Builder().fileName(fileName).cacheSize(0).open();
+        m = s.openMap("data", new MVRTreeMap.Builder<String>().valueType(StringDataType.INSTANCE));
+        long reads = s.getFileStore().getReadCount();
+        Random rand = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            float x = rand.nextFloat(), y = rand.nextFloat();
+            float p = rand.nextFloat() * 0.01f;
+            Iterator<SpatialKey> it = m.findIntersectingKeys(new SpatialKey(0, x - p, x + p, y - p, y + p));
+            while (it.hasNext()) {
+                it.next();
+            }
+        }
+        reads = s.getFileStore().getReadCount() - reads;
+        s.close();
+        FileUtils.delete(fileName);
+        return new long[] { TimeUnit.NANOSECONDS.toMillis(time), reads };
+    }
+
     private void testRandom(boolean quadraticSplit) {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
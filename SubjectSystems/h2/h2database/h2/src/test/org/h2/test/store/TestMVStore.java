@@ -25,6 +25,7 @@
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
 import org.h2.mvstore.OffHeapStore;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
 import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.mvstore.type.StringDataType;
@@ -67,9 +68,11 @@ public void test() throws Exception {
         testVersionsToKeep2();
         testRemoveMap();
         testIsEmpty();
+        testAppendLeaf();
         testOffHeapStorage();
         testNewerWriteVersion();
         testCompactFully();
+        testAutoCompactRate();
         testBackgroundExceptionListener();
         testOldVersion();
         testAtomicOperations();
@@ -81,6 +84,7 @@ public void test() throws Exception {
         testRenameMapRollback();
         testCustomMapType();
         testCacheSize();
+        testOffHeapCache();
         testConcurrentOpen();
         testFileHeader();
         testFileHeaderCorruption();
@@ -230,14 +234,16 @@ private void testCompressed() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
         String data = new String(new char[1000]).replace((char) 0, 'x');
-        long lastSize = 0;
-        for (int level = 0; level <= 2; level++) {
+        long lastSize = 0, uncompressedSize = 0;
+        for (int level = 0; level <= 3; level++) {
             FileUtils.delete(fileName);
             MVStore.Builder builder = new MVStore.Builder().fileName(fileName);
             if (level == 1) {
                 builder.compress();
             } else if (level == 2) {
                 builder.compressHigh();
+            } else if (level == 3) {
+                builder.compressLZ4();
             }
             try (MVStore s = builder.open()) {
                 MVMap<String, String> map = s.openMap("data");
@@ -246,7 +252,11 @@ private void testCompressed() {
                 }
             }
             long size = FileUtils.size(fileName);
-            if (level > 0) {
+            if (level == 0) {
+                uncompressedSize = size;
+            } else if (level == 3) {
+                assertTrue(size < uncompressedSize);
+            } else {
                 assertTrue(size < lastSize);
             }
             lastSize = size;
@@ -400,6 +410,32 @@ private void testIsEmpty() {
         }
     }
 
+    private void testAppendLeaf() {
+        try (MVStore s = new MVStore.Builder().open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            int keysPerPage = s.getKeysPerPage();
+            int count = 0;
+            for (int i = 0; i < 100; i++) {
+                // a partially filled leaf, followed by full leaves
+                int len = i % 9 == 0 ? 3 : keysPerPage;
+                Integer[] keys = new Integer[len];
+                String[] values = new String[len];
+                for (int j = 0; j < len; j++) {
+                    keys[j] = count;
+                    values[j] = "v" + count++;
+                }
+                map.appendLeaf(keys, values);
+            }
+            assertEquals(count, map.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals("v" + i, map.get(i));
+            }
+            assertEquals(count - 1, map.lastKey().intValue());
+            map.put(count, "x");
+            assertEquals(count + 1, map.size());
+        }
+    }
+
     private void testOffHeapStorage() {
         OffHeapStore offHeap = new OffHeapStore();
         int count = 1000;
@@ -501,6 +537,63 @@ private void testCompactFully() {
         assertTrue("old: " + sizeOld + " new: " + sizeNew, sizeNew < sizeOld);
     }
 
+    private void testAutoCompactRate() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int rate = 8;
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                autoCommitDisabled().
+                autoCompactRate(rate).
+                open()) {
+            s.setRetentionTime(0);
+            s.setVersionsToKeep(0);
+            assertEquals(rate, s.getAutoCompactRate());
+            MVMap<Integer, String> m = s.openMap("data");
+            for (int j = 0; j < 50; j++) {
+                for (int i = 0; i < 200; i++) {
+                    m.put(j * 200 + i, "Hello World " + i);
+                }
+                s.commit();
+            }
+            for (int i = 0; i < 10_000; i++) {
+                if (i % 10 != 0) {
+                    m.remove(i);
+                }
+                if (i % 100 == 0) {
+                    s.commit();
+                }
+            }
+            s.commit();
+            int fillRateBefore = s.getChunksFillRate();
+            long remaining = s.getCompactBytesRemaining();
+            assertTrue(remaining > 0);
+            assertEquals(0, s.getCompactBytesWritten());
+            long start = System.nanoTime();
+            s.setAutoCommitDelay(10);
+            for (int i = 0; i < 200 && (s.getCompactBytesFreed() == 0
+                    || s.getChunksFillRate() <= fillRateBefore); i++) {
+                // concurrent changes, so that old versions are released
+                m.put(-1, "Hello " + i);
+                sleep(50);
+            }
+            s.setAutoCommitDelay(0);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            long written = s.getCompactBytesWritten();
+            trace("written: " + written + " freed: " + s.getCompactBytesFreed() + " remaining: "
+                    + s.getCompactBytesRemaining() + " ms: " + millis);
+            assertTrue(written > 0);
+            // the budget of one second, plus one chunk that may be larger
+            assertTrue("written: " + written + " ms: " + millis,
+                    written <= rate * 1024L * (millis + 1000) / 1000 + remaining / 10);
+            assertTrue(s.getCompactBytesFreed() > 0);
+            assertTrue(s.getChunksFillRate() > fillRateBefore);
+            for (int i = 0; i < 10_000; i += 10) {
+                assertEquals("Hello World " + i % 200, m.get(i));
+            }
+        }
+    }
+
     private void testBackgroundExceptionListener() throws Exception {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -848,6 +941,77 @@ private void testCacheSize() {
         }
     }
 
+    private void testOffHeapCache() {
+        CacheLongKeyOffHeap cache = new CacheLongKeyOffHeap(1000, 1);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(cache.put(i, ByteBuffer.wrap(new byte[] { (byte) i, 1, 2, 3, 4, 5, 6, 7, 8, 9 })));
+        }
+        // first in, first out
+        assertEquals(20, cache.size());
+        assertEquals(200, cache.getUsedMemory());
+        ByteBuffer b = cache.get(3);
+        assertEquals(10, b.remaining());
+        assertEquals(3, b.get());
+        cache.remove(3);
+        assertNull(cache.get(3));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertFalse(cache.put(100, ByteBuffer.allocate(1001)));
+        for (int i = 20; i < 100; i++) {
+            cache.put(i, ByteBuffer.allocate(10));
+        }
+        assertEquals(99, cache.size());
+        assertTrue(cache.put(100, ByteBuffer.allocate(15)));
+        assertFalse(cache.containsKey(0));
+        assertFalse(cache.containsKey(1));
+        assertTrue(cache.containsKey(2));
+        assertTrue(cache.containsKey(99));
+        cache.clear();
+        assertEquals(0, cache.size());
+
+        if (config.memory) {
+            return;
+        }
+        String fileName = getBaseDir() + "/" + getTestName();
+        for (boolean compress : new boolean[] { false, true }) {
+            FileUtils.delete(fileName);
+            try (MVStore s = new MVStore.Builder().
+                    fileName(fileName).
+                    autoCommitDisabled().open()) {
+                MVMap<Integer, String> map = s.openMap("test");
+                for (int i = 0; i < 1024; i++) {
+                    map.put(i, new String(new char[10240]));
+                }
+            }
+            MVStore.Builder builder = new MVStore.Builder().
+                    fileName(fileName).
+                    autoCommitDisabled().
+                    cacheSize(1).
+                    offHeapCacheSize(16);
+            if (compress) {
+                builder.offHeapCacheCompress();
+            }
+            try (MVStore s = builder.open()) {
+                assertEquals(1, s.getCacheSize());
+                assertEquals(16, s.getOffHeapCacheSize());
+                MVMap<Integer, String> map = s.openMap("test");
+                for (int i = 0; i < 1024; i++) {
+                    assertEquals(10240, map.get(i).length());
+                }
+                long readCount = s.getFileStore().getReadCount();
+                for (int i = 0; i < 1024; i++) {
+                    assertEquals(10240, map.get(i).length());
+                }
+                // all misses of the page cache are served by the off-heap cache
+                assertEquals(readCount, s.getFileStore().getReadCount());
+                assertTrue(s.getOffHeapCacheHitRatio() > 0);
+                if (compress) {
+                    assertTrue(s.getOffHeapCache().getUsedMemory() < 1024 * 1024);
+                }
+            }
+        }
+    }
+
     private void testConcurrentOpen() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
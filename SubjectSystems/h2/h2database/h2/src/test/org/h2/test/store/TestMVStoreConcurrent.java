@@ -53,6 +53,7 @@ public void test() throws Exception {
         testConcurrentSaveCompact();
         testConcurrentDataType();
         testConcurrentAutoCommitAndChange();
+        testPipelinedCommitAndRead();
         testConcurrentReplaceAndRead();
         testConcurrentChangeAndCompact();
         testConcurrentChangeAndGetVersion();
@@ -252,6 +253,55 @@ public void call() {
         }
     }
 
+    private void testPipelinedCommitAndRead() throws Exception {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int committed = -1;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            // the auto-commit thread enables asynchronous stores
+            s.setAutoCommitDelay(1);
+            final MVMap<Integer, byte[]> map = s.openMap("data");
+            Task task = new Task() {
+                @Override
+                public void call() {
+                    Random r = new Random(1);
+                    while (!stop) {
+                        int size = map.size();
+                        if (size > 0) {
+                            int i = r.nextInt(size);
+                            byte[] v = map.get(i);
+                            if (v == null || v[0] != (byte) i) {
+                                throw new AssertionError(i);
+                            }
+                        }
+                    }
+                }
+            };
+            task.execute();
+            for (int i = 0; i < 2000; i++) {
+                byte[] v = new byte[1000];
+                v[0] = (byte) i;
+                map.put(i, v);
+                if (i % 100 == 99) {
+                    s.commit();
+                    committed = i;
+                } else {
+                    s.tryCommit();
+                }
+            }
+            task.get();
+            // do not store the remaining changes
+            s.closeImmediately();
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, byte[]> map = s.openMap("data");
+            assertTrue(map.size() > committed);
+            for (int i = 0; i <= committed; i++) {
+                assertEquals((byte) i, map.get(i)[0]);
+            }
+        }
+    }
+
     private void testConcurrentReplaceAndRead() throws InterruptedException {
         final MVStore s = new MVStore.Builder().open();
         final MVMap<Integer, Integer> map = s.openMap("data");
@@ -74,6 +74,7 @@ public void test() throws Exception {
         testTemporaryTables();
         testUniqueIndex();
         testSecondaryIndex();
+        testBulkLoad();
         testGarbageCollectionForLOB();
         testSpatial();
         testCount();
@@ -428,6 +429,51 @@ private void testSecondaryIndex() throws SQLException {
         }
     }
 
+    private void testBulkLoad() throws SQLException {
+        deleteDb(getTestName());
+        // small buffers, so that sorted runs are merged
+        String url = getURL(getTestName() + ";MAX_MEMORY_ROWS=1000", true);
+        int size = 20_000;
+        try (Connection conn = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            stat.execute("create table test(id int primary key, a int, b varchar unique)");
+            stat.execute("create index test_a on test(a)");
+            stat.execute("set undo_log 0");
+            assertEquals(size, stat.executeUpdate("insert into test select mod(x * 7919, " + size + "), " +
+                    "mod(x, 100), 'b' || x from system_range(1, " + size + ")"));
+            ResultSet rs = stat.executeQuery("select count(*) from test where a = 5");
+            rs.next();
+            assertEquals(size / 100, rs.getInt(1));
+            rs = stat.executeQuery("select id from test where b = 'b3'");
+            rs.next();
+            assertEquals(3 * 7919 % size, rs.getInt(1));
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("insert into test values(0, 0, 'x')");
+            // the table is not empty, so the rows are added one by one
+            stat.execute("insert into test select -x, 0, 'c' || x from system_range(1, 10)");
+            stat.execute("create table test2(id int primary key, b int unique)");
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat)
+                    .execute("insert into test2 select x, mod(x, 10) from system_range(1, 5000)");
+            rs = stat.executeQuery("select count(*) from test2");
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+            stat.execute("create table test3 as select * from test");
+        }
+        try (Connection conn = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            for (String table : new String[] { "test", "test3" }) {
+                ResultSet rs = stat.executeQuery("select count(*), sum(id), count(distinct b) from " + table);
+                rs.next();
+                assertEquals(size + 10, rs.getInt(1));
+                assertEquals((long) size * (size - 1) / 2 - 55, rs.getLong(2));
+                assertEquals(size + 10, rs.getInt(3));
+            }
+            stat.execute("insert into test(id, a, b) values(" + size + ", 1, 'd')");
+            ResultSet rs = stat.executeQuery("select count(*) from test where a = 1");
+            rs.next();
+            assertEquals(size / 100 + 1, rs.getInt(1));
+        }
+    }
+
     private void testGarbageCollectionForLOB() throws SQLException {
         if (config.memory) {
             return;
@@ -14,13 +14,16 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import org.h2.engine.Constants;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 import org.h2.tools.DeleteDbFiles;
 import org.h2.tools.Recover;
+import org.h2.tools.RunScript;
 import org.h2.util.IOUtils;
+import org.h2.util.Task;
 
 /**
  * Tests database recovery.
@@ -57,6 +60,7 @@ public void test() throws Exception {
         testCompressedAndUncompressed();
         testRunScript();
         testRunScript2();
+        testRunScriptParallel();
     }
 
     private void testRecoverTestMode() throws Exception {
@@ -368,4 +372,73 @@ private void testRunScript2() throws SQLException {
         String dir = getBaseDir() + "/recovery.lobs.db";
         FileUtils.deleteRecursive(dir, false);
     }
+
+    private void testRunScriptParallel() throws Exception {
+        if (!config.mvStore) {
+            return;
+        }
+        DeleteDbFiles.execute(getBaseDir(), "recovery", true);
+        DeleteDbFiles.execute(getBaseDir(), "recovery2", true);
+        org.h2.Driver.load();
+        Connection conn = getConnection("recovery");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar) as " +
+                "select x, 'Hello ' || x from system_range(1, 1000)");
+        stat.execute("create table a(id int primary key) as " +
+                "select * from system_range(1, 100)");
+        stat.execute("create table b(id int references a(id)) as " +
+                "select * from system_range(1, 100)");
+        stat.execute("create table lob(c clob, b blob) as " +
+                "select space(10000) || 'end', SECURE_RAND(10000)");
+        stat.execute("create table empty(id int)");
+        conn.close();
+
+        Recover rec = new Recover();
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        rec.setOut(new PrintStream(buff));
+        rec.runTool("-dir", getBaseDir(), "-db", "recovery", "-parallel");
+        String out = new String(buff.toByteArray());
+        assertContains(out, "\"PUBLIC\".\"TEST\": 1000 rows, 0 errors");
+        assertContains(out, "1201 rows, 0 errors");
+
+        ArrayList<String> tableScripts = new ArrayList<>();
+        for (String f : FileUtils.newDirectoryStream(getBaseDir())) {
+            if (FileUtils.getName(f).matches("recovery\\.h2\\.\\d+\\.sql")) {
+                tableScripts.add(f);
+            }
+        }
+        assertEquals(5, tableScripts.size());
+        String url = getURL("recovery2", true);
+        RunScript.execute(url, getUser(), getPassword(), getBaseDir() + "/recovery.h2.sql", null, false);
+        // the table scripts can run concurrently
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (String f : tableScripts) {
+            tasks.add(new Task() {
+                @Override
+                public void call() throws Exception {
+                    RunScript.execute(url, getUser(), getPassword(), f, null, false);
+                }
+            }.execute());
+        }
+        for (Task t : tasks) {
+            t.get();
+        }
+        RunScript.execute(url, getUser(), getPassword(), getBaseDir() + "/recovery.h2.schema.sql", null, false);
+
+        conn = getConnection("recovery");
+        stat = conn.createStatement();
+        Connection conn2 = getConnection("recovery2");
+        Statement stat2 = conn2.createStatement();
+        assertEqualDatabases(stat, stat2);
+        conn.close();
+        conn2.close();
+
+        deleteDb("recovery");
+        deleteDb("recovery2");
+        FileUtils.delete(getBaseDir() + "/recovery.h2.sql");
+        FileUtils.delete(getBaseDir() + "/recovery.h2.schema.sql");
+        for (String f : tableScripts) {
+            FileUtils.delete(f);
+        }
+    }
 }
@@ -10,6 +10,7 @@
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -22,6 +23,9 @@
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Connection;
@@ -61,6 +65,7 @@
 import org.h2.tools.SimpleResultSet.SimpleArray;
 import org.h2.util.JdbcUtils;
 import org.h2.util.Task;
+import org.h2.util.Utils;
 import org.h2.value.ValueUuid;
 
 /**
@@ -95,6 +100,7 @@ public void test() throws Exception {
         org.h2.Driver.load();
         testSimpleResultSet();
         testTcpServerWithoutPort();
+        testTcpServerConnections();
         testConsole();
         testJdbcDriverUtils();
         testWrongServer();
@@ -132,6 +138,66 @@ private void testTcpServerWithoutPort() throws Exception {
         s1.stop();
     }
 
+    private void testTcpServerConnections() throws Exception {
+        deleteDb("testConnections");
+        Server server = Server.createTcpServer("-ifNotExists", "-baseDir", getBaseDir(),
+                "-tcpVirtualThreads", "-tcpMaxWorkers", "4").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/testConnections";
+        ArrayList<Connection> list = new ArrayList<>();
+        try {
+            Connection conn = getConnection(url, "sa", "");
+            list.add(conn);
+            conn.createStatement().execute("CREATE TABLE TEST(ID INT PRIMARY KEY) AS SELECT X FROM SYSTEM_RANGE(1, 100)");
+            for (int count = 50; count <= 200; count *= 2) {
+                while (list.size() < count) {
+                    list.add(getConnection(url, "sa", ""));
+                }
+                Task[] tasks = new Task[count];
+                long time = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    final Connection c = list.get(i);
+                    final int id = i % 100 + 1;
+                    tasks[i] = new Task() {
+                        @Override
+                        public void call() throws Exception {
+                            PreparedStatement prep = c.prepareStatement("SELECT ID FROM TEST WHERE ID = ?");
+                            for (int j = 0; j < 10; j++) {
+                                prep.setInt(1, id);
+                                ResultSet rs = prep.executeQuery();
+                                assertTrue(rs.next());
+                                assertEquals(id, rs.getInt(1));
+                            }
+                        }
+                    }.execute();
+                }
+                for (Task t : tasks) {
+                    t.get();
+                }
+                time = System.nanoTime() - time;
+                trace("connections: " + count + " rss: " + getRss() + " KB latency: " +
+                        time / count / 10 / 1000 + " us");
+            }
+        } finally {
+            for (Connection c : list) {
+                JdbcUtils.closeSilently(c);
+            }
+            server.stop();
+        }
+        deleteDb("testConnections");
+    }
+
+    private static long getRss() throws IOException {
+        Path status = Paths.get("/proc/self/status");
+        if (Files.exists(status)) {
+            for (String line : Files.readAllLines(status, StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        }
+        return Utils.getMemoryUsed();
+    }
+
     private void testConsole() throws Exception {
         String old = System.getProperty(SysProperties.H2_BROWSER);
         GUIConsole c = new GUIConsole();